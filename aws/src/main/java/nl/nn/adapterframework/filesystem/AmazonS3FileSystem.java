@@ -15,11 +15,6 @@
 */
 package nl.nn.adapterframework.filesystem;
 
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
@@ -29,18 +24,25 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Protocol;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.internal.BucketNameUtils;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
@@ -56,6 +58,10 @@ import nl.nn.adapterframework.util.CredentialFactory;
 public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWritableFileSystem<S3Object> {
 	private final @Getter(onMethod = @__(@Override)) String domain = "Amazon";
 	public static final List<String> AVAILABLE_REGIONS = getAvailableRegions();
+	/** Minimum size of the parts of a multipart upload, except for the last part, as required by S3 */
+	public static final int MINIMUM_PART_SIZE = 5 * 1024 * 1024;
+	/** Time to wait on close for part uploads that are in progress to end */
+	private static final long UPLOAD_TERMINATION_TIMEOUT_SECONDS = 30;
 //	public static final List<String> STORAGE_CLASSES = getStorageClasses();
 //	public static final List<String> TIERS = getTiers();
 
@@ -67,6 +73,13 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 	private boolean chunkedEncodingDisabled = false;
 	private boolean forceGlobalBucketAccessEnabled = false;
 	private String clientRegion = Regions.EU_WEST_1.getName();
+	private String serviceEndpoint;
+	private boolean pathStyleAccessEnabled = false;
+
+	private int multipartUploadPartSize = 8 * 1024 * 1024;
+	private int maxConcurrentPartUploads = 4;
+	private ExecutorService uploadExecutor;
+	private final Set<AmazonS3MultipartOutputStream> openStreams = ConcurrentHashMap.newKeySet();
 
 	private String bucketName;
 //	private String destinationBucketName;
@@ -94,6 +107,12 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 
 		if (StringUtils.isEmpty(getBucketName()) || !BucketNameUtils.isValidV2BucketName(getBucketName()))
 			throw new ConfigurationException(" invalid or empty bucketName [" + getBucketName() + "] please visit AWS to see correct bucket naming");
+
+		if (getMultipartUploadPartSize() < MINIMUM_PART_SIZE)
+			throw new ConfigurationException(" multipartUploadPartSize [" + getMultipartUploadPartSize() + "] must be at least [" + MINIMUM_PART_SIZE + "] bytes");
+
+		if (getMaxConcurrentPartUploads() < 1)
+			throw new ConfigurationException(" maxConcurrentPartUploads [" + getMaxConcurrentPartUploads() + "] must be at least 1");
 	}
 
 	@Override
@@ -102,16 +121,42 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 		BasicAWSCredentials awsCreds = new BasicAWSCredentials(cf.getUsername(), cf.getPassword());
 		AmazonS3ClientBuilder s3ClientBuilder = AmazonS3ClientBuilder.standard()
 				.withChunkedEncodingDisabled(isChunkedEncodingDisabled())
-				.withForceGlobalBucketAccessEnabled(isForceGlobalBucketAccessEnabled()).withRegion(getClientRegion())
+				.withForceGlobalBucketAccessEnabled(isForceGlobalBucketAccessEnabled())
+				.withPathStyleAccessEnabled(isPathStyleAccessEnabled())
 				.withCredentials(new AWSStaticCredentialsProvider(awsCreds))
 				.withClientConfiguration(this.getProxyConfig());
+		if (StringUtils.isNotEmpty(getServiceEndpoint())) {
+			s3ClientBuilder.withEndpointConfiguration(new EndpointConfiguration(getServiceEndpoint(), getClientRegion()));
+		} else {
+			s3ClientBuilder.withRegion(getClientRegion());
+		}
 		s3Client = s3ClientBuilder.build();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("S3Upload-" + getBucketName() + "-");
+		threadFactory.setDaemon(true);
+		uploadExecutor = Executors.newCachedThreadPool(threadFactory);
 		super.open();
 	}
 
 	@Override
 	public void close() throws FileSystemException {
 		super.close();
+		// streams that are not closed cannot be completed anymore, abort their uploads while the client is still available
+		for (AmazonS3MultipartOutputStream stream : openStreams) {
+			stream.fail("file system was closed before the stream was closed");
+		}
+		openStreams.clear();
+		if(uploadExecutor != null) {
+			uploadExecutor.shutdown();
+			try {
+				if (!uploadExecutor.awaitTermination(UPLOAD_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+					log.warn("part uploads to bucket ["+getBucketName()+"] did not end within ["+UPLOAD_TERMINATION_TIMEOUT_SECONDS+"] seconds");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				log.warn("interrupted while waiting for part uploads to bucket ["+getBucketName()+"] to end");
+			}
+			uploadExecutor = null;
+		}
 		if(s3Client != null) {
 			s3Client.shutdown();
 		}
@@ -168,6 +213,7 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 			S3Object object = new S3Object();
 			ObjectMetadata metadata = new ObjectMetadata();
 			metadata.setContentLength(summary.getSize());
+			metadata.setLastModified(summary.getLastModified());
 
 			object.setBucketName(summary.getBucketName());
 			object.setKey(summary.getKey());
@@ -187,32 +233,9 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 
 	@Override
 	public OutputStream createFile(final S3Object f) throws FileSystemException, IOException {
-		String fileName = FileUtils.getTempDirectory().getAbsolutePath() + "tempFile";
-
-		final File file = new File(fileName);
-		final FileOutputStream fos = new FileOutputStream(file);
-		final BufferedOutputStream bos = new BufferedOutputStream(fos);
-
-		FilterOutputStream filterOutputStream = new FilterOutputStream(bos) {
-			boolean isClosed = false;
-			@Override
-			public void close() throws IOException {
-				super.close();
-				bos.close();
-				if(!isClosed) {
-					try (FileInputStream fis = new FileInputStream(file)) {
-						ObjectMetadata metaData = new ObjectMetadata();
-						metaData.setContentLength(file.length());
-
-						s3Client.putObject(bucketName, f.getKey(), fis, metaData);
-					} finally {
-						file.delete();
-						isClosed = true;
-					}
-				}
-			}
-		};
-		return filterOutputStream;
+		AmazonS3MultipartOutputStream stream = new AmazonS3MultipartOutputStream(s3Client, bucketName, f.getKey(), uploadExecutor, getMultipartUploadPartSize(), getMaxConcurrentPartUploads(), openStreams::remove);
+		openStreams.add(stream);
+		return stream;
 	}
 
 	@Override
@@ -317,9 +340,30 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 		return attributes;
 	}
 
+	/**
+	 * Returns the metadata of the object, retrieving it with a HEAD request when it is not known yet,
+	 * e.g. when the object was not obtained from a listing. The content of the object is not retrieved.
+	 */
+	private ObjectMetadata getObjectMetadata(S3Object f) throws FileSystemException {
+		ObjectMetadata metadata = f.getObjectMetadata();
+		if (metadata.getRawMetadataValue(Headers.CONTENT_LENGTH) == null || metadata.getLastModified() == null) {
+			try {
+				metadata = s3Client.getObjectMetadata(bucketName, f.getKey());
+			} catch (AmazonServiceException e) {
+				if (e.getStatusCode() == 404) {
+					// keep the contract of getFileSize() and getModificationTime() for objects that do not exist: size 0, no modification time
+					return metadata;
+				}
+				throw new FileSystemException("Cannot retrieve metadata of [" + f.getKey() + "]", e);
+			}
+			f.setObjectMetadata(metadata);
+		}
+		return metadata;
+	}
+
 	@Override
 	public long getFileSize(S3Object f) throws FileSystemException {
-		return f.getObjectMetadata().getContentLength();
+		return getObjectMetadata(f).getContentLength();
 	}
 
 	@Override
@@ -339,13 +383,10 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 
 	@Override
 	public Date getModificationTime(S3Object f) throws FileSystemException {
-		S3Object file;
 		if(f.getKey().isEmpty()) {
 			return null;
 		}
-		file = s3Client.getObject(bucketName, f.getKey());
-		Date date = file.getObjectMetadata().getLastModified();
-		return date;
+		return getObjectMetadata(f).getLastModified();
 	}
 
 //	/**
@@ -578,6 +619,52 @@ public class AmazonS3FileSystem extends FileSystemBase<S3Object> implements IWri
 		return bucketName;
 	}
 
+	public String getServiceEndpoint() {
+		return serviceEndpoint;
+	}
+
+	/**
+	 * Endpoint of the S3 service, e.g. of a local S3 compatible server. When not set, the Amazon endpoint of the clientRegion is used.
+	 */
+	public void setServiceEndpoint(String serviceEndpoint) {
+		this.serviceEndpoint = serviceEndpoint;
+	}
+
+	public boolean isPathStyleAccessEnabled() {
+		return pathStyleAccessEnabled;
+	}
+
+	/**
+	 * When <code>true</code>, the bucket name is part of the path of requests instead of the host name. Often required by S3 compatible servers.
+	 */
+	public void setPathStyleAccessEnabled(boolean pathStyleAccessEnabled) {
+		this.pathStyleAccessEnabled = pathStyleAccessEnabled;
+	}
+
+	public int getMultipartUploadPartSize() {
+		return multipartUploadPartSize;
+	}
+
+	/**
+	 * Size in bytes of the parts in which files are uploaded. Files that are larger are uploaded with a multipart upload
+	 * while they are written, without buffering the complete file. Must be at least 5 MB.
+	 */
+	public void setMultipartUploadPartSize(int multipartUploadPartSize) {
+		this.multipartUploadPartSize = multipartUploadPartSize;
+	}
+
+	public int getMaxConcurrentPartUploads() {
+		return maxConcurrentPartUploads;
+	}
+
+	/**
+	 * Maximum number of parts of a file that are held in memory while they are written or uploaded. Limits the memory used by each upload to
+	 * <code>maxConcurrentPartUploads * multipartUploadPartSize</code> bytes.
+	 */
+	public void setMaxConcurrentPartUploads(int maxConcurrentPartUploads) {
+		this.maxConcurrentPartUploads = maxConcurrentPartUploads;
+	}
+
 	public void setBucketName(String bucketName) {
 		this.bucketName = bucketName;
 	}
@@ -0,0 +1,238 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * OutputStream that uploads the data written to it to an S3 object, without buffering the complete object.
+ * <p>
+ * Data is collected in parts of <code>partSize</code> bytes. As soon as the first part is full, a multipart upload is started,
+ * and each full part is uploaded by the executor while the next part is written. At most <code>maxConcurrentParts</code> parts
+ * of the stream are held in memory, a write that needs another part waits until the upload of a previous part has finished.
+ * Objects that fit in a single part are uploaded with a single put request when the stream is closed.
+ * When an upload fails, the multipart upload is aborted and the failure is thrown by the next write or by {@link #close()}.
+ * A stream that is still open when its file system is closed is failed by {@link #fail(String)}.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class AmazonS3MultipartOutputStream extends OutputStream {
+	protected Logger log = LogUtil.getLogger(this);
+
+	private final AmazonS3 s3Client;
+	private final String bucketName;
+	private final String key;
+	private final ExecutorService executor;
+	private final int partSize;
+	private final Semaphore availableParts;
+	private final Consumer<AmazonS3MultipartOutputStream> onClose;
+
+	private byte[] buffer;
+	private int position;
+	private String uploadId;
+	private final List<Future<PartETag>> uploads = new ArrayList<>();
+	private boolean closed;
+	private String failure;
+
+	/**
+	 * @param onClose called with the stream when it is closed, may be <code>null</code>
+	 */
+	public AmazonS3MultipartOutputStream(AmazonS3 s3Client, String bucketName, String key, ExecutorService executor, int partSize, int maxConcurrentParts, Consumer<AmazonS3MultipartOutputStream> onClose) {
+		this.s3Client = s3Client;
+		this.bucketName = bucketName;
+		this.key = key;
+		this.executor = executor;
+		this.partSize = partSize;
+		// one part is being written, the others can be uploaded concurrently
+		this.availableParts = new Semaphore(Math.max(maxConcurrentParts, 1));
+		this.onClose = onClose;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte)b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException(failure!=null ? failure : "stream for S3 object ["+key+"] is already closed");
+		}
+		while (len>0) {
+			if (buffer==null) {
+				acquirePart();
+			} else if (position==partSize) {
+				uploadPart();
+				acquirePart();
+			}
+			int count = Math.min(len, partSize-position);
+			System.arraycopy(b, off, buffer, position, count);
+			position += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	private void acquirePart() throws IOException {
+		try {
+			availableParts.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			abort();
+			throw new InterruptedIOException("interrupted while waiting for upload of part of S3 object ["+key+"]");
+		}
+		buffer = new byte[partSize];
+		position = 0;
+	}
+
+	private void uploadPart() throws IOException {
+		checkUploads();
+		if (uploadId==null) {
+			uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key)).getUploadId();
+			log.debug("initiated multipart upload [{}] of S3 object [{}]", uploadId, key);
+		}
+		UploadPartRequest request = new UploadPartRequest()
+				.withBucketName(bucketName)
+				.withKey(key)
+				.withUploadId(uploadId)
+				.withPartNumber(uploads.size()+1)
+				.withInputStream(new ByteArrayInputStream(buffer, 0, position))
+				.withPartSize(position);
+		buffer = null;
+		uploads.add(executor.submit(() -> {
+			try {
+				return s3Client.uploadPart(request).getPartETag();
+			} finally {
+				availableParts.release();
+			}
+		}));
+	}
+
+	/**
+	 * Throws the failure of any part upload that has finished, so a failing upload is reported as soon as possible.
+	 */
+	private void checkUploads() throws IOException {
+		for (Future<PartETag> upload : uploads) {
+			if (upload.isDone()) {
+				getPartETag(upload);
+			}
+		}
+	}
+
+	private PartETag getPartETag(Future<PartETag> upload) throws IOException {
+		try {
+			return upload.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			abort();
+			throw new InterruptedIOException("interrupted while waiting for upload of part of S3 object ["+key+"]");
+		} catch (ExecutionException e) {
+			abort();
+			throw new IOException("cannot upload part of S3 object ["+key+"]", e.getCause());
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			if (failure!=null) {
+				throw new IOException(failure);
+			}
+			return;
+		}
+		closed = true;
+		try {
+			if (uploadId==null) {
+				ObjectMetadata metadata = new ObjectMetadata();
+				metadata.setContentLength(position);
+				s3Client.putObject(bucketName, key, new ByteArrayInputStream(buffer!=null ? buffer : new byte[0], 0, position), metadata);
+				return;
+			}
+			if (position>0) {
+				uploadPart();
+			}
+			List<PartETag> partETags = new ArrayList<>();
+			for (Future<PartETag> upload : uploads) {
+				partETags.add(getPartETag(upload));
+			}
+			partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+			s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+			log.debug("completed multipart upload [{}] of S3 object [{}] in [{}] parts", uploadId, key, partETags.size());
+		} catch (SdkClientException e) {
+			abort();
+			throw new IOException("cannot upload S3 object ["+key+"]", e);
+		} finally {
+			buffer = null;
+			if (onClose!=null) {
+				onClose.accept(this);
+			}
+		}
+	}
+
+	/**
+	 * Aborts the upload of a stream that has not been closed yet. Subsequent writes and {@link #close()} throw an IOException with the reason.
+	 */
+	public synchronized void fail(String reason) {
+		if (closed) {
+			return;
+		}
+		failure = "cannot upload S3 object ["+key+"]: "+reason;
+		log.warn(failure);
+		buffer = null;
+		abort();
+	}
+
+	private void abort() {
+		closed = true;
+		for (Future<PartETag> upload : uploads) {
+			upload.cancel(true);
+		}
+		if (uploadId!=null) {
+			try {
+				s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+				log.debug("aborted multipart upload [{}] of S3 object [{}]", uploadId, key);
+			} catch (SdkClientException e) {
+				log.warn("cannot abort multipart upload ["+uploadId+"] of S3 object ["+key+"]", e);
+			}
+			uploadId = null;
+		}
+	}
+}
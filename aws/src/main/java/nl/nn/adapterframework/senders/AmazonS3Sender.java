@@ -157,6 +157,26 @@ public class AmazonS3Sender extends FileSystemSender<S3Object, AmazonS3FileSyste
 		getFileSystem().setBucketName(bucketName);
 	}
 
+	@IbisDoc({ "endpoint of the S3 service, e.g. of a local S3 compatible server. When not set, the Amazon endpoint of the clientRegion is used", "" })
+	public void setServiceEndpoint(String serviceEndpoint) {
+		getFileSystem().setServiceEndpoint(serviceEndpoint);
+	}
+
+	@IbisDoc({ "when <code>true</code>, the bucket name is part of the path of requests instead of the host name. Often required by S3 compatible servers", "false" })
+	public void setPathStyleAccessEnabled(boolean pathStyleAccessEnabled) {
+		getFileSystem().setPathStyleAccessEnabled(pathStyleAccessEnabled);
+	}
+
+	@IbisDoc({ "size in bytes of the parts in which files are uploaded. Larger files are uploaded with a multipart upload while they are written. Must be at least 5 MB", "8388608" })
+	public void setMultipartUploadPartSize(int multipartUploadPartSize) {
+		getFileSystem().setMultipartUploadPartSize(multipartUploadPartSize);
+	}
+
+	@IbisDoc({ "maximum number of parts of a file that are held in memory while they are written or uploaded", "4" })
+	public void setMaxConcurrentPartUploads(int maxConcurrentPartUploads) {
+		getFileSystem().setMaxConcurrentPartUploads(maxConcurrentPartUploads);
+	}
+
 //	@IbisDoc({ "name of the destination bucket name can be used for copy action", "" }) 
 //	public void setDestinationBucketName(String destinationBucketName) {
 //		getFileSystem().setDestinationBucketName(destinationBucketName);
@@ -0,0 +1,76 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import nl.nn.adapterframework.http.rest.ApiDispatchConfig;
+import nl.nn.adapterframework.http.rest.ApiListener;
+import nl.nn.adapterframework.http.rest.ApiListener.HttpMethod;
+import nl.nn.adapterframework.http.rest.ApiServiceDispatcher;
+
+/**
+ * Routing of request uris by the {@link ApiServiceDispatcher}, as done by the ApiListenerServlet for every request,
+ * against a varying number of registered ApiListener endpoints.
+ */
+public class ApiServiceDispatcherBenchmark extends BenchmarkBase {
+
+	@Param({"10", "100", "1500"})
+	private int endpoints;
+
+	private ApiServiceDispatcher dispatcher;
+
+	@Setup
+	public void setUp() throws Exception {
+		dispatcher = new ApiServiceDispatcher();
+		for (int i=0; i<endpoints; i+=3) {
+			register("/service"+i+"/items");
+			register("/service"+i+"/items/{id}");
+			register("/service"+i+"/items/{id}/lines/{line}");
+		}
+	}
+
+	private void register(String uriPattern) throws Exception {
+		ApiListener listener = new ApiListener();
+		listener.setName("listener "+uriPattern);
+		listener.setMethod(HttpMethod.GET);
+		listener.setUriPattern(uriPattern);
+		dispatcher.registerServiceClient(listener);
+	}
+
+	private int randomService() {
+		return ThreadLocalRandom.current().nextInt((endpoints+2)/3)*3;
+	}
+
+	@Benchmark
+	public ApiDispatchConfig findConfigForUri() {
+		return dispatcher.findConfigForUri("/service"+randomService()+"/items/12345");
+	}
+
+	@Benchmark
+	public ApiDispatchConfig findConfigForNestedUri() {
+		return dispatcher.findConfigForUri("/service"+randomService()+"/items/12345/lines/3");
+	}
+
+	@Benchmark
+	public ApiDispatchConfig findConfigForUnknownUri() {
+		return dispatcher.findConfigForUri("/unknown/items/12345");
+	}
+}
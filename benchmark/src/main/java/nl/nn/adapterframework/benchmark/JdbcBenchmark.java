@@ -0,0 +1,113 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.benchmark;
+
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.jdbc.FixedQuerySender;
+import nl.nn.adapterframework.parameters.Parameter;
+import nl.nn.adapterframework.parameters.Parameter.ParameterType;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.testutil.TestConfiguration;
+import nl.nn.adapterframework.testutil.TransactionManagerType;
+import nl.nn.adapterframework.util.JdbcUtil;
+
+/**
+ * Queries executed by a {@link FixedQuerySender} against an in-memory H2 database.
+ */
+public class JdbcBenchmark extends BenchmarkBase {
+
+	private static final String PRODUCT_KEY = "H2";
+	private static final String TABLE = "BENCHMARK";
+	private static final int ROWS = 1000;
+
+	private Connection connection;
+	private FixedQuerySender selectSender;
+	private FixedQuerySender updateSender;
+
+	@Setup
+	public void setUp() throws Exception {
+		TransactionManagerType type = TransactionManagerType.DATASOURCE;
+		DataSource dataSource = type.getDataSource(PRODUCT_KEY);
+		TestConfiguration configuration = type.getConfigurationContext(PRODUCT_KEY);
+
+		// keep a connection open, to prevent the in-memory database from being dropped
+		connection = dataSource.getConnection();
+		JdbcUtil.executeStatement(connection, "DROP TABLE IF EXISTS "+TABLE);
+		JdbcUtil.executeStatement(connection, "CREATE TABLE "+TABLE+" (TKEY INT PRIMARY KEY, TVARCHAR VARCHAR(100), TINT INT)");
+		for (int i=0; i<ROWS; i++) {
+			JdbcUtil.executeStatement(connection, "INSERT INTO "+TABLE+" (TKEY, TVARCHAR, TINT) VALUES ("+i+", 'value "+i+"', 0)");
+		}
+
+		selectSender = createSender(configuration, "SELECT TKEY, TVARCHAR, TINT FROM "+TABLE+" WHERE TKEY=?", "select");
+		updateSender = createSender(configuration, "UPDATE "+TABLE+" SET TINT=TINT+1 WHERE TKEY=?", "other");
+	}
+
+	private FixedQuerySender createSender(TestConfiguration configuration, String query, String queryType) throws Exception {
+		FixedQuerySender sender = configuration.createBean(FixedQuerySender.class);
+		sender.setName(queryType+"Sender");
+		sender.setDatasourceName(PRODUCT_KEY);
+		sender.setQuery(query);
+		sender.setQueryType(queryType);
+		Parameter key = new Parameter();
+		key.setName("key");
+		key.setType(ParameterType.INTEGER);
+		sender.addParameter(key);
+		sender.configure();
+		sender.open();
+		return sender;
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		selectSender.close();
+		updateSender.close();
+		JdbcUtil.executeStatement(connection, "DROP TABLE "+TABLE);
+		connection.close();
+	}
+
+	private String send(FixedQuerySender sender) throws Exception {
+		Message input = new Message(Integer.toString(ThreadLocalRandom.current().nextInt(ROWS)));
+		try (PipeLineSession session = new PipeLineSession()) {
+			return sender.sendMessageOrThrow(input, session).asString();
+		}
+	}
+
+	@Benchmark
+	public String select() throws Exception {
+		return send(selectSender);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String selectConcurrently() throws Exception {
+		return send(selectSender);
+	}
+
+	@Benchmark
+	public String update() throws Exception {
+		return send(updateSender);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import nl.nn.adapterframework.stream.Message;
+
+/**
+ * Conversions between the representations of a {@link Message}.
+ */
+public class MessageBenchmark extends BenchmarkBase {
+
+	@Param({"1024", "1048576"})
+	public int size;
+
+	private String string;
+	private byte[] bytes;
+
+	@Setup
+	public void setUp() {
+		string = StringUtils.repeat("<a>é</a>", size/9);
+		bytes = string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public String bytesAsString() throws IOException {
+		return new Message(bytes).asString();
+	}
+
+	@Benchmark
+	public byte[] stringAsByteArray() throws IOException {
+		return new Message(string).asByteArray();
+	}
+
+	@Benchmark
+	public String inputStreamAsString() throws IOException {
+		return new Message(new ByteArrayInputStream(bytes)).asString();
+	}
+
+	@Benchmark
+	public byte[] readerAsByteArray() throws IOException {
+		return new Message(new StringReader(string)).asByteArray();
+	}
+
+	@Benchmark
+	public Message preserveInputStream() throws IOException {
+		Message message = new Message(new ByteArrayInputStream(bytes));
+		message.preserve();
+		return message;
+	}
+}
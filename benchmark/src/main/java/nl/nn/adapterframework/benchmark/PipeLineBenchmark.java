@@ -0,0 +1,117 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.benchmark;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.core.env.PropertiesPropertySource;
+
+import nl.nn.adapterframework.core.Adapter;
+import nl.nn.adapterframework.core.PipeForward;
+import nl.nn.adapterframework.core.PipeLine;
+import nl.nn.adapterframework.core.PipeLine.ExitState;
+import nl.nn.adapterframework.core.PipeLineExit;
+import nl.nn.adapterframework.core.PipeLineResult;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.pipes.EchoPipe;
+import nl.nn.adapterframework.pipes.XsltPipe;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.testutil.TestConfiguration;
+import nl.nn.adapterframework.testutil.TestFileUtils;
+import nl.nn.adapterframework.testutil.TransactionManagerType;
+import nl.nn.adapterframework.testutil.URLDataSourceFactory;
+import nl.nn.adapterframework.util.RunState;
+
+/**
+ * Processing of messages by an in-memory adapter, to measure the overhead of the PipeLineProcessor and
+ * PipeProcessor chains, including statistics, around a pipeline of an EchoPipe and an XsltPipe.
+ */
+public class PipeLineBenchmark extends BenchmarkBase {
+
+	private TestConfiguration configuration;
+	private Adapter adapter;
+	private String input;
+	private final AtomicLong messageId = new AtomicLong();
+
+	@Setup
+	public void setUp() throws Exception {
+		input = TestFileUtils.getTestFile("/Align/FamilyTree/family.xml");
+		// the processor chains use the transaction manager of the database enabled configuration
+		configuration = new TestConfiguration("springTOMCAT.xml", TestConfiguration.TEST_DATABASE_ENABLED_CONFIGURATION_FILE, "benchmarkProcessorsContext.xml");
+		Properties properties = new Properties();
+		properties.setProperty("URLDataSourceFactory", URLDataSourceFactory.class.getCanonicalName());
+		properties.setProperty("DataSourceName", "H2");
+		properties.setProperty("TransactionManagerType", TransactionManagerType.DATASOURCE.name());
+		configuration.getEnvironment().getPropertySources().addFirst(new PropertiesPropertySource("benchmarkProperties", properties));
+		configuration.refresh();
+
+		PipeLine pipeline = configuration.createBean(PipeLine.class);
+		EchoPipe echo = configuration.createBean(EchoPipe.class);
+		echo.setName("echo");
+		echo.registerForward(new PipeForward(PipeForward.SUCCESS_FORWARD_NAME, "xpath"));
+		pipeline.addPipe(echo);
+		XsltPipe xpath = configuration.createBean(XsltPipe.class);
+		xpath.setName("xpath");
+		xpath.setNamespaceDefs("f=urn:family");
+		xpath.setXpathExpression("count(//f:child)");
+		xpath.registerForward(new PipeForward(PipeForward.SUCCESS_FORWARD_NAME, "exit"));
+		pipeline.addPipe(xpath);
+		PipeLineExit exit = new PipeLineExit();
+		exit.setPath("exit");
+		exit.setState(ExitState.SUCCESS);
+		pipeline.registerPipeLineExit(exit);
+
+		adapter = configuration.createBean(Adapter.class);
+		adapter.setName("PipeLineBenchmark");
+		adapter.setPipeLine(pipeline);
+		configuration.registerAdapter(adapter);
+		adapter.configure();
+		configuration.initMetrics();
+		adapter.startRunning();
+		while (adapter.getRunState()!=RunState.STARTED) {
+			if (adapter.getRunState()==RunState.ERROR) {
+				throw new IllegalStateException("adapter failed to start");
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		adapter.stopRunning();
+		configuration.close();
+	}
+
+	@Benchmark
+	public PipeLineResult processMessage() throws Exception {
+		try (PipeLineSession session = new PipeLineSession()) {
+			PipeLineResult result = adapter.processMessage("benchmark-"+messageId.incrementAndGet(), new Message(input), session);
+			result.getResult().asString();
+			return result;
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public PipeLineResult processMessageConcurrently() throws Exception {
+		return processMessage();
+	}
+}
@@ -0,0 +1,118 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+
+import javax.xml.transform.TransformerException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import nl.nn.adapterframework.align.Json2Xml;
+import nl.nn.adapterframework.align.Xml2Json;
+import nl.nn.adapterframework.core.PipeForward;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.PipeRunResult;
+import nl.nn.adapterframework.pipes.XmlValidator;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.testutil.TestFileUtils;
+import nl.nn.adapterframework.util.TransformerPool;
+import nl.nn.adapterframework.util.XmlUtils;
+
+/**
+ * Parsing, transforming, validating and converting XML documents, using the FamilyTree test document of core.
+ */
+public class XmlBenchmark extends BenchmarkBase {
+
+	private static final String SCHEMA = "/Align/FamilyTree/family.xsd";
+	private static final String NAMESPACE = "urn:family";
+	private static final String ROOT = "family";
+
+	private String xml;
+	private String json;
+	private URL schemaUrl;
+
+	private TransformerPool xslt2Pool;
+	private TransformerPool xslt1Pool;
+	private XmlValidator validator;
+
+	@Setup
+	public void setUp() throws Exception {
+		xml = TestFileUtils.getTestFile("/Align/FamilyTree/family.xml");
+		json = TestFileUtils.getTestFile("/Align/FamilyTree/family-compact.json");
+		schemaUrl = TestFileUtils.getTestFileURL(SCHEMA);
+
+		xslt2Pool = TransformerPool.getInstance(XmlUtils.createXPathEvaluatorSource("f=" + NAMESPACE, "count(//f:child)", TransformerPool.OutputType.TEXT), 2);
+		xslt1Pool = TransformerPool.getInstance(XmlUtils.createXPathEvaluatorSource("f=" + NAMESPACE, "//f:member[f:children]", TransformerPool.OutputType.XML), 1);
+
+		validator = new XmlValidator();
+		validator.setName("validator");
+		validator.setSchema(SCHEMA);
+		validator.setRoot(ROOT);
+		validator.setThrowException(true);
+		validator.registerForward(new PipeForward(PipeForward.SUCCESS_FORWARD_NAME, null));
+		validator.configure();
+		validator.start();
+	}
+
+	@TearDown
+	public void tearDown() {
+		validator.stop();
+		xslt2Pool.close();
+		xslt1Pool.close();
+	}
+
+	@Benchmark
+	public void parseXml() throws IOException, SAXException {
+		XmlUtils.parseXml(xml, new DefaultHandler());
+	}
+
+	@Benchmark
+	public Document buildDomDocument() throws Exception {
+		return XmlUtils.buildDomDocument(xml, true);
+	}
+
+	@Benchmark
+	public String xpathXslt2() throws TransformerException, IOException, SAXException {
+		return xslt2Pool.transform(new Message(xml), null);
+	}
+
+	@Benchmark
+	public String xpathXslt1() throws TransformerException, IOException, SAXException {
+		return xslt1Pool.transform(new Message(xml), null);
+	}
+
+	@Benchmark
+	public PipeRunResult validate() throws Exception {
+		return validator.doPipe(new Message(xml), new PipeLineSession());
+	}
+
+	@Benchmark
+	public String json2xml() throws SAXException {
+		return Json2Xml.translate(json, schemaUrl, true, ROOT, NAMESPACE);
+	}
+
+	@Benchmark
+	public String xml2json() throws SAXException, IOException {
+		return Xml2Json.translate(xml, schemaUrl, true, true).toString();
+	}
+}
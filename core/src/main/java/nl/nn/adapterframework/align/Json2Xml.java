@@ -261,7 +261,8 @@ public class Json2Xml extends Tree2Xml<JsonValue,JsonValue> {
 					}
 				} else {
 					if (log.isTraceEnabled()) log.trace("childname ["+name+"] returning elements of array node (insertElementContainerElements=false or not singleMultipleOccurringChildElement)");
-					result.addAll((JsonArray)child);
+					// return the array itself instead of a copy, arrays read by a LazyJsonReader are then iterated without reading all elements in memory
+					return (JsonArray)child;
 				}
 				return result;
 			}
@@ -472,22 +472,23 @@ public class RecordTransformer extends AbstractRecordHandler {
 	 */
 	class FixedDateOutput implements IOutputField {
 		private int inputFieldIndex = -1;
-		private SimpleDateFormat outFormatter;
-		private SimpleDateFormat inFormatter;
+		// SimpleDateFormat is not thread safe, while records may be transformed concurrently
+		private ThreadLocal<SimpleDateFormat> outFormatter;
+		private ThreadLocal<SimpleDateFormat> inFormatter;
 
 		FixedDateOutput(String outFormatPattern, String inFormatPattern, int inputFieldIndex) {
 			this.inputFieldIndex = inputFieldIndex;
 			if (StringUtils.isEmpty(outFormatPattern)) {
-				this.outFormatter = new SimpleDateFormat();
+				this.outFormatter = ThreadLocal.withInitial(SimpleDateFormat::new);
 			}
 			else {
-				this.outFormatter = new SimpleDateFormat(outFormatPattern);
+				this.outFormatter = ThreadLocal.withInitial(() -> new SimpleDateFormat(outFormatPattern));
 			}
 			if (StringUtils.isEmpty(inFormatPattern)) {
-				this.inFormatter = new SimpleDateFormat();
+				this.inFormatter = ThreadLocal.withInitial(SimpleDateFormat::new);
 			}
 			else {
-				this.inFormatter = new SimpleDateFormat(inFormatPattern);
+				this.inFormatter = ThreadLocal.withInitial(() -> new SimpleDateFormat(inFormatPattern));
 			}
 		}
 
@@ -502,9 +503,9 @@ public class RecordTransformer extends AbstractRecordHandler {
 				if (inputFieldIndex >= inputFields.size()) {
 					throw new ConfigurationException("Function refers to a non-existing inputfield [" + inputFieldIndex + "]");
 				}
-				date = inFormatter.parse(inputFields.get(inputFieldIndex));
+				date = inFormatter.get().parse(inputFields.get(inputFieldIndex));
 			}
-			result.append(outFormatter.format(date));
+			result.append(outFormatter.get().format(date));
 			return null;
 		}
 	}
@@ -514,39 +515,50 @@ public class RecordTransformer extends AbstractRecordHandler {
 	 * @author John Dekker
 	 */
 	abstract class Condition implements IOutputField {
-		private boolean output;
 
 		@Override
 		public IOutputField appendValue(IOutputField curFunction, StringBuffer result, List<String> inputFields) throws Exception {
-			// first call, check wether the condition is true or false 
-			if (this == curFunction) {
-				output = conditionIsTrue(inputFields);
-				return this;
-			}
+			// first call, check wether the condition is true or false. The outcome is kept per record, as records may be transformed concurrently
+			return new ConditionOutcome(this, conditionIsTrue(inputFields));
+		}
+
+		protected abstract boolean conditionIsTrue(List<String> inputFields) throws ConfigurationException;
+		protected abstract boolean isEndMarker(IOutputField function);
+	}
+
+	/**
+	 * Outcome of a condition for the record that is being transformed.
+	 */
+	class ConditionOutcome implements IOutputField {
+		private final Condition condition;
+		private final boolean output;
+
+		ConditionOutcome(Condition condition, boolean output) {
+			this.condition = condition;
+			this.output = output;
+		}
 
+		@Override
+		public IOutputField appendValue(IOutputField curFunction, StringBuffer result, List<String> inputFields) throws Exception {
 			// check if the condition has to be left
-			if (isEndMarker(curFunction)) {
+			if (condition.isEndMarker(curFunction)) {
 				return null;
 			}
 
 			if (output) {
 				// write the result of the funtion to the output
-				IOutputField condition = curFunction.appendValue(curFunction, result, inputFields);
-				if (condition != null)
-					return condition;
+				IOutputField subCondition = curFunction.appendValue(curFunction, result, inputFields);
+				if (subCondition != null)
+					return subCondition;
 			}
 			else {
 				// function is a subcondition within this condition 
 				if (curFunction instanceof Condition) {
-					((Condition)curFunction).output = false;
-					return curFunction;
+					return new ConditionOutcome((Condition)curFunction, false);
 				}
 			}
 			return this;
 		}
-
-		protected abstract boolean conditionIsTrue(List<String> inputFields) throws ConfigurationException;
-		protected abstract boolean isEndMarker(IOutputField function);
 	}
 
 	/**
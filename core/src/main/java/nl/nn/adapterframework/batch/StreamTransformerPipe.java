@@ -19,15 +19,19 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.task.TaskExecutor;
 
 import lombok.Getter;
+import lombok.Setter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.configuration.SuppressKeys;
@@ -40,7 +44,11 @@ import nl.nn.adapterframework.doc.ElementType;
 import nl.nn.adapterframework.doc.ElementType.ElementTypes;
 import nl.nn.adapterframework.pipes.FixedForwardPipe;
 import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.stream.ThreadConnector;
+import nl.nn.adapterframework.stream.ThreadLifeCycleEventListener;
 import nl.nn.adapterframework.util.FileUtils;
+import nl.nn.adapterframework.util.Guard;
+import nl.nn.adapterframework.util.Semaphore;
 import nl.nn.adapterframework.util.StreamUtil;
 
 /**
@@ -70,6 +78,12 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 
 	private @Getter IReaderFactory readerFactory=new InputStreamReaderFactory();
 
+	private @Getter int maxThreads=1;
+	private @Getter int chunkSize=1000;
+	private @Getter @Setter TaskExecutor taskExecutor;
+	private @Setter ThreadLifeCycleEventListener<Object> threadLifeCycleEventListener;
+	private Semaphore childThreadSemaphore=null;
+
 	protected String getStreamId(Message input, PipeLineSession session) {
 		return session.getCorrelationId();
 	}
@@ -138,6 +152,12 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 			IResultHandler handler = getResultHandler(resultHandlerName);
 			handler.configure();
 		}
+		if (getChunkSize()<1) {
+			throw new ConfigurationException("chunkSize ["+getChunkSize()+"] must be at least 1");
+		}
+		if (getMaxThreads()>1) {
+			childThreadSemaphore=new Semaphore(getMaxThreads());
+		}
 	}
 
 	@Override
@@ -393,17 +413,50 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 		}
 	}
 
+	/**
+	 * A record read from the stream, with the flow to handle it and, once transformed, its parsed fields and result.
+	 */
+	private static class Record {
+		private final int linenumber;
+		private final String rawRecord;
+		private final RecordHandlingFlow flow;
+		private final String managerName;
+		private boolean transformed;
+		private List<String> parsedRecord;
+		private String result;
+		private Exception exception;
+
+		Record(int linenumber, String rawRecord, RecordHandlingFlow flow, String managerName) {
+			this.linenumber = linenumber;
+			this.rawRecord = rawRecord;
+			this.flow = flow;
+			this.managerName = managerName;
+		}
+	}
+
+	/**
+	 * State of the transformation of a single stream, that is carried from one record to the next.
+	 */
+	private static class TransformState {
+		private int linenumber = 0;
+		private int counter = 0;
+		private StringBuffer sb = null;
+		private List<String> prevParsedRecord = null;
+		private IRecordHandler prevHandler = null;
+	}
+
 	/*
 	 * Read all lines from the reader, treat every line as a record and transform
 	 * it using the registered managers, record- and result handlers.
+	 * When maxThreads is larger than 1, records are parsed and transformed by threads of the taskExecutor, in chunks of chunkSize records,
+	 * while the results are handled by the calling thread, in the order of the records.
 	 */
 	private String transform(String streamId, BufferedReader reader, PipeLineSession session, Map<String, Object> blocks) throws PipeRunException {
 		String rawRecord = null;
 		int linenumber = 0;
-		int counter = 0;
-		StringBuffer sb = null;
-		List<String> prevParsedRecord = null;
-		IRecordHandler prevHandler = null;
+		TransformState state = new TransformState();
+		Deque<ChunkTransformer> chunksInProgress = new ArrayDeque<>();
+		List<Record> chunk = null;
 
 		IRecordHandlerManager currentManager = initialManager.getRecordFactoryUsingFilename(session, streamId);
 		try {
@@ -423,92 +476,246 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 					log.debug("<no flow>: "+rawRecord);
 					continue; // ignore line for which no handlers are registered
 				}
-				//log.debug("flow ["+flow.getRecordKey()+"] openBlockBeforeLine ["+flow.getOpenBlockBeforeLine()+"]");
-				IResultHandler resultHandler = flow.getResultHandler();
-				closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockBeforeLine(),"closeBlockBeforeLine of flow ["+flow.getRecordKey()+"]",blocks);
-				String obbl = null;
-				if (flow.getOpenBlockBeforeLineNumber()>0) {
-					if (counter%flow.getOpenBlockBeforeLineNumber()==0) {
-						obbl = flow.getOpenBlockBeforeLine();
-					}
+				Record record = new Record(linenumber, rawRecord, flow, currentManager.getName());
+				if (childThreadSemaphore == null) {
+					state.linenumber = linenumber;
+					handleRecord(session, streamId, record, state, blocks);
 				} else {
-					obbl = flow.getOpenBlockBeforeLine();
-				}
-				openBlock(session, resultHandler, streamId, flow, obbl, blocks);
-
-				if (isStoreOriginalBlock()) {
-					if (resultHandler instanceof ResultBlock2Sender) {
-						// If blocks does not contain a previous block, it never existed, or has been removed by closing the block.
-						// In both cases a new block has just started
-						if (!blocks.containsKey(originalBlockKey)) {
-							sb = new StringBuffer();
-						}
-						if (sb.length()>0) {
-							sb.append(System.getProperty("line.separator"));
-						}
-						sb.append(rawRecord);
-						// already put the block in the blocks, also if the block is not yet complete.
-						blocks.put(originalBlockKey, sb.toString());
+					if (chunk == null) {
+						chunk = new ArrayList<>(getChunkSize());
 					}
-				}
-
-				IRecordHandler curHandler = flow.getRecordHandler();
-				if (curHandler != null) {
-					if (log.isDebugEnabled()) log.debug("manager ["+currentManager.getName()+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] line ["+linenumber+"] record ["+rawRecord+"]");
-					// there is a record handler, so transform the line
-					List<String> parsedRecord = curHandler.parse(session, rawRecord);
-					String result = curHandler.handleRecord(session, parsedRecord);
-					counter++;
-
-					// if there is a result handler, write the transformed result
-					if (result != null && resultHandler != null) {
-						boolean recordTypeChanged = curHandler.isNewRecordType(session, curHandler.equals(prevHandler), prevParsedRecord, parsedRecord);
-						if (log.isTraceEnabled()) log.trace("manager ["+currentManager.getName()+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] recordTypeChanged ["+recordTypeChanged+"]");
-						if (recordTypeChanged && prevHandler!=null && resultHandler.isBlockByRecordType()) {
-							String prevRecordType = prevHandler.getRecordType(prevParsedRecord);
-							if (log.isDebugEnabled()) log.debug("record handler ["+prevHandler.getName()+"] result handler ["+resultHandler.getName()+"] closing block for record type ["+prevRecordType+"]");
-							closeBlock(session, resultHandler, streamId, flow, prevRecordType, "record type change", blocks);
+					chunk.add(record);
+					if (chunk.size() >= getChunkSize()) {
+						// limit the number of chunks in memory, by handling the results of the oldest chunk first
+						while (chunksInProgress.size() >= 2 * getMaxThreads()) {
+							handleChunk(session, streamId, chunksInProgress.poll(), state, blocks);
 						}
-						// the hasPrefix() call allows users use a suffix without a prefix.
-						// The suffix is then only written at the end of the file.
-						if (recordTypeChanged && resultHandler.hasPrefix()) {
-							if (prevHandler != null)  {
-								resultHandler.closeRecordType(session, streamId);
-							}
-							resultHandler.openRecordType(session, streamId);
-						}
-						if (recordTypeChanged && resultHandler.isBlockByRecordType()) {
-							String recordType = curHandler.getRecordType(parsedRecord);
-							if (log.isDebugEnabled()) log.debug("record handler ["+curHandler.getName()+"] result handler ["+resultHandler.getName()+"] opening block ["+recordType+"]");
-							openBlock(session, resultHandler, streamId, flow, recordType, blocks);
-						}
-						resultHandler.handleResult(session, streamId, flow.getRecordKey(), result);
+						chunksInProgress.add(submitChunk(session, chunk));
+						chunk = null;
 					}
-					prevParsedRecord = parsedRecord;
-					prevHandler = curHandler;
-				} else {
-					if (log.isDebugEnabled()) log.debug("manager ["+currentManager.getName()+"] key ["+flow.getRecordKey()+"], no record handler, line ["+linenumber+"] record ["+rawRecord+"]");
 				}
 
-				closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockAfterLine(),"closeBlockAfterLine of flow ["+flow.getRecordKey()+"]", blocks);
-				openBlock(session, resultHandler, streamId, flow, flow.getOpenBlockAfterLine(), blocks);
-
 				// get the manager for the next record
 				currentManager = flow.getNextRecordHandlerManager();
 			}
+			if (chunk != null) {
+				chunksInProgress.add(submitChunk(session, chunk));
+			}
+			while (!chunksInProgress.isEmpty()) {
+				handleChunk(session, streamId, chunksInProgress.poll(), state, blocks);
+			}
 			return finalizeResult(session, streamId, false, blocks);
 		} catch(Exception e) {
+			// wait for the chunks in progress, so the record handlers are not used by other threads anymore when the pipe returns
+			for (ChunkTransformer chunkTransformer : chunksInProgress) {
+				chunkTransformer.cancel();
+			}
+			for (ChunkTransformer chunkTransformer : chunksInProgress) {
+				try {
+					chunkTransformer.waitForCompletion();
+				} catch (Throwable t) {
+					log.warn("exception in chunk of [" + streamId + "] after error", t);
+				}
+			}
 			try {
 				finalizeResult(session, streamId, true, blocks);
 			} catch(Throwable t) {
 				log.error("Unexpected error during finalizeResult of [" + streamId + "]", t);
 			}
-			throw new PipeRunException(this, "Error while transforming [" + streamId + "] at or after line [" + linenumber+"]", e);
+			throw new PipeRunException(this, "Error while transforming [" + streamId + "] at or after line [" + (childThreadSemaphore == null ? linenumber : state.linenumber)+"]", e);
 		} finally {
 			closeDocument(session,streamId);
 		}
 	}
 
+	private ChunkTransformer submitChunk(PipeLineSession session, List<Record> chunk) throws Exception {
+		ChunkTransformer chunkTransformer = new ChunkTransformer(chunk, session);
+		childThreadSemaphore.acquire();
+		try {
+			getTaskExecutor().execute(chunkTransformer);
+		} catch (RuntimeException e) {
+			chunkTransformer.finish();
+			chunkTransformer.waitForCompletion();
+			throw e;
+		}
+		return chunkTransformer;
+	}
+
+	private void handleChunk(PipeLineSession session, String streamId, ChunkTransformer chunk, TransformState state, Map<String, Object> blocks) throws Exception {
+		chunk.waitForCompletion();
+		for (Record record : chunk.records) {
+			state.linenumber = record.linenumber;
+			handleRecord(session, streamId, record, state, blocks);
+		}
+	}
+
+	/**
+	 * Transforms a chunk of records in a thread of the taskExecutor. The PipeLineSession is not thread safe, so the records are
+	 * transformed using a copy of the session, that is closed when the chunk has been transformed.
+	 */
+	private class ChunkTransformer implements Runnable {
+		private final List<Record> records;
+		private final PipeLineSession chunkSession;
+		private final ThreadConnector<Object> threadConnector;
+		private final Guard done = new Guard(1);
+		private volatile boolean cancelled = false;
+		private Throwable throwable;
+
+		ChunkTransformer(List<Record> records, PipeLineSession session) {
+			this.records = records;
+			chunkSession = new PipeLineSession(session);
+			// the transaction of the pipeline is not connected, as it cannot be shared by concurrent threads
+			threadConnector = new ThreadConnector<>(StreamTransformerPipe.this, "transformChunk", threadLifeCycleEventListener, null, session);
+		}
+
+		@Override
+		public void run() {
+			try {
+				threadConnector.startThread(null);
+				for (Record record : records) {
+					if (cancelled) {
+						break;
+					}
+					try {
+						transformRecord(chunkSession, record);
+					} catch (Exception e) {
+						// the exception is thrown when the record is handled, so the records before it are handled normally
+						record.exception = e;
+						break;
+					}
+				}
+				threadConnector.endThread(null);
+			} catch (Throwable t) {
+				throwable = threadConnector.abortThread(t);
+			} finally {
+				finish();
+			}
+		}
+
+		private void finish() {
+			try {
+				chunkSession.close();
+			} finally {
+				childThreadSemaphore.release();
+				done.releaseResource();
+			}
+		}
+
+		void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 * Waits until the chunk has been transformed, and rethrows any unexpected exception of the transforming thread.
+		 */
+		void waitForCompletion() throws Exception {
+			done.waitForAllResources();
+			threadConnector.close();
+			if (throwable instanceof Exception) {
+				throw (Exception)throwable;
+			}
+			if (throwable instanceof Error) {
+				throw (Error)throwable;
+			}
+		}
+	}
+
+	/**
+	 * Parse the record and perform the action of the record handler on it.
+	 */
+	private void transformRecord(PipeLineSession session, Record record) throws Exception {
+		IRecordHandler curHandler = record.flow.getRecordHandler();
+		if (curHandler != null) {
+			if (log.isDebugEnabled()) log.debug("manager ["+record.managerName+"] key ["+record.flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] line ["+record.linenumber+"] record ["+record.rawRecord+"]");
+			// there is a record handler, so transform the line
+			record.parsedRecord = curHandler.parse(session, record.rawRecord);
+			record.result = curHandler.handleRecord(session, record.parsedRecord);
+		}
+		record.transformed = true;
+	}
+
+	/**
+	 * Open and close the blocks of the flow of the record, and write its result to the result handler.
+	 * Records must be handled in the order in which they were read.
+	 */
+	private void handleRecord(PipeLineSession session, String streamId, Record record, TransformState state, Map<String, Object> blocks) throws Exception {
+		RecordHandlingFlow flow = record.flow;
+		//log.debug("flow ["+flow.getRecordKey()+"] openBlockBeforeLine ["+flow.getOpenBlockBeforeLine()+"]");
+		IResultHandler resultHandler = flow.getResultHandler();
+		closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockBeforeLine(),"closeBlockBeforeLine of flow ["+flow.getRecordKey()+"]",blocks);
+		String obbl = null;
+		if (flow.getOpenBlockBeforeLineNumber()>0) {
+			if (state.counter%flow.getOpenBlockBeforeLineNumber()==0) {
+				obbl = flow.getOpenBlockBeforeLine();
+			}
+		} else {
+			obbl = flow.getOpenBlockBeforeLine();
+		}
+		openBlock(session, resultHandler, streamId, flow, obbl, blocks);
+
+		if (isStoreOriginalBlock()) {
+			if (resultHandler instanceof ResultBlock2Sender) {
+				// If blocks does not contain a previous block, it never existed, or has been removed by closing the block.
+				// In both cases a new block has just started
+				if (!blocks.containsKey(originalBlockKey)) {
+					state.sb = new StringBuffer();
+				}
+				if (state.sb.length()>0) {
+					state.sb.append(System.getProperty("line.separator"));
+				}
+				state.sb.append(record.rawRecord);
+				// already put the block in the blocks, also if the block is not yet complete.
+				blocks.put(originalBlockKey, state.sb.toString());
+			}
+		}
+
+		IRecordHandler curHandler = flow.getRecordHandler();
+		if (curHandler != null) {
+			if (record.exception != null) {
+				throw record.exception;
+			}
+			if (!record.transformed) {
+				transformRecord(session, record);
+			}
+			List<String> parsedRecord = record.parsedRecord;
+			String result = record.result;
+			state.counter++;
+
+			// if there is a result handler, write the transformed result
+			if (result != null && resultHandler != null) {
+				IRecordHandler prevHandler = state.prevHandler;
+				boolean recordTypeChanged = curHandler.isNewRecordType(session, curHandler.equals(prevHandler), state.prevParsedRecord, parsedRecord);
+				if (log.isTraceEnabled()) log.trace("manager ["+record.managerName+"] key ["+flow.getRecordKey()+"] record handler ["+curHandler.getName()+"] recordTypeChanged ["+recordTypeChanged+"]");
+				if (recordTypeChanged && prevHandler!=null && resultHandler.isBlockByRecordType()) {
+					String prevRecordType = prevHandler.getRecordType(state.prevParsedRecord);
+					if (log.isDebugEnabled()) log.debug("record handler ["+prevHandler.getName()+"] result handler ["+resultHandler.getName()+"] closing block for record type ["+prevRecordType+"]");
+					closeBlock(session, resultHandler, streamId, flow, prevRecordType, "record type change", blocks);
+				}
+				// the hasPrefix() call allows users use a suffix without a prefix.
+				// The suffix is then only written at the end of the file.
+				if (recordTypeChanged && resultHandler.hasPrefix()) {
+					if (prevHandler != null)  {
+						resultHandler.closeRecordType(session, streamId);
+					}
+					resultHandler.openRecordType(session, streamId);
+				}
+				if (recordTypeChanged && resultHandler.isBlockByRecordType()) {
+					String recordType = curHandler.getRecordType(parsedRecord);
+					if (log.isDebugEnabled()) log.debug("record handler ["+curHandler.getName()+"] result handler ["+resultHandler.getName()+"] opening block ["+recordType+"]");
+					openBlock(session, resultHandler, streamId, flow, recordType, blocks);
+				}
+				resultHandler.handleResult(session, streamId, flow.getRecordKey(), result);
+			}
+			state.prevParsedRecord = parsedRecord;
+			state.prevHandler = curHandler;
+		} else {
+			if (log.isDebugEnabled()) log.debug("manager ["+record.managerName+"] key ["+flow.getRecordKey()+"], no record handler, line ["+record.linenumber+"] record ["+record.rawRecord+"]");
+		}
+
+		closeBlock(session, resultHandler, streamId, flow, flow.getCloseBlockAfterLine(),"closeBlockAfterLine of flow ["+flow.getRecordKey()+"]", blocks);
+		openBlock(session, resultHandler, streamId, flow, flow.getOpenBlockAfterLine(), blocks);
+	}
+
 	private void openDocument(PipeLineSession session, String inputFilename) throws Exception {
 		for (IResultHandler resultHandler: registeredResultHandlers.values()) {
 			resultHandler.openDocument(session, inputFilename);
@@ -565,6 +772,25 @@ public class StreamTransformerPipe extends FixedForwardPipe {
 		charset = string;
 	}
 
+	/**
+	 * Number of threads used to parse and transform the records of a stream. When larger than 1, records are transformed in parallel, in chunks of <code>chunkSize</code> records,
+	 * while blocks are opened and closed and results are written in the order of the records, by the thread that executes the pipe.
+	 * Record handlers, and the senders they use, must be able to handle records concurrently. They are called with a copy of the session,
+	 * so session variables they set are not available to the rest of the pipeline.
+	 * @ff.default 1
+	 */
+	public void setMaxThreads(int maxThreads) {
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * Number of records that are transformed by a thread in one go, when <code>maxThreads</code> is larger than 1.
+	 * @ff.default 1000
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
 	/** Factory for the <code>reader</code>. The default implementation {@link InputStreamReaderFactory} converts using the specified character set. */
 	public void setReaderFactory(IReaderFactory factory) {
 		readerFactory = factory;
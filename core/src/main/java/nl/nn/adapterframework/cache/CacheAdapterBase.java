@@ -15,6 +15,8 @@
 */
 package nl.nn.adapterframework.cache;
 
+import java.io.IOException;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.springframework.context.ApplicationContext;
@@ -92,14 +94,41 @@ public abstract class CacheAdapterBase<V> implements ICache<String,V>, IConfigur
 				log.error(getLogPrefix()+"cannot determine cache key",e);
 			}
 		}
-		if (StringUtils.isEmpty(input)) {
+		return checkEmptyKey(input);
+	}
+
+	@Override
+	public String transformKey(Message input, PipeLineSession session) throws IOException {
+		if (StringUtils.isNotEmpty(getKeyInputSessionKey()) && session!=null) {
+			return transformKey((String)null, session);
+		}
+		if (keyTp==null) {
+			return transformKey(input.asString(), session);
+		}
+		String key;
+		try {
+			// the message must still be available after the key has been extracted from it. Preserving a stream keeps
+			// contents larger than message.preserve.spillThreshold in a temporary file, the key is extracted from that file
+			if (!input.isRepeatable()) {
+				input.preserve();
+			}
+			key=keyTp.transform(input, null);
+		} catch (Exception e) {
+			log.error(getLogPrefix()+"cannot determine cache key",e);
+			key=input.asString();
+		}
+		return checkEmptyKey(key);
+	}
+
+	private String checkEmptyKey(String key) {
+		if (StringUtils.isEmpty(key)) {
 			log.debug("determined empty cache key");
 			if (isCacheEmptyKeys()) {
 				return "";
 			}
 			return null;
 		}
-		return input;
+		return key;
 	}
 
 	@Override
@@ -15,8 +15,11 @@
 */
 package nl.nn.adapterframework.cache;
 
+import java.io.IOException;
+
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
 import nl.nn.adapterframework.stream.Message;
 
 /**
@@ -39,6 +42,15 @@ public interface ICache<K,V> {
 	 */
 	K transformKey(String input, PipeLineSession session);
 
+	/**
+	 * Transform the the current request message to a key in the cache-map, without requiring
+	 * the message to be read into a String when the key can be determined otherwise.
+	 * The message remains available for further processing.
+	 */
+	default K transformKey(Message input, PipeLineSession session) throws IOException {
+		return transformKey(input.asString(), session);
+	}
+
 	/**
 	 * Transform the the current response message to a value in the cache-map.
 	 * Allows for instance XPath translations.
@@ -55,4 +67,17 @@ public interface ICache<K,V> {
 	 */
 	void put(K key, V value);
 
+	/**
+	 * Obtain the cached value for the key, or compute it using the loader and store it when it is not present.
+	 * Implementations may let concurrent calls for the same key wait for a single computation.
+	 */
+	default <E extends Exception> V computeIfAbsent(K key, ThrowingSupplier<V,E> loader) throws E {
+		V value = get(key);
+		if (value==null) {
+			value = loader.get();
+			put(key, value);
+		}
+		return value;
+	}
+
 }
@@ -0,0 +1,310 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.doc.IbisDoc;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.util.AppConstants;
+
+/**
+ * In-memory cache provider, that does not block concurrent readers and writers while a value is computed.
+ * <p>
+ * Concurrent calls of {@link #computeIfAbsent(String, ThrowingSupplier) computeIfAbsent()} for the same key
+ * share a single computation: only the first caller computes the value, the others wait for its result.
+ * Elements are evicted least recently used first when either <code>maxElements</code> or <code>maxWeight</code> is exceeded,
+ * and expire <code>timeToLiveSeconds</code> after they were stored. Lookups and updates of the elements take constant time,
+ * and only hold a lock for that time.
+ * </p><p>
+ * To let concurrent lookups of different keys proceed in parallel, caches with at least 128 <code>maxElements</code> are split in up to 16 segments,
+ * each with its own lock, its own share of <code>maxElements</code> and <code>maxWeight</code>, and its own least recently used order.
+ * The element that is evicted is then the least recently used of its segment. Smaller caches consist of a single segment.
+ * </p>
+ * N.B. the default values shown can be overridden using properties in appConstants. The property names are found by prefixing the attribute name with <code>cache.memory.</code>.
+ *
+ * @since   7.9
+ */
+public class MemoryCache<V> extends CacheAdapterBase<V> {
+
+	private static final String KEY_PREFIX = "cache.memory.";
+	private static final String KEY_MAX_ELEMENTS = KEY_PREFIX + "maxElements";
+	private static final String KEY_MAX_WEIGHT = KEY_PREFIX + "maxWeight";
+	private static final String KEY_TIME_TO_LIVE_SECONDS = KEY_PREFIX + "timeToLiveSeconds";
+
+	private static final int MIN_ELEMENTS_PER_SEGMENT = 64;
+	private static final int MAX_SEGMENTS = 16;
+
+	private int maxElements=100;
+	private long maxWeight=0;
+	private int timeToLiveSeconds=36000;
+
+	private List<Segment> segments;
+	private final Map<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+	private static class Element<V> {
+		private final String key;
+		private final V value;
+		private final long weight;
+		private final long expiry;
+
+		Element(String key, V value, long weight, long expiry) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.expiry = expiry;
+		}
+
+		boolean isExpired() {
+			return expiry<System.currentTimeMillis();
+		}
+	}
+
+	private class Segment {
+		private final int maxElements;
+		private final long maxWeight;
+		// in access order, guarded by synchronizing on the segment
+		private final LinkedHashMap<String, Element<V>> elements = new LinkedHashMap<>(16, 0.75f, true);
+		private long weight;
+
+		Segment(int maxElements, long maxWeight) {
+			this.maxElements = maxElements;
+			this.maxWeight = maxWeight;
+		}
+
+		synchronized V get(String key) {
+			Element<V> element = elements.get(key);
+			if (element==null) {
+				return null;
+			}
+			if (element.isExpired()) {
+				remove(key);
+				return null;
+			}
+			return element.value;
+		}
+
+		synchronized void put(Element<V> element) {
+			Element<V> previous = elements.put(element.key, element);
+			weight += element.weight;
+			if (previous!=null) {
+				weight -= previous.weight;
+			}
+			evict();
+		}
+
+		synchronized boolean remove(Object key) {
+			Element<V> element = elements.remove(key);
+			if (element!=null) {
+				weight -= element.weight;
+				return true;
+			}
+			return false;
+		}
+
+		private void evict() {
+			Iterator<Element<V>> leastRecentlyUsed = elements.values().iterator();
+			while (leastRecentlyUsed.hasNext() && (elements.size()>maxElements || maxWeight>0 && weight>maxWeight)) {
+				Element<V> eldest = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				weight -= eldest.weight;
+				if (log.isTraceEnabled()) log.trace(getLogPrefix()+"evicted element with key ["+eldest.key+"]");
+			}
+		}
+
+		synchronized void clear() {
+			elements.clear();
+			weight = 0;
+		}
+
+		synchronized int size() {
+			return elements.size();
+		}
+	}
+
+	public MemoryCache() {
+		super();
+		AppConstants ac = AppConstants.getInstance();
+		maxElements=ac.getInt(KEY_MAX_ELEMENTS, maxElements);
+		maxWeight=ac.getLong(KEY_MAX_WEIGHT, maxWeight);
+		timeToLiveSeconds=ac.getInt(KEY_TIME_TO_LIVE_SECONDS, timeToLiveSeconds);
+		segments = createSegments();
+	}
+
+	@Override
+	public void configure(String ownerName) throws ConfigurationException {
+		super.configure(ownerName);
+		if (getMaxElements()<=0) {
+			throw new ConfigurationException(getLogPrefix()+"maxElements ["+getMaxElements()+"] must be positive");
+		}
+		segments = createSegments();
+	}
+
+	/**
+	 * Divides maxElements and maxWeight over a power of two number of segments, each holding at least {@value #MIN_ELEMENTS_PER_SEGMENT} elements.
+	 */
+	private List<Segment> createSegments() {
+		int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, getMaxElements()/MIN_ELEMENTS_PER_SEGMENT)));
+		List<Segment> result = new ArrayList<>(count);
+		for (int i=0; i<count; i++) {
+			int segmentMaxElements = getMaxElements()/count + (i<getMaxElements()%count ? 1 : 0);
+			long segmentMaxWeight = getMaxWeight()/count + (i<getMaxWeight()%count ? 1 : 0);
+			result.add(new Segment(segmentMaxElements, segmentMaxWeight));
+		}
+		return result;
+	}
+
+	private Segment segmentFor(Object key) {
+		int hash = Objects.hashCode(key);
+		return segments.get((hash ^ hash>>>16) & (segments.size()-1));
+	}
+
+	@Override
+	public void open() {
+		// nothing to do, the cache is ready to use after it is created
+	}
+
+	@Override
+	public void close() {
+		log.debug("cache ["+getName()+"] clearing data");
+		segments.forEach(Segment::clear);
+	}
+
+	@Override
+	protected V getElement(String key) {
+		return segmentFor(key).get(key);
+	}
+
+	@Override
+	protected void putElement(String key, V value) {
+		if (value==null) {
+			removeElement(key);
+			return;
+		}
+		long expiry = getTimeToLiveSeconds()>0 ? System.currentTimeMillis() + getTimeToLiveSeconds()*1000L : Long.MAX_VALUE;
+		Element<V> element = new Element<>(key, value, weigh(value), expiry);
+		segmentFor(key).put(element);
+	}
+
+	@Override
+	protected boolean removeElement(Object key) {
+		return segmentFor(key).remove(key);
+	}
+
+	/**
+	 * Determines the weight of a value. Character and byte based values weigh their length, other values weigh 1.
+	 */
+	protected long weigh(V value) {
+		if (value instanceof CharSequence) {
+			return ((CharSequence)value).length();
+		}
+		if (value instanceof byte[]) {
+			return ((byte[])value).length;
+		}
+		return 1;
+	}
+
+	/**
+	 * Returns the cached value, or computes and stores it when it is not present. When multiple threads
+	 * request the same absent key at the same time, only one of them runs the loader; the others wait for
+	 * its result. If that computation fails, the waiting threads retry the computation themselves.
+	 */
+	@Override
+	public <E extends Exception> V computeIfAbsent(String key, ThrowingSupplier<V,E> loader) throws E {
+		V value = get(key);
+		if (value!=null) {
+			return value;
+		}
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> inProgress = loading.putIfAbsent(key, future);
+		if (inProgress!=null) {
+			try {
+				if (log.isDebugEnabled()) log.debug(getLogPrefix()+"waiting for concurrent computation of value for key ["+key+"]");
+				return inProgress.get();
+			} catch (ExecutionException e) {
+				if (log.isDebugEnabled()) log.debug(getLogPrefix()+"concurrent computation of value for key ["+key+"] failed, retrying", e.getCause());
+				return computeIfAbsent(key, loader);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return loader.get();
+			}
+		}
+		try {
+			value = get(key); // the value might have been stored just before this thread started loading
+			if (value==null) {
+				value = loader.get();
+				put(key, value);
+			}
+			future.complete(value);
+			return value;
+		} catch (Throwable t) {
+			future.completeExceptionally(t);
+			throw t;
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	@Override
+	protected V toValue(Message value) {
+		try {
+			return (V)value.asString();
+		} catch (IOException e) {
+			log.warn("Could not perform toValue() by asString()", e);
+			return null;
+		}
+	}
+
+	public int size() {
+		return segments.stream().mapToInt(Segment::size).sum();
+	}
+
+	@IbisDoc({"The maximum number of elements in memory, before the least recently used are evicted", "100"})
+	public void setMaxElements(int maxElements) {
+		this.maxElements = maxElements;
+	}
+	public int getMaxElements() {
+		return maxElements;
+	}
+
+	@IbisDoc({"The maximum total weight of the elements in memory, before the least recently used are evicted. The weight of a textual value is its length. When 0, the weight is not limited", "0"})
+	public void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	@IbisDoc({"The amount of time <i>in seconds</i> to live for an element from its creation date. When 0, elements do not expire", "36000"})
+	public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+		this.timeToLiveSeconds = timeToLiveSeconds;
+	}
+	public int getTimeToLiveSeconds() {
+		return timeToLiveSeconds;
+	}
+
+}
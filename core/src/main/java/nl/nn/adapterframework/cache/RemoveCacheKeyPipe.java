@@ -62,7 +62,7 @@ public class RemoveCacheKeyPipe extends FixedForwardPipe {
 			if (cache == null) {
 				log.warn("cache ["+cacheName+"] not found");
 			} else {
-				if (cache.remove("r"+cacheKey) && cache.remove("s"+cacheKey)) {
+				if (cache.remove("p"+cacheKey)) {
 					log.debug("removed cache key [" + cacheKey + "] from cache ["+cacheName+"]");
 				} else {
 					log.warn("could not find cache key [" + cacheKey + "] to remove from cache ["+cacheName+"]");
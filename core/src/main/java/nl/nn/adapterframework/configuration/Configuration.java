@@ -62,6 +62,7 @@ import nl.nn.adapterframework.util.AppConstants;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.LogUtil;
 import nl.nn.adapterframework.util.MessageKeeper.MessageKeeperLevel;
+import nl.nn.adapterframework.util.TemplatesCache;
 import nl.nn.adapterframework.util.flow.FlowDiagramManager;
 
 /**
@@ -330,6 +331,10 @@ public class Configuration extends ClassPathXmlApplicationContext implements ICo
 		try {
 			state = BootState.STOPPING;
 			super.close();
+			if (getClassLoader() instanceof IConfigurationClassLoader) {
+				// drop the shared Templates of TransformerPools of this configuration that were not closed
+				TemplatesCache.getInstance().removeAll(getClassLoader());
+			}
 		} finally {
 			configured = false;
 			state = BootState.STOPPED;
@@ -131,6 +131,9 @@ public class ScheduleManager extends ConfigurableLifecyleBase implements Applica
 
 		while (!getSchedulesList().isEmpty()) {
 			IJob job = getSchedulesList().get(0);
+			if (job.getLocker()!=null) {
+				job.getLocker().close();
+			}
 			unRegister(job);
 		}
 	}
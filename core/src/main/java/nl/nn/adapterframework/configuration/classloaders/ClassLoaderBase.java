@@ -33,6 +33,8 @@ import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.FilenameUtils;
 import nl.nn.adapterframework.util.LogUtil;
 import nl.nn.adapterframework.util.Misc;
+import nl.nn.adapterframework.util.TemplatesCache;
+import nl.nn.adapterframework.validation.SchemaGrammarCache;
 
 /**
  * Abstract base class for for IBIS Configuration ClassLoaders.
@@ -279,6 +281,8 @@ public abstract class ClassLoaderBase extends ClassLoader implements IConfigurat
 		log.debug("removing classloader ["+this.toString()+"]");
 
 		AppConstants.removeInstance(this);
+		TemplatesCache.getInstance().removeAll(this);
+		SchemaGrammarCache.getInstance().removeAll(this);
 	}
 
 	@Override
@@ -16,12 +16,14 @@
 package nl.nn.adapterframework.core;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.CloseableThreadContext;
@@ -106,8 +108,8 @@ public class Adapter implements IAdapter, NamedBean {
 	private @Getter Configuration configuration;
 
 	private ArrayList<Receiver<?>> receivers = new ArrayList<>();
-	private long lastMessageDate = 0;
-	private @Getter String lastMessageProcessingState; //"OK" or "ERROR"
+	private volatile long lastMessageDate = 0;
+	private volatile @Getter String lastMessageProcessingState; //"OK" or "ERROR"
 	private PipeLine pipeline;
 
 	private Map<String, SenderLastExitState> sendersLastExitState = new HashMap<String, SenderLastExitState>();
@@ -122,13 +124,14 @@ public class Adapter implements IAdapter, NamedBean {
 		}
 	}
 
-	private int numOfMessagesInProcess = 0;
+	private final AtomicInteger numOfMessagesInProcess = new AtomicInteger();
+	private final Object noMessagesInProcessMonitor = new Object(); // notified when numOfMessagesInProcess drops to zero
 
 	private CounterStatistic numOfMessagesProcessed = new CounterStatistic(0);
 	private CounterStatistic numOfMessagesInError = new CounterStatistic(0);
 
-	private int hourOfLastMessageProcessed=-1;
-	private long[] numOfMessagesStartProcessingByHour = new long[24];
+	// per hour of the day: the local hour since the epoch that was counted in the upper 32 bits, the number of messages in the lower 32 bits
+	private final AtomicLongArray numOfMessagesStartProcessingByHour = new AtomicLongArray(24);
 
 	private StatisticsKeeper statsMessageProcessingDuration = null;
 
@@ -262,38 +265,17 @@ public class Adapter implements IAdapter, NamedBean {
 	 * Increase the number of messages in process
 	 */
 	private void incNumOfMessagesInProcess(long startTime) {
-		synchronized (statsMessageProcessingDuration) {
-			numOfMessagesInProcess++;
-			lastMessageDate = startTime;
-			Calendar cal = Calendar.getInstance();
-			cal.setTimeInMillis(startTime);
-			int hour = cal.get(Calendar.HOUR_OF_DAY);
-			if (hourOfLastMessageProcessed!=hour) {
-				if (hourOfLastMessageProcessed>=0) {
-					if (hourOfLastMessageProcessed<hour) {
-						for(int i=hourOfLastMessageProcessed+1; i<=hour; i++) {
-							numOfMessagesStartProcessingByHour[i]=0;
-						}
-					} else {
-						for(int i=hourOfLastMessageProcessed+1; i<24; i++) {
-							numOfMessagesStartProcessingByHour[i]=0;
-						}
-						for(int i=0; i<=hour; i++) {
-							numOfMessagesStartProcessingByHour[i]=0;
-						}
-					}
-				}
-				hourOfLastMessageProcessed=hour;
-			}
-			numOfMessagesStartProcessingByHour[hour]++;
-		}
+		numOfMessagesInProcess.incrementAndGet();
+		lastMessageDate = startTime;
+		long localHour = getLocalHour(startTime);
+		// a bucket is reset in the same atomic update that counts the first message of a new hour, so no concurrent counts are lost
+		numOfMessagesStartProcessingByHour.getAndUpdate((int)(localHour % 24), bucket -> (bucket >>> 32)==localHour ? bucket+1 : localHour<<32 | 1);
 	}
 	/**
 	 * Decrease the number of messages in process
 	 */
 	private void decNumOfMessagesInProcess(long duration, boolean processingSuccess) {
-		synchronized (statsMessageProcessingDuration) {
-			numOfMessagesInProcess--;
+		try {
 			numOfMessagesProcessed.increase();
 			statsMessageProcessingDuration.addValue(duration);
 			if (processingSuccess) {
@@ -301,16 +283,20 @@ public class Adapter implements IAdapter, NamedBean {
 			} else {
 				lastMessageProcessingState = PROCESS_STATE_ERROR;
 			}
-			statsMessageProcessingDuration.notifyAll();
+		} finally {
+			// always decrease the count, otherwise stopRunning() waits forever for messages that are no longer in process
+			if (numOfMessagesInProcess.decrementAndGet()<=0) {
+				synchronized (noMessagesInProcessMonitor) {
+					noMessagesInProcessMonitor.notifyAll();
+				}
+			}
 		}
 	}
 	/**
 	 * The number of messages for which processing ended unsuccessfully.
 	 */
 	private void incNumOfMessagesInError() {
-		synchronized (statsMessageProcessingDuration) {
-			numOfMessagesInError.increase();
-		}
+		numOfMessagesInError.increase();
 	}
 
 	public void setLastExitState(String pipeName, long lastExitStateDate, String lastExitState) {
@@ -402,14 +388,7 @@ public class Adapter implements IAdapter, NamedBean {
 		hski.handleScalar(adapterData,"upSince", getStatsUpSinceDate());
 		hski.handleScalar(adapterData,"lastMessageDate", getLastMessageDateDate());
 
-		if (action!=Action.FULL &&
-			action!=Action.SUMMARY) {
-			synchronized (statsMessageProcessingDuration) {
-				iterateOverStatisticsBody(hski,adapterData,action);
-			}
-		} else {
-			iterateOverStatisticsBody(hski,adapterData,action);
-		}
+		iterateOverStatisticsBody(hski,adapterData,action);
 		hski.closeGroup(adapterData);
 	}
 
@@ -426,14 +405,15 @@ public class Adapter implements IAdapter, NamedBean {
 		statsMessageProcessingDuration.performAction(action);
 
 		Object hourData=hski.openGroup(pipelineData,getName(),"processing by hour");
-		for (int i=0; i<getNumOfMessagesStartProcessingByHour().length; i++) {
+		long[] startProcessingByHour = getNumOfMessagesStartProcessingByHour(); // one snapshot for the whole report
+		for (int i=0; i<startProcessingByHour.length; i++) {
 			String startTime;
 			if (i<10) {
 				startTime = "0" + i + ":00";
 			} else {
 				startTime = i + ":00";
 			}
-			hski.handleScalar(hourData, startTime, getNumOfMessagesStartProcessingByHour()[i]);
+			hski.handleScalar(hourData, startTime, startProcessingByHour[i]);
 		}
 		hski.closeGroup(hourData);
 
@@ -463,21 +443,33 @@ public class Adapter implements IAdapter, NamedBean {
 	 */
 	@JmxAttribute(description = "# Messages in Error")
 	public long getNumOfMessagesInError() {
-		synchronized (statsMessageProcessingDuration) {
-			return numOfMessagesInError.getValue();
-		}
+		return numOfMessagesInError.getValue();
 	}
 	@JmxAttribute(description = "# Messages in process")
 	public int getNumOfMessagesInProcess() {
-		synchronized (statsMessageProcessingDuration) {
-			return numOfMessagesInProcess;
-		}
+		return numOfMessagesInProcess.get();
 	}
 
+	/**
+	 * Returns the number of messages that started processing per hour of the day, in the 24 hours up to the last message.
+	 */
 	public long[] getNumOfMessagesStartProcessingByHour() {
-		synchronized (statsMessageProcessingDuration) {
-			return numOfMessagesStartProcessingByHour;
+		long[] result = new long[numOfMessagesStartProcessingByHour.length()];
+		if (lastMessageDate == 0) {
+			return result;
 		}
+		long lastMessageHour = getLocalHour(lastMessageDate);
+		for (int i=0; i<result.length; i++) {
+			long bucket = numOfMessagesStartProcessingByHour.get(i);
+			if ((bucket >>> 32) > lastMessageHour-24) {
+				result[i] = bucket & 0xFFFFFFFFL;
+			}
+		}
+		return result;
+	}
+
+	private static long getLocalHour(long time) {
+		return (time + TimeZone.getDefault().getOffset(time)) / 3600_000L;
 	}
 	/**
 	 * Total of messages processed
@@ -485,9 +477,7 @@ public class Adapter implements IAdapter, NamedBean {
 	 */
 	@JmxAttribute(description = "# Messages Processed")
 	public long getNumOfMessagesProcessed() {
-		synchronized (statsMessageProcessingDuration) {
-			return numOfMessagesProcessed.getValue();
-		}
+		return numOfMessagesProcessed.getValue();
 	}
 
 	@Override
@@ -947,9 +937,9 @@ public class Adapter implements IAdapter, NamedBean {
 	}
 
 	public void waitForNoMessagesInProcess() throws InterruptedException {
-		synchronized (statsMessageProcessingDuration) {
+		synchronized (noMessagesInProcessMonitor) {
 			while (getNumOfMessagesInProcess() > 0) {
-				statsMessageProcessingDuration.wait(); // waits for notification from decNumOfMessagesInProcess()
+				noMessagesInProcessMonitor.wait(); // waits for notification from decNumOfMessagesInProcess()
 			}
 		}
 	}
@@ -0,0 +1,38 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.core;
+
+import java.util.concurrent.CompletableFuture;
+
+import nl.nn.adapterframework.stream.Message;
+
+/**
+ * Sender that can send messages without blocking the calling thread while waiting for the reply.
+ */
+public interface INonBlockingSender extends ISender {
+
+	/**
+	 * When <code>true</code>, {@link #sendMessageNonBlocking(Message, PipeLineSession)} returns before the reply has been received.
+	 */
+	public boolean isNonBlocking();
+
+	/**
+	 * Starts sending the message. The returned future is completed with the result, or completed exceptionally with a
+	 * {@link SenderException} or {@link TimeoutException}, by a thread of the sender when the reply has been received.
+	 * The session may be accessed by that thread.
+	 */
+	public CompletableFuture<SenderResult> sendMessageNonBlocking(Message message, PipeLineSession session) throws SenderException;
+}
@@ -48,10 +48,19 @@ public interface ITransactionalStorage<S extends Serializable> extends IMessageB
 	/**
 	 * Store the message, returns storageKey.
 	 * 
-	 * The messageId should be unique.
+	 * The messageId should be unique. Storages that store messages asynchronously return <code>null</code>,
+	 * as the storageKey is not known yet.
 	 */
 	public String storeMessage(String messageId, String correlationId, Date receivedDate, String comments, String label, S message) throws SenderException;
 
+	/**
+	 * Returns <code>true</code> when messages are stored asynchronously, outside the transaction of the caller.
+	 * Such a storage can contain messages of which the processing was rolled back, and might not yet contain messages that were stored recently.
+	 */
+	public default boolean isAsynchronous() {
+		return false;
+	}
+
 	/**
 	 * Retrieves and deletes the message.
 	 */
@@ -0,0 +1,32 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.core;
+
+/**
+ * PullingListener extension for listeners that can detect that new messages have arrived, e.g. by a
+ * notification of the file system or the database. The PullingListenerContainer then polls immediately,
+ * instead of waiting until the pollInterval of an idle receiver has passed.
+ *
+ * @since 7.9
+ */
+public interface IWakeUpSignallingListener<M> extends IPullingListener<M> {
+
+	/**
+	 * Sets the handler that the listener must call when messages may have become available.
+	 * The handler returns immediately, and may be called from any thread.
+	 */
+	void setWakeUpHandler(Runnable wakeUpHandler);
+}
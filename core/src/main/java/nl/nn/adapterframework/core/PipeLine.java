@@ -567,6 +567,10 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 			log.debug("closing cache");
 			cache.close();
 		}
+		if (locker!=null) {
+			log.debug("closing locker");
+			locker.close();
+		}
 		log.debug("successfully closed pipeline");
 
 	}
@@ -576,6 +580,9 @@ public class PipeLine extends TransactionAttributes implements ICacheEnabled<Str
 			try (CloseableThreadContext.Instance ctc = CloseableThreadContext.put("pipe", pipe.getName())) {
 				log.debug("stopping {}", type);
 				pipe.stop();
+				if (pipe instanceof IExtendedPipe && ((IExtendedPipe)pipe).getLocker()!=null) {
+					((IExtendedPipe)pipe).getLocker().close();
+				}
 				log.debug("successfully stopped {}", type);
 			}
 		}
@@ -297,6 +297,24 @@ public class PipeLineSession extends HashMap<String,Object> implements AutoClose
 		closeables.remove(message);
 	}
 
+	/**
+	 * Hands the messages that are scheduled for close on exit of this session and are a value in the other session too,
+	 * over to the other session. They are then closed on exit of the other session, and remain available when this session is closed.
+	 */
+	public void transferCloseOnExitOfValuesTo(Map<String,Object> other) {
+		if (!(other instanceof PipeLineSession)) {
+			return;
+		}
+		for (Message message : closeables.keySet()) {
+			if (other.containsValue(message)) {
+				String label = closeables.remove(message);
+				if (label!=null) {
+					((PipeLineSession)other).scheduleCloseOnSessionExit(message, label);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void close() {
 		log.debug("Closing PipeLineSession");
@@ -15,11 +15,17 @@
 */
 package nl.nn.adapterframework.filesystem;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -36,6 +42,7 @@ import nl.nn.adapterframework.core.HasPhysicalDestination;
 import nl.nn.adapterframework.core.IMessageBrowser;
 import nl.nn.adapterframework.core.IProvidesMessageBrowsers;
 import nl.nn.adapterframework.core.IPullingListener;
+import nl.nn.adapterframework.core.IWakeUpSignallingListener;
 import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.core.PipeLineResult;
 import nl.nn.adapterframework.core.PipeLineSession;
@@ -59,7 +66,7 @@ import nl.nn.adapterframework.util.SpringUtils;
  *
  * @author Gerrit van Brakel
  */
-public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> implements IPullingListener<F>, HasPhysicalDestination, IProvidesMessageBrowsers<F> {
+public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> implements IWakeUpSignallingListener<F>, HasPhysicalDestination, IProvidesMessageBrowsers<F> {
 	protected Logger log = LogUtil.getLogger(this);
 	private @Getter ClassLoader configurationClassLoader = Thread.currentThread().getContextClassLoader();
 	private @Getter @Setter ApplicationContext applicationContext;
@@ -95,9 +102,20 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 
 	private @Getter FS fileSystem;
 
+	private @Getter int snapshotSize = 0;
+
 	private Set<ProcessState> knownProcessStates;
 	private Map<ProcessState,Set<ProcessState>> targetProcessStates = new HashMap<>();
 
+	private static final long FULL_LISTING_INTERVAL = 60000;
+	private Queue<F> snapshot;
+	private Set<String> handedOut;
+	private final ReentrantLock snapshotLock = new ReentrantLock();
+	private volatile boolean inputFolderChanged;
+	private long lastListing;
+	private Closeable inputFolderWatcher;
+	private @Setter Runnable wakeUpHandler;
+
 	protected abstract FS createFileSystem();
 
 	public FileSystemListener() {
@@ -119,6 +137,9 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 			}
 		}
 		targetProcessStates = ProcessState.getTargetProcessStates(knownProcessStates);
+		if (getSnapshotSize()>0 && StringUtils.isEmpty(getInProcessFolder()) && !isDelete()) {
+			ConfigurationWarnings.add(this, log, "attribute 'snapshotSize' is only effective when files leave the inputFolder, by setting 'inProcessFolder' or 'delete'");
+		}
 	}
 
 	@Override
@@ -147,6 +168,12 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 		} catch (FileSystemException e) {
 			throw new ListenerException("Cannot open fileSystem",e);
 		}
+		if (getSnapshotSize()>0) {
+			snapshot = new ConcurrentLinkedQueue<>();
+			handedOut = ConcurrentHashMap.newKeySet();
+			inputFolderChanged = true;
+			inputFolderWatcher = startWatchingInputFolder();
+		}
 	}
 
 	protected boolean checkForExistenceOfFolder(String attributeName, String folderName) throws ListenerException {
@@ -180,6 +207,14 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 
 	@Override
 	public void close() throws ListenerException {
+		try {
+			if (inputFolderWatcher!=null) {
+				inputFolderWatcher.close();
+				inputFolderWatcher = null;
+			}
+		} catch (IOException e) {
+			log.warn("listener ["+getName()+"] cannot stop watching inputFolder ["+getInputFolder()+"]", e);
+		}
 		try {
 			getFileSystem().close();
 		} catch (FileSystemException e) {
@@ -215,7 +250,34 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 	}
 
 	@Override
-	public synchronized F getRawMessage(Map<String,Object> threadContext) throws ListenerException {
+	public F getRawMessage(Map<String,Object> threadContext) throws ListenerException {
+		F file = getSnapshotSize()>0 ? getFileFromSnapshot() : getFirstStableFile();
+		if (file==null) {
+			return null;
+		}
+		FS fileSystem=getFileSystem();
+		boolean handedOutFile = false;
+		try {
+			if (threadContext!=null && StringUtils.isNotEmpty(getInProcessFolder())) {
+				threadContext.put(ORIGINAL_FILENAME_KEY, fileSystem.getName(file));
+			}
+			if (StringUtils.isNotEmpty(getLogFolder())) {
+				FileSystemUtils.copyFile(fileSystem, file, getLogFolder(), isOverwrite(), getNumberOfBackups(), isCreateFolders(), false);
+			}
+			handedOutFile = true;
+		} catch (FileSystemException e) {
+			throw new ListenerException(e);
+		} finally {
+			if (!handedOutFile) {
+				// the file must be picked up again by a next poll
+				releaseHandedOut(file);
+				inputFolderChanged = true;
+			}
+		}
+		return file;
+	}
+
+	private synchronized F getFirstStableFile() throws ListenerException {
 		FS fileSystem=getFileSystem();
 		try(Stream<F> ds = FileSystemUtils.getFilteredStream(fileSystem, getInputFolder(), getWildcard(), getExcludeWildcard())) {
 			if (ds==null) {
@@ -238,21 +300,112 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 						continue;
 					}
 				}
-				if (threadContext!=null && StringUtils.isNotEmpty(getInProcessFolder())) {
-					threadContext.put(ORIGINAL_FILENAME_KEY, fileSystem.getName(file));
+				return file;
+			}
+		} catch (IOException | FileSystemException e) {
+			throw new ListenerException(e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Hands out the next file of the snapshot. When the snapshot is empty, a single thread lists the inputFolder to refill it,
+	 * while the other threads return without a file.
+	 */
+	private F getFileFromSnapshot() throws ListenerException {
+		F file;
+		while ((file=snapshot.poll())==null) {
+			if (!snapshotLock.tryLock()) {
+				return null;
+			}
+			try {
+				if (snapshot.isEmpty() && !refillSnapshot()) {
+					return null;
+				}
+			} finally {
+				snapshotLock.unlock();
+			}
+		}
+		return file;
+	}
+
+	private boolean refillSnapshot() throws ListenerException {
+		long now = System.currentTimeMillis();
+		if (inputFolderWatcher!=null && !inputFolderChanged && now-lastListing<FULL_LISTING_INTERVAL) {
+			return false;
+		}
+		inputFolderChanged = false; // reset before listing, so changes during the listing cause another one
+		lastListing = now;
+		long stabilityLimit = getMinStableTime()>0 ? now-getMinStableTime() : 0;
+
+		FS fileSystem=getFileSystem();
+		Set<String> listed = new HashSet<>();
+		boolean complete = true;
+		int added = 0;
+		try(Stream<F> ds = FileSystemUtils.getFilteredStream(fileSystem, getInputFolder(), getWildcard(), getExcludeWildcard())) {
+			if (ds==null) {
+				return false;
+			}
+			Iterator<F> it = ds.iterator();
+			while (it!=null && it.hasNext()) {
+				if (added>=getSnapshotSize()) {
+					complete = false;
+					inputFolderChanged = true;
+					break;
 				}
-				if (StringUtils.isNotEmpty(getLogFolder())) {
-					FileSystemUtils.copyFile(fileSystem, file, getLogFolder(), isOverwrite(), getNumberOfBackups(), isCreateFolders(), false);
+				F file = it.next();
+				String name = fileSystem.getName(file);
+				listed.add(name);
+				if (handedOut.contains(name)) {
+					continue;
 				}
-				return file;
+				if (stabilityLimit>0 && fileSystem.getModificationTime(file).getTime()>stabilityLimit) {
+					inputFolderChanged = true; // look again when the file has become stable
+					continue;
+				}
+				handedOut.add(name);
+				snapshot.add(file);
+				added++;
 			}
 		} catch (IOException | FileSystemException e) {
 			throw new ListenerException(e);
 		}
+		if (complete) {
+			handedOut.retainAll(listed); // forget files that have left the inputFolder
+		}
+		if (log.isDebugEnabled()) log.debug("listener ["+getName()+"] added ["+added+"] files of inputFolder ["+getInputFolder()+"] to snapshot");
+		if (added>1 && wakeUpHandler!=null) {
+			wakeUpHandler.run(); // let idle threads help processing the snapshot
+		}
+		return added>0;
+	}
+
+	/**
+	 * Called when the file system notifies that the contents of the inputFolder have changed.
+	 */
+	protected void inputFolderChanged() {
+		inputFolderChanged = true;
+		if (wakeUpHandler!=null) {
+			wakeUpHandler.run();
+		}
+	}
 
+	/**
+	 * Starts watching the inputFolder for changes, for file systems that support change notifications.
+	 * Implementations must call {@link #inputFolderChanged()} when files in the inputFolder have been added or modified.
+	 * @return a handle to stop watching, or <code>null</code> when the file system does not support change notifications.
+	 */
+	protected Closeable startWatchingInputFolder() throws ListenerException {
 		return null;
 	}
 
+	private void releaseHandedOut(F file) {
+		if (handedOut!=null && file!=null) {
+			handedOut.remove(getFileSystem().getName(file));
+		}
+	}
+
 	@Override
 	public void afterMessageProcessed(PipeLineResult processResult, Object rawMessageOrWrapper, Map<String,Object> context) throws ListenerException {
 		FS fileSystem=getFileSystem();
@@ -268,6 +421,7 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 			try {
 				if (isDelete() && (processResult.isSuccessful() || StringUtils.isEmpty(getErrorFolder()))) {
 					fileSystem.deleteFile(rawMessage);
+					releaseHandedOut(rawMessage);
 					return;
 				}
 			} catch (FileSystemException e) {
@@ -372,6 +526,16 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 	// result is guaranteed if toState==ProcessState.INPROCESS
 	@Override
 	public F changeProcessState(F message, ProcessState toState, String reason) throws ListenerException {
+		try {
+			return moveToStateFolder(message, toState);
+		} finally {
+			if (toState!=ProcessState.AVAILABLE) {
+				releaseHandedOut(message);
+			}
+		}
+	}
+
+	private F moveToStateFolder(F message, ProcessState toState) throws ListenerException {
 		try {
 			if (!getFileSystem().exists(message) || !knownProcessStates().contains(toState)) {
 				return null; // if message and/or toState does not exist, the message can/will not be moved to it, so return null.
@@ -578,6 +742,13 @@ public abstract class FileSystemListener<F, FS extends IBasicFileSystem<F>> impl
 		this.charset = charset;
 	}
 
+	@IbisDoc({"If set &gt; 0, the inputFolder is listed once for up to this number of files, that are then handed out to the threads of the receiver one by one, "
+			+ "instead of listing the inputFolder for every file. For a DirectoryListener the inputFolder is only listed again when the file system reports changes. "
+			+ "Requires 'inProcessFolder' to be set to process files in multiple threads", "0"})
+	public void setSnapshotSize(int snapshotSize) {
+		this.snapshotSize = snapshotSize;
+	}
+
 	@IbisDoc({"OutputFormat of message for messageType=info", "XML"})
 	public void setOutputFormat(DocumentFormat outputFormat) {
 		this.outputFormat = outputFormat;
@@ -0,0 +1,184 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import nl.nn.adapterframework.metrics.TaggedMeterBinder;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Process wide registry of connection pools that are shared by {@link HttpSenderBase HttpSenders} with
+ * <code>sharedConnectionPool=true</code> and the same connection settings, so senders that call the same host reuse each others connections.
+ * <p>
+ * Pools are reference counted: each sender acquires its pool when it is opened and releases it when it is closed.
+ * The pool grows with the <code>maxConnections</code> of each sender that uses it, and is closed when the last sender releases it.
+ * For each route (i.e. target host) that is used, the number of leased, available and pending connections is published as metrics.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class HttpConnectionPools implements TaggedMeterBinder {
+	protected static Logger log = LogUtil.getLogger(HttpConnectionPools.class);
+
+	private static final HttpConnectionPools INSTANCE = new HttpConnectionPools();
+
+	private final Map<List<Object>, SharedConnectionManager> pools = new HashMap<>();
+	private int poolCounter = 0;
+	private MeterRegistry registry;
+	private Iterable<Tag> tags = Collections.emptyList();
+
+	public static HttpConnectionPools getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Connection manager of a shared pool, that registers metrics for each route it connects to.
+	 */
+	public class SharedConnectionManager extends PoolingHttpClientConnectionManager {
+		private final @Getter String name;
+		private final List<Object> key;
+		private final Set<HttpRoute> routes = ConcurrentHashMap.newKeySet();
+		private final List<Meter> meters = new ArrayList<>();
+		private final List<Integer> maxConnectionsPerSender = new ArrayList<>();
+		private final IdleConnectionEvictor evictor;
+		private int references;
+
+		private SharedConnectionManager(String name, List<Object> key, Registry<ConnectionSocketFactory> socketFactoryRegistry, int timeToLive, int connectionIdleTimeout) {
+			super(socketFactoryRegistry, null, null, null, timeToLive, TimeUnit.SECONDS);
+			this.name = name;
+			this.key = key;
+			// HttpClients do not evict idle connections of a connection manager they share, the pool does it itself
+			evictor = new IdleConnectionEvictor(this, connectionIdleTimeout>0 ? connectionIdleTimeout : 10, TimeUnit.SECONDS, connectionIdleTimeout, TimeUnit.SECONDS);
+			evictor.start();
+		}
+
+		@Override
+		public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+			if (routes.add(route)) {
+				routeAdded(this, route);
+			}
+			return super.requestConnection(route, state);
+		}
+
+		private void resize() {
+			int maxTotal = 0;
+			int maxPerRoute = 0;
+			for (int maxConnections : maxConnectionsPerSender) {
+				maxTotal += maxConnections;
+				maxPerRoute = Math.max(maxPerRoute, maxConnections);
+			}
+			if (maxTotal>0) {
+				setMaxTotal(maxTotal);
+				setDefaultMaxPerRoute(maxPerRoute);
+			}
+		}
+
+		public int getReferences() {
+			synchronized (HttpConnectionPools.this) {
+				return references;
+			}
+		}
+	}
+
+	/**
+	 * Returns the pool for the key, creating it when it does not exist yet. Each call must be balanced by a call to {@link #release(SharedConnectionManager, int)}.
+	 *
+	 * @param key connection settings, that determine whether senders can share a pool
+	 * @param socketFactoryRegistry used when a new pool must be created
+	 */
+	public synchronized SharedConnectionManager acquire(List<Object> key, Registry<ConnectionSocketFactory> socketFactoryRegistry, int timeToLive, int staleTimeout, int connectionIdleTimeout, int maxConnections) {
+		SharedConnectionManager pool = pools.get(key);
+		if (pool==null) {
+			pool = new SharedConnectionManager("pool"+(++poolCounter), key, socketFactoryRegistry, timeToLive, connectionIdleTimeout);
+			if (staleTimeout>=0) {
+				pool.setValidateAfterInactivity(staleTimeout);
+			}
+			pools.put(key, pool);
+			log.debug("created shared connection pool [{}]", pool.getName());
+		}
+		pool.references++;
+		pool.maxConnectionsPerSender.add(maxConnections);
+		pool.resize();
+		return pool;
+	}
+
+	public synchronized void release(SharedConnectionManager pool, int maxConnections) {
+		pool.maxConnectionsPerSender.remove(Integer.valueOf(maxConnections));
+		if (--pool.references>0) {
+			pool.resize();
+			return;
+		}
+		pools.remove(pool.key, pool);
+		if (registry!=null) {
+			pool.meters.forEach(registry::remove);
+		}
+		pool.meters.clear();
+		pool.evictor.shutdown();
+		pool.shutdown();
+		log.debug("closed shared connection pool [{}]", pool.getName());
+	}
+
+	public synchronized int size() {
+		return pools.size();
+	}
+
+	private synchronized void routeAdded(SharedConnectionManager pool, HttpRoute route) {
+		if (registry!=null && pools.get(pool.key)==pool) {
+			registerMeters(pool, route);
+		}
+	}
+
+	private void registerMeters(SharedConnectionManager pool, HttpRoute route) {
+		Tags routeTags = Tags.of(tags).and("pool", pool.getName()).and("route", route.getTargetHost().toURI());
+		pool.meters.add(Gauge.builder("frank.http.pool.leased", pool, p -> p.getStats(route).getLeased()).tags(routeTags).description("number of connections to the route in use").register(registry));
+		pool.meters.add(Gauge.builder("frank.http.pool.available", pool, p -> p.getStats(route).getAvailable()).tags(routeTags).description("number of idle connections to the route").register(registry));
+		pool.meters.add(Gauge.builder("frank.http.pool.pending", pool, p -> p.getStats(route).getPending()).tags(routeTags).description("number of requests waiting for a connection to the route").register(registry));
+		pool.meters.add(Gauge.builder("frank.http.pool.max", pool, p -> p.getStats(route).getMax()).tags(routeTags).description("maximum number of connections to the route").register(registry));
+	}
+
+	@Override
+	public synchronized void bindTo(MeterRegistry registry, Iterable<Tag> tags) {
+		this.registry = registry;
+		this.tags = tags!=null ? tags : Collections.emptyList();
+		for (SharedConnectionManager pool : pools.values()) {
+			for (HttpRoute route : pool.routes) {
+				registerMeters(pool, route);
+			}
+		}
+	}
+}
@@ -26,12 +26,18 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.transform.TransformerConfigurationException;
 
@@ -47,12 +53,14 @@ import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.RedirectStrategy;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.config.RequestConfig.Builder;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
@@ -68,11 +76,24 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarning;
 import nl.nn.adapterframework.core.HasPhysicalDestination;
+import nl.nn.adapterframework.core.INonBlockingSender;
 import nl.nn.adapterframework.core.ParameterException;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.Resource;
@@ -98,6 +119,7 @@ import nl.nn.adapterframework.task.TimeoutGuard;
 import nl.nn.adapterframework.util.AppConstants;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.CredentialFactory;
+import nl.nn.adapterframework.util.SpringUtils;
 import nl.nn.adapterframework.util.StreamUtil;
 import nl.nn.adapterframework.util.TransformerPool;
 import nl.nn.adapterframework.util.XmlUtils;
@@ -165,6 +187,14 @@ import nl.nn.adapterframework.util.XmlUtils;
  * please check password or authAlias configuration of the corresponding certificate.
  * </p>
  *
+ * <p>
+ * Note 5:
+ * When <code>asynchronous=true</code>, requests are executed by a non-blocking client, that handles all connections of the sender with a few I/O threads.
+ * Senders like {@link nl.nn.adapterframework.senders.ParallelSenders ParallelSenders} use it to wait for many requests without occupying a thread for each of them.
+ * The response is read into memory by an I/O thread, and processed by a separate thread, so slow processing of a response does not hold up the other connections.
+ * The non-blocking client supports HTTP/1.1 only: requests are not multiplexed over a single connection, like HTTP/2 does, but each concurrent request uses a connection of its own.
+ * </p>
+ *
  * @ff.parameters Any parameters present are appended to the request (when method is <code>GET</code> as request-parameters, when method <code>POST</code> as body part) except the <code>headersParams</code> list, which are added as HTTP headers, and the <code>urlParam</code> header
  * @ff.forward "&lt;statusCode of the HTTP response&gt;" default
  *
@@ -173,7 +203,7 @@ import nl.nn.adapterframework.util.XmlUtils;
  */
 //TODO: Fix javadoc!
 
-public abstract class HttpSenderBase extends SenderWithParametersBase implements HasPhysicalDestination, HasKeystore, HasTruststore {
+public abstract class HttpSenderBase extends SenderWithParametersBase implements HasPhysicalDestination, HasKeystore, HasTruststore, INonBlockingSender {
 
 	private final String CONTEXT_KEY_STATUS_CODE="Http.StatusCode";
 	private final String CONTEXT_KEY_REASON_PHRASE="Http.ReasonPhrase";
@@ -202,9 +232,15 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 	private @Getter int staleTimeout = 5000; // [ms]
 	private @Getter int connectionTimeToLive = 900; // [s]
 	private @Getter int connectionIdleTimeout = 10; // [s]
+	private @Getter boolean sharedConnectionPool = false;
+	private HttpConnectionPools.SharedConnectionManager sharedConnectionManager;
 	private HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
 	private @Getter HttpClientContext httpClientContext = HttpClientContext.create();
 	private @Getter CloseableHttpClient httpClient;
+	private @Getter boolean asynchronous = false;
+	private HttpAsyncClientBuilder httpAsyncClientBuilder;
+	private CloseableHttpAsyncClient httpAsyncClient;
+	private TaskExecutor responseExecutor;
 
 	/* SECURITY */
 	private @Getter String authAlias;
@@ -368,6 +404,18 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		if (getMaxConnections() <= 0) {
 			throw new ConfigurationException(getLogPrefix()+"maxConnections is set to ["+getMaxConnections()+"], which is not enough for adequate operation");
 		}
+		if (isSharedConnectionPool() && StringUtils.isNotEmpty(getKeystore())) {
+			throw new ConfigurationException(getLogPrefix()+"cannot use a shared connection pool in combination with a keystore, connections authenticated with a client certificate must not be shared");
+		}
+		if (isAsynchronous()) {
+			if (isSharedConnectionPool()) {
+				throw new ConfigurationException(getLogPrefix()+"cannot use a shared connection pool in combination with asynchronous=true, the connections of the non-blocking client are managed by its own I/O threads");
+			}
+			httpAsyncClientBuilder = HttpAsyncClientBuilder.create();
+			SimpleAsyncTaskExecutor executor = SpringUtils.createBean(getApplicationContext(), SimpleAsyncTaskExecutor.class);
+			executor.setThreadNamePrefix(getName()+"-response-");
+			responseExecutor = executor;
+		}
 
 		try {
 			if (urlParameter == null) {
@@ -400,6 +448,9 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			pcf = new CredentialFactory(getProxyAuthAlias(), getProxyUsername(), getProxyPassword());
 			requestConfigBuilder.setProxy(proxy);
 			httpClientBuilder.setProxy(proxy);
+			if (httpAsyncClientBuilder!=null) {
+				httpAsyncClientBuilder.setProxy(proxy);
+			}
 		}
 
 		try {
@@ -422,7 +473,8 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			}
 		}
 
-		httpClientBuilder.setDefaultRequestConfig(requestConfigBuilder.build());
+		RequestConfig requestConfig = requestConfigBuilder.build();
+		httpClientBuilder.setDefaultRequestConfig(requestConfig);
 
 		httpClientBuilder.setRetryHandler(new HttpRequestRetryHandler(getMaxExecuteRetries()));
 
@@ -431,24 +483,86 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		}
 
 		// The redirect strategy used to only redirect GET, DELETE and HEAD.
-		httpClientBuilder.setRedirectStrategy(new DefaultRedirectStrategy() {
+		RedirectStrategy redirectStrategy = new DefaultRedirectStrategy() {
 			@Override
 			protected boolean isRedirectable(String method) {
 				return isFollowRedirects();
 			}
-		});
+		};
+		httpClientBuilder.setRedirectStrategy(redirectStrategy);
+
+		if (httpAsyncClientBuilder!=null) {
+			// the non-blocking client does not retry requests, maxExecuteRetries is not used
+			httpAsyncClientBuilder.setDefaultRequestConfig(requestConfig);
+			httpAsyncClientBuilder.setRedirectStrategy(redirectStrategy);
+			if(areCookiesDisabled()) {
+				httpAsyncClientBuilder.disableCookieManagement();
+			}
+		}
 	}
 
 	@Override
 	public void open() throws SenderException {
 		// In order to support multiThreading and connectionPooling
 		// If a sslSocketFactory has been defined, the connectionManager has to be initialized with the sslSocketFactory
-		PoolingHttpClientConnectionManager connectionManager;
 		int timeToLive = getConnectionTimeToLive();
 		if (timeToLive<=0) {
 			timeToLive = -1;
 		}
 		SSLConnectionSocketFactory sslSocketFactory = getSSLConnectionSocketFactory();
+		if (isSharedConnectionPool()) {
+			Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", sslSocketFactory != null ? sslSocketFactory : SSLConnectionSocketFactory.getSocketFactory())
+				.build();
+			sharedConnectionManager = HttpConnectionPools.getInstance().acquire(getConnectionPoolKey(), socketFactoryRegistry, timeToLive, isStaleChecking() ? getStaleTimeout() : -1, getConnectionIdleTimeout(), getMaxConnections());
+			log.debug(getLogPrefix()+"using shared connection pool ["+sharedConnectionManager.getName()+"]");
+			httpClientBuilder.setConnectionManager(sharedConnectionManager);
+			httpClientBuilder.setConnectionManagerShared(true);
+		} else {
+			createConnectionManager(sslSocketFactory, timeToLive);
+		}
+
+		if (transformerPool!=null) {
+			try {
+				transformerPool.open();
+			} catch (Exception e) {
+				throw new SenderException(getLogPrefix()+"cannot start TransformerPool", e);
+			}
+		}
+
+		// the blocking client is also used to obtain OAuth access tokens
+		httpClient = httpClientBuilder.build();
+		if (httpAsyncClientBuilder!=null) {
+			createAsyncClient(timeToLive);
+		}
+	}
+
+	private void createAsyncClient(int timeToLive) throws SenderException {
+		try {
+			HostnameVerifier hostnameVerifier = isVerifyHostname() ? new DefaultHostnameVerifier() : new NoopHostnameVerifier();
+			SSLContext sslContext = AuthSSLContextFactory.createSSLContext(this, this, getProtocol());
+			Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+				.register("http", NoopIOSessionStrategy.INSTANCE)
+				.register("https", new SSLIOSessionStrategy(sslContext, hostnameVerifier))
+				.build();
+			IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setConnectTimeout(getTimeout()).setSoTimeout(getTimeout()).build();
+			PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig), null, sessionStrategyRegistry, null, null, timeToLive, TimeUnit.SECONDS);
+			connectionManager.setMaxTotal(getMaxConnections());
+			connectionManager.setDefaultMaxPerRoute(getMaxConnections());
+			httpAsyncClientBuilder.setConnectionManager(connectionManager);
+		} catch (IOReactorException e) {
+			throw new SenderException(getLogPrefix()+"cannot create I/O reactor", e);
+		} catch (Exception e) {
+			throw new SenderException(getLogPrefix()+"cannot create or initialize SSLContext", e);
+		}
+		httpAsyncClient = httpAsyncClientBuilder.build();
+		httpAsyncClient.start();
+		log.debug(getLogPrefix()+"started non-blocking HttpClient");
+	}
+
+	private void createConnectionManager(SSLConnectionSocketFactory sslSocketFactory, int timeToLive) {
+		PoolingHttpClientConnectionManager connectionManager;
 		if(sslSocketFactory != null) {
 			Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
 				.register("http", PlainConnectionSocketFactory.getSocketFactory())
@@ -472,16 +586,16 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 
 		httpClientBuilder.setConnectionManager(connectionManager);
 		httpClientBuilder.evictIdleConnections(getConnectionIdleTimeout(), TimeUnit.SECONDS);
+	}
 
-		if (transformerPool!=null) {
-			try {
-				transformerPool.open();
-			} catch (Exception e) {
-				throw new SenderException(getLogPrefix()+"cannot start TransformerPool", e);
-			}
-		}
-
-		httpClient = httpClientBuilder.build();
+	/**
+	 * Senders can only share a connection pool when they create connections in the same way.
+	 */
+	private List<Object> getConnectionPoolKey() {
+		return Arrays.asList(getConfigurationClassLoader(), getProtocol(), getKeyManagerAlgorithm(),
+				getTruststore(), getTruststoreAuthAlias(), getTruststoreType(), getTrustManagerAlgorithm(),
+				isAllowSelfSignedCertificates(), isVerifyHostname(), isIgnoreCertificateExpiredException(),
+				getConnectionTimeToLive(), isStaleChecking(), getStaleTimeout(), getConnectionIdleTimeout());
 	}
 
 	@Override
@@ -491,8 +605,17 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			if(httpClient != null) {
 				httpClient.close();
 			}
+			if(httpAsyncClient != null) {
+				httpAsyncClient.close();
+				httpAsyncClient = null;
+			}
 		} catch (IOException e) {
 			throw new SenderException(e);
+		} finally {
+			if (sharedConnectionManager != null) {
+				HttpConnectionPools.getInstance().release(sharedConnectionManager, getMaxConnections());
+				sharedConnectionManager = null;
+			}
 		}
 
 		if (transformerPool!=null) {
@@ -514,6 +637,9 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 				OAuthAccessTokenManager accessTokenManager = new OAuthAccessTokenManager(getTokenEndpoint(), getScope(), client_cf, user_cf==null, isAuthenticatedTokenRequest(), this, getTokenExpiry());
 				httpClientContext.setAttribute(OAuthAuthenticationScheme.ACCESSTOKEN_MANAGER_KEY, accessTokenManager);
 				httpClientBuilder.setTargetAuthenticationStrategy(new OAuthPreferringAuthenticationStrategy());
+				if (httpAsyncClientBuilder!=null) {
+					httpAsyncClientBuilder.setTargetAuthenticationStrategy(new OAuthPreferringAuthenticationStrategy());
+				}
 			}
 		}
 		if (proxy!=null) {
@@ -540,6 +666,9 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		}
 
 		httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+		if (httpAsyncClientBuilder!=null) {
+			httpAsyncClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+		}
 	}
 
 	private void preAuthenticate() {
@@ -654,25 +783,164 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 
 	@Override
 	public SenderResult sendMessage(Message message, PipeLineSession session) throws SenderException, TimeoutException {
-		ParameterValueList pvl = null;
+		if (isAsynchronous()) {
+			Future<SenderResult> result = sendMessageNonBlocking(message, session);
+			try {
+				return result.get(1+getTimeout()/1000, TimeUnit.SECONDS);
+			} catch (java.util.concurrent.TimeoutException e) {
+				result.cancel(true);
+				throw new TimeoutException(getLogPrefix()+"timeout of ["+getTimeout()+"] ms exceeded");
+			} catch (InterruptedException e) {
+				result.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new SenderException(getLogPrefix()+"interrupted while waiting for response", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof TimeoutException) {
+					throw (TimeoutException) e.getCause();
+				}
+				if (e.getCause() instanceof SenderException) {
+					throw (SenderException) e.getCause();
+				}
+				throw new SenderException(getLogPrefix()+"exception executing request", e.getCause());
+			}
+		}
+
+		ParameterValueList pvl = getParameterValues(message, session);
+		URI targetUri = getTargetUri(pvl);
+		final HttpRequestBase httpRequestBase = createRequest(targetUri, message, pvl, session);
+		HttpHost targetHost = new HttpHost(targetUri.getHost(), getPort(targetUri), targetUri.getScheme());
+
+		Message result;
+		TimeoutGuard tg = new TimeoutGuard(1+getTimeout()/1000, getName()) {
+
+			@Override
+			protected void abort() {
+				httpRequestBase.abort();
+			}
+
+		};
+		try {
+			log.debug(getLogPrefix()+"executing method [" + httpRequestBase.getRequestLine() + "]");
+			HttpResponse httpResponse = getHttpClient().execute(targetHost, httpRequestBase, httpClientContext);
+			log.debug(getLogPrefix()+"executed method");
+
+			result = handleResponse(httpResponse, session);
+		} catch (IOException e) {
+			httpRequestBase.abort();
+			if (e instanceof SocketTimeoutException) {
+				throw new TimeoutException(e);
+			}
+			throw new SenderException(e);
+		} finally {
+			// By forcing the use of the HttpResponseHandler the resultStream
+			// will automatically be closed when it has been read.
+			// See HttpResponseHandler and ReleaseConnectionAfterReadInputStream.
+			// We cannot close the connection as the response might be kept
+			// in a sessionKey for later use in the pipeline.
+			//
+			// IMPORTANT: It is possible that poorly written implementations
+			// wont read or close the response.
+			// This will cause the connection to become stale..
+
+			if (tg.cancel()) {
+				throw new TimeoutException(getLogPrefix()+"timeout of ["+getTimeout()+"] ms exceeded");
+			}
+		}
+
+		return createSenderResult(result);
+	}
+
+	@Override
+	public boolean isNonBlocking() {
+		return isAsynchronous();
+	}
+
+	/**
+	 * Executes the request with the non-blocking client when <code>asynchronous=true</code>. The response is processed, and the
+	 * returned future is completed, by a thread of the responseExecutor, to keep the I/O threads of the client available for
+	 * the other connections. Otherwise the request is executed on the calling thread.
+	 */
+	@Override
+	public CompletableFuture<SenderResult> sendMessageNonBlocking(Message message, PipeLineSession session) throws SenderException {
+		CompletableFuture<SenderResult> result = new CompletableFuture<>();
+		if (!isAsynchronous()) {
+			try {
+				result.complete(sendMessage(message, session));
+			} catch (SenderException | TimeoutException e) {
+				result.completeExceptionally(e);
+			}
+			return result;
+		}
+		ParameterValueList pvl = getParameterValues(message, session);
+		URI targetUri = getTargetUri(pvl);
+		HttpRequestBase httpRequestBase = createRequest(targetUri, message, pvl, session);
+		HttpHost targetHost = new HttpHost(targetUri.getHost(), getPort(targetUri), targetUri.getScheme());
+
+		log.debug(getLogPrefix()+"executing method [" + httpRequestBase.getRequestLine() + "] without blocking");
+		Future<HttpResponse> execution = httpAsyncClient.execute(targetHost, httpRequestBase, httpClientContext, new FutureCallback<HttpResponse>() {
+
+			@Override
+			public void completed(HttpResponse httpResponse) {
+				log.debug(getLogPrefix()+"executed method");
+				try {
+					responseExecutor.execute(() -> {
+						try {
+							result.complete(createSenderResult(handleResponse(httpResponse, session)));
+						} catch (Exception e) {
+							result.completeExceptionally(e instanceof SenderException ? e : new SenderException(e));
+						}
+					});
+				} catch (TaskRejectedException e) {
+					result.completeExceptionally(new SenderException(getLogPrefix()+"cannot process response", e));
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				if (e instanceof SocketTimeoutException) {
+					result.completeExceptionally(new TimeoutException(e));
+				} else {
+					result.completeExceptionally(new SenderException(e));
+				}
+			}
+
+			@Override
+			public void cancelled() {
+				result.completeExceptionally(new CancellationException(getLogPrefix()+"request cancelled"));
+			}
+		});
+		result.whenComplete((r, t) -> {
+			if (t instanceof CancellationException) {
+				execution.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	private ParameterValueList getParameterValues(Message message, PipeLineSession session) throws SenderException {
 		try {
 			if (paramList !=null) {
-				pvl=paramList.getValues(message, session);
+				return paramList.getValues(message, session);
 			}
+			return null;
 		} catch (ParameterException e) {
 			throw new SenderException(getLogPrefix()+"Sender ["+getName()+"] caught exception evaluating parameters",e);
 		}
+	}
 
-		URI targetUri;
-		final HttpRequestBase httpRequestBase;
+	private URI getTargetUri(ParameterValueList pvl) throws SenderException {
+		if (urlParameter == null) {
+			return staticUri;
+		}
 		try {
-			if (urlParameter != null) {
-				String url = pvl.get(getUrlParam()).asStringValue();
-				targetUri = getURI(url);
-			} else {
-				targetUri = staticUri;
-			}
+			return getURI(pvl.get(getUrlParam()).asStringValue());
+		} catch (Exception e) {
+			throw new SenderException(e);
+		}
+	}
 
+	private HttpRequestBase createRequest(URI targetUri, Message message, ParameterValueList pvl, PipeLineSession session) throws SenderException {
+		try {
 			// Resolve HeaderParameters
 			Map<String, String> headersParamsMap = new HashMap<>();
 			if (!headerParamsSet.isEmpty() && pvl!=null) {
@@ -688,7 +956,7 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 				}
 			}
 
-			httpRequestBase = getMethod(targetUri, message, pvl, session);
+			HttpRequestBase httpRequestBase = getMethod(targetUri, message, pvl, session);
 			if(httpRequestBase == null)
 				throw new MethodNotSupportedException("could not find implementation for method ["+getHttpMethod()+"]");
 
@@ -708,75 +976,45 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			preAuthenticate();
 
 			log.info(getLogPrefix()+"configured httpclient for host ["+targetUri.getHost()+"]");
-
+			return httpRequestBase;
 		} catch (Exception e) {
 			throw new SenderException(e);
 		}
+	}
 
-		Message result = null;
-		int statusCode = -1;
-		boolean success;
-		String reasonPhrase = null;
-		HttpHost targetHost = new HttpHost(targetUri.getHost(), getPort(targetUri), targetUri.getScheme());
-
-		TimeoutGuard tg = new TimeoutGuard(1+getTimeout()/1000, getName()) {
-
-			@Override
-			protected void abort() {
-				httpRequestBase.abort();
-			}
-
-		};
-		try {
-			log.debug(getLogPrefix()+"executing method [" + httpRequestBase.getRequestLine() + "]");
-			HttpResponse httpResponse = getHttpClient().execute(targetHost, httpRequestBase, httpClientContext);
-			log.debug(getLogPrefix()+"executed method");
-
-			HttpResponseHandler responseHandler = new HttpResponseHandler(httpResponse);
-			StatusLine statusline = httpResponse.getStatusLine();
-			statusCode = statusline.getStatusCode();
-			success = validateResponseCode(statusCode);
-			reasonPhrase =  statusline.getReasonPhrase();
+	/**
+	 * Extracts the result from the response. The status code and reason phrase are stored in the context of the result.
+	 */
+	private Message handleResponse(HttpResponse httpResponse, PipeLineSession session) throws SenderException, IOException {
+		HttpResponseHandler responseHandler = new HttpResponseHandler(httpResponse);
+		StatusLine statusline = httpResponse.getStatusLine();
+		int statusCode = statusline.getStatusCode();
 
-			if (StringUtils.isNotEmpty(getResultStatusCodeSessionKey()) && session != null) {
-				session.put(getResultStatusCodeSessionKey(), Integer.toString(statusCode));
-			}
+		if (StringUtils.isNotEmpty(getResultStatusCodeSessionKey()) && session != null) {
+			session.put(getResultStatusCodeSessionKey(), Integer.toString(statusCode));
+		}
 
-			// Only give warnings for 4xx (client errors) and 5xx (server errors)
-			if (statusCode >= 400 && statusCode < 600) {
-				log.warn(getLogPrefix()+"status ["+statusline.toString()+"]");
-			} else {
-				log.debug(getLogPrefix()+"status ["+statusCode+"]");
-			}
+		// Only give warnings for 4xx (client errors) and 5xx (server errors)
+		if (statusCode >= 400 && statusCode < 600) {
+			log.warn(getLogPrefix()+"status ["+statusline.toString()+"]");
+		} else {
+			log.debug(getLogPrefix()+"status ["+statusCode+"]");
+		}
 
-			result = extractResult(responseHandler, session);
+		Message result = extractResult(responseHandler, session);
+		log.debug(getLogPrefix()+"retrieved result ["+result+"]");
 
-			log.debug(getLogPrefix()+"retrieved result ["+result+"]");
-		} catch (IOException e) {
-			httpRequestBase.abort();
-			if (e instanceof SocketTimeoutException) {
-				throw new TimeoutException(e);
-			}
-			throw new SenderException(e);
-		} finally {
-			// By forcing the use of the HttpResponseHandler the resultStream
-			// will automatically be closed when it has been read.
-			// See HttpResponseHandler and ReleaseConnectionAfterReadInputStream.
-			// We cannot close the connection as the response might be kept
-			// in a sessionKey for later use in the pipeline.
-			//
-			// IMPORTANT: It is possible that poorly written implementations
-			// wont read or close the response.
-			// This will cause the connection to become stale..
-
-			if (tg.cancel()) {
-				throw new TimeoutException(getLogPrefix()+"timeout of ["+getTimeout()+"] ms exceeded");
-			}
+		if (result==null) {
+			result = Message.nullMessage();
 		}
+		result.getContext().put(CONTEXT_KEY_STATUS_CODE, statusCode);
+		result.getContext().put(CONTEXT_KEY_REASON_PHRASE, statusline.getReasonPhrase());
+		return result;
+	}
 
-		if (statusCode == -1){
-			throw new SenderException("Failed to recover from exception");
-		}
+	private SenderResult createSenderResult(Message result) throws SenderException {
+		int statusCode = (int) result.getContext().get(CONTEXT_KEY_STATUS_CODE);
+		String reasonPhrase = (String) result.getContext().get(CONTEXT_KEY_REASON_PHRASE);
 
 		if (isXhtml() && !Message.isEmpty(result)) {
 			String xhtml;
@@ -796,14 +1034,10 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 			}
 
 			result = Message.asMessage(xhtml);
+			result.getContext().put(CONTEXT_KEY_STATUS_CODE, statusCode);
+			result.getContext().put(CONTEXT_KEY_REASON_PHRASE, reasonPhrase);
 		}
-
-		if (result==null) {
-			result = Message.nullMessage();
-		}
-		result.getContext().put(CONTEXT_KEY_STATUS_CODE, statusCode);
-		result.getContext().put(CONTEXT_KEY_REASON_PHRASE, reasonPhrase);
-		return new SenderResult(success, result, reasonPhrase, Integer.toString(statusCode));
+		return new SenderResult(validateResponseCode(statusCode), result, reasonPhrase, Integer.toString(statusCode));
 	}
 
 	@Override
@@ -1130,6 +1364,19 @@ public abstract class HttpSenderBase extends SenderWithParametersBase implements
 		connectionIdleTimeout = idleTimeout;
 	}
 
+	@IbisDoc({"If <code>true</code>, connections are taken from a pool that is shared with other senders with <code>sharedConnectionPool=true</code> and the same SSL and connection pool settings, "
+			+ "instead of from a pool of this sender only. Each sender adds its <code>maxConnections</code> to the size of the shared pool. Cannot be used in combination with a keystore", "false"})
+	public void setSharedConnectionPool(boolean sharedConnectionPool) {
+		this.sharedConnectionPool = sharedConnectionPool;
+	}
+
+	@IbisDoc({"If <code>true</code>, requests are executed by a non-blocking client, that waits for the responses of all requests of this sender with a few I/O threads. "
+			+ "Senders that support it, like ParallelSenders, do not occupy a thread per request while waiting for the response. The response is read into memory before it is processed by a separate thread. "
+			+ "Only HTTP/1.1 is supported, each concurrent request uses a connection of its own. Cannot be used in combination with sharedConnectionPool, maxExecuteRetries is not used", "false"})
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+
 	@IbisDoc({"If <code>true</code>, the HTML response is transformed to XHTML", "false"})
 	public void setXhtml(boolean xHtml) {
 		xhtml = xHtml;
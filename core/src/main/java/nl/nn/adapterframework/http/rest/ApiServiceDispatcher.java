@@ -68,6 +68,7 @@ public class ApiServiceDispatcher {
 
 	private Logger log = LogUtil.getLogger(this);
 	private ConcurrentSkipListMap<String, ApiDispatchConfig> patternClients = new ConcurrentSkipListMap<>(new ApiUriComparator());
+	private ApiUriTrie uriTrie = new ApiUriTrie();
 	private static ApiServiceDispatcher self = null;
 
 	public static synchronized ApiServiceDispatcher getInstance() {
@@ -87,32 +88,11 @@ public class ApiServiceDispatcher {
 	}
 
 	private List<ApiDispatchConfig>  findMatchingConfigsForUri(String uri, boolean exactMatch) {
-		List<ApiDispatchConfig> results = new ArrayList<>();
+		List<ApiDispatchConfig> results = uriTrie.findMatches(uri, exactMatch);
+		if(log.isTraceEnabled()) log.trace("uri ["+uri+"] matches patterns "+results);
 
-		String[] uriSegments = uri.split("/");
-
-		for (Iterator<String> it = patternClients.keySet().iterator(); it.hasNext();) {
-			String uriPattern = it.next();
-			if(log.isTraceEnabled()) log.trace("comparing uri ["+uri+"] to pattern ["+uriPattern+"]");
-
-			String[] patternSegments = uriPattern.split("/");
-			if (exactMatch && patternSegments.length != uriSegments.length || patternSegments.length < uriSegments.length) {
-				continue;
-			}
-
-			int matches = 0;
-			for (int i = 0; i < uriSegments.length; i++) {
-				if(patternSegments[i].equals(uriSegments[i]) || patternSegments[i].equals("*")) {
-					matches++;
-				}
-			}
-			if(matches == uriSegments.length) {
-				ApiDispatchConfig result = patternClients.get(uriPattern);
-				results.add(result);
-				if (exactMatch) {
-					return results;
-				}
-			}
+		if (exactMatch && results.size() > 1) {
+			return results.subList(0, 1);
 		}
 		return results;
 	}
@@ -125,7 +105,12 @@ public class ApiServiceDispatcher {
 		HttpMethod method = listener.getMethod();
 
 		synchronized(patternClients) {
-			patternClients.computeIfAbsent(uriPattern, pattern -> new ApiDispatchConfig(pattern)).register(method, listener);
+			ApiDispatchConfig dispatchConfig = patternClients.computeIfAbsent(uriPattern, pattern -> {
+				ApiDispatchConfig config = new ApiDispatchConfig(pattern);
+				uriTrie.put(config);
+				return config;
+			});
+			dispatchConfig.register(method, listener);
 		}
 
 		if(log.isTraceEnabled()) log.trace("ApiServiceDispatcher successfully registered uriPattern ["+uriPattern+"] method ["+method+"]");
@@ -144,6 +129,7 @@ public class ApiServiceDispatcher {
 				if(dispatchConfig != null) {
 					if(dispatchConfig.getMethods().size() == 1) {
 						patternClients.remove(uriPattern); //Remove the entire config if there's only 1 ServiceClient registered
+						uriTrie.remove(dispatchConfig);
 					} else {
 						dispatchConfig.remove(method); //Only remove the ServiceClient as there are multiple registered
 					}
@@ -417,5 +403,6 @@ public class ApiServiceDispatcher {
 			log.warn("unable to gracefully unregister "+patternClients.size()+" DispatchConfigs");
 			patternClients.clear();
 		}
+		uriTrie.clear();
 	}
 }
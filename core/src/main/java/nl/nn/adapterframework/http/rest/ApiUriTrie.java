@@ -0,0 +1,135 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.http.rest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Segment trie of the (clean) uriPatterns registered on the {@link ApiServiceDispatcher}, to find the {@link ApiDispatchConfig}s
+ * that match a request uri without comparing the uri to every registered pattern.
+ * <p>
+ * Each node represents a uri segment. A <code>*</code> segment matches any single segment of the request uri.
+ * Matches are returned in the order of the {@link ApiUriComparator}, as the dispatcher did when it scanned all patterns.
+ * </p>
+ * <p>
+ * Modifications must be serialized by the caller. Lookups are lock free and may run concurrently with modifications.
+ * </p>
+ */
+class ApiUriTrie {
+	private static final String WILDCARD = "*";
+	private static final Comparator<ApiDispatchConfig> ORDER = Comparator.comparing(ApiDispatchConfig::getUriPattern, new ApiUriComparator());
+
+	private final Node root = new Node();
+
+	private static class Node {
+		private final Map<String, Node> children = new ConcurrentHashMap<>();
+		private volatile ApiDispatchConfig config;
+
+		private boolean isEmpty() {
+			return config == null && children.isEmpty();
+		}
+	}
+
+	public void put(ApiDispatchConfig config) {
+		Node node = root;
+		for (String segment : config.getUriPattern().split("/")) {
+			node = node.children.computeIfAbsent(segment, s -> new Node());
+		}
+		node.config = config;
+	}
+
+	public void remove(ApiDispatchConfig config) {
+		remove(root, config.getUriPattern().split("/"), 0, config);
+	}
+
+	private void remove(Node node, String[] segments, int index, ApiDispatchConfig config) {
+		if (index == segments.length) {
+			if (node.config == config) {
+				node.config = null;
+			}
+			return;
+		}
+		Node child = node.children.get(segments[index]);
+		if (child != null) {
+			remove(child, segments, index+1, config);
+			if (child.isEmpty()) {
+				node.children.remove(segments[index], child);
+			}
+		}
+	}
+
+	public void clear() {
+		root.config = null;
+		root.children.clear();
+	}
+
+	/**
+	 * Returns the configs whose pattern matches the uri. When <code>exactMatch</code> is <code>false</code>, patterns that have more segments than
+	 * the uri match as well, when the uri matches their first segments.
+	 */
+	public List<ApiDispatchConfig> findMatches(String uri, boolean exactMatch) {
+		String[] segments = uri.split("/");
+		List<Node> nodes = Collections.singletonList(root);
+		for (int i = 0; i < segments.length && !nodes.isEmpty(); i++) {
+			List<Node> next = new ArrayList<>(2);
+			for (Node node : nodes) {
+				Node literal = node.children.get(segments[i]);
+				if (literal != null) {
+					next.add(literal);
+				}
+				if (!WILDCARD.equals(segments[i])) {
+					Node wildcard = node.children.get(WILDCARD);
+					if (wildcard != null) {
+						next.add(wildcard);
+					}
+				}
+			}
+			nodes = next;
+		}
+
+		List<ApiDispatchConfig> results = new ArrayList<>();
+		for (Node node : nodes) {
+			if (exactMatch) {
+				addConfig(node, results);
+			} else {
+				addSubtree(node, results);
+			}
+		}
+		if (results.size() > 1) {
+			results.sort(ORDER);
+		}
+		return results;
+	}
+
+	private void addConfig(Node node, List<ApiDispatchConfig> results) {
+		ApiDispatchConfig config = node.config;
+		if (config != null) {
+			results.add(config);
+		}
+	}
+
+	private void addSubtree(Node node, List<ApiDispatchConfig> results) {
+		addConfig(node, results);
+		for (Node child : node.children.values()) {
+			addSubtree(child, results);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.functional.ThrowingConsumer;
+import nl.nn.adapterframework.jdbc.JdbcTransactionalStorage.AsyncOverflowPolicy;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Stores messages of a {@link JdbcTransactionalStorage} outside the transaction of the caller. Callers put their messages
+ * in a bounded queue, from which a background thread takes them to store them in batches.
+ * <p>
+ * Messages are serialized by the caller, so they cannot change after they have been queued. Compression of the messages
+ * and the round trips to the database are left to the background thread. When the queue is full, the {@link AsyncOverflowPolicy}
+ * determines what happens with new messages.
+ * </p>
+ * @since 7.9
+ */
+public class AsyncStorageWriter implements Runnable {
+	protected Logger log = LogUtil.getLogger(this);
+
+	private static final long STOP_TIMEOUT_MILLIS = 30000;
+	private static final int DISCARD_WARNING_INTERVAL = 1000;
+
+	private final String name;
+	private final ThrowingConsumer<List<SerializedMessage>, SenderException> store;
+	private final BlockingQueue<SerializedMessage> queue;
+	private final int batchSize;
+	private final AsyncOverflowPolicy overflowPolicy;
+
+	private volatile boolean running;
+	private Thread thread;
+
+	private final LongAdder stored = new LongAdder();
+	private final LongAdder discarded = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private MeterRegistry registry;
+	private Timer flushTimer;
+	private final List<Meter> meters = new ArrayList<>();
+
+	/**
+	 * A message with its metadata, serialized to be stored later.
+	 */
+	public static class SerializedMessage {
+		private final @Getter String messageId;
+		private final @Getter String correlationId;
+		private final @Getter Timestamp receivedDate;
+		private final @Getter String comments;
+		private final @Getter String label;
+		private final @Getter byte[] serializedObject;
+
+		public SerializedMessage(String messageId, String correlationId, Timestamp receivedDate, String comments, String label, Serializable object) throws IOException {
+			this.messageId = messageId;
+			this.correlationId = correlationId;
+			this.receivedDate = receivedDate;
+			this.comments = comments;
+			this.label = label;
+			if (object!=null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+					oos.writeObject(object);
+				}
+				serializedObject = out.toByteArray();
+			} else {
+				serializedObject = null;
+			}
+		}
+
+		public Object deserialize() throws IOException, ClassNotFoundException {
+			if (serializedObject==null) {
+				return null;
+			}
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedObject))) {
+				return ois.readObject();
+			}
+		}
+	}
+
+	public AsyncStorageWriter(String name, ThrowingConsumer<List<SerializedMessage>, SenderException> store, int queueSize, int batchSize, AsyncOverflowPolicy overflowPolicy) {
+		this.name = name;
+		this.store = store;
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	public synchronized void start() {
+		running = true;
+		thread = new Thread(this, "AsyncStorageWriter["+name+"]");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the background thread, after it has stored the messages that were queued.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (thread!=null) {
+			try {
+				thread.join(STOP_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (thread.isAlive()) {
+				log.warn(getLogPrefix()+"writer did not stop within ["+STOP_TIMEOUT_MILLIS+"] ms, interrupting it");
+				thread.interrupt();
+			}
+			thread = null;
+		}
+		List<SerializedMessage> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		for (int i=0; i<remaining.size(); i+=batchSize) {
+			flush(remaining.subList(i, Math.min(i+batchSize, remaining.size())));
+		}
+		if (registry!=null) {
+			meters.forEach(registry::remove);
+			meters.clear();
+			flushTimer = null;
+			registry = null;
+		}
+	}
+
+	/**
+	 * Queues a message to be stored.
+	 * @return <code>false</code> if the caller must store the message itself, because the queue is full and the overflowPolicy is
+	 * {@link AsyncOverflowPolicy#STORE_SYNCHRONOUSLY}, or because the writer has been stopped.
+	 */
+	public boolean offer(SerializedMessage message) throws InterruptedException {
+		if (!running) {
+			return false;
+		}
+		switch (overflowPolicy) {
+			case BLOCK:
+				while (!queue.offer(message, 1, TimeUnit.SECONDS)) {
+					if (!running) {
+						return false;
+					}
+				}
+				return true;
+			case DISCARD:
+				if (!queue.offer(message)) {
+					discarded.increment();
+					long numDiscarded = discarded.sum();
+					if (numDiscarded % DISCARD_WARNING_INTERVAL == 1) {
+						log.warn(getLogPrefix()+"queue is full, discarded message with messageId ["+message.getMessageId()+"], in total ["+numDiscarded+"] messages were discarded");
+					}
+				}
+				return true;
+			case STORE_SYNCHRONOUSLY:
+				return queue.offer(message);
+			default:
+				throw new IllegalStateException("unknown overflowPolicy ["+overflowPolicy+"]");
+		}
+	}
+
+	@Override
+	public void run() {
+		List<SerializedMessage> batch = new ArrayList<>(batchSize);
+		try {
+			while (running || !queue.isEmpty()) {
+				SerializedMessage first = queue.poll(1, TimeUnit.SECONDS);
+				if (first!=null) {
+					batch.add(first);
+					queue.drainTo(batch, batchSize-1);
+					flush(batch);
+					batch.clear();
+				}
+			}
+		} catch (InterruptedException e) {
+			log.warn(getLogPrefix()+"writer interrupted, ["+queue.size()+"] messages are still queued");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void flush(List<SerializedMessage> batch) {
+		long start = System.nanoTime();
+		try {
+			store.accept(batch);
+			stored.add(batch.size());
+		} catch (Exception e) {
+			if (batch.size()==1) {
+				failed(batch.get(0), e);
+			} else {
+				log.warn(getLogPrefix()+"could not store batch of ["+batch.size()+"] messages, storing them one by one", e);
+				for (SerializedMessage message:batch) {
+					try {
+						store.accept(Collections.singletonList(message));
+						stored.increment();
+					} catch (Exception e2) {
+						failed(message, e2);
+					}
+				}
+			}
+		} finally {
+			Timer timer = flushTimer;
+			if (timer!=null) {
+				timer.record(System.nanoTime()-start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private void failed(SerializedMessage message, Exception e) {
+		failed.increment();
+		log.error(getLogPrefix()+"could not store message with messageId ["+message.getMessageId()+"] correlationId ["+message.getCorrelationId()+"]", e);
+	}
+
+	public synchronized void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		List<Tag> tags = Arrays.asList(Tag.of("type", "application"), Tag.of("storage", String.valueOf(name)));
+		meters.add(Gauge.builder("frank.storage.async.queue.size", queue, BlockingQueue::size).tags(tags).description("number of messages waiting to be stored").register(registry));
+		meters.add(FunctionCounter.builder("frank.storage.async.stored", stored, LongAdder::sum).tags(tags).description("number of messages stored").register(registry));
+		meters.add(FunctionCounter.builder("frank.storage.async.discarded", discarded, LongAdder::sum).tags(tags).description("number of messages discarded because the queue was full").register(registry));
+		meters.add(FunctionCounter.builder("frank.storage.async.failed", failed, LongAdder::sum).tags(tags).description("number of messages that could not be stored").register(registry));
+		flushTimer = Timer.builder("frank.storage.async.flush").tags(tags).description("duration of storing a batch of messages").register(registry);
+		meters.add(flushTimer);
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	public long getStored() {
+		return stored.sum();
+	}
+
+	public long getDiscarded() {
+		return discarded.sum();
+	}
+
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	private String getLogPrefix() {
+		return "AsyncStorageWriter ["+name+"] ";
+	}
+}
@@ -22,12 +22,19 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
@@ -72,6 +79,7 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 
 	private @Getter boolean trace=false;
 	private @Getter boolean peekUntransacted=true;
+	private @Getter int batchSize=1;
 
 	private Map<ProcessState, String> updateStatusQueries = new HashMap<>();
 	private Map<ProcessState,Set<ProcessState>> targetProcessStates = new HashMap<>();
@@ -81,6 +89,10 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 	private String preparedSelectQuery;
 	private String preparedPeekQuery;
 
+	// messages fetched in batch, already moved to inProcess, waiting to be handed to a receiver thread
+	private final Queue<M> prefetchedMessages = new ConcurrentLinkedQueue<>();
+	private final Set<String> prefetchedKeys = ConcurrentHashMap.newKeySet();
+
 	public enum MessageFieldType {
 		STRING,
 		CLOB,
@@ -90,8 +102,14 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 	@Override
 	public void configure() throws ConfigurationException {
 		super.configure();
+		if (getBatchSize()<1) {
+			throw new ConfigurationException("batchSize ["+getBatchSize()+"] must be positive");
+		}
+		if (getBatchSize()>1 && !updateStatusQueries.containsKey(ProcessState.INPROCESS)) {
+			throw new ConfigurationException("batchSize ["+getBatchSize()+"] requires an inProcess status, to hand messages to other threads after the lock on their rows has been released");
+		}
 		try {
-			preparedSelectQuery = getDbmsSupport().prepareQueryTextForWorkQueueReading(1, getSelectQuery());
+			preparedSelectQuery = getDbmsSupport().prepareQueryTextForWorkQueueReading(getBatchSize(), getSelectQuery());
 			preparedPeekQuery = StringUtils.isNotEmpty(getPeekQuery()) ? getPeekQuery() : getDbmsSupport().prepareQueryTextForWorkQueuePeeking(1, getSelectQuery());
 		} catch (JdbcException e) {
 			throw new ConfigurationException(e);
@@ -125,6 +143,7 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 
 	@Override
 	public void close() {
+		releasePrefetchedMessages();
 		try {
 			if (connection != null) {
 				connection.close();
@@ -149,7 +168,7 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 
 	@Override
 	public boolean hasRawMessageAvailable() throws ListenerException {
-		if (StringUtils.isEmpty(preparedPeekQuery)) {
+		if (StringUtils.isEmpty(preparedPeekQuery) || !prefetchedMessages.isEmpty()) {
 			return true;
 		}
 		if (isConnectionsArePooled()) {
@@ -176,6 +195,10 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 
 	@Override
 	public M getRawMessage(Map<String,Object> threadContext) throws ListenerException {
+		M prefetchedMessage = prefetchedMessages.poll();
+		if (prefetchedMessage!=null) {
+			return prefetchedMessage;
+		}
 		if (isConnectionsArePooled()) {
 			try (Connection c = getConnection()) {
 				return getRawMessage(c,threadContext);
@@ -189,21 +212,70 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 	}
 
 	protected M getRawMessage(Connection conn, Map<String,Object> threadContext) throws ListenerException {
+		if (getBatchSize()>1) {
+			return getRawMessageFromBatch(conn);
+		}
+		List<M> rawMessages = getRawMessages(conn, 1);
+		return rawMessages.isEmpty() ? null : rawMessages.get(0);
+	}
+
+	/**
+	 * Fetches a batch of messages, and moves them all to inProcess using a single batch statement. The first message is returned,
+	 * the others are handed to the next calls of {@link #getRawMessage(Map)} once the transaction that moved them has been committed.
+	 */
+	protected M getRawMessageFromBatch(Connection conn) throws ListenerException {
+		List<M> rawMessages = getRawMessages(conn, getBatchSize());
+		if (rawMessages.isEmpty()) {
+			return null;
+		}
+		List<M> claimedMessages = changeProcessStateInBatch(conn, rawMessages, ProcessState.INPROCESS, "start processing");
+		if (claimedMessages.isEmpty()) {
+			return null;
+		}
+		List<String> claimedKeys = new ArrayList<>();
+		for (M rawMessage:claimedMessages) {
+			claimedKeys.add(getKeyFromRawMessage(rawMessage));
+		}
+		M result = claimedMessages.get(0);
+		List<M> remainingMessages = claimedMessages.subList(1, claimedMessages.size());
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status==STATUS_COMMITTED) {
+						prefetchedMessages.addAll(remainingMessages);
+					} else {
+						// state change to inProcess has been rolled back, the messages will be picked up again by a next poll
+						prefetchedKeys.removeAll(claimedKeys);
+					}
+				}
+			});
+			prefetchedKeys.addAll(claimedKeys);
+		} else {
+			prefetchedKeys.addAll(claimedKeys);
+			prefetchedMessages.addAll(remainingMessages);
+		}
+		if (log.isDebugEnabled()) log.debug(getLogPrefix()+"fetched batch of ["+claimedMessages.size()+"] messages");
+		return result;
+	}
+
+	protected List<M> getRawMessages(Connection conn, int maxMessages) throws ListenerException {
 		String query=preparedSelectQuery;
+		List<M> result = new ArrayList<>();
 		try (Statement stmt= conn.createStatement()) {
-			stmt.setFetchSize(1);
+			stmt.setFetchSize(maxMessages);
 			if (trace && log.isDebugEnabled()) log.debug("executing query for ["+query+"]");
 			try (ResultSet rs=stmt.executeQuery(query)) {
-				if (!rs.next()) {
-					return null;
+				while (result.size()<maxMessages && rs.next()) {
+					result.add(extractRawMessage(rs));
 				}
-				return extractRawMessage(rs);
+				return result;
 			} catch (SQLException e) {
 				if (!getDbmsSupport().hasSkipLockedFunctionality()) {
 					String errorMessage = e.getMessage();
 					if (errorMessage.toLowerCase().contains("timeout") && errorMessage.toLowerCase().contains("lock")) {
 						log.debug(getLogPrefix()+"caught lock timeout exception, returning null: ("+e.getClass().getName()+")"+e.getMessage());
-						return null; // resolve locking conflict for dbmses that do not support SKIP LOCKED
+						return result; // resolve locking conflict for dbmses that do not support SKIP LOCKED
 					}
 				}
 				throw e;
@@ -354,7 +426,63 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 	protected M changeProcessState(Connection connection, M rawMessage, ProcessState toState, String reason) throws ListenerException {
 		String query = getUpdateStatusQuery(toState);
 		String key=getKeyFromRawMessage(rawMessage);
-		return execute(connection, query, key) ? rawMessage : null;
+		if (toState==ProcessState.INPROCESS && prefetchedKeys.remove(key)) {
+			return rawMessage; // already moved to inProcess when the batch was fetched
+		}
+		return execute(connection, query, getUpdateStatusQueryParameters(query, key, reason)) ? rawMessage : null;
+	}
+
+	/**
+	 * Changes the process state of a number of messages, using a single batch statement.
+	 * @return the messages of which the state was actually changed.
+	 */
+	protected List<M> changeProcessStateInBatch(Connection conn, List<M> rawMessages, ProcessState toState, String reason) throws ListenerException {
+		String query = getUpdateStatusQuery(toState);
+		List<M> result = new ArrayList<>();
+		if (trace && log.isDebugEnabled()) log.debug("executing statement ["+query+"] for ["+rawMessages.size()+"] messages");
+		try (PreparedStatement stmt=conn.prepareStatement(query)) {
+			for (M rawMessage:rawMessages) {
+				int i=1;
+				for(String parameter:getUpdateStatusQueryParameters(query, getKeyFromRawMessage(rawMessage), reason)) {
+					JdbcUtil.setParameter(stmt, i++, parameter, getDbmsSupport().isParameterTypeMatchRequired());
+				}
+				stmt.addBatch();
+			}
+			int[] updateCounts = stmt.executeBatch();
+			for (int i=0; i<updateCounts.length; i++) {
+				if (updateCounts[i]>0 || updateCounts[i]==Statement.SUCCESS_NO_INFO) {
+					result.add(rawMessages.get(i));
+				}
+			}
+			return result;
+		} catch (SQLException e) {
+			throw new ListenerException(getLogPrefix()+"exception executing batch statement ["+query+"]",e);
+		}
+	}
+
+	/**
+	 * Returns the values of the parameters of the update status query, in order of appearance.
+	 */
+	protected String[] getUpdateStatusQueryParameters(String query, String key, String reason) {
+		return new String[] { key };
+	}
+
+	/**
+	 * Moves messages that were fetched in batch, but not yet handed to a receiver thread, back to available.
+	 */
+	protected void releasePrefetchedMessages() {
+		M rawMessage;
+		while ((rawMessage = prefetchedMessages.poll())!=null) {
+			try {
+				String key = getKeyFromRawMessage(rawMessage);
+				if (prefetchedKeys.remove(key)) {
+					changeProcessState(rawMessage, ProcessState.AVAILABLE, "listener closed before processing");
+				}
+			} catch (ListenerException e) {
+				log.warn(getLogPrefix()+"could not release prefetched message", e);
+			}
+		}
+		prefetchedKeys.clear();
 	}
 
 	protected boolean execute(Connection conn, String query, String... parameters) throws ListenerException {
@@ -447,4 +575,13 @@ public class JdbcListener<M extends Object> extends JdbcFacade implements IPeeka
 		this.trace = trace;
 	}
 
+	/**
+	 * Maximum number of messages fetched in a single query. When larger than 1, the fetched messages are moved to inProcess using a single batch statement,
+	 * and handed to the receiver threads one by one. Requires an inProcess status to be configured.
+	 * @ff.default 1
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 }
\ No newline at end of file
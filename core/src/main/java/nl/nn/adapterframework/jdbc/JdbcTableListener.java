@@ -15,7 +15,6 @@
 */
 package nl.nn.adapterframework.jdbc;
 
-import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -29,7 +28,6 @@ import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.core.IMessageBrowser;
 import nl.nn.adapterframework.core.IProvidesMessageBrowsers;
 import nl.nn.adapterframework.core.ITransactionalStorage;
-import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.core.ProcessState;
 
 /**
@@ -100,9 +98,7 @@ public class JdbcTableListener<M> extends JdbcListener<M> implements IProvidesMe
 	}
 
 	@Override
-	protected M changeProcessState(Connection connection, M rawMessage, ProcessState toState, String reason) throws ListenerException {
-		String query = getUpdateStatusQuery(toState);
-		String key=getKeyFromRawMessage(rawMessage);
+	protected String[] getUpdateStatusQueryParameters(String query, String key, String reason) {
 		List<String> parameters = new ArrayList<>();
 		if (StringUtils.isNotEmpty(getCommentField()) && query.substring(query.indexOf('?')+1).contains("?")) {
 			if (getMaxCommentLength()>=0 && reason!=null && reason.length()>getMaxCommentLength()) {
@@ -112,7 +108,7 @@ public class JdbcTableListener<M> extends JdbcListener<M> implements IProvidesMe
 			}
 		}
 		parameters.add(key);
-		return execute(connection, query, parameters.toArray(new String[parameters.size()])) ? rawMessage : null;
+		return parameters.toArray(new String[parameters.size()]);
 	}
 
 	@Override
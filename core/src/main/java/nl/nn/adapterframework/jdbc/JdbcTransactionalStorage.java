@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -31,12 +32,15 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -50,7 +54,10 @@ import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.core.TransactionAttribute;
 import nl.nn.adapterframework.core.TransactionAttributes;
 import nl.nn.adapterframework.doc.IbisDoc;
+import nl.nn.adapterframework.functional.ThrowingFunction;
+import nl.nn.adapterframework.jdbc.AsyncStorageWriter.SerializedMessage;
 import nl.nn.adapterframework.jdbc.dbms.IDbmsSupport;
+import nl.nn.adapterframework.metrics.MetricsRegistry;
 import nl.nn.adapterframework.util.AppConstants;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.JdbcUtil;
@@ -114,8 +121,41 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 	private static final String PROPERTY_CHECK_INDICES=CONTROL_PROPERTY_PREFIX+"checkIndices";
 
 	private static final boolean documentQueries=false;
+	private static final TransactionDefinition TXDEF_NOT_SUPPORTED = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
 
 	protected @Getter @Setter PlatformTransactionManager txManager;
+	private @Setter MetricsRegistry metricsRegistry;
+
+	private @Getter boolean asynchronous=false;
+	private @Getter int asyncQueueSize=10000;
+	private @Getter int asyncBatchSize=100;
+	private @Getter AsyncOverflowPolicy asyncOverflowPolicy=AsyncOverflowPolicy.BLOCK;
+	private AsyncStorageWriter asyncWriter;
+
+	private int messageCountRefreshInterval;	// default set from appConstant jdbc.storage.messageCount.refreshInterval
+	private MessageCountCache.TableCounts messageCounts;
+
+	private @Getter PartitionInterval partitionInterval;
+	private StoragePartitions partitions;
+	private final Map<String,String> partitionInsertQueries = new ConcurrentHashMap<>();
+
+	public enum AsyncOverflowPolicy {
+		/** Wait until the writer has made room in the queue */
+		BLOCK,
+		/** Store the message synchronously, in the transaction of the caller */
+		STORE_SYNCHRONOUSLY,
+		/** Do not store the message, and log a warning */
+		DISCARD
+	}
+
+	public enum PartitionInterval {
+		/** A partition for each day */
+		DAY,
+		/** A partition for each week, starting on monday */
+		WEEK,
+		/** A partition for each month */
+		MONTH
+	}
 
 	private TransactionDefinition txDef;
 
@@ -151,6 +191,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		AppConstants ac = AppConstants.getInstance();
 		checkTable = ac.getBoolean(PROPERTY_CHECK_TABLE, false);
 		checkIndices = ac.getBoolean(PROPERTY_CHECK_INDICES, true);
+		messageCountRefreshInterval = ac.getInt(MessageCountCache.REFRESH_INTERVAL_KEY, 0);
 	}
 
 	private void checkTableColumnPresent(Connection connection, IDbmsSupport dbms, String columnName) throws JdbcException {
@@ -300,7 +341,34 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		if (StringUtils.isNotEmpty(getHostField())) {
 			host=Misc.getHostname();
 		}
+		if (isAsynchronous()) {
+			if (!isMessageLog()) {
+				// messageLogs are the only storages of which the callers do not use the storageKey returned by storeMessage()
+				throw new ConfigurationException("asynchronous storage is only supported for messageLogs, not for storage of type ["+getType()+"]");
+			}
+			if (isOnlyStoreWhenMessageIdUnique()) {
+				throw new ConfigurationException("asynchronous storage cannot be combined with onlyStoreWhenMessageIdUnique=true");
+			}
+			if (getAsyncQueueSize()<1 || getAsyncBatchSize()<1) {
+				throw new ConfigurationException("asyncQueueSize ["+getAsyncQueueSize()+"] and asyncBatchSize ["+getAsyncBatchSize()+"] must be positive");
+			}
+		}
+		if (getPartitionInterval()!=null) {
+			if (!isMessageLog()) {
+				throw new ConfigurationException("partitioned storage is only supported for messageLogs, not for storage of type ["+getType()+"]");
+			}
+			if (getRetention()<0) {
+				throw new ConfigurationException("partitioned storage requires a retention, records that never expire cannot be partitioned by their expiry date");
+			}
+		}
 		super.configure();
+		if (getPartitionInterval()!=null) {
+			try {
+				partitions = new StoragePartitions(this, getDbmsSupport(), getPartitionInterval());
+			} catch (JdbcException e) {
+				throw new ConfigurationException(e);
+			}
+		}
 		checkDatabase();
 		txDef = TransactionAttributes.configureTransactionAttributes(log, TransactionAttribute.REQUIRED, 0);
 	}
@@ -308,12 +376,45 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 	@Override
 	public void open() throws SenderException {
 		try {
-			initialize(getDbmsSupport());
+			if (partitions!=null) {
+				Timestamp expiryDate = getExpiryDate();
+				executeOutsideTransaction(conn -> {
+					partitions.createPartitions(conn, expiryDate);
+					return null;
+				});
+			} else {
+				initialize(getDbmsSupport());
+			}
 		} catch (JdbcException e) {
 			throw new SenderException(e);
 		} catch (SQLException e) {
 			throw new SenderException(getLogPrefix()+"exception creating table ["+getTableName()+"]",e);
 		}
+		try {
+			messageCounts = MessageCountCache.getInstance().acquire(this, messageCountRefreshInterval);
+		} catch (JdbcException e) {
+			throw new SenderException(getLogPrefix()+"cannot register for cached message counts", e);
+		}
+		if (isAsynchronous()) {
+			asyncWriter = new AsyncStorageWriter(getName(), this::storeMessages, getAsyncQueueSize(), getAsyncBatchSize(), getAsyncOverflowPolicy());
+			if (metricsRegistry!=null) {
+				asyncWriter.bindTo(metricsRegistry.getRegistry());
+			}
+			asyncWriter.start();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (asyncWriter!=null) {
+			asyncWriter.stop();
+			asyncWriter = null;
+		}
+		if (messageCounts!=null) {
+			MessageCountCache.getInstance().release(messageCounts, this);
+			messageCounts = null;
+		}
+		super.close();
 	}
 
 	/**
@@ -338,25 +439,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 	protected void createQueryTexts(IDbmsSupport dbmsSupport) throws ConfigurationException {
 		super.createQueryTexts(dbmsSupport);
 		setDataTypes(dbmsSupport);
-		boolean keyFieldsNeedsInsert=dbmsSupport.autoIncrementKeyMustBeInserted();
-		boolean blobFieldsNeedsEmptyBlobInsert=dbmsSupport.mustInsertEmptyBlobBeforeData();
-		insertQuery = "INSERT INTO "+getPrefix()+getTableName()+" ("+
-						(keyFieldsNeedsInsert?getKeyField()+",":"")+
-						(StringUtils.isNotEmpty(getTypeField())?getTypeField()+",":"")+
-						(StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+",":"")+
-						(StringUtils.isNotEmpty(getHostField())?getHostField()+",":"")+
-						(StringUtils.isNotEmpty(getLabelField())?getLabelField()+",":"")+
-						getIdField()+","+getCorrelationIdField()+","+getDateField()+","+getCommentField()+","+getExpiryDateField()+
-						(isStoreFullMessage()?","+getMessageField():"")+
-						(isOnlyStoreWhenMessageIdUnique()?") SELECT ":") VALUES (")+
-						(keyFieldsNeedsInsert?dbmsSupport.autoIncrementInsertValue(getPrefix()+getSequenceName())+",":"")+
-						(StringUtils.isNotEmpty(getTypeField())?"?,":"")+
-						(StringUtils.isNotEmpty(getSlotId())?"?,":"")+
-						(StringUtils.isNotEmpty(getHostField())?"?,":"")+
-						(StringUtils.isNotEmpty(getLabelField())?"?,":"")+
-						"?,?,?,?,?"+
-						(isStoreFullMessage()?","+(blobFieldsNeedsEmptyBlobInsert?dbmsSupport.emptyBlobValue():"?"):"")+
-						(isOnlyStoreWhenMessageIdUnique()?" "+dbmsSupport.getFromForTablelessSelect()+" WHERE NOT EXISTS (SELECT * FROM IBISSTORE WHERE "+getIdField()+" = ?"+(StringUtils.isNotEmpty(getSlotId())?" AND "+getSlotIdField()+" = ?":"")+")":")");
+		insertQuery = createInsertQuery(dbmsSupport, getPrefix()+getTableName(), false);
 		selectKeyQuery = dbmsSupport.getInsertedAutoIncrementValueQuery(getPrefix()+getSequenceName());
 		selectKeyQueryIsDbmsSupported=StringUtils.isNotEmpty(selectKeyQuery);
 		if (!selectKeyQueryIsDbmsSupported) {
@@ -391,6 +474,30 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		}
 	}
 
+	/**
+	 * @param keyInserted when <code>true</code> the value of the key is the first parameter of the query
+	 */
+	private String createInsertQuery(IDbmsSupport dbmsSupport, String tableName, boolean keyInserted) {
+		boolean keyFieldsNeedsInsert=dbmsSupport.autoIncrementKeyMustBeInserted() || keyInserted;
+		boolean blobFieldsNeedsEmptyBlobInsert=dbmsSupport.mustInsertEmptyBlobBeforeData();
+		return "INSERT INTO "+tableName+" ("+
+						(keyFieldsNeedsInsert?getKeyField()+",":"")+
+						(StringUtils.isNotEmpty(getTypeField())?getTypeField()+",":"")+
+						(StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+",":"")+
+						(StringUtils.isNotEmpty(getHostField())?getHostField()+",":"")+
+						(StringUtils.isNotEmpty(getLabelField())?getLabelField()+",":"")+
+						getIdField()+","+getCorrelationIdField()+","+getDateField()+","+getCommentField()+","+getExpiryDateField()+
+						(isStoreFullMessage()?","+getMessageField():"")+
+						(isOnlyStoreWhenMessageIdUnique()?") SELECT ":") VALUES (")+
+						(keyFieldsNeedsInsert?(keyInserted?"?":dbmsSupport.autoIncrementInsertValue(getPrefix()+getSequenceName()))+",":"")+
+						(StringUtils.isNotEmpty(getTypeField())?"?,":"")+
+						(StringUtils.isNotEmpty(getSlotId())?"?,":"")+
+						(StringUtils.isNotEmpty(getHostField())?"?,":"")+
+						(StringUtils.isNotEmpty(getLabelField())?"?,":"")+
+						"?,?,?,?,?"+
+						(isStoreFullMessage()?","+(blobFieldsNeedsEmptyBlobInsert?dbmsSupport.emptyBlobValue():"?"):"")+
+						(isOnlyStoreWhenMessageIdUnique()?" "+dbmsSupport.getFromForTablelessSelect()+" WHERE NOT EXISTS (SELECT * FROM IBISSTORE WHERE "+getIdField()+" = ?"+(StringUtils.isNotEmpty(getSlotId())?" AND "+getSlotIdField()+" = ?":"")+")":")");
+	}
 
 	private String documentQuery(String name, String query, String purpose) {
 		return "\n"+name+(purpose!=null?"\n"+purpose:"")+"\n"+query+"\n";
@@ -441,22 +548,13 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		try {
 			query="CREATE TABLE "+getPrefix()+getTableName()+" ("+
 						getKeyField()+" "+getKeyFieldType()+" CONSTRAINT " +getPrefix()+getTableName()+ "_pk PRIMARY KEY, "+
-						(StringUtils.isNotEmpty(getTypeField())?getTypeField()+" CHAR(1), ":"")+
-						(StringUtils.isNotEmpty(getSlotId())? getSlotIdField()+" "+getTextFieldType()+"("+MAXIDLEN+"), ":"")+
-						(StringUtils.isNotEmpty(getHostField())?getHostField()+" "+getTextFieldType()+"("+MAXIDLEN+"), ":"")+
-						getIdField()+" "+getTextFieldType()+"("+MAXIDLEN+"), "+
-						getCorrelationIdField()+" "+getTextFieldType()+"("+MAXCIDLEN+"), "+
-						getDateField()+" "+getDateFieldType()+", "+
-						getCommentField()+" "+getTextFieldType()+"("+MAXCOMMENTLEN+"), "+
-						getMessageField()+" "+getMessageFieldType()+", "+
-						getExpiryDateField()+" "+getDateFieldType()+
-						(StringUtils.isNotEmpty(getLabelField())?getLabelField()+" "+getTextFieldType()+"("+MAXLABELLEN+"), ":"")+
+						getColumnDefinitions()+
 					")";
 
 			log.debug(getLogPrefix()+"creating table ["+getPrefix()+getTableName()+"] using query ["+query+"]");
 			stmt.execute(query);
 			if (StringUtils.isNotEmpty(getIndexName())) {
-				query = "CREATE INDEX "+getPrefix()+getIndexName()+" ON "+getPrefix()+getTableName()+"("+(StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+",":"")+getDateField()+","+getExpiryDateField()+")";
+				query = "CREATE INDEX "+getPrefix()+getIndexName()+" ON "+getPrefix()+getTableName()+"("+getIndexColumns()+")";
 				log.debug(getLogPrefix()+"creating index ["+getPrefix()+getIndexName()+"] using query ["+query+"]");
 				stmt.execute(query);
 			}
@@ -472,6 +570,26 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 	}
 
 
+	/**
+	 * Definitions of the columns of the table, except the key field.
+	 */
+	protected String getColumnDefinitions() {
+		return (StringUtils.isNotEmpty(getTypeField())?getTypeField()+" CHAR(1), ":"")+
+				(StringUtils.isNotEmpty(getSlotId())? getSlotIdField()+" "+getTextFieldType()+"("+MAXIDLEN+"), ":"")+
+				(StringUtils.isNotEmpty(getHostField())?getHostField()+" "+getTextFieldType()+"("+MAXIDLEN+"), ":"")+
+				getIdField()+" "+getTextFieldType()+"("+MAXIDLEN+"), "+
+				getCorrelationIdField()+" "+getTextFieldType()+"("+MAXCIDLEN+"), "+
+				getDateField()+" "+getDateFieldType()+", "+
+				getCommentField()+" "+getTextFieldType()+"("+MAXCOMMENTLEN+"), "+
+				getMessageField()+" "+getMessageFieldType()+", "+
+				getExpiryDateField()+" "+getDateFieldType()+
+				(StringUtils.isNotEmpty(getLabelField())?", "+getLabelField()+" "+getTextFieldType()+"("+MAXLABELLEN+")":"");
+	}
+
+	protected String getIndexColumns() {
+		return (StringUtils.isNotEmpty(getSlotId())?getSlotIdField()+",":"")+getDateField()+","+getExpiryDateField();
+	}
+
 	/**
 	 * Retrieves the value of the primary key for the record just inserted.
 	 */
@@ -500,46 +618,28 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		PreparedStatement stmt = null;
 		try {
 			IDbmsSupport dbmsSupport=getDbmsSupport();
+			Timestamp expiryDate = getExpiryDate();
+			String insertTable = getInsertTable(expiryDate);
+			String newKey = null;
+			if (partitions!=null && isStoreFullMessage() && !dbmsSupport.autoIncrementKeyMustBeInserted()) {
+				// the key of a partitioned table is the default value of its field, that not every dbms reports as generated key
+				newKey = selectNextSequenceValue(conn);
+			}
+			String insertQuery = getInsertQuery(insertTable, newKey!=null);
 			if (log.isDebugEnabled()) {
 				log.debug("preparing insert statement ["+insertQuery+"]");
 			}
-			if (!dbmsSupport.mustInsertEmptyBlobBeforeData()) {
+			if (!dbmsSupport.mustInsertEmptyBlobBeforeData() && newKey==null) {
 				stmt = conn.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS);
 			} else {
 				stmt = conn.prepareStatement(insertQuery);
 			}
 			stmt.clearParameters();
 			int parPos=0;
-
-			if (StringUtils.isNotEmpty(getTypeField())) {
-				stmt.setString(++parPos,getType());
-			}
-			if (StringUtils.isNotEmpty(getSlotId())) {
-				stmt.setString(++parPos,getSlotId());
-			}
-			if (StringUtils.isNotEmpty(getHostField())) {
-				stmt.setString(++parPos,host);
-			}
-			if (StringUtils.isNotEmpty(getLabelField())) {
-				stmt.setString(++parPos,label);
-			}
-			stmt.setString(++parPos,messageId);
-			stmt.setString(++parPos,correlationId);
-			stmt.setTimestamp(++parPos, receivedDateTime);
-			stmt.setString(++parPos, comments);
-			if (StorageType.MESSAGELOG_PIPE.getCode().equalsIgnoreCase(getType()) || StorageType.MESSAGELOG_RECEIVER.getCode().equalsIgnoreCase(getType())) {
-				if (getRetention()<0) {
-					stmt.setTimestamp(++parPos, null);
-				} else {
-					Date date = new Date();
-					Calendar cal = Calendar.getInstance();
-					cal.setTime(date);
-					cal.add(Calendar.DAY_OF_MONTH, getRetention());
-					stmt.setTimestamp(++parPos, new Timestamp(cal.getTime().getTime()));
-				}
-			} else {
-				stmt.setTimestamp(++parPos, null);
+			if (newKey!=null) {
+				stmt.setLong(++parPos, Long.parseLong(newKey));
 			}
+			parPos=setInsertParameters(stmt, parPos, messageId, correlationId, receivedDateTime, comments, label, expiryDate);
 
 			if (!isStoreFullMessage()) {
 				if (isOnlyStoreWhenMessageIdUnique()) {
@@ -562,9 +662,15 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 					stmt.setString(++parPos, getSlotId());
 				}
 				stmt.execute();
-				try (ResultSet rs = stmt.getGeneratedKeys()) {
-					if (rs.next() && rs.getString(1) != null) {
-						return "<id>" + rs.getString(1) + "</id>";
+				if (newKey!=null) {
+					if (stmt.getUpdateCount()>0) {
+						return "<id>" + newKey + "</id>";
+					}
+				} else {
+					try (ResultSet rs = stmt.getGeneratedKeys()) {
+						if (rs.next() && rs.getString(1) != null) {
+							return "<id>" + rs.getString(1) + "</id>";
+						}
 					}
 				}
 
@@ -589,18 +695,20 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 				if (log.isDebugEnabled()) {
 					log.debug("preparing select statement ["+selectKeyQuery+"]");
 				}
-				stmt.close();
-				stmt = conn.prepareStatement(selectKeyQuery);
-				// retrieve the key
-				String newKey;
-				try (ResultSet rs = stmt.executeQuery()) {
-					if (!rs.next()) {
-						throw new SenderException("could not retrieve key of stored message");
+				if (newKey==null) {
+					stmt.close();
+					stmt = conn.prepareStatement(selectKeyQuery);
+					// retrieve the key
+					try (ResultSet rs = stmt.executeQuery()) {
+						if (!rs.next()) {
+							throw new SenderException("could not retrieve key of stored message");
+						}
+						newKey = rs.getString(1);
 					}
-					newKey = rs.getString(1);
 				}
 
 				// and update the blob
+				String updateBlobQuery = insertTable!=null ? dbmsSupport.getUpdateBlobQuery(insertTable, getMessageField(), getKeyField()) : this.updateBlobQuery;
 				if (log.isDebugEnabled()) {
 					log.debug("preparing update statement ["+updateBlobQuery+"]");
 				}
@@ -642,6 +750,227 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		}
 	}
 
+	/**
+	 * Sets the parameters of the insertQuery that precede the message, following the parameter at position <code>parPos</code>.
+	 * @return the position of the last parameter set
+	 */
+	private int setInsertParameters(PreparedStatement stmt, int parPos, String messageId, String correlationId, Timestamp receivedDateTime, String comments, String label, Timestamp expiryDate) throws SQLException {
+		if (StringUtils.isNotEmpty(getTypeField())) {
+			stmt.setString(++parPos,getType());
+		}
+		if (StringUtils.isNotEmpty(getSlotId())) {
+			stmt.setString(++parPos,getSlotId());
+		}
+		if (StringUtils.isNotEmpty(getHostField())) {
+			stmt.setString(++parPos,host);
+		}
+		if (StringUtils.isNotEmpty(getLabelField())) {
+			stmt.setString(++parPos,label);
+		}
+		stmt.setString(++parPos,messageId);
+		stmt.setString(++parPos,correlationId);
+		stmt.setTimestamp(++parPos, receivedDateTime);
+		stmt.setString(++parPos, comments);
+		stmt.setTimestamp(++parPos, expiryDate);
+		return parPos;
+	}
+
+	/**
+	 * Returns the expiry date of messages that are stored now, or <code>null</code> if they do not expire.
+	 */
+	private Timestamp getExpiryDate() {
+		if (!isMessageLog() || getRetention()<0) {
+			return null;
+		}
+		Calendar cal = Calendar.getInstance();
+		cal.add(Calendar.DAY_OF_MONTH, getRetention());
+		return new Timestamp(cal.getTimeInMillis());
+	}
+
+	/**
+	 * Returns the period table messages expiring at <code>expiryDate</code> must be inserted in, or <code>null</code> if they are inserted in the table of the storage.
+	 */
+	private String getInsertTable(Timestamp expiryDate) throws JdbcException {
+		if (partitions==null) {
+			return null;
+		}
+		String partition = partitions.getPartition(expiryDate);
+		if (partition==null) {
+			// the partitions created ahead have been used up, e.g. because the cleanup job did not run for a while
+			executeOutsideTransaction(conn -> {
+				partitions.createPartitions(conn, expiryDate);
+				return null;
+			});
+			partition = partitions.getPartition(expiryDate);
+			if (partition==null) {
+				throw new JdbcException(getLogPrefix()+"no partition of table ["+getTableName()+"] available for records expiring at ["+expiryDate+"]");
+			}
+		}
+		return partitions.isNativePartitioning() ? null : partition;
+	}
+
+	/**
+	 * Executes the action on a connection of its own, with the transaction of the caller suspended. Used to create and drop partitions,
+	 * as DDL statements commit the transaction of their connection on most databases.
+	 */
+	private <T> T executeOutsideTransaction(ThrowingFunction<Connection,T,JdbcException> action) throws JdbcException {
+		IbisTransaction itx = null;
+		if (txManager!=null) {
+			itx = new IbisTransaction(txManager, TXDEF_NOT_SUPPORTED, ClassUtils.nameOf(this));
+		}
+		try (Connection conn = getConnection()) {
+			return action.apply(conn);
+		} catch (SQLException e) {
+			throw new JdbcException(getLogPrefix()+"cannot close connection", e);
+		} finally {
+			if (itx!=null) {
+				itx.commit();
+			}
+		}
+	}
+
+	/**
+	 * @param keyInserted when <code>true</code> the query inserts the key, that is passed as its first parameter
+	 */
+	private String getInsertQuery(String insertTable, boolean keyInserted) {
+		if (insertTable==null && !keyInserted) {
+			return insertQuery;
+		}
+		String tableName = insertTable!=null ? insertTable : getPrefix()+getTableName();
+		return partitionInsertQueries.computeIfAbsent(tableName+(keyInserted?" with key":""), k -> createInsertQuery(getDbmsSupport(), tableName, keyInserted));
+	}
+
+	private String selectNextSequenceValue(Connection conn) throws SQLException, SenderException {
+		String query = getDbmsSupport().getNextSequenceValueQuery(getPrefix()+getSequenceName());
+		if (log.isDebugEnabled()) {
+			log.debug("preparing key retrieval statement ["+query+"]");
+		}
+		try (PreparedStatement stmt = conn.prepareStatement(query); ResultSet rs = stmt.executeQuery()) {
+			if (!rs.next()) {
+				throw new SenderException("could not retrieve next value of sequence ["+getPrefix()+getSequenceName()+"]");
+			}
+			return rs.getString(1);
+		}
+	}
+
+	private boolean isMessageLog() {
+		return StorageType.MESSAGELOG_PIPE.getCode().equalsIgnoreCase(getType()) || StorageType.MESSAGELOG_RECEIVER.getCode().equalsIgnoreCase(getType());
+	}
+
+	/**
+	 * Stores messages that have been serialized already, using a single batch statement when the dbms allows it. Used to store the
+	 * messages of an {@link AsyncStorageWriter}.
+	 */
+	protected void storeMessagesInDatabase(Connection conn, List<SerializedMessage> messages) throws IOException, SQLException, JdbcException, SenderException, ClassNotFoundException {
+		IDbmsSupport dbmsSupport=getDbmsSupport();
+		if (dbmsSupport.mustInsertEmptyBlobBeforeData()) {
+			// the blob can only be written after the key of the inserted row has been retrieved, so each message requires its own statements
+			for (SerializedMessage message:messages) {
+				S object = isStoreFullMessage() ? (S)message.deserialize() : null;
+				storeMessageInDatabase(conn, message.getMessageId(), message.getCorrelationId(), message.getReceivedDate(), message.getComments(), message.getLabel(), object);
+			}
+			return;
+		}
+		Timestamp expiryDate = getExpiryDate();
+		String insertQuery = getInsertQuery(getInsertTable(expiryDate), false);
+		if (log.isDebugEnabled()) log.debug(getLogPrefix()+"preparing insert statement ["+insertQuery+"] for batch of ["+messages.size()+"] messages");
+		try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+			for (SerializedMessage message:messages) {
+				int parPos=setInsertParameters(stmt, 0, message.getMessageId(), message.getCorrelationId(), message.getReceivedDate(), message.getComments(), message.getLabel(), expiryDate);
+				if (isStoreFullMessage()) {
+					int blobColumnIndex = ++parPos;
+					Object blobHandle=dbmsSupport.getBlobHandle(stmt, blobColumnIndex);
+					try (OutputStream out = JdbcUtil.getBlobOutputStream(dbmsSupport, blobHandle, stmt, blobColumnIndex, isBlobsCompressed())) {
+						out.write(message.getSerializedObject());
+					}
+					dbmsSupport.applyBlobParameter(stmt, blobColumnIndex, blobHandle);
+				}
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+	}
+
+	/**
+	 * Stores messages of an {@link AsyncStorageWriter} in a transaction of their own.
+	 */
+	protected void storeMessages(List<SerializedMessage> messages) throws SenderException {
+		IbisTransaction itx = null;
+		if (txManager!=null) {
+			itx = new IbisTransaction(txManager, txDef, ClassUtils.nameOf(this));
+		}
+		try (Connection conn = getConnection()) {
+			storeMessagesInDatabase(conn, messages);
+			adjustMessageCount(messages.size());
+		} catch (Exception e) {
+			if (itx!=null) {
+				itx.setRollbackOnly();
+			}
+			throw new SenderException(getLogPrefix()+"cannot store ["+messages.size()+"] messages", e);
+		} finally {
+			if (itx!=null) {
+				itx.commit();
+			}
+		}
+	}
+
+	/**
+	 * Adjusts the cached message count for a message that was stored, unless it was not stored because its messageId already existed.
+	 */
+	private void adjustMessageCount(String storeResult) {
+		if (storeResult==null || !storeResult.startsWith("<results>")) {
+			adjustMessageCount(1);
+		}
+	}
+
+	private void adjustMessageCount(int delta) {
+		if (messageCounts!=null) {
+			messageCounts.adjust(getType(), getSlotId(), delta);
+		}
+	}
+
+	@Override
+	public int getMessageCount() throws ListenerException {
+		if (messageCounts!=null) {
+			int count = messageCounts.getCount(getType(), getSlotId());
+			if (count>=0) {
+				return count;
+			}
+		}
+		return super.getMessageCount();
+	}
+
+	@Override
+	public void deleteMessage(String storageKey) throws ListenerException {
+		if (partitions!=null && !partitions.isNativePartitioning()) {
+			// the table of the storage is a view, the record must be deleted from the period table that contains it
+			try (Connection conn = getConnection()) {
+				partitions.deleteRecord(conn, storageKey);
+			} catch (Exception e) {
+				throw new ListenerException(e);
+			}
+		} else {
+			super.deleteMessage(storageKey);
+		}
+		adjustMessageCount(-1);
+	}
+
+	/**
+	 * Drops the partitions of which all records have expired, after creating the partitions for messages that will be stored in the near future.
+	 * Only applicable when <code>partitionInterval</code> is set.
+	 * @return the number of partitions dropped
+	 */
+	public int dropExpiredPartitions(Date now) throws JdbcException {
+		if (partitions==null) {
+			return 0;
+		}
+		Timestamp expiryDate = getExpiryDate();
+		return executeOutsideTransaction(conn -> {
+			partitions.createPartitions(conn, expiryDate);
+			return partitions.dropExpiredPartitions(conn, now);
+		});
+	}
+
 	private boolean isMessageDifferent(Connection conn, String messageId, S message) throws SQLException{
 		int paramPosition=0;
 
@@ -679,8 +1008,39 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		return resultString;
 	}
 
+	/**
+	 * Stores the message and returns its storageKey. When <code>asynchronous=true</code> the message is stored later, and <code>null</code> is returned.
+	 * Asynchronous storage is only allowed for the messageLogs of Receivers and MessageSendingPipes, as they do not use the storageKey.
+	 */
 	@Override
 	public String storeMessage(String messageId, String correlationId, Date receivedDate, String comments, String label, S message) throws SenderException {
+		if (asyncWriter!=null) {
+			if (messageId==null) {
+				throw new SenderException("messageId cannot be null");
+			}
+			if (correlationId==null) {
+				throw new SenderException("correlationId cannot be null");
+			}
+			try {
+				SerializedMessage serializedMessage = new SerializedMessage(StringUtils.left(messageId, MAXIDLEN), StringUtils.left(correlationId, MAXCIDLEN), new Timestamp(receivedDate.getTime()),
+						StringUtils.left(comments, MAXCOMMENTLEN), StringUtils.left(label, MAXLABELLEN), isStoreFullMessage() ? message : null);
+				if (asyncWriter.offer(serializedMessage)) {
+					return null;
+				}
+			} catch (IOException e) {
+				throw new SenderException(getLogPrefix()+"cannot serialize message", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SenderException(getLogPrefix()+"interrupted while waiting to store message", e);
+			}
+			// queue is full and asyncOverflowPolicy=STORE_SYNCHRONOUSLY. The key is not returned, so callers cannot come to depend on it
+			storeMessageSynchronously(messageId, correlationId, receivedDate, comments, label, message);
+			return null;
+		}
+		return storeMessageSynchronously(messageId, correlationId, receivedDate, comments, label, message);
+	}
+
+	private String storeMessageSynchronously(String messageId, String correlationId, Date receivedDate, String comments, String label, S message) throws SenderException {
 		IbisTransaction itx = null;
 		if (txManager!=null) {
 			itx = new IbisTransaction(txManager, txDef, ClassUtils.nameOf(this));
@@ -711,6 +1071,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 				if (result==null) {
 					result=retrieveKey(conn,messageId,correlationId,receivedDateTime);
 				}
+				adjustMessageCount(result);
 				return result;
 
 			} catch (Exception e) {
@@ -747,6 +1108,7 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 			if (result==null) {
 				result=retrieveKey(conn,messageId,correlationId,receivedDateTime);
 			}
+			adjustMessageCount(result);
 			return result;
 		} catch (IOException | JdbcException | SQLException e) {
 			throw new SenderException("cannot serialize message", e);
@@ -908,4 +1270,31 @@ public class JdbcTransactionalStorage<S extends Serializable> extends JdbcTableM
 		this.onlyStoreWhenMessageIdUnique = onlyStoreWhenMessageIdUnique;
 	}
 
+	@IbisDoc({"If set to <code>true</code>, messages are stored by a background thread, in batches and outside the transaction of the caller. The storage key of a stored message is then not known to the caller. Only supported for messageLogs, and not for the messageLog of a Receiver with <code>checkForDuplicates=true</code>", "false"})
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+
+	@IbisDoc({"Maximum number of messages waiting to be stored, when <code>asynchronous=true</code>", "10000"})
+	public void setAsyncQueueSize(int asyncQueueSize) {
+		this.asyncQueueSize = asyncQueueSize;
+	}
+
+	@IbisDoc({"Maximum number of messages stored in a single batch, when <code>asynchronous=true</code>", "100"})
+	public void setAsyncBatchSize(int asyncBatchSize) {
+		this.asyncBatchSize = asyncBatchSize;
+	}
+
+	@IbisDoc({"Determines what happens with a message when the queue of messages waiting to be stored is full", "BLOCK"})
+	public void setAsyncOverflowPolicy(AsyncOverflowPolicy asyncOverflowPolicy) {
+		this.asyncOverflowPolicy = asyncOverflowPolicy;
+	}
+
+	@IbisDoc({"If set, the table is partitioned by the period in which the records expire, and the cleanup job drops whole partitions when all their records have expired, instead of deleting expired records one by one. "
+			+ "The table and its partitions are created and maintained by the storage: natively partitioned when the dbms supports it, otherwise as a view over a table per period. "
+			+ "Requires a table of its own, and is only supported for messageLogs", ""})
+	public void setPartitionInterval(PartitionInterval partitionInterval) {
+		this.partitionInterval = partitionInterval;
+	}
+
 }
@@ -0,0 +1,227 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import nl.nn.adapterframework.jdbc.dbms.IDbmsSupport;
+import nl.nn.adapterframework.jdbc.dbms.JdbcSession;
+import nl.nn.adapterframework.metrics.TaggedMeterBinder;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Process wide cache of the number of messages in the {@link JdbcTransactionalStorage JdbcTransactionalStorages}, so the console and
+ * health checks do not have to execute a <code>SELECT COUNT(*)</code> for every storage each time they show the message counts.
+ * <p>
+ * The storages in the same table (of the same datasource) share a single set of counts, that is refreshed in the background by one grouped query
+ * every <code>jdbc.storage.messageCount.refreshInterval</code> seconds. In between refreshes, the counts are adjusted for the messages that are stored
+ * and deleted by the storages of this instance. Counts are therefore approximate: changes made by other instances, changes that are rolled back and
+ * records that are removed by the cleanup job are only reflected after the next refresh. When the counts could not be refreshed for three intervals,
+ * the storages determine their counts by querying the database again.
+ * </p><p>
+ * The message browsers of a {@link JdbcTableListener} are not cached: they are selected by status value and an arbitrary selectCondition, which
+ * cannot be served from the grouped counts, and their counts are changed by the status updates of the listener rather than by storing and deleting records.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class MessageCountCache implements TaggedMeterBinder {
+	protected static Logger log = LogUtil.getLogger(MessageCountCache.class);
+
+	public static final String REFRESH_INTERVAL_KEY = "jdbc.storage.messageCount.refreshInterval";
+
+	private static final MessageCountCache INSTANCE = new MessageCountCache();
+
+	private final Map<List<Object>, TableCounts> tables = new HashMap<>();
+	private ScheduledExecutorService scheduler;
+
+	private final LongAdder refreshes = new LongAdder();
+	private final LongAdder refreshTime = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+
+	public static MessageCountCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the storage, and returns the counts of its table, or <code>null</code> if the counts of the storage cannot be cached.
+	 * The counts are refreshed in the background as long as storages of the table are registered.
+	 */
+	public synchronized TableCounts acquire(JdbcTransactionalStorage<?> storage, int refreshIntervalSeconds) throws JdbcException {
+		if (refreshIntervalSeconds<=0 || StringUtils.isEmpty(storage.getSlotId()) || StringUtils.isEmpty(storage.getSlotIdField())
+				|| StringUtils.isEmpty(storage.getType()) || StringUtils.isEmpty(storage.getTypeField())) {
+			return null;
+		}
+		List<Object> key = Arrays.asList(storage.getDatasource(), storage.getAuthAlias(), storage.getUsername(), storage.getPrefix()+storage.getTableName(),
+				storage.getTypeField(), storage.getSlotIdField());
+		TableCounts counts = tables.get(key);
+		if (counts==null) {
+			if (scheduler==null) {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("MessageCountCache-");
+				threadFactory.setDaemon(true);
+				scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+			}
+			counts = new TableCounts(key, refreshIntervalSeconds);
+			tables.put(key, counts);
+			counts.refreshTask = scheduler.scheduleWithFixedDelay(counts::refresh, 0, refreshIntervalSeconds, TimeUnit.SECONDS);
+		}
+		counts.storages.add(storage);
+		return counts;
+	}
+
+	public synchronized void release(TableCounts counts, JdbcTransactionalStorage<?> storage) {
+		counts.storages.remove(storage);
+		if (counts.storages.isEmpty()) {
+			counts.refreshTask.cancel(false);
+			tables.remove(counts.key);
+			if (tables.isEmpty()) {
+				scheduler.shutdown();
+				scheduler = null;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return tables.size();
+	}
+
+	public long getRefreshes() {
+		return refreshes.sum();
+	}
+
+	/**
+	 * Total time in nanoseconds spent refreshing counts.
+	 */
+	public long getRefreshTimeNanos() {
+		return refreshTime.sum();
+	}
+
+	/**
+	 * Number of times a count was returned from the cache, instead of being queried.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry, Iterable<Tag> tags) {
+		if (tags==null) {
+			tags = Collections.emptyList();
+		}
+		Gauge.builder("frank.storage.count.tables", this, MessageCountCache::size).tags(tags).description("number of tables of which the message counts are cached").register(registry);
+		FunctionCounter.builder("frank.storage.count.hits", this, MessageCountCache::getHits).tags(tags).description("number of message counts that were served from the cache").register(registry);
+		FunctionTimer.builder("frank.storage.count.refresh", this, MessageCountCache::getRefreshes, MessageCountCache::getRefreshTimeNanos, TimeUnit.NANOSECONDS).tags(tags).description("time spent refreshing cached message counts").register(registry);
+	}
+
+	/**
+	 * Message counts per type and slotId of the records in a single table.
+	 */
+	public class TableCounts {
+		private final List<Object> key;
+		private final long maxAgeMillis;
+		private final List<JdbcTransactionalStorage<?>> storages = new ArrayList<>();
+		private ScheduledFuture<?> refreshTask;
+		private volatile Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+		private volatile long lastRefresh = 0;
+
+		private TableCounts(List<Object> key, int refreshIntervalSeconds) {
+			this.key = key;
+			this.maxAgeMillis = TimeUnit.SECONDS.toMillis(3L*refreshIntervalSeconds);
+		}
+
+		private String getCountKey(String type, String slotId) {
+			return type+"|"+slotId;
+		}
+
+		/**
+		 * Returns the cached number of records of the type and slotId, or -1 if it is not known (anymore).
+		 */
+		public int getCount(String type, String slotId) {
+			if (System.currentTimeMillis()-lastRefresh>maxAgeMillis) {
+				return -1;
+			}
+			hits.increment();
+			AtomicLong count = counts.get(getCountKey(type, slotId));
+			return count!=null ? (int)Math.max(count.get(), 0) : 0;
+		}
+
+		/**
+		 * Adjusts the count of the type and slotId for records stored (delta&gt;0) or deleted (delta&lt;0) by this instance.
+		 */
+		public void adjust(String type, String slotId, int delta) {
+			counts.computeIfAbsent(getCountKey(type, slotId), k -> new AtomicLong()).addAndGet(delta);
+		}
+
+		void refresh() {
+			JdbcTransactionalStorage<?> storage;
+			synchronized (MessageCountCache.this) {
+				if (storages.isEmpty()) {
+					return;
+				}
+				storage = storages.get(0);
+			}
+			long start = System.nanoTime();
+			try (Connection conn = storage.getConnection()) {
+				IDbmsSupport dbmsSupport = storage.getDbmsSupport();
+				// include a where clause, to make MsSqlServerDbmsSupport.prepareQueryTextForNonLockingRead() work
+				String query = dbmsSupport.prepareQueryTextForNonLockingRead("SELECT "+storage.getTypeField()+", "+storage.getSlotIdField()+", COUNT(*) FROM "
+						+storage.getPrefix()+storage.getTableName()+" WHERE 1=1 GROUP BY "+storage.getTypeField()+", "+storage.getSlotIdField());
+				Map<String, AtomicLong> result = new ConcurrentHashMap<>();
+				try (JdbcSession session = dbmsSupport.prepareSessionForNonLockingRead(conn)) {
+					try (PreparedStatement stmt = conn.prepareStatement(query)) {
+						try (ResultSet rs = stmt.executeQuery()) {
+							while (rs.next()) {
+								result.put(getCountKey(StringUtils.trim(rs.getString(1)), StringUtils.trim(rs.getString(2))), new AtomicLong(rs.getLong(3)));
+							}
+						}
+					}
+				}
+				counts = result;
+				lastRefresh = System.currentTimeMillis();
+				if (log.isDebugEnabled()) log.debug("refreshed message counts of table [{}], found [{}] combinations of type and slotId", key.get(3), result.size());
+			} catch (Exception e) {
+				log.warn("cannot refresh message counts of table ["+key.get(3)+"]", e);
+			} finally {
+				refreshes.increment();
+				refreshTime.add(System.nanoTime()-start);
+			}
+		}
+	}
+}
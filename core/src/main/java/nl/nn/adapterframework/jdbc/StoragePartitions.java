@@ -0,0 +1,354 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+
+import lombok.Getter;
+import nl.nn.adapterframework.jdbc.JdbcTransactionalStorage.PartitionInterval;
+import nl.nn.adapterframework.jdbc.dbms.IDbmsSupport;
+import nl.nn.adapterframework.util.JdbcUtil;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Partitioned layout of the table of a {@link JdbcTransactionalStorage} that is used as messageLog. Records are partitioned by the period in which
+ * they expire, so expired records can be removed by dropping whole partitions, instead of deleting them record by record.
+ * <p>
+ * When the dbms supports range partitioning, the table is partitioned natively, with a partition per period. Otherwise each period is stored
+ * in a table of its own, and the table of the storage is a view over these tables, that is recreated each time a period table is added or dropped.
+ * In both layouts the partitions are named <code>&lt;table&gt;_P&lt;yyyyMMdd&gt;</code>, after the first day of their period, and the keys of
+ * the records are generated by the sequence of the storage, so they are unique over all partitions.
+ * </p>
+ * <p>
+ * Partitions are created ahead, for the periods in which the records that are stored in the near future will expire, when the storage is opened
+ * and each time expired partitions are dropped. As DDL statements commit the transaction of their connection on most databases, partitions are
+ * only created and dropped on connections that do not take part in the transaction of the caller. Storing a record never executes DDL itself:
+ * {@link #getPartition(Date)} only returns partitions that have been created already.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class StoragePartitions {
+	protected Logger log = LogUtil.getLogger(this);
+
+	private static final String PARTITION_INFIX = "_P";
+	private static final DateTimeFormatter PARTITION_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final int PERIODS_AHEAD = 2;
+
+	private final JdbcTransactionalStorage<?> storage;
+	private final IDbmsSupport dbmsSupport;
+	private final PartitionInterval interval;
+	private final @Getter String tableName;
+	private final @Getter boolean nativePartitioning;
+	private final Pattern partitionNamePattern;
+	private final ZoneId zone = ZoneId.systemDefault();
+
+	private volatile Period currentPeriod;
+	private Set<String> knownPartitions;
+
+	private static class Period {
+		final Date start;
+		final Date end;
+		final String partition;
+
+		Period(Date start, Date end, String partition) {
+			this.start = start;
+			this.end = end;
+			this.partition = partition;
+		}
+
+		boolean contains(Date date) {
+			return !date.before(start) && date.before(end);
+		}
+	}
+
+	public StoragePartitions(JdbcTransactionalStorage<?> storage, IDbmsSupport dbmsSupport, PartitionInterval interval) throws JdbcException {
+		this.storage = storage;
+		this.dbmsSupport = dbmsSupport;
+		this.interval = interval;
+		tableName = storage.getPrefix()+storage.getTableName();
+		nativePartitioning = dbmsSupport.isRangePartitioningSupported();
+		if (dbmsSupport.getSequenceKeyFieldType(storage.getPrefix()+storage.getSequenceName())==null) {
+			throw new JdbcException("partitioned storage is not supported for dbms ["+dbmsSupport.getDbmsName()+"], it cannot generate keys from a sequence");
+		}
+		partitionNamePattern = Pattern.compile(Pattern.quote(tableName+PARTITION_INFIX)+"(\\d{8})", Pattern.CASE_INSENSITIVE);
+	}
+
+	private LocalDate getPeriodStart(Date date) {
+		LocalDate day = date.toInstant().atZone(zone).toLocalDate();
+		switch (interval) {
+		case WEEK:
+			return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+		case MONTH:
+			return day.withDayOfMonth(1);
+		default:
+			return day;
+		}
+	}
+
+	private LocalDate getNextPeriodStart(LocalDate periodStart) {
+		switch (interval) {
+		case WEEK:
+			return periodStart.plusWeeks(1);
+		case MONTH:
+			return periodStart.plusMonths(1);
+		default:
+			return periodStart.plusDays(1);
+		}
+	}
+
+	private Date toDate(LocalDate day) {
+		return Date.from(day.atStartOfDay(zone).toInstant());
+	}
+
+	private String getPartitionName(LocalDate periodStart) {
+		return tableName+PARTITION_INFIX+periodStart.format(PARTITION_DATE_FORMAT);
+	}
+
+	private Period getPeriod(Date date) {
+		LocalDate start = getPeriodStart(date);
+		return new Period(toDate(start), toDate(getNextPeriodStart(start)), getPartitionName(start));
+	}
+
+	/**
+	 * Returns the end of the period of the partition, i.e. the time at which all records of the partition have expired.
+	 */
+	private Date getPartitionEnd(String partition) {
+		Matcher matcher = partitionNamePattern.matcher(partition);
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("["+partition+"] is not a partition of table ["+tableName+"]");
+		}
+		return toDate(getNextPeriodStart(LocalDate.parse(matcher.group(1), PARTITION_DATE_FORMAT)));
+	}
+
+	/**
+	 * Returns the names of the partitions that exist in the database, in order of their period.
+	 */
+	public List<String> getPartitions(Connection conn) throws JdbcException {
+		Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		try {
+			DatabaseMetaData metadata = conn.getMetaData();
+			String escape = metadata.getSearchStringEscape();
+			String pattern = (tableName+PARTITION_INFIX).replace("_", escape+"_")+"%";
+			if (metadata.storesUpperCaseIdentifiers()) {
+				pattern = pattern.toUpperCase(Locale.ROOT);
+			} else if (metadata.storesLowerCaseIdentifiers()) {
+				pattern = pattern.toLowerCase(Locale.ROOT);
+			}
+			try (ResultSet rs = metadata.getTables(null, dbmsSupport.getSchema(conn), pattern, null)) {
+				while (rs.next()) {
+					String name = rs.getString("TABLE_NAME");
+					if (partitionNamePattern.matcher(name).matches()) {
+						result.add(name);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			throw new JdbcException("cannot determine partitions of table ["+tableName+"]", e);
+		}
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Returns the name of the partition records expiring at <code>expiryDate</code> are stored in, or <code>null</code> if that partition
+	 * has not been created by {@link #createPartitions(Connection, Date)}.
+	 */
+	public String getPartition(Date expiryDate) {
+		Period period = currentPeriod;
+		if (period!=null && period.contains(expiryDate)) {
+			return period.partition;
+		}
+		period = getPeriod(expiryDate);
+		synchronized (this) {
+			if (knownPartitions==null || !knownPartitions.contains(period.partition)) {
+				return null;
+			}
+		}
+		currentPeriod = period;
+		return period.partition;
+	}
+
+	/**
+	 * Creates the table when it does not exist yet, and the partitions for records that expire from <code>expiryDate</code> on.
+	 * Must be called with a connection that does not take part in a transaction that stores records.
+	 */
+	public synchronized void createPartitions(Connection conn, Date expiryDate) throws JdbcException {
+		if (knownPartitions==null) {
+			if (!dbmsSupport.isTablePresent(conn, tableName)) {
+				createTable(conn);
+			}
+			knownPartitions = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+			knownPartitions.addAll(getPartitions(conn));
+		}
+		LocalDate start = getPeriodStart(expiryDate);
+		for (int i=0; i<=PERIODS_AHEAD; i++) {
+			LocalDate next = getNextPeriodStart(start);
+			createPartition(conn, new Period(toDate(start), toDate(next), getPartitionName(start)));
+			start = next;
+		}
+	}
+
+	private void createPartition(Connection conn, Period period) throws JdbcException {
+		if (knownPartitions.contains(period.partition)) {
+			return;
+		}
+		try {
+			if (nativePartitioning) {
+				execute(conn, dbmsSupport.getCreateRangePartitionQuery(tableName, period.partition, period.start, period.end));
+			} else {
+				createPeriodTable(conn, period.partition);
+			}
+		} catch (SQLException e) {
+			// another instance might have created the partition in the meantime
+			if (!dbmsSupport.isTablePresent(conn, period.partition)) {
+				throw new JdbcException("cannot create partition ["+period.partition+"] of table ["+tableName+"]", e);
+			}
+			log.debug("partition [{}] of table [{}] has been created by another instance", period.partition, tableName);
+		}
+		knownPartitions.add(period.partition);
+		if (!nativePartitioning) {
+			// other instances might have created or dropped period tables too
+			createView(conn, getPartitions(conn));
+		}
+		log.info("created partition [{}] of table [{}] for records expiring from [{}] until [{}]", period.partition, tableName, period.start, period.end);
+	}
+
+	private void createTable(Connection conn) throws JdbcException {
+		String sequenceName = storage.getPrefix()+storage.getSequenceName();
+		try {
+			execute(conn, "CREATE SEQUENCE "+sequenceName+" START WITH 1 INCREMENT BY 1");
+		} catch (SQLException e) {
+			log.debug("cannot create sequence [{}], assuming it exists already: {}", sequenceName, e.getMessage());
+		}
+		if (!nativePartitioning) {
+			// the view is created together with the first period table
+			return;
+		}
+		String query = "CREATE TABLE "+tableName+" ("+storage.getKeyField()+" "+dbmsSupport.getSequenceKeyFieldType(sequenceName)+", "
+				+storage.getColumnDefinitions()+", CONSTRAINT "+tableName+"_pk PRIMARY KEY ("+storage.getKeyField()+", "+storage.getExpiryDateField()+"))"
+				+dbmsSupport.getRangePartitioningClause(storage.getExpiryDateField());
+		try {
+			execute(conn, query);
+			String indexName = storage.getIndexName();
+			if (indexName!=null && !indexName.isEmpty()) {
+				execute(conn, "CREATE INDEX "+storage.getPrefix()+indexName+" ON "+tableName+"("+storage.getIndexColumns()+")");
+			}
+		} catch (SQLException e) {
+			if (!dbmsSupport.isTablePresent(conn, tableName)) {
+				throw new JdbcException("cannot create partitioned table ["+tableName+"] using query ["+query+"]", e);
+			}
+		}
+	}
+
+	private void createPeriodTable(Connection conn, String partition) throws SQLException {
+		String sequenceName = storage.getPrefix()+storage.getSequenceName();
+		execute(conn, "CREATE TABLE "+partition+" ("+storage.getKeyField()+" "+dbmsSupport.getSequenceKeyFieldType(sequenceName)+" CONSTRAINT "+partition+"_pk PRIMARY KEY, "
+				+storage.getColumnDefinitions()+")");
+		String indexName = storage.getIndexName();
+		if (indexName!=null && !indexName.isEmpty()) {
+			execute(conn, "CREATE INDEX "+partition+"_IX ON "+partition+"("+storage.getIndexColumns()+")");
+		}
+	}
+
+	private void createView(Connection conn, Collection<String> partitions) throws JdbcException {
+		String query = dbmsSupport.getCreateOrReplaceViewQuery(tableName, partitions.stream().map(p -> "SELECT * FROM "+p).collect(Collectors.joining(" UNION ALL ")));
+		try {
+			execute(conn, query);
+		} catch (SQLException e) {
+			throw new JdbcException("cannot create view ["+tableName+"] using query ["+query+"]", e);
+		}
+	}
+
+	/**
+	 * Drops the partitions of which all records have expired at <code>now</code>.
+	 * Must be called with a connection that does not take part in a transaction that stores records.
+	 * @return the number of partitions dropped
+	 */
+	public synchronized int dropExpiredPartitions(Connection conn, Date now) throws JdbcException {
+		List<String> partitions = getPartitions(conn);
+		List<String> expired = partitions.stream().filter(p -> !getPartitionEnd(p).after(now)).collect(Collectors.toList());
+		if (expired.isEmpty()) {
+			return 0;
+		}
+		if (knownPartitions!=null) {
+			knownPartitions.removeAll(expired);
+		}
+		if (!nativePartitioning) {
+			Set<String> remaining = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+			remaining.addAll(partitions);
+			remaining.removeAll(expired);
+			if (remaining.isEmpty()) {
+				throw new JdbcException("cannot drop all partitions of table ["+tableName+"], create the partitions of the current period first");
+			}
+			createView(conn, remaining);
+		}
+		for (String partition : expired) {
+			try {
+				execute(conn, dbmsSupport.getDropPartitionQuery(tableName, partition));
+				log.info("dropped expired partition [{}] of table [{}]", partition, tableName);
+			} catch (SQLException e) {
+				throw new JdbcException("cannot drop partition ["+partition+"] of table ["+tableName+"]", e);
+			}
+		}
+		return expired.size();
+	}
+
+	/**
+	 * Deletes the record from the period table that contains it. Only required when the table of the storage is a view over the period tables.
+	 */
+	public boolean deleteRecord(Connection conn, String storageKey) throws JdbcException {
+		for (String partition : getPartitions(conn)) {
+			try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM "+partition+" WHERE "+storage.getKeyField()+"=?")) {
+				JdbcUtil.setParameter(stmt, 1, storageKey, dbmsSupport.isParameterTypeMatchRequired());
+				if (stmt.executeUpdate()>0) {
+					return true;
+				}
+			} catch (SQLException e) {
+				throw new JdbcException("cannot delete record ["+storageKey+"] from partition ["+partition+"] of table ["+tableName+"]", e);
+			}
+		}
+		return false;
+	}
+
+	private void execute(Connection conn, String query) throws SQLException {
+		log.debug("executing query [{}]", query);
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute(query);
+		}
+	}
+}
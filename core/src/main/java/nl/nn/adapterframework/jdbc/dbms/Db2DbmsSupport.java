@@ -44,6 +44,11 @@ public class Db2DbmsSupport extends GenericDbmsSupport {
 		return "EMPTY_BLOB";
 	}
 
+	@Override
+	public String getSequenceKeyFieldType(String sequenceName) {
+		return null; // DB2 does not allow a sequence as default value of a column
+	}
+
 	@Override
 	public String emptyClobValue() {
 		return "EMPTY_CLOB";
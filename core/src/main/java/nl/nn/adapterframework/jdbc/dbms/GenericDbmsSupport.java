@@ -660,4 +660,39 @@ public class GenericDbmsSupport implements IDbmsSupport {
 		+ "') AND " + expiryDateField + " < ?"+(maxRows>0?" FETCH FIRST "+maxRows+ " ROWS ONLY":"")+")");
 		return query;
 	}
+
+	@Override
+	public String getSequenceKeyFieldType(String sequenceName) {
+		return getNumericKeyFieldType()+" DEFAULT NEXT VALUE FOR "+sequenceName;
+	}
+
+	@Override
+	public String getNextSequenceValueQuery(String sequenceName) {
+		return "SELECT NEXT VALUE FOR "+sequenceName;
+	}
+
+	@Override
+	public String getCreateOrReplaceViewQuery(String viewName, String selectQuery) {
+		return "CREATE OR REPLACE VIEW "+viewName+" AS "+selectQuery;
+	}
+
+	@Override
+	public boolean isRangePartitioningSupported() {
+		return false;
+	}
+
+	@Override
+	public String getRangePartitioningClause(String column) {
+		return null;
+	}
+
+	@Override
+	public String getCreateRangePartitionQuery(String tableName, String partitionName, Date from, Date to) {
+		return null;
+	}
+
+	@Override
+	public String getDropPartitionQuery(String tableName, String partitionName) {
+		return "DROP TABLE "+partitionName;
+	}
 }
@@ -171,4 +171,28 @@ public interface IDbmsSupport {
 	String getBooleanFieldType();
 	String getBooleanValue(boolean value);
 	String getCleanUpIbisstoreQuery(String tableName, String keyField, String typeField, String expiryDateField, int maxRows);
+
+	/**
+	 * Field type of a key field that is filled from a sequence, so multiple tables can share a single range of keys.
+	 * Returns <code>null</code> if the dbms cannot use a sequence as default value of a field.
+	 */
+	String getSequenceKeyFieldType(String sequenceName);
+	/**
+	 * Query that returns the next value of the sequence, to insert a key in a field of {@link #getSequenceKeyFieldType(String)} explicitly.
+	 * Not every dbms reports a key taken from a default value as generated key of the insert statement.
+	 */
+	String getNextSequenceValueQuery(String sequenceName);
+	String getCreateOrReplaceViewQuery(String viewName, String selectQuery);
+
+	/**
+	 * Returns true if a table can be partitioned by range of a column, with partitions that can be created and dropped individually.
+	 * If not supported, partitioned storages use a separate table per period instead.
+	 */
+	boolean isRangePartitioningSupported();
+	/**
+	 * Clause to append to a CREATE TABLE statement to partition the table by range of the column.
+	 */
+	String getRangePartitioningClause(String column);
+	String getCreateRangePartitionQuery(String tableName, String partitionName, Date from, Date to);
+	String getDropPartitionQuery(String tableName, String partitionName);
 }
@@ -38,6 +38,16 @@ public class MariaDbDbmsSupport extends MySqlDbmsSupport {
 		return false;
 	}
 
+	@Override
+	public String getSequenceKeyFieldType(String sequenceName) {
+		return getNumericKeyFieldType()+" DEFAULT NEXT VALUE FOR "+sequenceName; // requires MariaDB 10.3
+	}
+
+	@Override
+	public String getNextSequenceValueQuery(String sequenceName) {
+		return "SELECT NEXT VALUE FOR "+sequenceName;
+	}
+
 	@Override
 	public String prepareQueryTextForWorkQueueReading(int batchSize, String selectQuery, int wait) throws JdbcException {
 		if (StringUtils.isEmpty(selectQuery) || !selectQuery.toLowerCase().startsWith(KEYWORD_SELECT)) {
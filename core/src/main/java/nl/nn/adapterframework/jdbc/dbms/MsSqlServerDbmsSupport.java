@@ -257,6 +257,11 @@ public class MsSqlServerDbmsSupport extends GenericDbmsSupport {
 		return query;
 	}
 
+	@Override
+	public String getCreateOrReplaceViewQuery(String viewName, String selectQuery) {
+		return "CREATE OR ALTER VIEW "+viewName+" AS "+selectQuery;
+	}
+
 
 	@Override
 	public String getBooleanFieldType() {
@@ -151,6 +151,16 @@ public class MySqlDbmsSupport extends GenericDbmsSupport {
 		return "SELECT LAST_INSERT_ID()";
 	}
 
+	@Override
+	public String getSequenceKeyFieldType(String sequenceName) {
+		return null; // MySQL has no sequences
+	}
+
+	@Override
+	public String getNextSequenceValueQuery(String sequenceName) {
+		return null;
+	}
+
 	@Override
 	public String getCleanUpIbisstoreQuery(String tableName, String keyField, String typeField, String expiryDateField, int maxRows) {
 		String query = ("DELETE FROM " + tableName
@@ -76,6 +76,16 @@ public class OracleDbmsSupport extends GenericDbmsSupport {
 		return true;
 	}
 
+	@Override
+	public String getSequenceKeyFieldType(String sequenceName) {
+		return getNumericKeyFieldType(); // keys are inserted explicitly, see autoIncrementInsertValue()
+	}
+
+	@Override
+	public String getNextSequenceValueQuery(String sequenceName) {
+		return "SELECT "+sequenceName+".NEXTVAL FROM DUAL";
+	}
+
 	@Override
 	public String getInsertedAutoIncrementValueQuery(String sequenceName) {
 		return "SELECT "+sequenceName+".CURRVAL FROM DUAL";
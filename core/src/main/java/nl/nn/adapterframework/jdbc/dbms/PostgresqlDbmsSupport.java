@@ -361,4 +361,29 @@ public class PostgresqlDbmsSupport extends GenericDbmsSupport {
 		return "INT AUTO_INCREMENT";
 	}
 
+	@Override
+	public String getSequenceKeyFieldType(String sequenceName) {
+		return "INT DEFAULT nextval('"+sequenceName+"')";
+	}
+
+	@Override
+	public String getNextSequenceValueQuery(String sequenceName) {
+		return "SELECT nextval('"+sequenceName+"')";
+	}
+
+	@Override
+	public boolean isRangePartitioningSupported() {
+		return true;
+	}
+
+	@Override
+	public String getRangePartitioningClause(String column) {
+		return " PARTITION BY RANGE ("+column+")";
+	}
+
+	@Override
+	public String getCreateRangePartitionQuery(String tableName, String partitionName, Date from, Date to) {
+		return "CREATE TABLE "+partitionName+" PARTITION OF "+tableName+" FOR VALUES FROM ("+getDatetimeLiteral(from)+") TO ("+getDatetimeLiteral(to)+")";
+	}
+
 }
@@ -43,6 +43,7 @@ import javax.naming.NamingException;
 import javax.xml.transform.TransformerException;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.xml.sax.SAXException;
 
 import lombok.Getter;
@@ -59,6 +60,7 @@ import nl.nn.adapterframework.doc.DocumentedEnum;
 import nl.nn.adapterframework.doc.EnumLabel;
 import nl.nn.adapterframework.doc.IbisDoc;
 import nl.nn.adapterframework.jndi.JndiBase;
+import nl.nn.adapterframework.metrics.MetricsRegistry;
 import nl.nn.adapterframework.soap.SoapWrapper;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.stream.MessageContext;
@@ -95,10 +97,15 @@ public class JMSFacade extends JndiBase implements HasPhysicalDestination, IXAEn
 	private @Getter boolean useTopicFunctions = false;
 	private @Getter String authAlias;
 	private @Getter boolean lookupDestination = AppConstants.getInstance().getBoolean("jms.lookupDestination", true);
+	private long sessionPoolMaxIdleTime = AppConstants.getInstance().getLong("jms.sessionPool.maxIdleTime", 300000);
+	private @Getter int sessionPoolSize = 0;
+	private @Getter long sessionPoolMaxWait = 10000;
 
 	private @Getter DestinationType destinationType = DestinationType.QUEUE; // QUEUE or TOPIC
 
 	protected MessagingSource messagingSource;
+	protected JmsSessionPool sessionPool;
+	protected @Setter MetricsRegistry metricsRegistry;
 	private Map<String,Destination> destinations = new ConcurrentHashMap<>();
 
 	private @Setter @Getter IConnectionFactoryFactory connectionFactoryFactory = null;
@@ -261,6 +268,12 @@ public class JMSFacade extends JndiBase implements HasPhysicalDestination, IXAEn
 			if (StringUtils.isNotEmpty(getDestinationName())) {
 				getDestination();
 			}
+			if (getSessionPoolSize()>0 && !isJmsTransacted()) {
+				sessionPool = new JmsSessionPool(this, getSessionPoolSize(), getSessionPoolMaxWait(), sessionPoolMaxIdleTime);
+				if (metricsRegistry!=null) {
+					sessionPool.bindTo(metricsRegistry.getRegistry());
+				}
+			}
 		} catch (Exception e) {
 			close();
 			throw e;
@@ -273,6 +286,10 @@ public class JMSFacade extends JndiBase implements HasPhysicalDestination, IXAEn
 	@Override
 	public void close() {
 		try {
+			if (sessionPool != null) {
+				sessionPool.close();
+				sessionPool = null;
+			}
 			if (messagingSource != null) {
 				try {
 					messagingSource.close();
@@ -288,6 +305,14 @@ public class JMSFacade extends JndiBase implements HasPhysicalDestination, IXAEn
 		}
 	}
 
+	/**
+	 * Pooled sessions can only be used outside transactions, because sessions that take part in a (XA) transaction
+	 * must be created within that transaction.
+	 */
+	protected boolean isSessionPoolUsable() {
+		return sessionPool!=null && !TransactionSynchronizationManager.isActualTransactionActive();
+	}
+
 	public javax.jms.Message createMessage(Session session, String correlationID, Message message) throws NamingException, JMSException, IOException {
 		TextMessage textMessage = null;
 		textMessage = session.createTextMessage();
@@ -933,4 +958,14 @@ public class JMSFacade extends JndiBase implements HasPhysicalDestination, IXAEn
 	public void setLookupDestination(boolean b) {
 		lookupDestination = b;
 	}
-}
\ No newline at end of file
+
+	@IbisDoc({"If > 0, sessions and their message producers are kept in a pool of this size, to be reused for messages that are sent outside a transaction. Has no effect when <code>jmsTransacted=true</code>", "0"})
+	public void setSessionPoolSize(int sessionPoolSize) {
+		this.sessionPoolSize = sessionPoolSize;
+	}
+
+	@IbisDoc({"The maximum time <i>in milliseconds</i> to wait for a session from the pool when all sessions are in use", "10000"})
+	public void setSessionPoolMaxWait(long sessionPoolMaxWait) {
+		this.sessionPoolMaxWait = sessionPoolMaxWait;
+	}
+}
@@ -0,0 +1,240 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jms;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import nl.nn.adapterframework.core.IbisException;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Receives the replies to synchronous requests of all {@link JmsSender}s of a {@link MessagingSource} on a single temporary queue,
+ * and hands them to the waiting callers by their JMSCorrelationID.
+ * <p>
+ * This replaces a consumer with a JMSCorrelationID selector per request. Replies that arrive before their caller has started
+ * waiting are kept until the caller asks for them. Replies that are not claimed within {@link #UNCLAIMED_REPLY_RETENTION_MILLIS},
+ * because their caller has timed out or never existed, are discarded and counted as late.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class JmsReplyDispatcher implements Runnable {
+	protected Logger log = LogUtil.getLogger(this);
+
+	public static final long UNCLAIMED_REPLY_RETENTION_MILLIS = 60000;
+	private static final long RECEIVE_TIMEOUT_MILLIS = 1000;
+
+	private final MessagingSource messagingSource;
+	private final Map<String,PendingReply> pendingReplies = new ConcurrentHashMap<>();
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder lateReplies = new LongAdder();
+
+	private Session session;
+	private MessageConsumer consumer;
+	private @Getter Queue replyQueue;
+	private Thread thread;
+	private volatile boolean running;
+	private MeterRegistry registry;
+	private final List<Meter> meters = new ArrayList<>();
+	private long lastPurge = System.currentTimeMillis();
+
+	private static class PendingReply {
+		private final CompletableFuture<Message> reply = new CompletableFuture<>();
+		private final long created = System.currentTimeMillis();
+		private volatile boolean awaited;
+	}
+
+	public JmsReplyDispatcher(MessagingSource messagingSource) {
+		this.messagingSource = messagingSource;
+	}
+
+	public synchronized void start() throws JmsException {
+		try {
+			session = messagingSource.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			replyQueue = session.createTemporaryQueue();
+			consumer = session.createConsumer(replyQueue);
+		} catch (JMSException | IbisException e) {
+			stop();
+			throw new JmsException("cannot start reply dispatcher", e);
+		}
+		running = true;
+		thread = new Thread(this, "JmsReplyDispatcher["+messagingSource.getId()+"]");
+		thread.setDaemon(true);
+		thread.start();
+		log.info(getLogPrefix()+"started, receiving replies on ["+replyQueue+"]");
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (thread!=null) {
+			try {
+				thread.join(2*RECEIVE_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			thread = null;
+		}
+		try {
+			if (consumer!=null) {
+				consumer.close();
+			}
+			if (replyQueue instanceof TemporaryQueue) {
+				((TemporaryQueue)replyQueue).delete();
+			}
+		} catch (JMSException e) {
+			log.warn(getLogPrefix()+"exception closing reply consumer", e);
+		} finally {
+			messagingSource.releaseSession(session);
+			consumer = null;
+			replyQueue = null;
+			session = null;
+		}
+		JmsException stopped = new JmsException("reply dispatcher has been stopped");
+		pendingReplies.values().forEach(p -> p.reply.completeExceptionally(stopped));
+		pendingReplies.clear();
+		if (registry!=null) {
+			meters.forEach(registry::remove);
+			meters.clear();
+			registry = null;
+		}
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				Message reply = consumer.receive(RECEIVE_TIMEOUT_MILLIS);
+				if (reply!=null) {
+					dispatch(reply);
+				}
+				purgeUnclaimedReplies();
+			} catch (JMSException e) {
+				if (running) {
+					log.warn(getLogPrefix()+"exception receiving reply", e);
+					try {
+						Thread.sleep(RECEIVE_TIMEOUT_MILLIS);
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	protected void dispatch(Message reply) throws JMSException {
+		String correlationId = reply.getJMSCorrelationID();
+		if (correlationId==null) {
+			lateReplies.increment();
+			log.warn(getLogPrefix()+"discarding reply with messageId ["+reply.getJMSMessageID()+"] without correlationId");
+			return;
+		}
+		if (log.isDebugEnabled()) log.debug(getLogPrefix()+"received reply for correlationId ["+correlationId+"]");
+		pendingReplies.computeIfAbsent(correlationId, k -> new PendingReply()).reply.complete(reply);
+	}
+
+	private void purgeUnclaimedReplies() {
+		long now = System.currentTimeMillis();
+		if (now-lastPurge<RECEIVE_TIMEOUT_MILLIS) {
+			return;
+		}
+		lastPurge = now;
+		Iterator<Map.Entry<String,PendingReply>> it = pendingReplies.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String,PendingReply> entry = it.next();
+			PendingReply pendingReply = entry.getValue();
+			if (!pendingReply.awaited && now-pendingReply.created>UNCLAIMED_REPLY_RETENTION_MILLIS) {
+				it.remove();
+				lateReplies.increment();
+				log.warn(getLogPrefix()+"discarding unclaimed reply for correlationId ["+entry.getKey()+"]");
+			}
+		}
+	}
+
+	/**
+	 * Waits for the reply with the given JMSCorrelationID.
+	 * @return the reply, or <code>null</code> if it did not arrive within the timeout
+	 */
+	public Message awaitReply(String correlationId, long timeoutMillis) throws JmsException, InterruptedException {
+		PendingReply pendingReply = pendingReplies.computeIfAbsent(correlationId, k -> new PendingReply());
+		pendingReply.awaited = true;
+		outstanding.incrementAndGet();
+		try {
+			return pendingReply.reply.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			timeouts.increment();
+			return null;
+		} catch (ExecutionException e) {
+			throw new JmsException("cannot receive reply for correlationId ["+correlationId+"]", e.getCause());
+		} finally {
+			outstanding.decrementAndGet();
+			pendingReplies.remove(correlationId, pendingReply);
+		}
+	}
+
+	public synchronized void bindTo(MeterRegistry registry) {
+		if (this.registry!=null) {
+			return;
+		}
+		this.registry = registry;
+		Tags tags = Tags.of("type", "application", "messagingSource", messagingSource.getId());
+		meters.add(Gauge.builder("frank.jms.reply.outstanding", outstanding, AtomicInteger::get).tags(tags).description("number of requests waiting for a reply").register(registry));
+		meters.add(FunctionCounter.builder("frank.jms.reply.timeouts", timeouts, LongAdder::sum).tags(tags).description("number of requests that did not receive a reply in time").register(registry));
+		meters.add(FunctionCounter.builder("frank.jms.reply.late", lateReplies, LongAdder::sum).tags(tags).description("number of replies that arrived after their request timed out").register(registry));
+	}
+
+	public int getOutstanding() {
+		return outstanding.get();
+	}
+
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	public long getLateReplies() {
+		return lateReplies.sum();
+	}
+
+	private String getLogPrefix() {
+		return "JmsReplyDispatcher ["+messagingSource.getId()+"] ";
+	}
+}
@@ -36,6 +36,7 @@ import org.xml.sax.SAXException;
 
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.core.ISenderWithParameters;
 import nl.nn.adapterframework.core.ParameterException;
 import nl.nn.adapterframework.core.PipeLineSession;
@@ -43,6 +44,7 @@ import nl.nn.adapterframework.core.SenderException;
 import nl.nn.adapterframework.core.SenderResult;
 import nl.nn.adapterframework.core.TimeoutException;
 import nl.nn.adapterframework.doc.IbisDoc;
+import nl.nn.adapterframework.jms.JmsSessionPool.PooledSession;
 import nl.nn.adapterframework.parameters.Parameter;
 import nl.nn.adapterframework.parameters.Parameter.ParameterType;
 import nl.nn.adapterframework.parameters.ParameterList;
@@ -76,11 +78,13 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 	private @Getter String soapHeaderParam="soapHeader";
 	private @Getter LinkMethod linkMethod=LinkMethod.MESSAGEID;
 	private @Getter String destinationParam = null;
+	private @Getter boolean useReplyDispatcher = false;
 
 	protected ParameterList paramList = null;
 	private SoapWrapper soapWrapper = null;
 	private String responseHeaders = null;
 	private @Getter List<String> responseHeadersList = new ArrayList<String>();
+	private JmsReplyDispatcher replyDispatcher = null;
 
 	public enum LinkMethod {
 		/** use the generated messageId as the correlationId in the selector for response messages */
@@ -113,6 +117,17 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 			soapWrapper=SoapWrapper.getInstance();
 		}
 
+		if (isUseReplyDispatcher()) {
+			if (!isSynchronous()) {
+				throw new ConfigurationException(getLogPrefix()+"useReplyDispatcher can only be used when synchronous=true");
+			}
+			if (getReplyToName()!=null) {
+				throw new ConfigurationException(getLogPrefix()+"useReplyDispatcher cannot be combined with replyToName, as replies for other consumers of the replyTo queue would be lost");
+			}
+		}
+		if (getSessionPoolSize()>0 && (isSynchronous() || isJmsTransacted())) {
+			ConfigurationWarnings.add(this, log, "sessionPoolSize has no effect when synchronous=true or jmsTransacted=true");
+		}
 		if (responseHeaders != null) {
 			StringTokenizer st = new StringTokenizer(responseHeaders, ",");
 			while (st.hasMoreElements()) {
@@ -128,12 +143,24 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 	public void open() throws SenderException {
 		try {
 			super.open();
+			if (isUseReplyDispatcher()) {
+				replyDispatcher = getMessagingSource().getReplyDispatcher();
+				if (metricsRegistry!=null) {
+					replyDispatcher.bindTo(metricsRegistry.getRegistry());
+				}
+			}
 		}
 		catch (Exception e) {
 			throw new SenderException(e);
 		}
 	}
 
+	@Override
+	public void close() {
+		replyDispatcher = null;
+		super.close();
+	}
+
 	@Override
 	public void addParameter(Parameter p) {
 		if (paramList==null) {
@@ -155,6 +182,8 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 	public Message sendMessage(Message message, PipeLineSession session, String soapHeader) throws SenderException, TimeoutException {
 		Session s = null;
 		MessageProducer mp = null;
+		PooledSession pooledSession = null;
+		boolean sent = false;
 		String correlationID = session==null ? null : session.getCorrelationId();
 
 		ParameterValueList pvl=null;
@@ -181,8 +210,14 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 				message = soapWrapper.putInEnvelope(message, getEncodingStyleURI(),getServiceNamespaceURI(),soapHeader);
 				if (log.isDebugEnabled()) log.debug(getLogPrefix()+"correlationId ["+correlationID+"] soap message ["+message+"]");
 			}
-			s = createSession();
-			mp = getMessageProducer(s, getDestination(session, pvl));
+			if (!isSynchronous() && isSessionPoolUsable()) {
+				pooledSession = sessionPool.borrow();
+				s = pooledSession.getSession();
+				mp = pooledSession.getMessageProducer(getDestination(session, pvl));
+			} else {
+				s = createSession();
+				mp = getMessageProducer(s, getDestination(session, pvl));
+			}
 			Destination replyQueue = null;
 
 			// create message
@@ -207,7 +242,9 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 			if (getReplyToName() != null) {
 				replyQueue = getDestination(getReplyToName());
 			} else {
-				if (isSynchronous()) {
+				if (replyDispatcher!=null) {
+					replyQueue = replyDispatcher.getReplyQueue();
+				} else if (isSynchronous()) {
 					replyQueue = getMessagingSource().getDynamicReplyQueue(s);
 				}
 			}
@@ -218,6 +255,7 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 
 			// send message
 			send(mp, msg);
+			sent = true;
 			if (log.isDebugEnabled()) {
 				log.debug("[" + getName() + "] " + "sent message [" + message + "] " + "to [" + mp.getDestination() + "] " + "msgID [" + msg.getJMSMessageID() + "] " + "correlationID [" + msg.getJMSCorrelationID() + "] " + "using deliveryMode [" + getDeliveryMode() + "] " + ((getReplyToName() != null) ? "replyTo [" + getReplyToName()+"]" : ""));
 			} else {
@@ -227,7 +265,7 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 			}
 			if (isSynchronous()) {
 				String replyCorrelationId=null;
-				if (getReplyToName() != null) {
+				if (getReplyToName() != null || replyDispatcher!=null) {
 					switch (getLinkMethod()) {
 					case MESSAGEID:
 						replyCorrelationId=msg.getJMSMessageID();
@@ -243,9 +281,18 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 					}
 				}
 				if (log.isDebugEnabled()) log.debug("[" + getName() + "] start waiting for reply on [" + replyQueue + "] requestMsgId ["+msg.getJMSMessageID()+"] replyCorrelationId ["+replyCorrelationId+"] for ["+getReplyTimeout()+"] ms");
-				MessageConsumer mc = getMessageConsumerForCorrelationId(s,replyQueue,replyCorrelationId);
+				MessageConsumer mc = null;
 				try {
-					javax.jms.Message rawReplyMsg = mc.receive(getReplyTimeout());
+					javax.jms.Message rawReplyMsg;
+					if (replyDispatcher!=null) {
+						if (replyCorrelationId==null) {
+							throw new SenderException(getLogPrefix()+"no correlationId to match reply with, using linkMethod ["+getLinkMethod()+"]");
+						}
+						rawReplyMsg = replyDispatcher.awaitReply(replyCorrelationId, getReplyTimeout());
+					} else {
+						mc = getMessageConsumerForCorrelationId(s,replyQueue,replyCorrelationId);
+						rawReplyMsg = mc.receive(getReplyTimeout());
+					}
 					if (rawReplyMsg==null) {
 						throw new TimeoutException("did not receive reply on [" + replyQueue + "] requestMsgId ["+msg.getJMSMessageID()+"] replyCorrelationId ["+replyCorrelationId+"] within ["+getReplyTimeout()+"] ms");
 					}
@@ -282,15 +329,22 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 			throw new SenderException(e);
 		} catch (JmsException e) {
 			throw new SenderException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SenderException(getLogPrefix()+"interrupted while waiting for reply", e);
 		} finally {
-			if(mp != null) {
-				try {
-					mp.close();
-				} catch (JMSException e) {
-					log.warn("JmsSender [" + getName() + "] got exception closing message producer", e);
+			if (pooledSession != null) {
+				sessionPool.giveBack(pooledSession, !sent);
+			} else {
+				if(mp != null) {
+					try {
+						mp.close();
+					} catch (JMSException e) {
+						log.warn("JmsSender [" + getName() + "] got exception closing message producer", e);
+					}
 				}
+				closeSession(s);
 			}
-			closeSession(s);
 		}
 	}
 
@@ -355,6 +409,11 @@ public class JmsSender extends JMSFacade implements ISenderWithParameters {
 		this.synchronous=synchronous;
 	}
 
+	@IbisDoc({"If <code>true</code> and <code>synchronous=true</code>, replies are received on a temporary queue shared by all senders using the same connection factory, and are handed to the waiting requests by their correlationId, instead of using a consumer with a selector per request. The linkMethod determines the correlationId of the reply. Cannot be used with <code>replyToName</code>", "false"})
+	public void setUseReplyDispatcher(boolean useReplyDispatcher) {
+		this.useReplyDispatcher = useReplyDispatcher;
+	}
+
 	@IbisDoc({"Name of the queue the reply is expected on. This value is sent in the JMSReplyTo-header with the message.", "a dynamically generated temporary destination"})
 	public void setReplyToName(String replyTo) {
 		this.replyToName = replyTo;
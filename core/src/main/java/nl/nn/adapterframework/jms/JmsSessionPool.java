@@ -0,0 +1,247 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.jms;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.naming.NamingException;
+
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Pool of non-transacted JMS {@link Session}s of a {@link JMSFacade}, that keeps a {@link MessageProducer} per destination for each session.
+ * <p>
+ * Sessions are created on demand, up to <code>maxSize</code>. When all sessions are in use, callers wait until one is returned.
+ * Sessions that have been idle for longer than <code>maxIdleTime</code>, or that were returned after an exception, are closed.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class JmsSessionPool {
+	protected Logger log = LogUtil.getLogger(this);
+
+	private static final int MAX_PRODUCERS_PER_SESSION = 16;
+
+	private final JMSFacade facade;
+	private final int maxSize;
+	private final long maxWaitMillis;
+	private final long maxIdleMillis;
+
+	private final BlockingDeque<PooledSession> idle = new LinkedBlockingDeque<>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final LongAdder waits = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private volatile boolean closed = false;
+
+	private MeterRegistry registry;
+	private final List<Meter> meters = new ArrayList<>();
+
+	/**
+	 * A session with the producers that have been created on it.
+	 */
+	public class PooledSession {
+		private final @Getter Session session;
+		private final Map<Destination,MessageProducer> producers;
+		private long lastUsed;
+
+		private PooledSession(Session session) {
+			this.session = session;
+			producers = new LinkedHashMap<Destination,MessageProducer>(MAX_PRODUCERS_PER_SESSION, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Destination,MessageProducer> eldest) {
+					if (size() > MAX_PRODUCERS_PER_SESSION) {
+						closeProducer(eldest.getValue());
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		public MessageProducer getMessageProducer(Destination destination) throws NamingException, JMSException {
+			MessageProducer producer = producers.get(destination);
+			if (producer==null) {
+				producer = facade.getMessageProducer(session, destination);
+				producers.put(destination, producer);
+			}
+			return producer;
+		}
+
+		private void close() {
+			producers.values().forEach(JmsSessionPool.this::closeProducer);
+			producers.clear();
+			facade.closeSession(session);
+		}
+	}
+
+	public JmsSessionPool(JMSFacade facade, int maxSize, long maxWaitMillis, long maxIdleMillis) {
+		this.facade = facade;
+		this.maxSize = maxSize;
+		this.maxWaitMillis = maxWaitMillis;
+		this.maxIdleMillis = maxIdleMillis;
+	}
+
+	/**
+	 * Takes a session from the pool, creating one when none is idle and the pool is not full yet.
+	 */
+	public PooledSession borrow() throws JmsException {
+		if (closed) {
+			throw new JmsException("session pool of ["+facade.getName()+"] is closed");
+		}
+		long deadline = System.currentTimeMillis()+maxWaitMillis;
+		boolean waiting = false;
+		while (true) {
+			PooledSession pooledSession = pollIdle();
+			if (pooledSession!=null) {
+				return pooledSession;
+			}
+			if (size.incrementAndGet()<=maxSize) {
+				try {
+					return new PooledSession(facade.createSession());
+				} catch (JmsException | RuntimeException e) {
+					size.decrementAndGet();
+					throw e;
+				}
+			}
+			size.decrementAndGet();
+			if (!waiting) {
+				waits.increment();
+				waiting = true;
+			}
+			long remaining = deadline-System.currentTimeMillis();
+			if (remaining<=0) {
+				throw new JmsException("no session of ["+facade.getName()+"] became available within ["+maxWaitMillis+"] ms");
+			}
+			try {
+				// wait in short steps, to be able to create a session when one in use has been evicted
+				pooledSession = idle.pollFirst(Math.min(remaining, 100), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new JmsException("interrupted while waiting for a session of ["+facade.getName()+"]", e);
+			}
+			if (pooledSession!=null) {
+				return pooledSession;
+			}
+		}
+	}
+
+	private PooledSession pollIdle() {
+		PooledSession pooledSession;
+		long now = System.currentTimeMillis();
+		while ((pooledSession = idle.pollFirst())!=null) {
+			if (!isExpired(pooledSession, now)) {
+				return pooledSession;
+			}
+			evict(pooledSession);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a session to the pool. A session that has been used in a failed operation is closed instead.
+	 */
+	public void giveBack(PooledSession pooledSession, boolean failed) {
+		if (failed || closed) {
+			evict(pooledSession);
+			return;
+		}
+		long now = System.currentTimeMillis();
+		pooledSession.lastUsed = now;
+		idle.offerFirst(pooledSession); // most recently used first, so surplus sessions stay idle at the end and expire
+		PooledSession eldest;
+		while ((eldest = idle.peekLast())!=null && isExpired(eldest, now) && idle.removeLastOccurrence(eldest)) {
+			evict(eldest);
+		}
+	}
+
+	private boolean isExpired(PooledSession pooledSession, long now) {
+		return maxIdleMillis>0 && now-pooledSession.lastUsed>maxIdleMillis;
+	}
+
+	private void evict(PooledSession pooledSession) {
+		size.decrementAndGet();
+		evictions.increment();
+		pooledSession.close();
+	}
+
+	private void closeProducer(MessageProducer producer) {
+		try {
+			producer.close();
+		} catch (JMSException e) {
+			log.warn("["+facade.getName()+"] exception closing message producer", e);
+		}
+	}
+
+	public void close() {
+		closed = true;
+		PooledSession pooledSession;
+		while ((pooledSession = idle.pollFirst())!=null) {
+			size.decrementAndGet();
+			pooledSession.close();
+		}
+		if (registry!=null) {
+			meters.forEach(registry::remove);
+			meters.clear();
+			registry = null;
+		}
+	}
+
+	public void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		Tags tags = Tags.of(Tag.of("type", "application"), Tag.of("name", String.valueOf(facade.getName())));
+		meters.add(Gauge.builder("frank.jms.session.pool.size", size, AtomicInteger::get).tags(tags).description("number of sessions in the pool, idle or in use").register(registry));
+		meters.add(Gauge.builder("frank.jms.session.pool.idle", idle, BlockingDeque::size).tags(tags).description("number of idle sessions in the pool").register(registry));
+		meters.add(FunctionCounter.builder("frank.jms.session.pool.waits", waits, LongAdder::sum).tags(tags).description("number of times a caller had to wait for a session").register(registry));
+		meters.add(FunctionCounter.builder("frank.jms.session.pool.evictions", evictions, LongAdder::sum).tags(tags).description("number of sessions closed because they were idle too long or had failed").register(registry));
+	}
+
+	public int getSize() {
+		return size.get();
+	}
+
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	public long getWaits() {
+		return waits.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+}
@@ -76,6 +76,7 @@ public class MessagingSource  {
 	private Hashtable<Session,Connection> connectionTable; // hashtable is synchronized and does not permit nulls
 
 	private Queue globalDynamicReplyQueue = null;
+	private JmsReplyDispatcher replyDispatcher = null;
 
 	protected MessagingSource(String id, Context context, ConnectionFactory connectionFactory, Map<String,MessagingSource> siblingMap, String authAlias, boolean createDestination, boolean useJms102) {
 		super();
@@ -98,6 +99,10 @@ public class MessagingSource  {
 		if (--referenceCount<=0 && cleanUpOnClose()) {
 			log.debug(getLogPrefix()+"reference count ["+referenceCount+"], cleaning up global objects");
 			siblingMap.remove(getId());
+			if (replyDispatcher != null) {
+				replyDispatcher.stop();
+				replyDispatcher = null;
+			}
 			try {
 				deleteDynamicQueue(globalDynamicReplyQueue);
 				if (globalConnection != null) {
@@ -361,6 +366,18 @@ public class MessagingSource  {
 		return result;
 	}
 
+	/**
+	 * Returns the dispatcher that receives the replies of synchronous requests on a temporary queue shared by all senders of this MessagingSource.
+	 */
+	public synchronized JmsReplyDispatcher getReplyDispatcher() throws JmsException {
+		if (replyDispatcher == null) {
+			JmsReplyDispatcher dispatcher = new JmsReplyDispatcher(this);
+			dispatcher.start();
+			replyDispatcher = dispatcher;
+		}
+		return replyDispatcher;
+	}
+
 	public void releaseDynamicReplyQueue(Queue replyQueue) throws IfsaException {
 		if (!useSingleDynamicReplyQueue()) {
 			deleteDynamicQueue(replyQueue);
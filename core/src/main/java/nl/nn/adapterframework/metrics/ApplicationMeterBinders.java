@@ -0,0 +1,63 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Binds the {@link MeterBinder} beans of the application context, like the process wide caches, to the {@link MetricsRegistry}.
+ * The meters of {@link TaggedMeterBinder TaggedMeterBinders} are tagged with <code>type=application</code>.
+ *
+ * @since 7.9
+ */
+public class ApplicationMeterBinders implements ApplicationContextAware, SmartInitializingSingleton {
+	private Logger log = LogUtil.getLogger(this);
+
+	private @Setter ApplicationContext applicationContext;
+	private @Setter MetricsRegistry metricsRegistry;
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (metricsRegistry==null) {
+			log.warn("no MetricsRegistry available, metrics of application beans will not be published");
+			return;
+		}
+		MeterRegistry registry = metricsRegistry.getRegistry();
+		List<Tag> tags = Collections.singletonList(Tag.of("type", "application"));
+		for (Map.Entry<String, MeterBinder> entry : applicationContext.getBeansOfType(MeterBinder.class).entrySet()) {
+			log.debug("binding meters of bean [{}]", entry.getKey());
+			MeterBinder binder = entry.getValue();
+			if (binder instanceof TaggedMeterBinder) {
+				((TaggedMeterBinder) binder).bindTo(registry, tags);
+			} else {
+				binder.bindTo(registry);
+			}
+		}
+	}
+}
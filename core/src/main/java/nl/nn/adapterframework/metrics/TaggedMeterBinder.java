@@ -0,0 +1,38 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} that can add tags to the meters it registers.
+ *
+ * @since 7.9
+ */
+public interface TaggedMeterBinder extends MeterBinder {
+
+	@Override
+	default void bindTo(MeterRegistry registry) {
+		bindTo(registry, null);
+	}
+
+	/**
+	 * Registers the meters, with the tags, or without tags when <code>tags</code> is <code>null</code>.
+	 */
+	void bindTo(MeterRegistry registry, Iterable<Tag> tags);
+}
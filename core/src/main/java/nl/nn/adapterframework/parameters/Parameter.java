@@ -144,6 +144,7 @@ public class Parameter implements IConfigurable, IWithParameters {
 	private @Getter DecimalFormatSymbols decimalFormatSymbols = null;
 	private TransformerPool transformerPool = null;
 	private TransformerPool transformerPoolRemoveNamespaces;
+	private TransformerPool transformerPoolForSaxonTree;
 	private TransformerPool tpDynamicSessionKey = null;
 	protected ParameterList paramList = null;
 	private boolean configured = false;
@@ -282,6 +283,7 @@ public class Parameter implements IConfigurable, IWithParameters {
 				throw new ConfigurationException("Parameter ["+getName()+"] can only have parameters itself if a styleSheetName or xpathExpression is specified");
 			}
 		}
+		transformerPoolForSaxonTree = null;
 		if (isRemoveNamespaces()) {
 			transformerPoolRemoveNamespaces = XmlUtils.getRemoveNamespacesTransformerPool(true,false);
 		}
@@ -363,8 +365,7 @@ public class Parameter implements IConfigurable, IWithParameters {
 		return defaultValueMethodsList;
 	}
 
-	private Document transformToDocument(Source xmlSource, ParameterValueList pvl) throws ParameterException, TransformerException, IOException {
-		TransformerPool pool = getTransformerPool();
+	private Document transformToDocument(TransformerPool pool, Source xmlSource, ParameterValueList pvl) throws ParameterException, TransformerException, IOException {
 		DOMResult transformResult = new DOMResult();
 		pool.transform(xmlSource,transformResult, pvl);
 		return (Document) transformResult.getNode();
@@ -400,10 +401,49 @@ public class Parameter implements IConfigurable, IWithParameters {
 				);
 	}
 
+	/**
+	 * Returns <code>true</code> when the value is determined by transforming the input message itself,
+	 * so the parsed input message can be shared with other parameters.
+	 */
+	boolean transformsInputMessage() {
+		return getTransformerPool()!=null && tpDynamicSessionKey==null && getValue()==null
+				&& StringUtils.isEmpty(getSessionKey()) && StringUtils.isEmpty(getPattern()) && StringUtils.isEmpty(getContextKey());
+	}
+
+	/**
+	 * Returns true when all transformations applied to the input message are performed by Saxon, and can therefore use a Saxon tree as source.
+	 */
+	boolean transformsInputMessageUsingSaxon() {
+		return transformsInputMessage() && getTransformerPool().getXsltVersion()>=2
+				&& (transformerPoolRemoveNamespaces==null || transformerPoolRemoveNamespaces.getXsltVersion()>=2);
+	}
+
+	/**
+	 * Compiles the first transformation applied to the input message in the Saxon configuration, so it accepts a Saxon tree
+	 * built in that configuration as source. The transformers of other pools and their shared Templates are not affected.
+	 * @return false if the transformation cannot be compiled in that configuration
+	 */
+	boolean prepareForSaxonTrees(net.sf.saxon.Configuration saxonConfiguration) {
+		TransformerPool firstPool = transformerPoolRemoveNamespaces!=null ? transformerPoolRemoveNamespaces : getTransformerPool();
+		transformerPoolForSaxonTree = firstPool.withSaxonConfiguration(saxonConfiguration);
+		return transformerPoolForSaxonTree!=null;
+	}
+
+	void discardPreparationForSaxonTrees() {
+		transformerPoolForSaxonTree = null;
+	}
+
 	/**
 	 * determines the raw value
 	 */
 	public Object getValue(ParameterValueList alreadyResolvedParameters, Message message, PipeLineSession session, boolean namespaceAware) throws ParameterException {
+		return getValue(alreadyResolvedParameters, message, session, namespaceAware, null);
+	}
+
+	/**
+	 * determines the raw value, using the already parsed input message as source for the transformation, if it is not null
+	 */
+	Object getValue(ParameterValueList alreadyResolvedParameters, Message message, PipeLineSession session, boolean namespaceAware, Source parsedInputMessage) throws ParameterException {
 		Object result = null;
 		if (log.isDebugEnabled()) log.debug("Calculating value for Parameter ["+getName()+"]");
 		if (!configured) {
@@ -483,21 +523,26 @@ public class Parameter implements IConfigurable, IWithParameters {
 				} else {
 					if (StringUtils.isNotEmpty(getContextKey())) {
 						source = Message.asSource(message.getContext().get(getContextKey()));
+					} else if (parsedInputMessage!=null) {
+						source = parsedInputMessage;
 					} else {
 						source = message.asSource();
 					}
 				}
 				if (source!=null) {
+					boolean useSaxonTreePool = source==parsedInputMessage && transformerPoolForSaxonTree!=null;
 					if (transformerPoolRemoveNamespaces != null) {
-						String rnResult = transformerPoolRemoveNamespaces.transform(source);
+						String rnResult = (useSaxonTreePool ? transformerPoolForSaxonTree : transformerPoolRemoveNamespaces).transform(source);
 						source = XmlUtils.stringToSource(rnResult);
+					} else if (useSaxonTreePool) {
+						pool = transformerPoolForSaxonTree;
 					}
 					ParameterValueList pvl = paramList==null ? null : paramList.getValues(message, session, namespaceAware);
 					switch (getType()) {
 					case NODE:
-						return transformToDocument(source, pvl).getFirstChild();
+						return transformToDocument(pool, source, pvl).getFirstChild();
 					case DOMDOC:
-						return transformToDocument(source, pvl);
+						return transformToDocument(pool, source, pvl);
 					default:
 						String transformResult = pool.transform(source, pvl);
 						if (StringUtils.isNotEmpty(transformResult)) {
@@ -22,26 +22,54 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMSource;
+
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.Logger;
+import org.w3c.dom.Node;
 
 import lombok.Getter;
 import lombok.Setter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.core.ParameterException;
 import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.statistics.HasStatistics;
+import nl.nn.adapterframework.statistics.StatisticsKeeper;
+import nl.nn.adapterframework.statistics.StatisticsKeeperIterationHandler;
 import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.DomBuilderException;
+import nl.nn.adapterframework.util.LogUtil;
+import nl.nn.adapterframework.util.XmlUtils;
 
 
 /**
  * List of parameters.
+ * <p>
+ * When multiple parameters determine their value by transforming the input message itself, e.g. with an xpathExpression,
+ * the input message is parsed only once, and the parsed document is used as source for each of these parameters.
+ * When all these parameters are evaluated by Saxon (xsltVersion 2 or higher, the default) the input message is parsed into a
+ * compact Saxon tree, otherwise it is parsed into a DOM document. The Saxon tree is built in a Saxon configuration owned by the list,
+ * in which the transformations of these parameters are compiled once more for this purpose.
+ * The time spent parsing the shared input is kept in the statistics of the list.
+ * </p>
  *
  * @author Gerrit van Brakel
  */
-public class ParameterList extends ArrayList<Parameter> {
+public class ParameterList extends ArrayList<Parameter> implements HasStatistics {
+	private static final Logger LOG = LogUtil.getLogger(ParameterList.class);
+
+	public static final String SHARED_INPUT_PARSING_ENABLED_KEY = "parameters.sharedInputParsing.enabled";
+
 	private AtomicInteger index = new AtomicInteger();
 	private @Getter boolean inputValueRequiredForResolution;
 	private @Getter boolean inputValueOrContextRequiredForResolution;
 	private @Getter @Setter boolean namesMustBeUnique;
+	private @Getter @Setter boolean sharedInputParsing = AppConstants.getInstance().getBoolean(SHARED_INPUT_PARSING_ENABLED_KEY, true);
+	private @Getter StatisticsKeeper sharedInputParsingStatistics;
+	private net.sf.saxon.Configuration sharedInputSaxonConfiguration;
 
 	@Override
 	public void clear() {
@@ -69,6 +97,30 @@ public class ParameterList extends ArrayList<Parameter> {
 				throw new ConfigurationException("Duplicate parameter names "+duplicateNames);
 			}
 		}
+		int parametersTransformingInput = 0;
+		int parametersTransformingInputUsingSaxon = 0;
+		for(Parameter param : this) {
+			if (param.transformsInputMessage()) {
+				parametersTransformingInput++;
+			}
+			if (param.transformsInputMessageUsingSaxon()) {
+				parametersTransformingInputUsingSaxon++;
+			}
+		}
+		sharedInputSaxonConfiguration = null;
+		if (isSharedInputParsing() && parametersTransformingInput>1) {
+			sharedInputParsingStatistics = new StatisticsKeeper("-> input parsing shared by "+parametersTransformingInput+" parameters");
+			if (parametersTransformingInputUsingSaxon==parametersTransformingInput) {
+				// the Saxon tree and the transformers that read it have a configuration of their own, leaving the NamePool and document numbering of other transformers untouched
+				net.sf.saxon.Configuration saxonConfiguration = new net.sf.saxon.Configuration();
+				if (stream().filter(Parameter::transformsInputMessage).allMatch(p -> p.prepareForSaxonTrees(saxonConfiguration))) {
+					sharedInputSaxonConfiguration = saxonConfiguration;
+				} else {
+					LOG.info("cannot compile all parameters in a separate Saxon configuration, input message will be shared as DOM document");
+					forEach(Parameter::discardPreparationForSaxonTrees);
+				}
+			}
+		}
 	}
 
 	@Override
@@ -127,6 +179,7 @@ public class ParameterList extends ArrayList<Parameter> {
 				throw new ParameterException("Cannot preserve message for parameter resolution", e);
 			}
 		}
+		Source parsedInputMessage = sharedInputParsingStatistics!=null ? parseInputMessage(message) : null;
 		ParameterValueList result = new ParameterValueList();
 		for (Parameter parm : this) {
 			String parmSessionKey = parm.getSessionKey();
@@ -149,6 +202,8 @@ public class ParameterList extends ArrayList<Parameter> {
 						}
 					}
 				}
+			} else if (parsedInputMessage!=null && parm.transformsInputMessage()) {
+				result.add(new ParameterValue(parm, parm.getValue(result, message, session, namespaceAware, parsedInputMessage)));
 			} else {
 				result.add(getValue(result, parm, message, session, namespaceAware));
 			}
@@ -160,6 +215,37 @@ public class ParameterList extends ArrayList<Parameter> {
 		return new ParameterValue(p, p.getValue(alreadyResolvedParameters, message, session, namespaceAware));
 	}
 
+	/**
+	 * Parses the input message once, to be used as source by all parameters that transform it.
+	 * Returns null when the message is empty, already parsed or cannot be parsed; each parameter then handles the message itself.
+	 */
+	private Source parseInputMessage(Message message) {
+		if (Message.isEmpty(message) || message.asObject() instanceof Source || message.asObject() instanceof Node) {
+			return null;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			Source result;
+			if (sharedInputSaxonConfiguration!=null) {
+				result = XmlUtils.buildSaxonTree(sharedInputSaxonConfiguration, message.asInputSource(), true);
+			} else {
+				result = new DOMSource(XmlUtils.buildDomDocument(message.asInputSource(), true));
+			}
+			sharedInputParsingStatistics.addValue(System.currentTimeMillis()-start);
+			return result;
+		} catch (IOException | DomBuilderException e) {
+			LOG.debug("cannot parse input message to share it between parameters, parameters will parse it themselves", e);
+			return null;
+		}
+	}
+
+	@Override
+	public void iterateOverStatistics(StatisticsKeeperIterationHandler hski, Object data, Action action) throws SenderException {
+		if (sharedInputParsingStatistics!=null) {
+			hski.handleStatisticsKeeper(data, sharedInputParsingStatistics);
+		}
+	}
+
 	public boolean consumesSessionVariable(String sessionKey) {
 		for (Parameter p:this) {
 			if (p.consumesSessionVariable(sessionKey)) {
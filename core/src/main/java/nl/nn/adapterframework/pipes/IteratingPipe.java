@@ -17,7 +17,9 @@ package nl.nn.adapterframework.pipes;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -111,6 +113,7 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 	private @Getter boolean closeIteratorOnExit=true;
 	private @Getter boolean parallel = false;
 	private @Getter int maxChildThreads = 0;
+	private @Getter int maxItemsInProgress = 0;
 
 	private @Getter int blockSize=0;
 
@@ -206,6 +209,16 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 		return stopReason;
 	}
 
+	private static class PendingItem {
+		private final ParallelSenderExecutor executor;
+		private final Guard done;
+
+		private PendingItem(ParallelSenderExecutor executor, Guard done) {
+			this.executor = executor;
+			this.done = done;
+		}
+	}
+
 	protected class ItemCallback {
 		private PipeLineSession session;
 		private ISender sender;
@@ -217,14 +230,20 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 		private Vector<I> inputItems = new Vector<I>();
 		private Guard guard;
 		private List<ParallelSenderExecutor> executorList;
+		private Deque<PendingItem> itemsInProgress;
+		private int resultCount=0;
 
 		public ItemCallback(PipeLineSession session, ISender sender, Writer out) {
 			this.session=session;
 			this.sender=sender;
 			this.results=out;
-			if (isParallel() && isCollectResults()) {
-				guard = new Guard();
-				executorList = new ArrayList<ParallelSenderExecutor>();
+			if (isParallel()) {
+				if (getMaxItemsInProgress()>0) {
+					itemsInProgress = new ArrayDeque<>(getMaxItemsInProgress());
+				} else if (isCollectResults()) {
+					guard = new Guard();
+					executorList = new ArrayList<ParallelSenderExecutor>();
+				}
 			}
 		}
 
@@ -245,6 +264,9 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 				waitForResults();
 				results.append("</results>");
 			} else {
+				if (itemsInProgress!=null) {
+					waitForResults();
+				}
 				results.append("<results count=\""+getCount()+"\"/>");
 			}
 		}
@@ -301,6 +323,12 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 			} else {
 				log.debug("iteration [{}] item [{}]", totalItems, message);
 			}
+			if (itemsInProgress!=null) {
+				// wait for the oldest items to finish, to limit the number of items held in memory and to throttle the iterator
+				while (itemsInProgress.size()>=getMaxItemsInProgress()) {
+					writeOldestResult(true);
+				}
+			}
 			if (childThreadSemaphore!=null) {
 				try {
 					childThreadSemaphore.acquire();
@@ -310,7 +338,16 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 			}
 			try {
 				try {
-					if (isParallel()) {
+					if (itemsInProgress!=null) {
+						Guard itemGuard = new Guard(1);
+						ParallelSenderExecutor pse= new ParallelSenderExecutor(sender, message, session, childThreadSemaphore, itemGuard, senderStatisticsKeeper);
+						itemsInProgress.add(new PendingItem(pse, itemGuard));
+						getTaskExecutor().execute(pse);
+						// write the results that are already available, in the order of the items
+						while (!itemsInProgress.isEmpty() && itemsInProgress.peek().done.isReleased()) {
+							writeOldestResult(false);
+						}
+					} else if (isParallel()) {
 						if (isCollectResults()) {
 							guard.addResource();
 						}
@@ -409,25 +446,48 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 			results.append(itemResult+"\n");
 		}
 
+		private String getParallelResult(ParallelSenderExecutor pse) throws IOException {
+			if (pse.getThrowable() == null) {
+				SenderResult senderResult = pse.getReply();
+				if (senderResult.isSuccess()) {
+					return senderResult.getResult().asString();
+				}
+				return "<exception>"+XmlUtils.encodeChars(senderResult.getResult().asString())+"</exception>";
+			}
+			return "<exception>"+XmlUtils.encodeChars(pse.getThrowable().getMessage())+"</exception>";
+		}
+
+		/**
+		 * Removes the oldest item in progress and writes its result, when results are collected.
+		 * @param wait when <code>true</code>, waits for the item to finish. Must only be <code>false</code> when the item is known to be finished.
+		 */
+		private void writeOldestResult(boolean wait) throws SenderException, IOException {
+			PendingItem pendingItem = itemsInProgress.poll();
+			if (wait) {
+				try {
+					pendingItem.done.waitForAllResources();
+				} catch (InterruptedException e) {
+					throw new SenderException("was interupted",e);
+				}
+			}
+			resultCount++;
+			if (isCollectResults()) {
+				addResult(resultCount, pendingItem.executor.getRequest(), getParallelResult(pendingItem.executor));
+			}
+		}
+
 		public void waitForResults() throws SenderException, IOException {
-			if (isParallel()) {
+			if (itemsInProgress!=null) {
+				while (!itemsInProgress.isEmpty()) {
+					writeOldestResult(true);
+				}
+			} else if (isParallel()) {
 				try {
 					guard.waitForAllResources();
 					int count = 0;
 					for (ParallelSenderExecutor pse : executorList) {
 						count++;
-						String itemResult;
-						if (pse.getThrowable() == null) {
-							SenderResult senderResult = pse.getReply();
-							if (senderResult.isSuccess()) {
-								itemResult = senderResult.getResult().asString();
-							} else {
-								itemResult = "<exception>"+XmlUtils.encodeChars(senderResult.getResult().asString())+"</exception>";
-							}
-						} else {
-							itemResult = "<exception>"+XmlUtils.encodeChars(pse.getThrowable().getMessage())+"</exception>";
-						}
-						addResult(count, pse.getRequest(), itemResult);
+						addResult(count, pse.getRequest(), getParallelResult(pse));
 					}
 				} catch (InterruptedException e) {
 					throw new SenderException("was interupted",e);
@@ -589,6 +649,13 @@ public abstract class IteratingPipe<I> extends MessageSendingPipe {
 		this.maxChildThreads = maxChildThreads;
 	}
 
+	@IbisDoc({"Only used when <code>parallel=true</code>. When set to a value greater than 0, at most this number of items of a single message is processed at the same time. "
+			+ "Reading further items is suspended while the maximum is reached, and results are written in the order of the items as soon as they are available, "
+			+ "so the memory used does not grow with the number of items. Use <code>0</code> to start all items and collect the results when all items have been processed", "0"})
+	public void setMaxItemsInProgress(int maxItemsInProgress) {
+		this.maxItemsInProgress = maxItemsInProgress;
+	}
+
 	@IbisDoc({"Controls multiline behaviour. When set to a value greater than 0, it specifies the number of rows send, in a one block, to the sender.", "0"})
 	public void setBlockSize(int i) {
 		blockSize = i;
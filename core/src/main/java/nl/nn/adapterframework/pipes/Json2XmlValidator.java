@@ -16,7 +16,7 @@
 package nl.nn.adapterframework.pipes;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.Reader;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -28,7 +28,6 @@ import org.apache.xerces.xs.XSModel;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.helpers.XMLFilterImpl;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonStructure;
 import lombok.Getter;
@@ -47,6 +46,7 @@ import nl.nn.adapterframework.doc.IbisDoc;
 import nl.nn.adapterframework.parameters.ParameterList;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.stream.document.DocumentFormat;
+import nl.nn.adapterframework.stream.json.LazyJsonReader;
 import nl.nn.adapterframework.util.EnumUtils;
 import nl.nn.adapterframework.util.XmlUtils;
 import nl.nn.adapterframework.validation.AbstractXmlValidator.ValidationResult;
@@ -143,21 +143,25 @@ public class Json2XmlValidator extends XmlValidator implements HasPhysicalDestin
 	 */
 	@Override
 	public PipeRunResult doPipe(Message input, PipeLineSession session, boolean responseMode, String messageRoot) throws PipeRunException {
-		String messageToValidate;
+		int firstChar;
 		try {
-			messageToValidate = Message.isNull(input) ?"{}":input.asString();
+			firstChar = getFirstNonWhitespaceCharacter(input);
 		} catch (IOException e) {
 			throw new PipeRunException(this, "cannot open stream", e);
 		}
-		int i=0;
-		while (i<messageToValidate.length() && Character.isWhitespace(messageToValidate.charAt(i))) i++;
-		if (i>=messageToValidate.length()) {
-			messageToValidate="{}";
+		Message messageToAlign = input;
+		if (firstChar<0) {
+			messageToAlign = new Message("{}");
 			storeInputFormat(DocumentFormat.JSON, session, responseMode);
 		} else {
-			char firstChar=messageToValidate.charAt(i);
 			if (firstChar=='<') {
 				// message is XML
+				String messageToValidate;
+				try {
+					messageToValidate = input.asString();
+				} catch (IOException e) {
+					throw new PipeRunException(this, "cannot open stream", e);
+				}
 				if (isAcceptNamespacelessXml()) {
 					messageToValidate=addNamespace(messageToValidate); // TODO: do this via a filter
 					//log.debug("added namespace to message [{}]", messageToValidate);
@@ -181,20 +185,38 @@ public class Json2XmlValidator extends XmlValidator implements HasPhysicalDestin
 				}
 			}
 			if (!isAllowJson() && !responseMode) {
-				return getErrorResult(ValidationResult.PARSER_ERROR, "message is not XML, because it starts with ["+firstChar+"] and not with '<'", session, responseMode);
+				return getErrorResult(ValidationResult.PARSER_ERROR, "message is not XML, because it starts with ["+(char)firstChar+"] and not with '<'", session, responseMode);
 			}
 			if (firstChar!='{' && firstChar!='[') {
-				return getErrorResult(ValidationResult.PARSER_ERROR, "message is not XML or JSON, because it starts with ["+firstChar+"] and not with '<', '{' or '['", session, responseMode);
+				return getErrorResult(ValidationResult.PARSER_ERROR, "message is not XML or JSON, because it starts with ["+(char)firstChar+"] and not with '<', '{' or '['", session, responseMode);
 			}
 			storeInputFormat(DocumentFormat.JSON, session, responseMode);
 		}
 		try {
-			return alignJson(messageToValidate, session, responseMode);
+			return alignJson(messageToAlign, session, responseMode);
 		} catch (XmlValidatorException e) {
 			throw new PipeRunException(this, "Cannot align JSON", e);
 		}
 	}
 
+	/**
+	 * Returns the first character of the message that is not whitespace, or -1 if there is none. The message is preserved,
+	 * so it can be read again as a stream to align it.
+	 */
+	private int getFirstNonWhitespaceCharacter(Message message) throws IOException {
+		if (Message.isNull(message)) {
+			return -1;
+		}
+		message.preserve();
+		try (Reader reader = message.asReader()) {
+			int c = reader.read();
+			while (c>=0 && Character.isWhitespace(c)) {
+				c = reader.read();
+			}
+			return c;
+		}
+	}
+
 	protected RootValidations getJsonRootValidations(boolean responseMode) {
 		if (isValidateJsonToRootElementOnly()) {
 			String root=getMessageRoot(responseMode);
@@ -235,7 +257,7 @@ public class Json2XmlValidator extends XmlValidator implements HasPhysicalDestin
 		return result;
 	}
 
-	protected PipeRunResult alignJson(String messageToValidate, PipeLineSession session, boolean responseMode) throws PipeRunException, XmlValidatorException {
+	protected PipeRunResult alignJson(Message messageToValidate, PipeLineSession session, boolean responseMode) throws PipeRunException, XmlValidatorException {
 
 		ValidationContext context;
 		ValidatorHandler validatorHandler;
@@ -259,7 +281,7 @@ public class Json2XmlValidator extends XmlValidator implements HasPhysicalDestin
 			ParameterList parameterList = getParameterList();
 			if (parameterList!=null) {
 				Map<String,Object> parametervalues = null;
-				parametervalues = parameterList.getValues(new Message(messageToValidate), session).getValueMap();
+				parametervalues = parameterList.getValues(messageToValidate, session).getValueMap();
 				// remove parameters with null values, to support optional request parameters
 				for(Iterator<String> it=parametervalues.keySet().iterator();it.hasNext();) {
 					String key=it.next();
@@ -269,7 +291,7 @@ public class Json2XmlValidator extends XmlValidator implements HasPhysicalDestin
 				}
 				aligner.setOverrideValues(parametervalues);
 			}
-			JsonStructure jsonStructure = Json.createReader(new StringReader(messageToValidate)).read();
+			JsonStructure jsonStructure = LazyJsonReader.read(messageToValidate);
 
 			// cannot build filter chain as usual backwardly, because it ends differently.
 			// This will be fixed once an OutputStream can be provided to Xml2Json
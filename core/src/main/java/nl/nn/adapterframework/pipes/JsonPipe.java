@@ -18,11 +18,9 @@ package nl.nn.adapterframework.pipes;
 import java.io.StringWriter;
 import java.util.Map.Entry;
 
-import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonException;
 import jakarta.json.JsonObject;
-import jakarta.json.JsonReader;
 import jakarta.json.JsonValue;
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
@@ -35,6 +33,7 @@ import nl.nn.adapterframework.doc.ElementType.ElementTypes;
 import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.stream.document.DocumentUtils;
 import nl.nn.adapterframework.stream.document.XmlDocumentBuilder;
+import nl.nn.adapterframework.stream.json.LazyJsonReader;
 import nl.nn.adapterframework.util.TransformerPool;
 
 /**
@@ -82,45 +81,43 @@ public class JsonPipe extends FixedForwardPipe {
 
 			switch (getDirection()) {
 			case JSON2XML:
-				try(JsonReader jr = Json.createReader(message.asReader())) {
-					JsonValue jValue=null;
-					try {
-						jValue = jr.read();
-					} catch (JsonException e) {
-						log.debug("cannot parse as JsonStructure", e);
-						stringResult="<root>"+message.asString()+"</root>";
-						break;
-					}
-					String root="root";
-					StringWriter writer = new StringWriter();
-					if (jValue instanceof JsonObject) {
-						if (!isAddXmlRootElement()) {
-							JsonObject jObj = (JsonObject)jValue;
-							if (jObj.size()>1) {
-								throw new PipeRunException(this, "Cannot extract root element name from object with ["+jObj.size()+"] names");
-							}
-							Entry<String,JsonValue> firstElem=jObj.entrySet().stream().findFirst().orElseThrow(()->new PipeRunException(this, "Cannot extract root element name from empty object"));
-							root = firstElem.getKey();
-							jValue = firstElem.getValue();
+				JsonValue jValue=null;
+				try {
+					jValue = LazyJsonReader.read(message);
+				} catch (JsonException e) {
+					log.debug("cannot parse as JsonStructure", e);
+					stringResult="<root>"+message.asString()+"</root>";
+					break;
+				}
+				String root="root";
+				StringWriter writer = new StringWriter();
+				if (jValue instanceof JsonObject) {
+					if (!isAddXmlRootElement()) {
+						JsonObject jObj = (JsonObject)jValue;
+						if (jObj.size()>1) {
+							throw new PipeRunException(this, "Cannot extract root element name from object with ["+jObj.size()+"] names");
 						}
+						Entry<String,JsonValue> firstElem=jObj.entrySet().stream().findFirst().orElseThrow(()->new PipeRunException(this, "Cannot extract root element name from empty object"));
+						root = firstElem.getKey();
+						jValue = firstElem.getValue();
+					}
+					try (XmlDocumentBuilder documentBuilder = new XmlDocumentBuilder(root, writer, isPrettyPrint())) {
+						DocumentUtils.jsonValue2Document(jValue, documentBuilder);
+					}
+				} else {
+					if (isAddXmlRootElement()) {
 						try (XmlDocumentBuilder documentBuilder = new XmlDocumentBuilder(root, writer, isPrettyPrint())) {
 							DocumentUtils.jsonValue2Document(jValue, documentBuilder);
 						}
 					} else {
-						if (isAddXmlRootElement()) {
-							try (XmlDocumentBuilder documentBuilder = new XmlDocumentBuilder(root, writer, isPrettyPrint())) {
-								DocumentUtils.jsonValue2Document(jValue, documentBuilder);
-							}
-						} else {
-							for (JsonValue item:(JsonArray)jValue) {
-								try (XmlDocumentBuilder documentBuilder = new XmlDocumentBuilder("item", writer, isPrettyPrint())) {
-									DocumentUtils.jsonValue2Document(item, documentBuilder);
-								}
+						for (JsonValue item:(JsonArray)jValue) {
+							try (XmlDocumentBuilder documentBuilder = new XmlDocumentBuilder("item", writer, isPrettyPrint())) {
+								DocumentUtils.jsonValue2Document(item, documentBuilder);
 							}
 						}
 					}
-					stringResult = writer.toString();
 				}
+				stringResult = writer.toString();
 				break;
 			case XML2JSON:
 				stringResult = tpXml2Json.transform(message,null);
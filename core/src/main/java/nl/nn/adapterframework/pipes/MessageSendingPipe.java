@@ -935,6 +935,12 @@ public class MessageSendingPipe extends StreamingPipe implements HasSender, HasS
 		if (sender instanceof HasStatistics) {
 			((HasStatistics)sender).iterateOverStatistics(hski,data,action);
 		}
+		if (getParameterList()!=null) {
+			getParameterList().iterateOverStatistics(hski,data,action);
+		}
+		if (sender instanceof ISenderWithParameters && ((ISenderWithParameters)sender).getParameterList()!=null) {
+			((ISenderWithParameters)sender).getParameterList().iterateOverStatistics(hski,data,action);
+		}
 	}
 
 	@Override
@@ -34,6 +34,8 @@ import nl.nn.adapterframework.util.EnumUtils;
  */
 public class CachePipeLineProcessor extends PipeLineProcessorBase {
 
+	private static final char STATE_SEPARATOR = ':';
+
 	@Override
 	public PipeLineResult processPipeLine(PipeLine pipeLine, String messageId, Message message, PipeLineSession pipeLineSession, String firstPipe) throws PipeRunException {
 		ICache<String,String> cache=pipeLine.getCache();
@@ -41,42 +43,55 @@ public class CachePipeLineProcessor extends PipeLineProcessorBase {
 			return pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
 		}
 
-		String input;
+		String key;
 		try {
-			input = message.asString();
+			key=cache.transformKey(message, pipeLineSession);
 		} catch (IOException e) {
 			throw new PipeRunException(pipeLine.getPipe(firstPipe), "cannot open stream", e);
 		}
-		String key=cache.transformKey(input, pipeLineSession);
 		if (key==null) {
 			if (log.isDebugEnabled()) log.debug("cache key is null, will not use cache");
 			return pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
 		}
 
 		if (log.isDebugEnabled()) log.debug("cache key [{}]", key);
-		Message result;
-		String state;
-		synchronized (cache) {
-			result = new Message(cache.get("r"+key));
-			state = cache.get("s"+key);
+		PipeLineResult cachedResult = getCachedResult(cache, key);
+		if (cachedResult!=null) {
+			return cachedResult;
 		}
 
-		if (!result.isNull() && state!=null) {
-			if (log.isDebugEnabled()) log.debug("retrieved result from cache using key [{}]", key);
-			PipeLineResult plr=new PipeLineResult();
-			plr.setState(EnumUtils.parse(ExitState.class, state));
-			plr.setResult(result);
-			return plr;
+		if (log.isDebugEnabled()) log.debug("no cached results found using key [{}]", key);
+		PipeLineResult[] processedResult = new PipeLineResult[1];
+		// concurrent requests for the same key can wait for a single execution of the pipeline, if the cache supports that
+		cache.computeIfAbsent("p"+key, () -> {
+			PipeLineResult plr=pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
+			processedResult[0]=plr;
+			if (log.isDebugEnabled()) log.debug("caching result using key [{}]", key);
+			String cacheValue=cache.transformValue(plr.getResult(), pipeLineSession);
+			// state and result are stored in a single element, so they cannot be evicted separately
+			return cacheValue!=null ? plr.getState().name()+STATE_SEPARATOR+cacheValue : null;
+		});
+		if (processedResult[0]!=null) {
+			return processedResult[0];
+		}
+		cachedResult = getCachedResult(cache, key);
+		if (cachedResult!=null) {
+			return cachedResult;
 		}
+		if (log.isDebugEnabled()) log.debug("no result cached by concurrent execution using key [{}], will not use cache", key);
+		return pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
+	}
 
-		if (log.isDebugEnabled()) log.debug("no cached results found using key [{}]", key);
-		PipeLineResult plr=pipeLineProcessor.processPipeLine(pipeLine, messageId, message, pipeLineSession, firstPipe);
-		if (log.isDebugEnabled()) log.debug("caching result using key [{}]", key);
-		String cacheValue=cache.transformValue(plr.getResult(), pipeLineSession);
-		synchronized (cache) {
-			cache.put("r"+key, cacheValue);
-			cache.put("s"+key, plr.getState().name());
+	private PipeLineResult getCachedResult(ICache<String,String> cache, String key) {
+		String cacheValue = cache.get("p"+key);
+		int separatorPos = cacheValue!=null ? cacheValue.indexOf(STATE_SEPARATOR) : -1;
+		if (separatorPos<0) {
+			return null;
 		}
+		if (log.isDebugEnabled()) log.debug("retrieved result from cache using key [{}]", key);
+		PipeLineResult plr=new PipeLineResult();
+		plr.setState(EnumUtils.parse(ExitState.class, cacheValue.substring(0, separatorPos)));
+		plr.setResult(new Message(cacheValue.substring(separatorPos+1)));
 		return plr;
 	}
 
@@ -42,7 +42,7 @@ public class CacheSenderWrapperProcessor extends SenderWrapperProcessorBase {
 
 		String key;
 		try {
-			key=cache.transformKey(message.asString(), session);
+			key=cache.transformKey(message, session);
 		} catch (IOException e) {
 			throw new SenderException(e);
 		}
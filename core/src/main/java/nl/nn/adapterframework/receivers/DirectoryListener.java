@@ -15,8 +15,15 @@
 */
 package nl.nn.adapterframework.receivers;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 
+import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.doc.Category;
 import nl.nn.adapterframework.doc.IbisDoc;
 import nl.nn.adapterframework.filesystem.FileSystemListener;
@@ -25,11 +32,68 @@ import nl.nn.adapterframework.filesystem.LocalFileSystem;
 @Category("Basic")
 public class DirectoryListener extends FileSystemListener<Path, LocalFileSystem>{
 
+	private static final long REGISTER_RETRY_INTERVAL = 1000;
+
 	@Override
 	protected LocalFileSystem createFileSystem() {
 		return new LocalFileSystem();
 	}
 
+	/**
+	 * Uses a {@link WatchService} to be notified of files that are created in or moved to the inputFolder,
+	 * so that the inputFolder is not listed while it is unchanged.
+	 */
+	@Override
+	protected Closeable startWatchingInputFolder() throws ListenerException {
+		Path inputFolder = getFileSystem().toFile(getInputFolder());
+		WatchService watchService;
+		try {
+			watchService = inputFolder.getFileSystem().newWatchService();
+			inputFolder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException | UnsupportedOperationException e) {
+			log.warn("cannot watch inputFolder ["+inputFolder+"] for changes, will list it at every poll", e);
+			return null;
+		}
+		Thread watcher = new Thread(() -> {
+			try {
+				while (true) {
+					WatchKey key = watchService.take();
+					key.pollEvents(); // all events, including OVERFLOW, mean that the inputFolder must be listed again
+					inputFolderChanged();
+					if (!key.reset()) {
+						log.warn("inputFolder ["+inputFolder+"] can no longer be watched for changes, will register it again");
+						while (!register(inputFolder, watchService)) {
+							inputFolderChanged(); // list the inputFolder while it is not watched
+							Thread.sleep(REGISTER_RETRY_INTERVAL);
+						}
+						inputFolderChanged(); // files might have arrived while the inputFolder was not watched
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ClosedWatchServiceException e) {
+				// watching has been stopped
+			}
+		}, "DirectoryListener["+getName()+"] watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		return watchService;
+	}
+
+	/**
+	 * Registers the inputFolder again after its WatchKey has become invalid, e.g. because the folder was removed or its file system unmounted.
+	 */
+	private boolean register(Path inputFolder, WatchService watchService) {
+		try {
+			inputFolder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			log.info("inputFolder ["+inputFolder+"] is watched for changes again");
+			return true;
+		} catch (IOException e) {
+			if (log.isDebugEnabled()) log.debug("cannot register inputFolder ["+inputFolder+"] to be watched for changes", e);
+			return false;
+		}
+	}
+
 	@IbisDoc({"Optional base folder, that serves as root for all other folders", ""})
 	public void setRoot(String root) {
 		getFileSystem().setRoot(root);
@@ -162,6 +162,13 @@ public class JavaListener implements IPushingListener<String>, RequestProcessor,
 					context.put(key, value);
 					return result;
 				}
+
+				@Override
+				public void close() {
+					// messages returned via the context must remain available to the caller
+					transferCloseOnExitOfValuesTo(context);
+					super.close();
+				}
 			}) {
 			session.put(PipeLineSession.correlationIdKey, correlationId);
 			Message message =  new Message(rawMessage);
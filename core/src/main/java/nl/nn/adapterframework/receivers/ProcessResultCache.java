@@ -0,0 +1,157 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.receivers;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of the results of processing messages by a {@link Receiver}, keyed by messageId. Used to count the attempts
+ * to process a message, for maxRetries and deliveryCount.
+ * <p>
+ * Lookups and updates of different messageIds do not block each other. When the cache holds more than <code>maxSize</code>
+ * items, the items that were added first are evicted. Items that have not been updated for <code>timeToLiveMillis</code> expire.
+ * </p>
+ *
+ * @since 7.9
+ */
+class ProcessResultCache {
+
+	private final int maxSize;
+	private final long timeToLiveMillis;
+
+	private final Map<String,ProcessResultCacheItem> items = new ConcurrentHashMap<>();
+	private final Queue<ProcessResultCacheItem> insertionOrder = new ConcurrentLinkedQueue<>();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	static class ProcessResultCacheItem {
+		private final String messageId;
+		volatile int receiveCount;
+		final Date receiveDate;
+		volatile String comments;
+		private volatile long lastUpdate;
+
+		private ProcessResultCacheItem(String messageId, Date receiveDate) {
+			this.messageId = messageId;
+			this.receiveDate = receiveDate;
+		}
+	}
+
+	/**
+	 * @param timeToLiveMillis time after the last update after which an item expires. When 0, items do not expire.
+	 */
+	ProcessResultCache(int maxSize, long timeToLiveMillis) {
+		this.maxSize = maxSize;
+		this.timeToLiveMillis = timeToLiveMillis;
+	}
+
+	public ProcessResultCacheItem get(String messageId) {
+		ProcessResultCacheItem item = items.get(messageId);
+		if (item!=null && isExpired(item, System.currentTimeMillis())) {
+			items.remove(messageId, item);
+			item = null;
+		}
+		if (item==null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return item;
+	}
+
+	/**
+	 * Registers an attempt to process a message: adds an item with receiveCount 1 for a new messageId,
+	 * or increases the receiveCount of the existing item.
+	 */
+	public ProcessResultCacheItem registerAttempt(String messageId, String comments, Date receiveDate) {
+		long now = System.currentTimeMillis();
+		ProcessResultCacheItem result = items.compute(messageId, (key, item) -> {
+			if (item==null || isExpired(item, now)) {
+				item = new ProcessResultCacheItem(key, receiveDate);
+				item.receiveCount = 1;
+				insertionOrder.add(item);
+			} else {
+				item.receiveCount++;
+			}
+			item.comments = comments;
+			item.lastUpdate = now;
+			return item;
+		});
+		evict(now);
+		return result;
+	}
+
+	/**
+	 * Reverts the registration of an attempt: decreases the receiveCount of the item, and removes it when no attempts are left.
+	 */
+	public void revertAttempt(String messageId) {
+		items.computeIfPresent(messageId, (key, item) -> --item.receiveCount>0 ? item : null);
+	}
+
+	/**
+	 * Removes the eldest items while the cache is too large, and items at the head of the insertion order that have expired or were replaced.
+	 * Only one thread at a time evicts, other threads do not wait for it.
+	 */
+	private void evict(long now) {
+		if (!evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			ProcessResultCacheItem eldest;
+			while ((eldest = insertionOrder.peek())!=null) {
+				boolean current = items.get(eldest.messageId)==eldest;
+				if (current && items.size()<=maxSize && !isExpired(eldest, now)) {
+					return;
+				}
+				insertionOrder.poll();
+				if (current && items.remove(eldest.messageId, eldest)) {
+					evictions.increment();
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private boolean isExpired(ProcessResultCacheItem item, long now) {
+		return timeToLiveMillis>0 && now-item.lastUpdate>timeToLiveMillis;
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+}
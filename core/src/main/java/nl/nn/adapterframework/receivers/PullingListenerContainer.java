@@ -15,9 +15,15 @@
 */
 package nl.nn.adapterframework.receivers;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.logging.log4j.Logger;
@@ -36,6 +42,7 @@ import nl.nn.adapterframework.core.INamedObject;
 import nl.nn.adapterframework.core.IPeekableListener;
 import nl.nn.adapterframework.core.IPullingListener;
 import nl.nn.adapterframework.core.IThreadCountControllable;
+import nl.nn.adapterframework.core.IWakeUpSignallingListener;
 import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.ProcessState;
@@ -58,6 +65,7 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 	protected Logger log = LogUtil.getLogger(this);
 
 	private TransactionDefinition txNew = null;
+	private TransactionDefinition txBatch = null;
 
 	private @Getter @Setter Receiver<M> receiver;
 	private @Getter @Setter PlatformTransactionManager txManager;
@@ -66,8 +74,13 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 	private Semaphore processToken = null; // guard against to many messages being processed at the same time
 	private Semaphore pollToken = null; // guard against to many threads polling at the same time
 	private boolean idle = false; // true if the last messages received was null, will cause wait loop
+	private int emptyPolls = 0; // number of consecutive polls that did not return a message
+	private final Object idleMonitor = new Object();
+	private boolean wakeUpRequested = false;
 	private int retryInterval = 1;
 	private int maxThreadCount = 1;
+	private int maxMessagesPerPoll = 1;
+	private final AtomicInteger messagesToProcessIndividually = new AtomicInteger(); // number of messages to process in their own transaction after a batch was rolled back
 
 	/**
 	 * The thread-pool for spawning threads, injected by Spring
@@ -92,6 +105,13 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 			}
 			txNew = txDef;
 		}
+		if (receiver.getListener() instanceof IWakeUpSignallingListener) {
+			((IWakeUpSignallingListener<?>)receiver.getListener()).setWakeUpHandler(this::wakeUp);
+		}
+		maxMessagesPerPoll = receiver.getMaxMessagesPerPoll();
+		if (maxMessagesPerPoll>1 && receiver.isBatchTransacted() && receiver.isTransacted()) {
+			txBatch = txNew;
+		}
 	}
 
 	public void start() {
@@ -162,10 +182,9 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 						pollToken.acquire();
 					}
 					if (isIdle() && receiver.getPollInterval()>0) {
-						if (log.isDebugEnabled() && receiver.getPollInterval()>600)log.debug("is idle, sleeping for [{}] seconds", receiver.getPollInterval());
-						for (int i=0; i<receiver.getPollInterval() && receiver.isInRunState(RunState.STARTED); i++) {
-							Thread.sleep(1000);
-						}
+						long idleInterval = getIdleInterval();
+						if (log.isDebugEnabled() && idleInterval>600000) log.debug("is idle, sleeping for [{}] seconds", idleInterval/1000);
+						waitForNextPoll(idleInterval);
 					}
 					taskExecutor.execute(new ListenTask());
 				}
@@ -188,6 +207,7 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 
 		private @Getter @Setter String name;
 		private IHasProcessState<M> inProcessStateManager=null;
+		private boolean pollTokenReleased=false;
 
 		@Override
 		public boolean isLongLived() {
@@ -203,7 +223,6 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 		public void run() {
 			final IPullingListener<M> listener = (IPullingListener<M>) receiver.getListener();
 			Map<String,Object> threadContext = null;
-			boolean pollTokenReleased=false;
 			try {
 				threadsRunning.increase();
 				if (receiver.isInRunState(RunState.STARTED)) {
@@ -214,165 +233,240 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 					if (threadContext == null) {
 						threadContext = new HashMap<>();
 					}
-					M rawMessage = null;
-					TransactionStatus txStatus = null;
-					int deliveryCount=0;
-					boolean messageHandled = false;
-					String messageId = null;
-					try { //  doesn't catch anything, rolls back transaction in finally clause when required
-						try {
-							try {
-								boolean messageAvailable = true;
-								if (isIdle() && listener instanceof IPeekableListener) {
-									IPeekableListener<?> peekableListener = (IPeekableListener<?>) listener;
-									if (peekableListener.isPeekUntransacted()) {
-										messageAvailable = peekableListener.hasRawMessageAvailable();
-									}
-								}
-								if (messageAvailable) {
-									// Start a transaction if the entire processing is transacted, or
-									// messages needs to be moved to inProcess, and transaction control is not inhibited by setting transactionAttribute=NotSupported.
-									if (receiver.isTransacted() || inProcessStateManager!=null && receiver.getTransactionAttribute() != TransactionAttribute.NOTSUPPORTED) {
-										txStatus = txManager.getTransaction(txNew);
-									}
-									rawMessage = listener.getRawMessage(threadContext);
-								}
-								resetRetryInterval();
-								setIdle(rawMessage==null);
-							} catch (Exception e) {
-								if (txStatus!=null) {
-									txManager.rollback(txStatus);
-								}
-								if (receiver.isOnErrorContinue()) {
-									increaseRetryIntervalAndWait(e);
-								} else {
-									receiver.exceptionThrown("exception occured while retrieving message", e); //actually use ON_ERROR and don't just stop the receiver
-									return;
-								}
-							}
-							if (rawMessage == null) {
-								if (txStatus!=null) {
-									txManager.rollback(txStatus);
-								}
-								return;
-							}
+					if (maxMessagesPerPoll<=1) {
+						processMessage(listener, threadContext, null, null);
+					} else {
+						processBatch(listener, threadContext);
+					}
+				}
+			} catch (Exception e) {
+				receiver.error("error occured", e);
+			} finally {
+				processToken.release();
+				releasePollToken();
+				threadsRunning.decrease();
+				if (listener != null) {
+					try {
+						listener.closeThread(threadContext);
+					} catch (ListenerException e) {
+						receiver.error("Exception closing listener thread", e);
+					}
+				}
+				ThreadContext.removeStack(); //Cleanup the MDC stack that was created during message processing
+			}
+		}
 
-							if (inProcessStateManager!=null) {
-								if ((rawMessage = inProcessStateManager.changeProcessState(rawMessage, ProcessState.INPROCESS, "start processing"))==null) {
-									if (txStatus!=null) {
-										txManager.rollback(txStatus);
-									}
-									return;
-								}
-								// If inProcess-state is used, we'll commit the transaction that set the message state to the inProcess.
-								// This releases the lock on the record being processed.
-								// This is necessary for dbmses like MariaDB, that have no 'SKIP LOCKED' functionality, and for pipelines that do not support roll back
-								if (txStatus!=null) {
-									txManager.commit(txStatus);
-									if (receiver.isTransacted()) {
-										txStatus = txManager.getTransaction(txNew);
-									} else {
-										txStatus = null;
-									}
-								}
-							}
+		/**
+		 * Processes up to maxMessagesPerPoll messages using the thread, processToken and pollToken of this task, avoiding the overhead
+		 * of opening and closing the thread of the listener for every message. When the receiver is batchTransacted,
+		 * all messages of the batch are processed in a single transaction, that is rolled back as a whole when processing
+		 * of one of the messages fails. The attempts to process the other messages of a rolled back batch are not counted as retries,
+		 * and as many messages as the batch contained are then processed in their own transaction, to isolate the message that failed.
+		 */
+		private void processBatch(IPullingListener<M> listener, Map<String,Object> threadContext) throws Exception {
+			Set<String> threadContextKeys = new HashSet<>(threadContext.keySet());
+			boolean processIndividually = txBatch!=null && messagesToProcessIndividually.get()>0;
+			TransactionStatus batchTxStatus = txBatch!=null && !processIndividually ? txManager.getTransaction(txBatch) : null;
+			List<String> messageIds = batchTxStatus!=null ? new ArrayList<>() : null;
+			int messagesProcessed = 0;
+			try {
+				while (processMessage(listener, threadContext, batchTxStatus, messageIds)) {
+					messagesProcessed++;
+					boolean messagesToIsolateLeft = !processIndividually || messagesToProcessIndividually.updateAndGet(n -> n>0 ? n-1 : 0)>0;
+					if (!messagesToIsolateLeft || messagesProcessed>=maxMessagesPerPoll || !receiver.isInRunState(RunState.STARTED) || batchTxStatus!=null && batchTxStatus.isRollbackOnly()) {
+						break;
+					}
+					// remove the message specific entries, leaving the resources set up by openThread()
+					threadContext.keySet().retainAll(threadContextKeys);
+				}
+			} finally {
+				releasePollToken();
+				if (batchTxStatus!=null && !batchTxStatus.isCompleted()) {
+					if (batchTxStatus.isRollbackOnly()) {
+						receiver.warn("processing of batch of ["+messagesProcessed+"] messages ended with status RollbackOnly, so rolling back transaction");
+						txManager.rollback(batchTxStatus);
+						// the message that caused the rollback is the last one processed, the other messages will be processed again without having failed
+						for (String messageId:messageIds.subList(0, Math.max(messageIds.size()-1, 0))) {
+							receiver.revertCachedProcessResult(messageId);
+						}
+						messagesToProcessIndividually.accumulateAndGet(messagesProcessed, Math::max);
+					} else {
+						txManager.commit(batchTxStatus);
+					}
+				}
+			}
+			if (log.isDebugEnabled()) log.debug(receiver.getLogPrefix()+"processed batch of ["+messagesProcessed+"] messages");
+		}
 
-							// found a message, process it
-							tasksStarted.increase();
-							log.debug(receiver.getLogPrefix()+"started ListenTask ["+tasksStarted.getValue()+"]");
-							Thread.currentThread().setName(receiver.getName()+"-listener["+tasksStarted.getValue()+"]");
-						} finally {
-							// release pollToken after message has been moved to inProcess, so it is not seen as 'available' by the next thread
-							pollTokenReleased=true;
-							if (pollToken != null) {
-								pollToken.release();
+		/**
+		 * Retrieves and processes a single message.
+		 * @param batchTxStatus the transaction of the batch the message is part of, or <code>null</code> when each message is processed in its own transaction.
+		 * @param messageIds when not <code>null</code>, the messageId of a message that is processed is added to it.
+		 * @return <code>true</code> when a message was retrieved and processing can continue with a next message.
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean processMessage(IPullingListener<M> listener, Map<String,Object> threadContext, TransactionStatus batchTxStatus, List<String> messageIds) throws ListenerException {
+			M rawMessage = null;
+			TransactionStatus txStatus = null;
+			int deliveryCount=0;
+			boolean messageHandled = false;
+			String messageId = null;
+			try { //  doesn't catch anything, rolls back transaction in finally clause when required
+				try {
+					try {
+						boolean messageAvailable = true;
+						if (isIdle() && listener instanceof IPeekableListener) {
+							IPeekableListener<?> peekableListener = (IPeekableListener<?>) listener;
+							if (peekableListener.isPeekUntransacted()) {
+								messageAvailable = peekableListener.hasRawMessageAvailable();
 							}
 						}
+						if (messageAvailable) {
+							// Start a transaction if the entire processing is transacted, or
+							// messages needs to be moved to inProcess, and transaction control is not inhibited by setting transactionAttribute=NotSupported.
+							if (batchTxStatus==null && (receiver.isTransacted() || inProcessStateManager!=null && receiver.getTransactionAttribute() != TransactionAttribute.NOTSUPPORTED)) {
+								txStatus = txManager.getTransaction(txNew);
+							}
+							rawMessage = listener.getRawMessage(threadContext);
+						}
+						resetRetryInterval();
+						setIdle(rawMessage==null);
+						receiver.registerPollResult(rawMessage!=null);
+					} catch (Exception e) {
+						if (txStatus!=null) {
+							txManager.rollback(txStatus);
+						}
+						if (receiver.isOnErrorContinue()) {
+							increaseRetryIntervalAndWait(e);
+						} else {
+							receiver.exceptionThrown("exception occured while retrieving message", e); //actually use ON_ERROR and don't just stop the receiver
+						}
+						return false;
+					}
+					if (rawMessage == null) {
+						if (txStatus!=null) {
+							txManager.rollback(txStatus);
+						}
+						return false;
+					}
 
-						try {
-							if (receiver.getMaxRetries()>=0) {
-								messageId = listener.getIdFromRawMessage(rawMessage, threadContext);
-								deliveryCount = receiver.getDeliveryCount(messageId, rawMessage);
+					if (inProcessStateManager!=null) {
+						if ((rawMessage = inProcessStateManager.changeProcessState(rawMessage, ProcessState.INPROCESS, "start processing"))==null) {
+							if (txStatus!=null) {
+								txManager.rollback(txStatus);
 							}
-							if (receiver.getMaxRetries()<0 || deliveryCount <= receiver.getMaxRetries()+1 || receiver.isSupportProgrammaticRetry()) {
-								try (PipeLineSession session = new PipeLineSession()) {
-									session.putAll(threadContext);
-									receiver.processRawMessage(listener, rawMessage, session, true);
-								}
+							return true;
+						}
+						// If inProcess-state is used, we'll commit the transaction that set the message state to the inProcess.
+						// This releases the lock on the record being processed.
+						// This is necessary for dbmses like MariaDB, that have no 'SKIP LOCKED' functionality, and for pipelines that do not support roll back
+						if (txStatus!=null) {
+							txManager.commit(txStatus);
+							if (receiver.isTransacted()) {
+								txStatus = txManager.getTransaction(txNew);
 							} else {
-								String correlationId = (String) threadContext.get(PipeLineSession.correlationIdKey);
-								Date receivedDate = new Date();
-								String errorMessage = Misc.concatStrings("too many retries", "; ", receiver.getCachedErrorMessage(messageId));
-								final M rawMessageFinal = rawMessage;
-								final Map<String,Object> threadContextFinal = threadContext;
-								receiver.moveInProcessToError(messageId, correlationId, () -> listener.extractMessage(rawMessageFinal, threadContextFinal), receivedDate, errorMessage, rawMessage, Receiver.TXREQUIRED);
-								receiver.cacheProcessResult(messageId, errorMessage, receivedDate); // required here to increase delivery count
-							}
-							messageHandled = true;
-							if (txStatus != null) {
-								if (txStatus.isRollbackOnly()) {
-									messageHandled = false;
-									receiver.warn("pipeline processing ended with status RollbackOnly, so rolling back transaction");
-									rollBack(txStatus, rawMessage, "Pipeline processing ended with status RollbackOnly");
-								} else {
-									txManager.commit(txStatus);
-								}
 								txStatus = null;
 							}
-						} catch (Exception e) {
-							receiver.error("caught Exception processing message", e);
-							try {
-								if (txStatus != null && !txStatus.isCompleted()) {
-									messageHandled = false;
-									rollBack(txStatus, rawMessage, "Exception caught ("+e.getClass().getTypeName()+"): "+e.getMessage());
-									txStatus = null;
-								}
-							} catch (Exception e2) {
-								receiver.error("caught Exception rolling back transaction after catching Exception", e2);
-							} finally {
-								if (receiver.isOnErrorContinue()) {
-									receiver.error("caught Exception processing message, will continue processing next message", e);
-								} else {
-									receiver.exceptionThrown("exception occured while processing message", e); //actually use ON_ERROR and don't just stop the receiver
-								}
-							}
 						}
-					} finally {
-						if (txStatus != null && !txStatus.isCompleted()) {
-							messageHandled = false;
-							rollBack(txStatus, rawMessage, "Rollback because transaction has terminated unexpectedly");
-							txStatus = null;
+					}
+
+					// found a message, process it
+					tasksStarted.increase();
+					log.debug(receiver.getLogPrefix()+"started ListenTask ["+tasksStarted.getValue()+"]");
+					Thread.currentThread().setName(receiver.getName()+"-listener["+tasksStarted.getValue()+"]");
+				} finally {
+					// release pollToken after message has been moved to inProcess, so it is not seen as 'available' by the next thread.
+					// A batch keeps its pollToken until it ends, so it never waits for a pollToken while its transaction is open
+					if (maxMessagesPerPoll<=1) {
+						releasePollToken();
+					}
+				}
+
+				try {
+					if (receiver.getMaxRetries()>=0 || messageIds!=null) {
+						messageId = listener.getIdFromRawMessage(rawMessage, threadContext);
+					}
+					if (messageIds!=null) {
+						messageIds.add(messageId);
+					}
+					if (receiver.getMaxRetries()>=0) {
+						deliveryCount = receiver.getDeliveryCount(messageId, rawMessage);
+					}
+					if (receiver.getMaxRetries()<0 || deliveryCount <= receiver.getMaxRetries()+1 || receiver.isSupportProgrammaticRetry()) {
+						try (PipeLineSession session = new PipeLineSession()) {
+							session.putAll(threadContext);
+							receiver.processRawMessage(listener, rawMessage, session, true);
 						}
+					} else {
+						String correlationId = (String) threadContext.get(PipeLineSession.correlationIdKey);
+						Date receivedDate = new Date();
+						String errorMessage = Misc.concatStrings("too many retries", "; ", receiver.getCachedErrorMessage(messageId));
+						final M rawMessageFinal = rawMessage;
+						final Map<String,Object> threadContextFinal = threadContext;
+						receiver.moveInProcessToError(messageId, correlationId, () -> listener.extractMessage(rawMessageFinal, threadContextFinal), receivedDate, errorMessage, rawMessage, Receiver.TXREQUIRED);
+						receiver.cacheProcessResult(messageId, errorMessage, receivedDate); // required here to increase delivery count
 					}
-					if (!messageHandled && inProcessStateManager!=null) {
-						txStatus = receiver.isTransacted() || receiver.getTransactionAttribute() != TransactionAttribute.NOTSUPPORTED ? txManager.getTransaction(txNew) : null;
-						boolean noMoreRetries = receiver.getMaxRetries()>=0 && deliveryCount>receiver.getMaxRetries();
-						ProcessState targetState = noMoreRetries ? ProcessState.ERROR : ProcessState.AVAILABLE;
-						log.debug("noMoreRetries [{}] deliveryCount [{}] targetState [{}]", noMoreRetries, deliveryCount, targetState);
-						String errorMessage = Misc.concatStrings(noMoreRetries? "too many retries":null, "; ", receiver.getCachedErrorMessage(messageId));
-						((IHasProcessState<M>)listener).changeProcessState(rawMessage, targetState, errorMessage!=null ? errorMessage : "processing not successful");
-						if (txStatus!=null) {
+					messageHandled = true;
+					if (txStatus != null) {
+						if (txStatus.isRollbackOnly()) {
+							messageHandled = false;
+							receiver.warn("pipeline processing ended with status RollbackOnly, so rolling back transaction");
+							rollBack(txStatus, rawMessage, "Pipeline processing ended with status RollbackOnly");
+						} else {
 							txManager.commit(txStatus);
+						}
+						txStatus = null;
+					}
+				} catch (Exception e) {
+					receiver.error("caught Exception processing message", e);
+					try {
+						if (txStatus != null && !txStatus.isCompleted()) {
+							messageHandled = false;
+							rollBack(txStatus, rawMessage, "Exception caught ("+e.getClass().getTypeName()+"): "+e.getMessage());
 							txStatus = null;
 						}
+						if (batchTxStatus != null) {
+							messageHandled = false;
+							batchTxStatus.setRollbackOnly();
+						}
+					} catch (Exception e2) {
+						receiver.error("caught Exception rolling back transaction after catching Exception", e2);
+					} finally {
+						if (receiver.isOnErrorContinue()) {
+							receiver.error("caught Exception processing message, will continue processing next message", e);
+						} else {
+							receiver.exceptionThrown("exception occured while processing message", e); //actually use ON_ERROR and don't just stop the receiver
+						}
 					}
 				}
-			} catch (Exception e) {
-				receiver.error("error occured", e);
 			} finally {
-				processToken.release();
-				if (!pollTokenReleased && pollToken != null) {
-					pollToken.release();
+				if (txStatus != null && !txStatus.isCompleted()) {
+					messageHandled = false;
+					rollBack(txStatus, rawMessage, "Rollback because transaction has terminated unexpectedly");
+					txStatus = null;
 				}
-				threadsRunning.decrease();
-				if (listener != null) {
-					try {
-						listener.closeThread(threadContext);
-					} catch (ListenerException e) {
-						receiver.error("Exception closing listener thread", e);
-					}
+			}
+			if (!messageHandled && inProcessStateManager!=null) {
+				txStatus = receiver.isTransacted() || receiver.getTransactionAttribute() != TransactionAttribute.NOTSUPPORTED ? txManager.getTransaction(txNew) : null;
+				boolean noMoreRetries = receiver.getMaxRetries()>=0 && deliveryCount>receiver.getMaxRetries();
+				ProcessState targetState = noMoreRetries ? ProcessState.ERROR : ProcessState.AVAILABLE;
+				log.debug("noMoreRetries [{}] deliveryCount [{}] targetState [{}]", noMoreRetries, deliveryCount, targetState);
+				String errorMessage = Misc.concatStrings(noMoreRetries? "too many retries":null, "; ", receiver.getCachedErrorMessage(messageId));
+				((IHasProcessState<M>)listener).changeProcessState(rawMessage, targetState, errorMessage!=null ? errorMessage : "processing not successful");
+				if (txStatus!=null) {
+					txManager.commit(txStatus);
+					txStatus = null;
+				}
+			}
+			return true;
+		}
+
+		private void releasePollToken() {
+			if (!pollTokenReleased) {
+				pollTokenReleased=true;
+				if (pollToken != null) {
+					pollToken.release();
 				}
-				ThreadContext.removeStack(); //Cleanup the MDC stack that was created during message processing
 			}
 		}
 
@@ -424,8 +518,59 @@ public class PullingListenerContainer<M> implements IThreadCountControllable {
 
 
 
+	/**
+	 * Returns the number of milliseconds to wait before the next poll of an idle receiver. This is the pollInterval,
+	 * unless the receiver has a larger maxPollInterval: then the interval is doubled after every consecutive empty poll,
+	 * up to maxPollInterval. Intervals larger than the pollInterval are randomly shortened by up to a quarter, so receivers
+	 * that became idle at the same moment do not keep polling at the same moment.
+	 */
+	protected long getIdleInterval() {
+		long pollInterval = receiver.getPollInterval()*1000L;
+		long maxPollInterval = receiver.getMaxPollInterval()*1000L;
+		int consecutiveEmptyPolls;
+		synchronized (this) {
+			consecutiveEmptyPolls = emptyPolls;
+		}
+		if (maxPollInterval<=pollInterval || consecutiveEmptyPolls<=1) {
+			return pollInterval;
+		}
+		long interval = Math.min(pollInterval << Math.min(consecutiveEmptyPolls-1, 30), maxPollInterval);
+		if (interval<=0) { // overflow
+			interval = maxPollInterval;
+		}
+		return interval - (long)(ThreadLocalRandom.current().nextDouble() * (interval-pollInterval) / 4);
+	}
+
+	private void waitForNextPoll(long interval) throws InterruptedException {
+		long end = System.currentTimeMillis() + interval;
+		synchronized (idleMonitor) {
+			long remaining;
+			// wake up at least every second, to stop waiting when the receiver is stopped
+			while (!wakeUpRequested && receiver.isInRunState(RunState.STARTED) && (remaining = end-System.currentTimeMillis())>0) {
+				idleMonitor.wait(Math.min(remaining, 1000));
+			}
+			wakeUpRequested = false;
+		}
+	}
+
+	/**
+	 * Makes an idle receiver poll for messages immediately, and resets the back-off of the poll interval.
+	 * Called by listeners that signal that messages are available.
+	 */
+	public void wakeUp() {
+		if (log.isDebugEnabled()) log.debug(receiver.getLogPrefix()+"wake up requested");
+		synchronized (this) {
+			emptyPolls = 0;
+		}
+		synchronized (idleMonitor) {
+			wakeUpRequested = true;
+			idleMonitor.notifyAll();
+		}
+	}
+
 	public synchronized void setIdle(boolean b) {
 		idle = b;
+		emptyPolls = b ? emptyPolls+1 : 0;
 	}
 	public synchronized boolean isIdle() {
 		return idle;
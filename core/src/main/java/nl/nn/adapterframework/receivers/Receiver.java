@@ -20,11 +20,9 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.StringTokenizer;
 
@@ -90,6 +88,7 @@ import nl.nn.adapterframework.jms.JMSFacade;
 import nl.nn.adapterframework.jta.SpringTxManagerProxy;
 import nl.nn.adapterframework.monitoring.EventPublisher;
 import nl.nn.adapterframework.monitoring.EventThrowing;
+import nl.nn.adapterframework.receivers.ProcessResultCache.ProcessResultCacheItem;
 import nl.nn.adapterframework.statistics.CounterStatistic;
 import nl.nn.adapterframework.statistics.HasStatistics;
 import nl.nn.adapterframework.statistics.StatisticsKeeper;
@@ -240,6 +239,10 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 	// the number of threads that are actively polling for messages (concurrently, only for pulling listeners)
 	private @Getter int numThreadsPolling = 1;
 	private @Getter int pollInterval=10;
+	private @Getter int maxPollInterval=0;
+	// the maximum number of messages a polling thread processes before it is returned to the pool (only for pulling listeners)
+	private @Getter int maxMessagesPerPoll = 1;
+	private @Getter boolean batchTransacted = false;
 	private @Getter int startTimeout=60;
 	private @Getter int stopTimeout=60;
 
@@ -250,6 +253,7 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 	private @Getter int maxDeliveries=5;
 	private @Getter int maxRetries=1;
 	private @Getter int processResultCacheSize = 100;
+	private @Getter int processResultCacheTimeToLiveSeconds = 86400;
 	private @Getter boolean supportProgrammaticRetry=false;
 
 	private @Getter String returnedSessionKeys=null;
@@ -293,6 +297,8 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 	private CounterStatistic numReceived = new CounterStatistic(0);
 	private CounterStatistic numRetried = new CounterStatistic(0);
 	private CounterStatistic numRejected = new CounterStatistic(0);
+	private CounterStatistic numPollsEmpty = new CounterStatistic(0);
+	private CounterStatistic numPollsProductive = new CounterStatistic(0);
 
 	private List<StatisticsKeeper> processStatistics = new ArrayList<>();
 	private List<StatisticsKeeper> idleStatistics = new ArrayList<>();
@@ -335,20 +341,7 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 	 * put in the processResultCache will not be reprocessed even if it's
 	 * offered again.
 	 */
-	private Map<String,ProcessResultCacheItem> processResultCache = new LinkedHashMap<String,ProcessResultCacheItem>() {
-
-		@Override
-		protected boolean removeEldestEntry(Entry<String,ProcessResultCacheItem> eldest) {
-			return size() > getProcessResultCacheSize();
-		}
-
-	};
-
-	private class ProcessResultCacheItem {
-		private int receiveCount;
-		private Date receiveDate;
-		private String comments;
-	}
+	private ProcessResultCache processResultCache = new ProcessResultCache(processResultCacheSize, processResultCacheTimeToLiveSeconds*1000L);
 
 	public boolean configurationSucceeded() {
 		return configurationSucceeded;
@@ -570,6 +563,10 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 			if(getName().contains("/")) {
 				throw new ConfigurationException("It is not allowed to have '/' in receiver name ["+getName()+"]");
 			}
+			if (getProcessResultCacheSize()<1) {
+				throw new ConfigurationException("processResultCacheSize ["+getProcessResultCacheSize()+"] must be positive");
+			}
+			processResultCache = new ProcessResultCache(getProcessResultCacheSize(), getProcessResultCacheTimeToLiveSeconds()*1000L);
 
 			registerEvent(RCV_CONFIGURED_MONITOR_EVENT);
 			registerEvent(RCV_CONFIGURATIONEXCEPTION_MONITOR_EVENT);
@@ -675,6 +672,19 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 				targetProcessStates = ((IHasProcessState)getListener()).targetProcessStates();
 				supportProgrammaticRetry = knownProcessStates.contains(ProcessState.INPROCESS);
 			}
+			if (getListener() instanceof IPullingListener) {
+				if (getMaxMessagesPerPoll()<1) {
+					throw new ConfigurationException("maxMessagesPerPoll ["+getMaxMessagesPerPoll()+"] must be positive");
+				}
+				if (isBatchTransacted()) {
+					if (knownProcessStates.contains(ProcessState.INPROCESS)) {
+						throw new ConfigurationException("batchTransacted cannot be used with a listener that moves messages to an inProcess state");
+					}
+					if (getMaxMessagesPerPoll()<=1 || !isTransacted()) {
+						ConfigurationWarnings.add(this, log, "batchTransacted has no effect when maxMessagesPerPoll<=1 or transactionAttribute ["+getTransactionAttribute()+"] is not transacted");
+					}
+				}
+			}
 
 
 			ITransactionalStorage<Serializable> messageLog = getMessageLog();
@@ -682,6 +692,14 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 				if (getListener() instanceof IProvidesMessageBrowsers && ((IProvidesMessageBrowsers)getListener()).getMessageBrowser(ProcessState.DONE)!=null) {
 					throw new ConfigurationException("listener with built-in messageLog cannot have external messageLog too");
 				}
+				if (isCheckForDuplicates() && messageLog.isAsynchronous()) {
+					// a rolled back message would be found in the messageLog and skipped on redelivery, and queued messages would not be found at all
+					throw new ConfigurationException("checkForDuplicates cannot be used with an asynchronous messageLog");
+				}
+				if (isBatchTransacted() && messageLog.isAsynchronous()) {
+					// the messages of a rolled back batch would remain in the messageLog, and be logged again when they are processed again
+					throw new ConfigurationException("batchTransacted cannot be used with an asynchronous messageLog");
+				}
 				messageLog.setName("messageLog of ["+getName()+"]");
 				if (StringUtils.isEmpty(messageLog.getSlotId())) {
 					messageLog.setSlotId(getName());
@@ -1433,22 +1451,21 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 		}
 	}
 
-	@SuppressWarnings("synthetic-access")
-	public synchronized void cacheProcessResult(String messageId, String errorMessage, Date receivedDate) {
-		ProcessResultCacheItem cacheItem=getCachedProcessResult(messageId);
-		if (cacheItem==null) {
-			if (log.isDebugEnabled()) log.debug(getLogPrefix()+"caching first result for messageId ["+messageId+"]");
-			cacheItem= new ProcessResultCacheItem();
-			cacheItem.receiveCount=1;
-			cacheItem.receiveDate=receivedDate;
-		} else {
-			cacheItem.receiveCount++;
-			if (log.isDebugEnabled()) log.debug(getLogPrefix()+"increased try count for messageId ["+messageId+"] to ["+cacheItem.receiveCount+"]");
+	public void cacheProcessResult(String messageId, String errorMessage, Date receivedDate) {
+		ProcessResultCacheItem cacheItem=processResultCache.registerAttempt(messageId, errorMessage, receivedDate);
+		if (log.isDebugEnabled()) log.debug(getLogPrefix()+"cached result for messageId ["+messageId+"], try count ["+cacheItem.receiveCount+"]");
+	}
+	/**
+	 * Reverts the registration of an attempt to process a message by {@link #cacheProcessResult(String, String, Date)}, for a message whose
+	 * processing was rolled back because processing of another message in the same transaction failed.
+	 */
+	public void revertCachedProcessResult(String messageId) {
+		if (messageId!=null) {
+			processResultCache.revertAttempt(messageId);
+			if (log.isDebugEnabled()) log.debug(getLogPrefix()+"reverted cached result for messageId ["+messageId+"]");
 		}
-		cacheItem.comments=errorMessage;
-		processResultCache.put(messageId, cacheItem);
 	}
-	private synchronized ProcessResultCacheItem getCachedProcessResult(String messageId) {
+	private ProcessResultCacheItem getCachedProcessResult(String messageId) {
 		return processResultCache.get(messageId);
 	}
 
@@ -1645,6 +1662,13 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 			hski.handleScalar(recData,"messagesReceivedThisInterval", numReceived.getIntervalValue());
 			hski.handleScalar(recData,"messagesRetriedThisInterval", numRetried.getIntervalValue());
 			hski.handleScalar(recData,"messagesRejectedThisInterval", numRejected.getIntervalValue());
+			if (getListener() instanceof IPullingListener) {
+				hski.handleScalar(recData,"pollsEmpty", numPollsEmpty);
+				hski.handleScalar(recData,"pollsProductive", numPollsProductive);
+			}
+			hski.handleScalar(recData,"processResultCacheHits", processResultCache.getHits());
+			hski.handleScalar(recData,"processResultCacheMisses", processResultCache.getMisses());
+			hski.handleScalar(recData,"processResultCacheEvictions", processResultCache.getEvictions());
 			messageExtractionStatistics.performAction(action);
 			Object pstatData=hski.openGroup(recData,null,"procStats");
 			for(StatisticsKeeper pstat:getProcessStatistics()) {
@@ -1915,6 +1939,31 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 		return numRejected.getValue();
 	}
 
+	/**
+	 * Registers the result of a poll of a pulling listener, to be able to monitor the effectiveness of the poll interval.
+	 */
+	protected void registerPollResult(boolean messageFound) {
+		if (messageFound) {
+			numPollsProductive.increase();
+		} else {
+			numPollsEmpty.increase();
+		}
+	}
+
+	/**
+	 * Get the number of polls of a pulling listener that did not return a message.
+	 */
+	public long getPollsEmpty() {
+		return numPollsEmpty.getValue();
+	}
+
+	/**
+	 * Get the number of polls of a pulling listener that returned a message.
+	 */
+	public long getPollsProductive() {
+		return numPollsProductive.getValue();
+	}
+
 	public long getLastMessageDate() {
 		return lastMessageDate;
 	}
@@ -2045,6 +2094,26 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 		pollInterval = i;
 	}
 
+	@IbisDoc({"The maximum number of seconds waited between poll attempts of an idle receiver. When larger than <code>pollInterval</code>, the interval is doubled after every "
+			+ "consecutive unsuccessful poll attempt, until this maximum is reached, and slightly varied to spread the polls of different receivers. As soon as a message is found, "
+			+ "polling continues without delay. When 0, the interval is always <code>pollInterval</code>. Only for polling listeners", "0"})
+	public void setMaxPollInterval(int maxPollInterval) {
+		this.maxPollInterval = maxPollInterval;
+	}
+
+	@IbisDoc({"The maximum number of messages a thread retrieves and processes in a row, before it gives its thread back. Setting this to a value larger than 1 "
+			+ "avoids the overhead of opening and closing the thread of the listener and of scheduling a new task for every message, on busy receivers. Only for pulling listeners", "1"})
+	public void setMaxMessagesPerPoll(int maxMessagesPerPoll) {
+		this.maxMessagesPerPoll = maxMessagesPerPoll;
+	}
+
+	@IbisDoc({"If set to <code>true</code> and the receiver is transacted, the messages that are processed in a row by a thread (see <code>maxMessagesPerPoll</code>) are processed in a single transaction. "
+			+ "When processing of one of them fails, the transaction of all messages in the batch is rolled back, and the next messages are processed in their own transaction until the failing message is isolated. "
+			+ "Cannot be used with listeners that move messages to an inProcess state, or with an asynchronous messageLog", "false"})
+	public void setBatchTransacted(boolean batchTransacted) {
+		this.batchTransacted = batchTransacted;
+	}
+
 	/** timeout to start receiver. If this timeout is reached, the Receiver may be stopped again */
 	public void setStartTimeout(int i) {
 		startTimeout = i;
@@ -2054,7 +2123,7 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 		stopTimeout = i;
 	}
 
-	@IbisDoc({"If set to <code>true</code>, each message is checked for presence in the messageLog. If already present, it is not processed again. Only required for non XA compatible messaging. Requires messageLog!", "false"})
+	@IbisDoc({"If set to <code>true</code>, each message is checked for presence in the messageLog. If already present, it is not processed again. Only required for non XA compatible messaging. Requires messageLog, that must not be asynchronous!", "false"})
 	public void setCheckForDuplicates(boolean b) {
 		checkForDuplicates = b;
 	}
@@ -2079,6 +2148,11 @@ public class Receiver<M> extends TransactionAttributes implements IManagable, IR
 		this.processResultCacheSize = processResultCacheSize;
 	}
 
+	@IbisDoc({"Time <i>in seconds</i> after the last attempt to process a message, after which its process result is removed from the cache. When 0, process results are only removed when the cache is full", "86400"})
+	public void setProcessResultCacheTimeToLiveSeconds(int processResultCacheTimeToLiveSeconds) {
+		this.processResultCacheTimeToLiveSeconds = processResultCacheTimeToLiveSeconds;
+	}
+
 	@IbisDoc({"Comma separated list of keys of session variables that should be returned to caller, for correct results as well as for erronous results. (Only for Listeners that support it, like JavaListener)", ""})
 	public void setReturnedSessionKeys(String string) {
 		returnedSessionKeys = string;
@@ -187,6 +187,17 @@ public class CleanupDatabaseJob extends JobDef {
 				}
 			}
 		}
+
+		for (JdbcTransactionalStorage<?> messageLog: getAllPartitionedMessageLogs()) {
+			try {
+				int numberOfPartitionsDropped = messageLog.dropExpiredPartitions(date);
+				log.info("dropped [" + numberOfPartitionsDropped + "] expired partitions of table [" + messageLog.getTableName() + "]");
+			} catch (Exception e) {
+				String msg = "error while dropping expired partitions of table ["+messageLog.getTableName()+"] (as part of scheduled job execution): " + e.getMessage();
+				getMessageKeeper().add(msg, MessageKeeperLevel.ERROR);
+				log.error(getLogPrefix()+msg, e);
+			}
+		}
 	}
 
 	/**
@@ -228,7 +239,7 @@ public class CleanupDatabaseJob extends JobDef {
 	}
 
 	private void collectMessageLogs(List<MessageLogObject> messageLogs, ITransactionalStorage<?> transactionalStorage) {
-		if (transactionalStorage instanceof JdbcTransactionalStorage) {
+		if (transactionalStorage instanceof JdbcTransactionalStorage && ((JdbcTransactionalStorage<?>)transactionalStorage).getPartitionInterval()==null) {
 			JdbcTransactionalStorage<?> messageLog = (JdbcTransactionalStorage<?>)transactionalStorage;
 			String datasourceName = messageLog.getDatasourceName();
 			String expiryDateField = messageLog.getExpiryDateField();
@@ -244,23 +255,44 @@ public class CleanupDatabaseJob extends JobDef {
 
 	protected List<MessageLogObject> getAllMessageLogs() {
 		List<MessageLogObject> messageLogs = new ArrayList<>();
+		for (ITransactionalStorage<?> transactionalStorage : getAllTransactionalStorages()) {
+			collectMessageLogs(messageLogs, transactionalStorage);
+		}
+		return messageLogs;
+	}
+
+	/**
+	 * Locate all messageLogs with a partitioned table, of which expired records are removed by dropping their partitions.
+	 */
+	protected List<JdbcTransactionalStorage<?>> getAllPartitionedMessageLogs() {
+		List<JdbcTransactionalStorage<?>> messageLogs = new ArrayList<>();
+		for (ITransactionalStorage<?> transactionalStorage : getAllTransactionalStorages()) {
+			if (transactionalStorage instanceof JdbcTransactionalStorage && ((JdbcTransactionalStorage<?>)transactionalStorage).getPartitionInterval()!=null) {
+				messageLogs.add((JdbcTransactionalStorage<?>)transactionalStorage);
+			}
+		}
+		return messageLogs;
+	}
+
+	private List<ITransactionalStorage<?>> getAllTransactionalStorages() {
+		List<ITransactionalStorage<?>> transactionalStorages = new ArrayList<>();
 		IbisManager ibisManager = getIbisManager();
 		for (Configuration configuration : ibisManager.getConfigurations()) {
 			for(IAdapter adapter : configuration.getRegisteredAdapters()) {
 				for (Receiver<?> receiver: adapter.getReceivers()) {
-					collectMessageLogs(messageLogs, receiver.getMessageLog());
+					transactionalStorages.add(receiver.getMessageLog());
 				}
 				PipeLine pipeline = adapter.getPipeLine();
 				for (int i=0; i<pipeline.getPipes().size(); i++) {
 					IPipe pipe = pipeline.getPipe(i);
 					if (pipe instanceof MessageSendingPipe) {
 						MessageSendingPipe msp=(MessageSendingPipe)pipe;
-						collectMessageLogs(messageLogs, msp.getMessageLog());
+						transactionalStorages.add(msp.getMessageLog());
 					}
 				}
 			}
 		}
-		return messageLogs;
+		return transactionalStorages;
 	}
 
 	@IbisDoc({"The number of seconds the database driver will wait for a statement to execute. If the limit is exceeded, a TimeoutException is thrown. 0 means no timeout", "0"})
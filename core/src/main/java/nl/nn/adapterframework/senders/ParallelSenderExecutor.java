@@ -15,8 +15,11 @@
 */
 package nl.nn.adapterframework.senders;
 
+import java.util.concurrent.CompletionException;
+
 import org.apache.logging.log4j.Logger;
 
+import nl.nn.adapterframework.core.INonBlockingSender;
 import nl.nn.adapterframework.core.ISender;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.RequestReplyExecutor;
@@ -51,15 +54,48 @@ public class ParallelSenderExecutor extends RequestReplyExecutor {
 
 	@Override
 	public void run() {
+		long t1 = System.currentTimeMillis();
+		try {
+			reply = sender.sendMessage(request,session);
+			reply.getResult().preserve(); // consume the message immediately, to release any resources (like connections) associated with the sender execution
+		} catch (Throwable tr) {
+			throwable = tr;
+			log.warn("SenderExecutor caught exception",tr);
+		}
+		finish(t1);
+	}
+
+	/**
+	 * Starts sending the message with a {@link INonBlockingSender}. The reply is registered by a callback, no thread is occupied
+	 * while waiting for it.
+	 */
+	public void runNonBlocking() {
+		long t1 = System.currentTimeMillis();
+		try {
+			((INonBlockingSender)sender).sendMessageNonBlocking(request, session).whenComplete((result, tr) -> {
+				try {
+					if (tr!=null) {
+						throwable = tr instanceof CompletionException && tr.getCause()!=null ? tr.getCause() : tr;
+						log.warn("SenderExecutor caught exception",throwable);
+					} else {
+						reply = result;
+						reply.getResult().preserve();
+					}
+				} catch (Throwable t) {
+					throwable = t;
+					log.warn("SenderExecutor caught exception",t);
+				}
+				finish(t1);
+			});
+		} catch (Throwable tr) {
+			throwable = tr;
+			log.warn("SenderExecutor caught exception",tr);
+			finish(t1);
+		}
+	}
+
+	private void finish(long t1) {
 		try {
-			long t1 = System.currentTimeMillis();
-			try {
-				reply = sender.sendMessage(request,session);
-				reply.getResult().preserve(); // consume the message immediately, to release any resources (like connections) associated with the sender execution
-			} catch (Throwable tr) {
-				throwable = tr;
-				log.warn("SenderExecutor caught exception",tr);
-			}
 			long t2 = System.currentTimeMillis();
 			sk.addValue(t2-t1);
 		} finally {
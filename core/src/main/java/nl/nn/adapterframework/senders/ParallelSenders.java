@@ -27,6 +27,7 @@ import org.springframework.util.ConcurrencyThrottleSupport;
 import lombok.Getter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.ConfigurationWarnings;
+import nl.nn.adapterframework.core.INonBlockingSender;
 import nl.nn.adapterframework.core.ISender;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.core.SenderException;
@@ -43,6 +44,7 @@ import nl.nn.adapterframework.util.XmlUtils;
 
 /**
  * Collection of Senders, that are executed all at the same time.
+ * Senders that can send without blocking, like HttpSenders with <code>asynchronous=true</code>, do not occupy a thread while waiting for their reply.
  *
  * @author  Gerrit van Brakel
  * @since   4.9
@@ -90,7 +92,11 @@ public class ParallelSenders extends SenderSeries {
 			ParallelSenderExecutor pse = new ParallelSenderExecutor(sender, message, session, guard, getStatisticsKeeper(sender));
 			executorMap.put(sender, pse);
 
-			executor.execute(pse);
+			if (sender instanceof INonBlockingSender && ((INonBlockingSender)sender).isNonBlocking()) {
+				pse.runNonBlocking();
+			} else {
+				executor.execute(pse);
+			}
 		}
 		try {
 			guard.waitForAllResources();
@@ -28,7 +28,7 @@ import nl.nn.adapterframework.statistics.HasStatistics.Action;
  */
 public class CounterStatistic extends ScalarMetricBase<Counter> {
 
-	long mark;
+	volatile long mark;
 
 	public CounterStatistic(int startValue) {
 		mark=startValue;
@@ -47,16 +47,14 @@ public class CounterStatistic extends ScalarMetricBase<Counter> {
 			return;
 		case MARK_FULL:
 		case MARK_MAIN:
-			synchronized (this) {
-				mark=getValue();
-			}
+			mark=getValue();
 			return;
 		default:
 			throw new IllegalArgumentException("unknown Action ["+action+"]");
 		}
 	}
 
-	public synchronized void increase() {
+	public void increase() {
 		meter.increment();
 	}
 
@@ -66,7 +64,7 @@ public class CounterStatistic extends ScalarMetricBase<Counter> {
 		return (long)meter.count();
 	}
 
-	public synchronized long getIntervalValue() {
+	public long getIntervalValue() {
 		return getValue()-mark;
 	}
 
@@ -16,6 +16,8 @@
 package nl.nn.adapterframework.statistics;
 
 import java.text.DecimalFormat;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.distribution.HistogramSnapshot;
@@ -25,6 +27,7 @@ import nl.nn.adapterframework.util.XmlBuilder;
 
 /**
  * Container for basic statistical estimators, based on MicroMeter DistributionSummary.
+ * Values can be added concurrently without locking, the additional estimators are kept in striped accumulators.
  *
  * @author  Gerrit van Brakel
  */
@@ -35,13 +38,13 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 	private @Setter DistributionSummary distributionSummary;
 	private HistogramSnapshot snapshot;
 
-	protected long min = Long.MAX_VALUE;
-	protected long sumOfSquares=0;
+	protected LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+	protected LongAdder sumOfSquares = new LongAdder();
 
 	protected class MicroMeterSnapshot {
 		protected HistogramSnapshot histogramSnapshot;
-		protected long min = Long.MAX_VALUE;
-		protected long max = 0;
+		protected LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+		protected LongAccumulator max = new LongAccumulator(Math::max, 0);
 		protected long sumOfSquares;
 	}
 
@@ -50,7 +53,7 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 	public MicroMeterSnapshot takeSnapshot() {
 		MicroMeterSnapshot result = new MicroMeterSnapshot();
 		result.histogramSnapshot = distributionSummary!=null ? distributionSummary.takeSnapshot() : null;
-		result.sumOfSquares= sumOfSquares;
+		result.sumOfSquares= sumOfSquares.sum();
 		return result;
 	}
 
@@ -65,9 +68,7 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 
 	@Override
 	public void checkMinMax(long value) {
-		if (value < min) {
-			min = value;
-		}
+		min.accumulate(value);
 	}
 
 	@Override
@@ -77,22 +78,18 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 
 	@Override
 	public long getIntervalMin(MicroMeterSnapshot mark) {
-		return mark.min;
+		return mark.min.get();
 	}
 
 	@Override
 	public long getIntervalMax(MicroMeterSnapshot mark) {
-		return mark.max;
+		return mark.max.get();
 	}
 
 	@Override
 	public void updateIntervalMinMax(MicroMeterSnapshot mark, long value) {
-		if (mark.min>value) {
-			mark.min = value;
-		}
-		if (mark.max<value) {
-			mark.max = value;
-		}
+		mark.min.accumulate(value);
+		mark.max.accumulate(value);
 	}
 	@Override
 	public long getIntervalSum(MicroMeterSnapshot mark) {
@@ -121,7 +118,7 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 
 
 	protected void addSums(long value) {
-		sumOfSquares += value * value;
+		sumOfSquares.add(value * value);
 	}
 
 	private double calculateVariance(long count, long sum, long sumOfSquares) {
@@ -198,7 +195,7 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 
 	@Override
 	public long getMin() {
-		return min;
+		return min.get();
 	}
 
 	@Override
@@ -207,14 +204,14 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 	}
 	@Override
 	public long getSumOfSquares() {
-		return sumOfSquares;
+		return sumOfSquares.sum();
 	}
 
 	public long getIntervalSum(MicroMeterBasics mark) {
 		return getSum()-Math.round(mark.snapshot.total());
 	}
 	public long getIntervalSumOfSquares(MicroMeterBasics mark) {
-		return sumOfSquares-mark.getSumOfSquares();
+		return getSumOfSquares()-mark.getSumOfSquares();
 	}
 
 	@Override
@@ -235,14 +232,14 @@ public class MicroMeterBasics implements IBasics<MicroMeterSnapshot> {
 			return Double.NaN;
 		}
 		HistogramSnapshot snapshot = distributionSummary.takeSnapshot();
-		return calculateVariance(snapshot.count(), Math.round(snapshot.total()), sumOfSquares);
+		return calculateVariance(snapshot.count(), Math.round(snapshot.total()), getSumOfSquares());
 	}
 	public double getIntervalVariance(MicroMeterBasics mark) {
 		if (distributionSummary==null) {
 			return Double.NaN;
 		}
 		HistogramSnapshot snapshot = distributionSummary.takeSnapshot();
-		return calculateVariance(snapshot.count()-mark.getCount(), Math.round(snapshot.total())-mark.getSum(), sumOfSquares-mark.getSumOfSquares());
+		return calculateVariance(snapshot.count()-mark.getCount(), Math.round(snapshot.total())-mark.getSum(), getSumOfSquares()-mark.getSumOfSquares());
 	}
 
 	@Override
@@ -15,7 +15,7 @@
 */
 package nl.nn.adapterframework.statistics;
 
-import lombok.Getter;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Counter value that is maintained with statistics.
@@ -25,13 +25,18 @@ import lombok.Getter;
  */
 public class ScalarStatistic extends GaugeBase {
 
-	private @Getter long value;
+	private LongAdder value = new LongAdder();
 
-	public synchronized void increase() {
-		++value;
+	public void increase() {
+		value.increment();
 	}
-	public synchronized void decrease() {
-		--value;
+	public void decrease() {
+		value.decrement();
+	}
+
+	@Override
+	public long getValue() {
+		return value.sum();
 	}
 
 }
@@ -22,6 +22,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -36,18 +38,19 @@ import nl.nn.adapterframework.util.XmlUtils;
 
 /**
  * Keeps statistics (min, max, count etc).
+ * Values can be added concurrently, without a shared monitor, as long as the {@link IBasics} used supports that.
  *
  * @author Johan Verrips / Gerrit van Brakel
  */
 public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 
 	private String name = null;
-	private long first = Long.MIN_VALUE;
-	private long last = 0;
+	private AtomicLong first = new AtomicLong(Long.MIN_VALUE);
+	private volatile long last = 0;
 	private B cumulative;
-	private S mark;
+	private volatile S mark;
 	private long[] classBoundaries;
-	private long[] classCounts;
+	private LongAdder[] classCounts;
 
 	public static final int NUM_STATIC_ITEMS=8;
 	public static final int NUM_INTERVAL_ITEMS=6;
@@ -169,9 +172,10 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 			classBoundariesBuffer.add(new Long(Long.parseLong(boundariesTokenizer.nextToken())));
 		}
 		classBoundaries = new long[classBoundariesBuffer.size()];
-		classCounts = new long[classBoundariesBuffer.size()];
+		classCounts = new LongAdder[classBoundariesBuffer.size()];
 		for (int i = 0; i < classBoundariesBuffer.size(); i++) {
 			classBoundaries[i] = ((Long) classBoundariesBuffer.get(i)).longValue();
+			classCounts[i] = new LongAdder();
 		}
 
 		this.publishPercentiles = publishPercentiles;
@@ -204,8 +208,8 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		if (distributionSummary!=null) {
 			distributionSummary.record(value);
 		}
-		if (first==Long.MIN_VALUE) {
-			first=value;
+		if (first.get()==Long.MIN_VALUE) {
+			first.compareAndSet(Long.MIN_VALUE, value);
 		}
 		last = value;
 		long curMin=cumulative.getMin();
@@ -218,7 +222,7 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 
 		for (int i = 0; i < classBoundaries.length; i++) {
 			if (value < classBoundaries[i]) {
-				classCounts[i]++;
+				classCounts[i].increment();
 			}
 		}
 	}
@@ -228,7 +232,11 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 		return classBoundaries;
 	}
 	public long[] getClassCounts() {
-		return classCounts;
+		long[] result = new long[classCounts.length];
+		for (int i = 0; i < classCounts.length; i++) {
+			result[i] = classCounts[i].sum();
+		}
+		return result;
 	}
 
 	@Override
@@ -324,7 +332,7 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 			case 7: if (getCount() == 0) return null; else return new Long(getLast());
 			default : if ((getCount() == 0)) return null;
 				if ((index-NUM_STATIC_ITEMS) < classBoundaries.length) {
-					return new Double(new Double(classCounts[index-NUM_STATIC_ITEMS]).doubleValue()/getCount());
+					return new Double(new Double(classCounts[index-NUM_STATIC_ITEMS].sum()).doubleValue()/getCount());
 				}
 				if (calculatePercentiles) {
 					return new Double(pest.getPercentileEstimate(index-NUM_STATIC_ITEMS-classBoundaries.length,getCount(),getMin(),getMax()));
@@ -460,7 +468,7 @@ public class StatisticsKeeper<B extends IBasics<S>, S> implements ItemList {
 	}
 
 	public long getFirst() {
-		return first;
+		return first.get();
 	}
 
 	public long getLast() {
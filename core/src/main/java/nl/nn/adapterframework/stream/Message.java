@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
@@ -57,6 +58,7 @@ import lombok.Lombok;
 import nl.nn.adapterframework.core.INamedObject;
 import nl.nn.adapterframework.core.PipeLineSession;
 import nl.nn.adapterframework.functional.ThrowingSupplier;
+import nl.nn.adapterframework.stream.MessageSpillStore.SpillFile;
 import nl.nn.adapterframework.util.ClassUtils;
 import nl.nn.adapterframework.util.LogUtil;
 import nl.nn.adapterframework.util.MessageUtils;
@@ -206,19 +208,31 @@ public class Message implements Serializable {
 		if (request == null) {
 			return;
 		}
+		// the new request is set before the stream is closed, to keep a spilled message scheduled for close on exit of a session
 		if (request instanceof Reader) {
-			log.debug("preserving Reader {} as String", this::getId);
-			request = StreamUtil.readerToString((Reader) request, null);
+			log.debug("preserving Reader {} as String or SpillFile", this::getId);
+			Reader reader = (Reader) request;
+			try {
+				request = MessageSpillStore.getInstance().preserve(reader);
+			} finally {
+				reader.close();
+			}
 			return;
 		}
 		if (request instanceof InputStream) {
-			log.debug("preserving InputStream {} as byte[]", this::getId);
-			request = StreamUtil.streamToByteArray((InputStream) request, false);
+			log.debug("preserving InputStream {} as byte[] or SpillFile", this::getId);
+			InputStream stream = (InputStream) request;
+			try {
+				request = MessageSpillStore.getInstance().preserve(stream);
+			} finally {
+				stream.close();
+			}
 			return;
 		}
 		// if deepPreserve=true, File and URL are also preserved as byte array
 		// otherwise we rely on that File and URL can be repeatedly read
 		if (deepPreserve && !(request instanceof String || request instanceof byte[])) {
+			Object original = request;
 			if (isBinary()) {
 				log.debug("deep preserving {} as byte[]", this::getId);
 				request = asByteArray();
@@ -226,6 +240,9 @@ public class Message implements Serializable {
 				log.debug("deep preserving {} as String", this::getId);
 				request = asString();
 			}
+			if (original instanceof SpillFile) {
+				((SpillFile) original).close();
+			}
 		}
 	}
 
@@ -238,6 +255,9 @@ public class Message implements Serializable {
 	}
 
 	public boolean isBinary() {
+		if (request instanceof SpillFile) {
+			return ((SpillFile) request).getCharset()==null;
+		}
 		return request instanceof InputStream || request instanceof ThrowingSupplier || request instanceof byte[];
 	}
 
@@ -254,6 +274,10 @@ public class Message implements Serializable {
 
 	/*
 	 * provide close(), but do not implement AutoCloseable, to avoid having to enclose all messages in try-with-resource clauses.
+	 *
+	 * Contents preserved in memory remain available after close(). Contents preserved in a spill file by the MessageSpillStore
+	 * are deleted, and no longer available. Messages that must outlive the session they are scheduled to be closed with,
+	 * like returned session keys, are handed over to the session of the caller.
 	 */
 	public void close() throws Exception {
 		try {
@@ -286,18 +310,24 @@ public class Message implements Serializable {
 	}
 
 	public void closeOnCloseOf(PipeLineSession session, String requester) {
-		if (!(request instanceof InputStream || request instanceof Reader) || isScheduledForCloseOnExitOf(session)) {
+		if (!(request instanceof InputStream || request instanceof Reader || request instanceof SpillFile) || isScheduledForCloseOnExitOf(session)) {
 			return;
 		}
 		if (log.isDebugEnabled()) log.debug("registering Message [{}] for close on exit", this);
 		if (request instanceof InputStream) {
 			request = StreamUtil.onClose((InputStream)request, () -> {
+				if (request instanceof SpillFile) {
+					return; // preserved to disk, the file must still be removed on exit
+				}
 				if (log.isDebugEnabled()) log.debug("closed InputStream and unregistering Message [{}] from close on exit", this);
 				unscheduleFromCloseOnExitOf(session);
 			});
 		}
 		if (request instanceof Reader) {
 			request = StreamUtil.onClose((Reader)request, () -> {
+				if (request instanceof SpillFile) {
+					return; // preserved to disk, the file must still be removed on exit
+				}
 				if (log.isDebugEnabled()) log.debug("closed Reader and unregistering Message [{}] from close on exit", this);
 				unscheduleFromCloseOnExitOf(session);
 			});
@@ -335,6 +365,11 @@ public class Message implements Serializable {
 			log.debug("returning Reader {} as Reader", this::getId);
 			return (Reader) request;
 		}
+		if (request instanceof SpillFile && !isBinary()) {
+			log.debug("returning character SpillFile {} as Reader", this::getId);
+			SpillFile spillFile = (SpillFile) request;
+			return new InputStreamReader(spillFile.get(), spillFile.getCharset());
+		}
 		if (isBinary()) {
 			String readerCharset = computeDecodingCharset(defaultDecodingCharset); //Don't overwrite the Message's charset unless it's set to AUTO
 
@@ -377,6 +412,14 @@ public class Message implements Serializable {
 				log.debug("returning InputStream {} as InputStream", this::getId);
 				return (InputStream) request;
 			}
+			if (request instanceof SpillFile && !isBinary()) {
+				SpillFile spillFile = (SpillFile) request;
+				String charset = computeEncodingCharset(defaultEncodingCharset);
+				if (!Charset.forName(charset).equals(Charset.forName(spillFile.getCharset()))) {
+					log.debug("returning character SpillFile {} as InputStream in charset [{}]", this::getId, ()->charset);
+					return new ReaderInputStream(asReader(), charset);
+				}
+			}
 			if (request instanceof ThrowingSupplier) {
 				log.debug("returning InputStream {} from supplier", this::getId);
 				return ((ThrowingSupplier<InputStream,Exception>) request).get();
@@ -448,6 +491,11 @@ public class Message implements Serializable {
 	}
 
 	private byte[] readBytesFromCharacterData(int readLimit) throws IOException {
+		if (request instanceof SpillFile) {
+			try (InputStream stream = asInputStream(StreamUtil.DEFAULT_CHARSET.name())) {
+				return Arrays.copyOf(readBytesFromInputStream(stream, readLimit), readLimit);
+			}
+		}
 		String characterData = asString();
 		byte[] data = characterData.getBytes(StreamUtil.DEFAULT_CHARSET);
 		return Arrays.copyOf(data, readLimit);
@@ -536,6 +584,10 @@ public class Message implements Serializable {
 		if (request instanceof String) {
 			return ((String)request).getBytes(charset);
 		}
+		if (request instanceof SpillFile) {
+			// keep large preserved contents on disk
+			return StreamUtil.streamToByteArray(asInputStream(charset), false);
+		}
 		// save the generated byte array as the request before returning it
 		request = StreamUtil.streamToByteArray(asInputStream(charset), false);
 		return (byte[]) request;
@@ -565,7 +617,7 @@ public class Message implements Serializable {
 
 		// save the generated String as the request before returning it
 		String result = StreamUtil.readerToString(asReader(decodingCharset), null);
-		if(!isBinary() || !isRepeatable()) {
+		if(!(request instanceof SpillFile) && (!isBinary() || !isRepeatable())) { // keep large preserved contents on disk
 			request = result;
 		}
 		return result;
@@ -793,6 +845,9 @@ public class Message implements Serializable {
 		if (request instanceof byte[]) {
 			return ((byte[]) request).length;
 		}
+		if (request instanceof SpillFile) {
+			return ((SpillFile) request).getSize();
+		}
 
 		if(context.containsKey(MessageContext.METADATA_SIZE)) {
 			return (long) context.get(MessageContext.METADATA_SIZE);
@@ -0,0 +1,370 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.Getter;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
+import nl.nn.adapterframework.metrics.TaggedMeterBinder;
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.LogUtil;
+import nl.nn.adapterframework.util.Misc;
+import nl.nn.adapterframework.util.StreamUtil;
+
+/**
+ * Preserves the contents of streaming {@link Message}s, so they can be read more than once.
+ * Contents up to the spill threshold are kept in memory, larger contents are written to a temporary file,
+ * that is deleted when the Message is closed, e.g. at the end of the {@link nl.nn.adapterframework.core.PipeLineSession}
+ * it is {@link Message#closeOnCloseOf(nl.nn.adapterframework.core.PipeLineSession, String) scheduled to be closed with}.
+ * Files of Messages that are never closed are deleted when the Message has been garbage collected.
+ * <p>
+ * Each JVM writes its files in a subdirectory of its own, that it keeps locked as long as it runs, so multiple instances can share
+ * the spill directory. Subdirectories that are no longer locked, left behind by a previous run e.g. after a crash, are deleted
+ * when the spill directory is first used.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class MessageSpillStore implements TaggedMeterBinder {
+	protected static Logger log = LogUtil.getLogger(MessageSpillStore.class);
+
+	public static final String SPILL_THRESHOLD_KEY = "message.preserve.spillThreshold";
+	public static final String SPILL_DIRECTORY_KEY = "message.preserve.spillDirectory";
+	public static final String SPILL_CHARSET = StreamUtil.DEFAULT_INPUT_STREAM_ENCODING;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String FILE_PREFIX = "message";
+	private static final String FILE_SUFFIX = ".spill";
+	private static final String DIRECTORY_PREFIX = "spill-";
+	private static final String LOCK_FILE = "owner.lock";
+	private static final MessageSpillStore INSTANCE = new MessageSpillStore();
+
+	private Long threshold = null;
+	private Path directory = null;
+	private FileChannel directoryLock = null; // kept open, to keep the directory locked as long as this JVM runs
+
+	private final AtomicInteger files = new AtomicInteger();
+	private final AtomicLong bytesOnDisk = new AtomicLong();
+	private final LongAdder bytesSpilled = new LongAdder();
+
+	private final ReferenceQueue<SpillFile> unreachableFiles = new ReferenceQueue<>();
+	private final Set<FileReference> fileReferences = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Repeatable contents of a Message, stored in a temporary file.
+	 */
+	public class SpillFile implements ThrowingSupplier<InputStream,Exception>, AutoCloseable {
+		private final FileReference reference;
+		private final @Getter long size;
+		/** charset of character contents, <code>null</code> for binary contents */
+		private final @Getter String charset;
+
+		private SpillFile(Path file, long size, String charset) {
+			this.size = size;
+			this.charset = charset;
+			reference = new FileReference(this, file, size);
+		}
+
+		@Override
+		public InputStream get() throws IOException {
+			return Files.newInputStream(reference.file);
+		}
+
+		@Override
+		public void close() throws IOException {
+			reference.delete();
+		}
+
+		@Override
+		public String toString() {
+			return "SpillFile ["+reference.file+"] size ["+size+"]";
+		}
+	}
+
+	/**
+	 * Deletes the file of a {@link SpillFile}, on close or after the SpillFile has been garbage collected.
+	 */
+	private class FileReference extends PhantomReference<SpillFile> {
+		private final Path file;
+		private final long size;
+		private volatile boolean deleted = false;
+
+		private FileReference(SpillFile referent, Path file, long size) {
+			super(referent, unreachableFiles);
+			this.file = file;
+			this.size = size;
+			fileReferences.add(this);
+			files.incrementAndGet();
+			bytesOnDisk.addAndGet(size);
+			bytesSpilled.add(size);
+		}
+
+		private synchronized void delete() throws IOException {
+			if (!deleted) {
+				deleted = true;
+				fileReferences.remove(this);
+				files.decrementAndGet();
+				bytesOnDisk.addAndGet(-size);
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	public static MessageSpillStore getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Contents larger than the threshold are spilled to disk. When the threshold is 0 or less, all contents are kept in memory.
+	 */
+	public synchronized long getThreshold() {
+		if (threshold==null) {
+			threshold = Misc.toFileSize(AppConstants.getInstance().getString(SPILL_THRESHOLD_KEY, null), 0);
+		}
+		return threshold;
+	}
+
+	public synchronized void setThreshold(long threshold) {
+		this.threshold = threshold;
+	}
+
+	private synchronized Path getDirectory() throws IOException {
+		if (directory==null) {
+			String configuredDirectory = AppConstants.getInstance().getString(SPILL_DIRECTORY_KEY, null);
+			Path parent = configuredDirectory!=null ? Paths.get(configuredDirectory) : Paths.get(System.getProperty("java.io.tmpdir"));
+			Files.createDirectories(parent);
+			removeDirectoriesOfPreviousRuns(parent);
+			directory = createLockedDirectory(parent);
+			Thread cleaner = new Thread(this::deleteUnreachableFiles, "MessageSpillStore-cleaner");
+			cleaner.setDaemon(true);
+			cleaner.start();
+		}
+		return directory;
+	}
+
+	/**
+	 * Creates the directory for the spill files of this JVM, and locks it.
+	 */
+	private Path createLockedDirectory(Path parent) throws IOException {
+		while (true) {
+			Path path = Files.createTempDirectory(parent, DIRECTORY_PREFIX);
+			FileChannel channel = FileChannel.open(path.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			if (tryLock(channel)) {
+				directoryLock = channel;
+				log.info("storing spill files in [{}]", path);
+				return path;
+			}
+			// another JVM locked the directory first, to remove it as it had no owner yet
+			channel.close();
+		}
+	}
+
+	private boolean tryLock(FileChannel channel) throws IOException {
+		try {
+			return channel.tryLock()!=null;
+		} catch (OverlappingFileLockException e) {
+			// locked by this JVM, e.g. by the spill store of another application
+			return false;
+		}
+	}
+
+	/**
+	 * Removes the subdirectories, and the spill files in them, that are not locked by a running JVM.
+	 */
+	void removeDirectoriesOfPreviousRuns(Path parent) {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, DIRECTORY_PREFIX+"*")) {
+			for (Path path : stream) {
+				if (Files.isDirectory(path)) {
+					removeDirectoryWithoutOwner(path);
+				}
+			}
+		} catch (IOException e) {
+			log.warn("cannot remove spill files of a previous run from [{}]", parent, e);
+		}
+	}
+
+	private void removeDirectoryWithoutOwner(Path path) {
+		Path lockFile = path.resolve(LOCK_FILE);
+		try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			if (!tryLock(channel)) {
+				return;
+			}
+			log.info("removing spill directory [{}] of a previous run", path);
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, FILE_PREFIX+"*"+FILE_SUFFIX)) {
+				for (Path file : stream) {
+					Files.deleteIfExists(file);
+				}
+			}
+		} catch (IOException e) {
+			log.warn("cannot remove spill files of a previous run from [{}]", path, e);
+			return;
+		}
+		try {
+			Files.deleteIfExists(lockFile);
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			log.warn("cannot remove spill directory [{}] of a previous run", path, e);
+		}
+	}
+
+	private void deleteUnreachableFiles() {
+		while (true) {
+			FileReference reference;
+			try {
+				reference = (FileReference) unreachableFiles.remove();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				if (!reference.deleted) {
+					log.warn("removing spill file [{}] of a Message that was not closed", reference.file);
+				}
+				reference.delete();
+			} catch (IOException e) {
+				log.warn("cannot remove spill file [{}]", reference.file, e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the stream, without closing it.
+	 * @return a byte[] with the contents, or a {@link SpillFile} when the contents exceed the threshold.
+	 */
+	public Object preserve(InputStream stream) throws IOException {
+		long limit = getThreshold();
+		if (limit<=0) {
+			return StreamUtil.streamToByteArray(StreamUtil.dontClose(stream), false);
+		}
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] chunk = new byte[BUFFER_SIZE];
+		int len;
+		while ((len=stream.read(chunk))>=0) {
+			buffer.write(chunk, 0, len);
+			if (buffer.size()>limit) {
+				Path file = createFile();
+				try (OutputStream out = Files.newOutputStream(file)) {
+					buffer.writeTo(out);
+					long size = buffer.size();
+					buffer = null; // release memory before copying the remainder
+					while ((len=stream.read(chunk))>=0) {
+						out.write(chunk, 0, len);
+						size += len;
+					}
+					return spilled(file, size, null);
+				} catch (IOException | RuntimeException e) {
+					Files.deleteIfExists(file);
+					throw e;
+				}
+			}
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Reads the reader, without closing it.
+	 * @return a String with the contents, or a {@link SpillFile} with the contents encoded in {@value #SPILL_CHARSET} when they exceed the threshold.
+	 */
+	public Object preserve(Reader reader) throws IOException {
+		long limit = getThreshold();
+		if (limit<=0) {
+			return StreamUtil.readerToString(StreamUtil.dontClose(reader), null);
+		}
+		CharArrayWriter buffer = new CharArrayWriter();
+		char[] chunk = new char[BUFFER_SIZE];
+		int len;
+		while ((len=reader.read(chunk))>=0) {
+			buffer.write(chunk, 0, len);
+			if (buffer.size()>limit) {
+				Path file = createFile();
+				try (Writer out = new OutputStreamWriter(Files.newOutputStream(file), Charset.forName(SPILL_CHARSET))) {
+					buffer.writeTo(out);
+					buffer = null;
+					while ((len=reader.read(chunk))>=0) {
+						out.write(chunk, 0, len);
+					}
+				} catch (IOException | RuntimeException e) {
+					Files.deleteIfExists(file);
+					throw e;
+				}
+				return spilled(file, Files.size(file), SPILL_CHARSET);
+			}
+		}
+		return buffer.toString();
+	}
+
+	private Path createFile() throws IOException {
+		return Files.createTempFile(getDirectory(), FILE_PREFIX, FILE_SUFFIX);
+	}
+
+	private SpillFile spilled(Path file, long size, String charset) {
+		SpillFile result = new SpillFile(file, size, charset);
+		if (log.isDebugEnabled()) log.debug("spilled message contents to "+result);
+		return result;
+	}
+
+	public int getFileCount() {
+		return files.get();
+	}
+
+	public long getBytesOnDisk() {
+		return bytesOnDisk.get();
+	}
+
+	public long getBytesSpilled() {
+		return bytesSpilled.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry, Iterable<Tag> tags) {
+		if (tags==null) {
+			tags = Collections.emptyList();
+		}
+		Gauge.builder("frank.message.spill.files", files, AtomicInteger::get).tags(tags).description("number of preserved messages currently stored on disk").register(registry);
+		Gauge.builder("frank.message.spill.bytes", bytesOnDisk, AtomicLong::get).tags(tags).baseUnit("bytes").description("size of preserved messages currently stored on disk").register(registry);
+		FunctionCounter.builder("frank.message.spill.written", bytesSpilled, LongAdder::sum).tags(tags).baseUnit("bytes").description("total size of preserved messages written to disk").register(registry);
+	}
+}
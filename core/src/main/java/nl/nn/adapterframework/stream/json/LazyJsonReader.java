@@ -0,0 +1,425 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.stream.json;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.logging.log4j.Logger;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonWriter;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParser.Event;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.LogUtil;
+
+/**
+ * Reads JSON into a {@link JsonStructure} tree, in which large arrays are not held in memory.
+ * <p>
+ * The input is read twice: a first streaming pass determines the offsets of the arrays of at least <code>threshold</code> characters,
+ * the second pass builds the tree, skipping these arrays. In the tree they are represented by a {@link JsonArray} that parses its elements
+ * from the input again each time it is iterated, so only the element that is currently processed is held in memory.
+ * Consumers that process the tree in their own order, like the schema guided alignment of {@link nl.nn.adapterframework.align.Json2Xml},
+ * can therefore process JSON documents that contain large arrays with memory proportional to the size of the rest of the document.
+ * </p>
+ * <p>
+ * Random access to deferred arrays, via {@link List#get(int)} and {@link List#size()}, is supported. The first random access parses the array
+ * once to index the offsets of its elements, after which each element is parsed directly from its offset.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class LazyJsonReader {
+	private static Logger log = LogUtil.getLogger(LazyJsonReader.class);
+
+	public static final String LAZY_ARRAYS_THRESHOLD_KEY = "json.lazyArrays.threshold";
+
+	private final ThrowingSupplier<Reader,IOException> source;
+	private final long threshold;
+	private Set<Long> deferredArrays;
+
+	/**
+	 * @param source supplies a new Reader on the same input each time it is called
+	 * @param threshold minimum size in characters of arrays that are not held in memory
+	 */
+	public LazyJsonReader(ThrowingSupplier<Reader,IOException> source, long threshold) {
+		this.source = source;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Reads the message as a JsonStructure. Uses a LazyJsonReader when the message can contain arrays larger than the threshold configured
+	 * by <code>json.lazyArrays.threshold</code>, otherwise the message is read into memory completely.
+	 */
+	public static JsonStructure read(Message message) throws IOException {
+		long threshold = AppConstants.getInstance().getLong(LAZY_ARRAYS_THRESHOLD_KEY, 1000000L);
+		long size = message.size();
+		if (threshold<=0 || (size>=0 && size<threshold)) {
+			try (Reader reader = message.asReader()) {
+				return Json.createReader(reader).read();
+			}
+		}
+		message.preserve();
+		return new LazyJsonReader(message::asReader, threshold).read();
+	}
+
+	public JsonStructure read() throws IOException {
+		deferredArrays = findLargeArrays();
+		if (log.isDebugEnabled()) log.debug("found [{}] arrays of at least [{}] characters that will be read lazily", deferredArrays.size(), threshold);
+		try (JsonParser parser = Json.createParser(source.get())) {
+			if (!parser.hasNext()) {
+				throw new JsonException("Cannot read JSON structure from empty input");
+			}
+			Event event = parser.next();
+			if (event!=Event.START_OBJECT && event!=Event.START_ARRAY) {
+				throw new JsonException("Cannot read JSON structure, input starts with ["+event+"]");
+			}
+			return (JsonStructure)readValue(parser, event, 0);
+		}
+	}
+
+	private Set<Long> findLargeArrays() throws IOException {
+		Set<Long> result = new HashSet<>();
+		Deque<Long> arrayStarts = new ArrayDeque<>();
+		try (JsonParser parser = Json.createParser(source.get())) {
+			while (parser.hasNext()) {
+				switch (parser.next()) {
+				case START_ARRAY:
+					arrayStarts.push(parser.getLocation().getStreamOffset());
+					break;
+				case END_ARRAY:
+					long start = arrayStarts.pop();
+					if (parser.getLocation().getStreamOffset()-start>=threshold) {
+						result.add(start);
+					}
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the value that starts with the current event of the parser. The offsets reported by the parser are relative to <code>baseOffset</code>.
+	 */
+	private JsonValue readValue(JsonParser parser, Event event, long baseOffset) {
+		switch (event) {
+		case START_OBJECT:
+			JsonObjectBuilder objectBuilder = Json.createObjectBuilder();
+			while ((event=parser.next())!=Event.END_OBJECT) {
+				String key = parser.getString();
+				objectBuilder.add(key, readValue(parser, parser.next(), baseOffset));
+			}
+			return objectBuilder.build();
+		case START_ARRAY:
+			long offset = baseOffset+parser.getLocation().getStreamOffset();
+			if (deferredArrays.contains(offset)) {
+				parser.skipArray();
+				return new DeferredJsonArray(offset);
+			}
+			JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+			while ((event=parser.next())!=Event.END_ARRAY) {
+				arrayBuilder.add(readValue(parser, event, baseOffset));
+			}
+			return arrayBuilder.build();
+		default:
+			return parser.getValue();
+		}
+	}
+
+	/**
+	 * Opens the input, positioned at the offset.
+	 */
+	private Reader openAt(long offset) {
+		try {
+			Reader reader = source.get();
+			long skipped = 0;
+			while (skipped<offset) {
+				long n = reader.skip(offset-skipped);
+				if (n<=0) {
+					reader.close();
+					throw new JsonException("Cannot position at offset ["+offset+"] of input to read array");
+				}
+				skipped += n;
+			}
+			return reader;
+		} catch (IOException e) {
+			throw new JsonException("Cannot open input to read array at offset ["+offset+"]", e);
+		}
+	}
+
+	/**
+	 * Reads the array element that follows the offset, skipping the whitespace and separator in front of it.
+	 */
+	private JsonValue readElementAt(long offset) {
+		PushbackReader reader = new PushbackReader(openAt(offset));
+		try {
+			long valueOffset = offset;
+			int c;
+			while ((c=reader.read())>=0 && (c==',' || Character.isWhitespace(c))) {
+				valueOffset++;
+			}
+			if (c>=0) {
+				reader.unread(c);
+			}
+			try (JsonParser parser = Json.createParser(reader)) {
+				return readValue(parser, parser.next(), valueOffset);
+			}
+		} catch (IOException e) {
+			throw new JsonException("Cannot read array element at offset ["+offset+"] of input", e);
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				log.warn("cannot close input", e);
+			}
+		}
+	}
+
+	/**
+	 * Array of which the elements are parsed from the input each time it is iterated.
+	 */
+	private class DeferredJsonArray extends AbstractList<JsonValue> implements JsonArray {
+		private final long offset; // offset of the first character after the opening bracket
+		private long[] elementOffsets; // offsets in the input after the previous element, or after the opening bracket for the first element
+
+		private DeferredJsonArray(long offset) {
+			this.offset = offset;
+		}
+
+		@Override
+		public Iterator<JsonValue> iterator() {
+			return new DeferredJsonArrayIterator(offset);
+		}
+
+		private synchronized long[] getElementOffsets() {
+			if (elementOffsets==null) {
+				long[] offsets = new long[16];
+				int count=0;
+				try (DeferredJsonArrayIterator it = new DeferredJsonArrayIterator(offset)) {
+					while (it.hasNext()) {
+						if (count==offsets.length) {
+							offsets = Arrays.copyOf(offsets, 2*count);
+						}
+						offsets[count++] = it.nextOffset;
+						it.skip();
+					}
+				}
+				elementOffsets = Arrays.copyOf(offsets, count);
+			}
+			return elementOffsets;
+		}
+
+		@Override
+		public int size() {
+			return getElementOffsets().length;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			try (DeferredJsonArrayIterator it = new DeferredJsonArrayIterator(offset)) {
+				return !it.hasNext();
+			}
+		}
+
+		@Override
+		public JsonValue get(int index) {
+			long[] offsets = getElementOffsets();
+			if (index<0 || index>=offsets.length) {
+				throw new IndexOutOfBoundsException("index ["+index+"]");
+			}
+			return readElementAt(offsets[index]);
+		}
+
+		@Override
+		public ValueType getValueType() {
+			return ValueType.ARRAY;
+		}
+
+		@Override
+		public JsonObject getJsonObject(int index) {
+			return (JsonObject)get(index);
+		}
+
+		@Override
+		public JsonArray getJsonArray(int index) {
+			return (JsonArray)get(index);
+		}
+
+		@Override
+		public JsonNumber getJsonNumber(int index) {
+			return (JsonNumber)get(index);
+		}
+
+		@Override
+		public JsonString getJsonString(int index) {
+			return (JsonString)get(index);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T extends JsonValue> List<T> getValuesAs(Class<T> clazz) {
+			return (List<T>)this;
+		}
+
+		@Override
+		public String getString(int index) {
+			return getJsonString(index).getString();
+		}
+
+		@Override
+		public String getString(int index, String defaultValue) {
+			try {
+				return getString(index);
+			} catch (IndexOutOfBoundsException | ClassCastException e) {
+				return defaultValue;
+			}
+		}
+
+		@Override
+		public int getInt(int index) {
+			return getJsonNumber(index).intValue();
+		}
+
+		@Override
+		public int getInt(int index, int defaultValue) {
+			try {
+				return getInt(index);
+			} catch (IndexOutOfBoundsException | ClassCastException e) {
+				return defaultValue;
+			}
+		}
+
+		@Override
+		public boolean getBoolean(int index) {
+			JsonValue value = get(index);
+			if (value==JsonValue.TRUE) {
+				return true;
+			}
+			if (value==JsonValue.FALSE) {
+				return false;
+			}
+			throw new ClassCastException("value at index ["+index+"] is not a boolean but ["+value.getValueType()+"]");
+		}
+
+		@Override
+		public boolean getBoolean(int index, boolean defaultValue) {
+			try {
+				return getBoolean(index);
+			} catch (IndexOutOfBoundsException | ClassCastException e) {
+				return defaultValue;
+			}
+		}
+
+		@Override
+		public boolean isNull(int index) {
+			return get(index)==JsonValue.NULL;
+		}
+
+		@Override
+		public String toString() {
+			StringWriter writer = new StringWriter();
+			try (JsonWriter jsonWriter = Json.createWriter(writer)) {
+				jsonWriter.writeArray(this);
+			}
+			return writer.toString();
+		}
+	}
+
+	private class DeferredJsonArrayIterator implements Iterator<JsonValue>, AutoCloseable {
+		private final long baseOffset;
+		private JsonParser parser;
+		private Event nextEvent;
+		private long nextOffset; // offset in the input after the previous element
+
+		private DeferredJsonArrayIterator(long offset) {
+			// start parsing at the opening bracket
+			baseOffset = offset-1;
+			parser = Json.createParser(openAt(baseOffset));
+			if (parser.next()!=Event.START_ARRAY) {
+				close();
+				throw new JsonException("Expected start of array at offset ["+baseOffset+"] of input");
+			}
+			advance();
+		}
+
+		private void advance() {
+			nextOffset = baseOffset+parser.getLocation().getStreamOffset();
+			nextEvent = parser.next();
+			if (nextEvent==Event.END_ARRAY) {
+				// do not let the parser look beyond the end of the array, the input continues there
+				close();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return parser!=null;
+		}
+
+		@Override
+		public JsonValue next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			JsonValue result = readValue(parser, nextEvent, baseOffset);
+			advance();
+			return result;
+		}
+
+		private void skip() {
+			if (nextEvent==Event.START_OBJECT) {
+				parser.skipObject();
+			} else if (nextEvent==Event.START_ARRAY) {
+				parser.skipArray();
+			}
+			advance();
+		}
+
+		@Override
+		public void close() {
+			if (parser!=null) {
+				parser.close();
+				parser=null;
+			}
+		}
+	}
+}
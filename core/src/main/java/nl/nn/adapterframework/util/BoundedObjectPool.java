@@ -0,0 +1,149 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.BaseObjectPool;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.logging.log4j.Logger;
+
+import lombok.Getter;
+
+/**
+ * Lock free {@link org.apache.commons.pool2.ObjectPool} that keeps strong references to at most <code>maxIdle</code> idle objects.
+ * <p>
+ * Unlike the {@link org.apache.commons.pool2.impl.SoftReferenceObjectPool}, idle objects are not discarded by the garbage collector
+ * under memory pressure, and borrowing and returning objects does not synchronize on the pool. Objects are passivated
+ * by the factory when they are returned, and destroyed when they are returned while the pool already holds <code>maxIdle</code> idle objects.
+ * The number of active objects is not limited, a borrow never waits for another thread to return an object.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class BoundedObjectPool<T> extends BaseObjectPool<T> {
+	protected Logger log = LogUtil.getLogger(this);
+
+	private final PooledObjectFactory<T> factory;
+	private final @Getter int maxIdle;
+
+	private final Queue<PooledObject<T>> idleObjects = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger numIdle = new AtomicInteger();
+	private final AtomicInteger numActive = new AtomicInteger();
+
+	public BoundedObjectPool(PooledObjectFactory<T> factory, int maxIdle) {
+		this.factory = factory;
+		this.maxIdle = maxIdle;
+	}
+
+	@Override
+	public T borrowObject() throws Exception {
+		assertOpen();
+		PooledObject<T> pooledObject = idleObjects.poll();
+		if (pooledObject!=null) {
+			numIdle.decrementAndGet();
+		} else {
+			pooledObject = factory.makeObject();
+		}
+		try {
+			factory.activateObject(pooledObject);
+		} catch (Exception e) {
+			destroy(pooledObject);
+			throw e;
+		}
+		numActive.incrementAndGet();
+		return pooledObject.getObject();
+	}
+
+	@Override
+	public void returnObject(T obj) throws Exception {
+		numActive.decrementAndGet();
+		PooledObject<T> pooledObject = new DefaultPooledObject<>(obj);
+		if (isClosed()) {
+			destroy(pooledObject);
+			return;
+		}
+		try {
+			factory.passivateObject(pooledObject);
+		} catch (Exception e) {
+			log.debug("cannot passivate object, destroying it", e);
+			destroy(pooledObject);
+			return;
+		}
+		if (numIdle.incrementAndGet()>maxIdle) {
+			numIdle.decrementAndGet();
+			destroy(pooledObject);
+			return;
+		}
+		idleObjects.offer(pooledObject);
+	}
+
+	@Override
+	public void invalidateObject(T obj) throws Exception {
+		numActive.decrementAndGet();
+		factory.destroyObject(new DefaultPooledObject<>(obj));
+	}
+
+	@Override
+	public void addObject() throws Exception {
+		assertOpen();
+		PooledObject<T> pooledObject = factory.makeObject();
+		factory.passivateObject(pooledObject);
+		if (numIdle.incrementAndGet()>maxIdle) {
+			numIdle.decrementAndGet();
+			destroy(pooledObject);
+			return;
+		}
+		idleObjects.offer(pooledObject);
+	}
+
+	@Override
+	public int getNumIdle() {
+		return numIdle.get();
+	}
+
+	@Override
+	public int getNumActive() {
+		return numActive.get();
+	}
+
+	@Override
+	public void clear() {
+		PooledObject<T> pooledObject;
+		while ((pooledObject = idleObjects.poll())!=null) {
+			numIdle.decrementAndGet();
+			destroy(pooledObject);
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		clear();
+	}
+
+	private void destroy(PooledObject<T> pooledObject) {
+		try {
+			factory.destroyObject(pooledObject);
+		} catch (Exception e) {
+			log.warn("cannot destroy pooled object", e);
+		}
+	}
+}
@@ -15,38 +15,40 @@
 */
 package nl.nn.adapterframework.util;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Synchronized Counter.
+ * Thread safe Counter, that does not block concurrent updates.
  * 
  * @author Gerrit van Brakel
  */
 public class Counter {
 
-	private long value = 0 ;
+	private final AtomicLong value;
 
 	public Counter(int startValue) {
 		super();
-		value = startValue;
+		value = new AtomicLong(startValue);
 	}
-	public synchronized long decrease() {
-		return --value;
+	public long decrease() {
+		return value.decrementAndGet();
 	}
-	public synchronized long decrease(long amount) {
-		return value-=amount;
+	public long decrease(long amount) {
+		return value.addAndGet(-amount);
 	}
-	public synchronized long increase() {
-		return ++value;
+	public long increase() {
+		return value.incrementAndGet();
 	}
-	public synchronized long increase(long amount) {
-		return value+=amount;
+	public long increase(long amount) {
+		return value.addAndGet(amount);
 	}
-	public synchronized void clear() {
-		value=0;
+	public void clear() {
+		value.set(0);
 	}
-	public synchronized long getValue() {
-		return value;
+	public long getValue() {
+		return value.get();
 	}
-	public synchronized void setValue(long newValue) {
-		value=newValue;
+	public void setValue(long newValue) {
+		value.set(newValue);
 	}
 }
@@ -24,11 +24,20 @@ import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.Setter;
 import nl.nn.adapterframework.configuration.ConfigurationException;
@@ -40,6 +49,7 @@ import nl.nn.adapterframework.doc.IbisDoc;
 import nl.nn.adapterframework.doc.Mandatory;
 import nl.nn.adapterframework.jdbc.JdbcException;
 import nl.nn.adapterframework.jdbc.JdbcFacade;
+import nl.nn.adapterframework.metrics.MetricsRegistry;
 import nl.nn.adapterframework.task.TimeoutGuard;
 import nl.nn.adapterframework.util.MessageKeeper.MessageKeeperLevel;
 
@@ -70,6 +80,11 @@ import nl.nn.adapterframework.util.MessageKeeper.MessageKeeperLevel;
 	COMMIT;
  *  </pre>
  *
+ * When <code>leaseTime</code> is set, a temporary lock is held as a lease: the record in IBISLOCK expires after leaseTime,
+ * and is not removed when the lock is released. As long as the lease is valid, the lock is passed between the threads of this
+ * instance without accessing the database. The lease is renewed in the database when less than half of the leaseTime is left.
+ * Other instances can take over the lock only after the lease has expired.
+ *
  * @author  Peter Leeuwenburgh
  */
 public class Locker extends JdbcFacade implements HasTransactionAttribute {
@@ -82,11 +97,14 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 	private String insertQuery = "INSERT INTO IBISLOCK (objectId, type, host, creationDate, expiryDate) VALUES (?, ?, ?, ?, ?)";
 	private String deleteQuery = "DELETE FROM IBISLOCK WHERE objectId=?";
 	private String selectQuery = "SELECT type, host, creationDate, expiryDate FROM IBISLOCK WHERE objectId=?";
+	private String renewLeaseQuery = "UPDATE IBISLOCK SET expiryDate=? WHERE objectId=? AND host=?";
+	private String deleteExpiredQuery = "DELETE FROM IBISLOCK WHERE objectId=? AND expiryDate<?";
 	private SimpleDateFormat formatter;
 	private @Getter int numRetries = 0;
 	private @Getter int firstDelay = 0;
 	private @Getter int retryDelay = 10000;
 	private @Getter boolean ignoreTableNotExist = false;
+	private @Getter long leaseTime = 0;
 
 	private @Getter @Setter TransactionAttribute transactionAttribute=TransactionAttribute.SUPPORTS;
 	private @Getter @Setter int transactionTimeout = 0;
@@ -94,6 +112,24 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 
 	private @Getter @Setter PlatformTransactionManager txManager;
 	private @Getter TransactionDefinition txDef = null;
+	private @Setter MetricsRegistry metricsRegistry;
+
+	private static final Map<String,Lease> LEASES = new ConcurrentHashMap<>();
+	private final Set<String> leaseKeys = ConcurrentHashMap.newKeySet();
+	private Timer acquireTimer;
+	private Counter contentionCounter;
+	private Counter databaseAccessCounter;
+
+	/**
+	 * Lock held by this instance, shared by all Lockers with the same datasource and objectId.
+	 * The permit is owned by the thread that acquired it, only that thread can release it.
+	 */
+	private static class Lease {
+		private final Semaphore permit = new Semaphore(1, true);
+		private volatile long validUntil = 0;
+		private volatile Thread owner;
+		private volatile boolean removed;
+	}
 
 	public enum LockType {
 		/** Temporary */
@@ -123,6 +159,40 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 				retention = 30;
 			}
 		}
+		if (getLeaseTime()>0 && getType()!=LockType.T) {
+			throw new ConfigurationException(getLogPrefix()+"leaseTime can only be used with locks of type ["+LockType.T+"]");
+		}
+		registerMeters();
+	}
+
+	private void registerMeters() {
+		if (metricsRegistry!=null) {
+			Tags tags = Tags.of("type", "application", "objectId", getObjectId());
+			acquireTimer = Timer.builder("frank.locker.acquire").tags(tags).description("time spent to acquire the lock, including the time waiting for other holders").register(metricsRegistry.getRegistry());
+			contentionCounter = Counter.builder("frank.locker.contention").tags(tags).description("number of times the lock was held by another thread or instance when it was requested").register(metricsRegistry.getRegistry());
+			databaseAccessCounter = Counter.builder("frank.locker.database.access").tags(tags).description("number of times the database was accessed to acquire the lock").register(metricsRegistry.getRegistry());
+		}
+	}
+
+	/**
+	 * Removes the leases of this Locker that are not held by any thread, and the meters of this Locker.
+	 * A lease that is removed is recreated on the next acquire, after the lease has been renewed in the database.
+	 * The meters are registered again when the Locker is used after it has been closed.
+	 */
+	public void close() {
+		for (String leaseKey : leaseKeys) {
+			removeLease(leaseKey);
+		}
+		if (metricsRegistry!=null) {
+			for (Meter meter : new Meter[] { acquireTimer, contentionCounter, databaseAccessCounter }) {
+				if (meter!=null) {
+					metricsRegistry.getRegistry().remove(meter);
+				}
+			}
+		}
+		acquireTimer = null;
+		contentionCounter = null;
+		databaseAccessCounter = null;
 	}
 
 	public String acquire() throws JdbcException, SQLException, InterruptedException {
@@ -137,7 +207,101 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 	 *
 	 */
 	public String acquire(MessageKeeper messageKeeper) throws JdbcException, SQLException, InterruptedException {
+		if (acquireTimer==null) {
+			registerMeters();
+		}
+		long start = System.nanoTime();
+		try {
+			if (getLeaseTime()>0) {
+				return acquireLease(messageKeeper);
+			}
+			return acquireInDatabase(messageKeeper, null);
+		} finally {
+			if (acquireTimer!=null) {
+				acquireTimer.record(System.nanoTime()-start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private String acquireLease(MessageKeeper messageKeeper) throws JdbcException, SQLException, InterruptedException {
+		String objectIdWithSuffix = getObjectIdWithSuffix(new Date());
+		String leaseKey = getLeaseKey(objectIdWithSuffix);
+		if (leaseKeys.add(leaseKey)) {
+			// leases of previous periods of the dateFormatSuffix are no longer used
+			for (String previousLeaseKey : leaseKeys) {
+				if (!previousLeaseKey.equals(leaseKey) && removeLease(previousLeaseKey)) {
+					leaseKeys.remove(previousLeaseKey);
+				}
+			}
+		}
+		long maxWait = getNumRetries()<0 ? Long.MAX_VALUE : getFirstDelay() + (long)getNumRetries()*getRetryDelay();
+		long waitUntil = maxWait==Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + maxWait;
+		Lease lease;
+		while (true) {
+			lease = LEASES.computeIfAbsent(leaseKey, k -> new Lease());
+			if (!lease.permit.tryAcquire()) {
+				increment(contentionCounter);
+				long wait = waitUntil==Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0, waitUntil - System.currentTimeMillis());
+				if (!lease.permit.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+					String msg = "could not obtain lock ["+objectIdWithSuffix+"], it is held by another thread";
+					if (messageKeeper != null) {
+						messageKeeper.add(msg, MessageKeeperLevel.INFO);
+					}
+					log.info(getLogPrefix()+msg);
+					return null;
+				}
+			}
+			if (!lease.removed) {
+				break;
+			}
+			// the lease was removed while waiting for it, continue with its replacement
+			lease.permit.release();
+		}
+		lease.owner = Thread.currentThread();
+		boolean obtained = false;
+		try {
+			if (lease.validUntil - getLeaseTime()/2 > System.currentTimeMillis()) {
+				if (log.isDebugEnabled()) log.debug(getLogPrefix()+"lock ["+objectIdWithSuffix+"] obtained using lease valid until ["+DateUtils.format(lease.validUntil)+"]");
+				obtained = true;
+				return objectIdWithSuffix;
+			}
+			lease.validUntil = 0;
+			long validUntil = System.currentTimeMillis() + getLeaseTime();
+			String result = acquireInDatabase(messageKeeper, objectIdWithSuffix);
+			if (result!=null && !LOCK_IGNORED.equals(result)) {
+				lease.validUntil = validUntil;
+				obtained = true;
+			}
+			return result;
+		} finally {
+			if (!obtained) {
+				lease.owner = null;
+				lease.permit.release();
+			}
+		}
+	}
+
+	/**
+	 * Removes the lease from {@link #LEASES} if it is not held by any thread. Threads waiting for the removed lease
+	 * continue with a new one.
+	 * @return <code>true</code> if the lease is no longer present
+	 */
+	private boolean removeLease(String leaseKey) {
+		Lease lease = LEASES.get(leaseKey);
+		if (lease==null) {
+			return true;
+		}
+		if (!lease.permit.tryAcquire()) {
+			return false;
+		}
+		lease.removed = true;
+		LEASES.remove(leaseKey, lease);
+		lease.permit.release();
+		return true;
+	}
 
+	private String acquireInDatabase(MessageKeeper messageKeeper, String leaseObjectIdWithSuffix) throws JdbcException, SQLException, InterruptedException {
+		increment(databaseAccessCounter);
 		try (Connection conn = getConnection()) {
 			if (!getDbmsSupport().isTablePresent(conn, "IBISLOCK")) {
 				if (isIgnoreTableNotExist()) {
@@ -161,28 +325,33 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 			IbisTransaction itx = IbisTransaction.getTransaction(getTxManager(), getTxDef(), "locker ["+getName()+"]");
 			try {
 				Date date = new Date();
-				objectIdWithSuffix = getObjectId();
-				if (StringUtils.isNotEmpty(getDateFormatSuffix())) {
-					String formattedDate = formatter.format(date);
-					objectIdWithSuffix = objectIdWithSuffix.concat(formattedDate);
+				objectIdWithSuffix = leaseObjectIdWithSuffix!=null ? leaseObjectIdWithSuffix : getObjectIdWithSuffix(date);
+				Timestamp expiryDate;
+				if (leaseObjectIdWithSuffix!=null) {
+					expiryDate = new Timestamp(date.getTime() + getLeaseTime());
+				} else {
+					Calendar cal = Calendar.getInstance();
+					cal.setTime(date);
+					if (getType()==LockType.T) {
+						cal.add(Calendar.HOUR_OF_DAY, getRetention());
+					} else {
+						cal.add(Calendar.DAY_OF_MONTH, getRetention());
+					}
+					expiryDate = new Timestamp(cal.getTime().getTime());
 				}
 
 				boolean timeout = false;
 				log.debug("preparing to set lock [" + objectIdWithSuffix + "]");
 				try (Connection conn = getConnection(); PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+					if (leaseObjectIdWithSuffix!=null && renewOrRemoveExpiredLease(conn, objectIdWithSuffix, date, expiryDate)) {
+						return objectIdWithSuffix;
+					}
 					stmt.clearParameters();
 					stmt.setString(1,objectIdWithSuffix);
 					stmt.setString(2,getType().name());
 					stmt.setString(3,Misc.getHostname());
 					stmt.setTimestamp(4, new Timestamp(date.getTime()));
-					Calendar cal = Calendar.getInstance();
-					cal.setTime(date);
-					if (getType()==LockType.T) {
-						cal.add(Calendar.HOUR_OF_DAY, getRetention());
-					} else {
-						cal.add(Calendar.DAY_OF_MONTH, getRetention());
-					}
-					stmt.setTimestamp(5, new Timestamp(cal.getTime().getTime()));
+					stmt.setTimestamp(5, expiryDate);
 					TimeoutGuard timeoutGuard = null;
 					if (lockWaitTimeout > 0) {
 						timeoutGuard = new TimeoutGuard(lockWaitTimeout, "lockWaitTimeout") {
@@ -222,6 +391,7 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 						log.debug(getLogPrefix()+"will not try again");
 
 						if (timeout || e instanceof SQLTimeoutException || e instanceof SQLException && getDbmsSupport().isConstraintViolation((SQLException)e)) {
+							increment(contentionCounter);
 							String msg = "could not obtain lock "+getLockerInfo(objectIdWithSuffix)+" ("+e.getClass().getTypeName()+"): " + e.getMessage();
 							if(messageKeeper != null) {
 								messageKeeper.add(msg, MessageKeeperLevel.INFO);
@@ -242,9 +412,42 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 		return objectIdWithSuffix;
 	}
 
+	/**
+	 * Renews the lease if it is held by this host, otherwise removes the lease of another host if it has expired.
+	 * @return <code>true</code> if the lease was renewed
+	 */
+	private boolean renewOrRemoveExpiredLease(Connection conn, String objectIdWithSuffix, Date date, Timestamp expiryDate) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(renewLeaseQuery)) {
+			stmt.setTimestamp(1, expiryDate);
+			stmt.setString(2, objectIdWithSuffix);
+			stmt.setString(3, Misc.getHostname());
+			if (stmt.executeUpdate()>0) {
+				log.debug("lease ["+objectIdWithSuffix+"] renewed until ["+DateUtils.format(expiryDate)+"]");
+				return true;
+			}
+		}
+		try (PreparedStatement stmt = conn.prepareStatement(deleteExpiredQuery)) {
+			stmt.setString(1, objectIdWithSuffix);
+			stmt.setTimestamp(2, new Timestamp(date.getTime()));
+			if (stmt.executeUpdate()>0) {
+				log.info("removed expired lease ["+objectIdWithSuffix+"]");
+			}
+		}
+		return false;
+	}
+
 	public void release(String objectIdWithSuffix) throws JdbcException, SQLException {
 		if (LOCK_IGNORED.equals(objectIdWithSuffix)) {
 			log.info("lock not set, ignoring unlock");
+		} else if (getLeaseTime()>0) {
+			Lease lease = LEASES.get(getLeaseKey(objectIdWithSuffix));
+			if (lease==null || lease.owner!=Thread.currentThread()) {
+				log.warn(getLogPrefix()+"lock ["+objectIdWithSuffix+"] is not held by this thread, ignoring release");
+			} else {
+				log.debug("releasing lock ["+objectIdWithSuffix+"], keeping lease until ["+DateUtils.format(lease.validUntil)+"]");
+				lease.owner = null;
+				lease.permit.release();
+			}
 		} else {
 			if (getType()==LockType.T) {
 				log.debug("preparing to remove lock [" + objectIdWithSuffix + "]");
@@ -289,6 +492,23 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 		}
 	}
 
+	private String getObjectIdWithSuffix(Date date) {
+		if (StringUtils.isNotEmpty(getDateFormatSuffix())) {
+			return getObjectId().concat(formatter.format(date));
+		}
+		return getObjectId();
+	}
+
+	private String getLeaseKey(String objectIdWithSuffix) {
+		return getDatasourceName()+"/"+objectIdWithSuffix;
+	}
+
+	private void increment(Counter counter) {
+		if (counter!=null) {
+			counter.increment();
+		}
+	}
+
 	@Override
 	protected String getLogPrefix() {
 		return getName()+" ";
@@ -346,4 +566,9 @@ public class Locker extends JdbcFacade implements HasTransactionAttribute {
 		ignoreTableNotExist = b;
 	}
 
+	@IbisDoc({"If > 0: The time in ms that a lock of type T is held as a lease. While the lease is valid, the lock is passed between threads of this instance without accessing the database, and other instances cannot obtain it. Must be longer than the time the lock is held", "0"})
+	public void setLeaseTime(long leaseTime) {
+		this.leaseTime = leaseTime;
+	}
+
 }
\ No newline at end of file
@@ -842,6 +842,10 @@ public class Misc {
 			while (st.hasMoreTokens()) {
 				String key=st.nextToken();
 				Object value=from.get(key);
+				if (from instanceof PipeLineSession && value instanceof Message) {
+					// the value is closed with the session it is copied to, not with the session it is copied from
+					((PipeLineSession)from).unscheduleCloseOnSessionExit((Message)value);
+				}
 				Message.asMessage(value).closeOnCloseOf(to, requester);
 				to.put(key,value);
 			}
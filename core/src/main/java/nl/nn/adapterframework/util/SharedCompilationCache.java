@@ -0,0 +1,365 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.util;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Logger;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import nl.nn.adapterframework.metrics.TaggedMeterBinder;
+
+/**
+ * Base class of process wide registries of compiled artifacts, like stylesheets and schemas, that can be shared by all
+ * components that compile the same source.
+ * <p>
+ * Each artifact is compiled once, by the first caller that requests it, while concurrent callers of the same key wait for the result.
+ * Warnings reported while compiling are stored with the artifact and replayed to every subsequent caller, so each component reports
+ * the configuration problems of its source.
+ * </p><p>
+ * Artifacts are either reference counted, and removed when the last reference is released, or held by soft references, so they can
+ * be removed by the garbage collector when memory is low. Artifacts compiled in the scope of a ClassLoader, and the references
+ * registered on behalf of a ClassLoader, are removed by {@link #removeAll(ClassLoader)} when the ClassLoader is destroyed.
+ * </p>
+ *
+ * @param <K> type of the key
+ * @param <V> type of the compiled artifact
+ * @param <W> type of the warnings reported while compiling
+ *
+ * @since 7.9
+ */
+public abstract class SharedCompilationCache<K extends SharedCompilationCache.Key, V, W> implements TaggedMeterBinder {
+	protected Logger log = LogUtil.getLogger(this);
+
+	private final String enabledKey;
+	private final boolean referenceCounted;
+	private final String meterPrefix;
+	private final String description;
+
+	private final Map<K, Entry<V,W>> entries = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder compileTime = new LongAdder();
+
+	private Boolean enabled = null;
+
+	@FunctionalInterface
+	public interface Compiler<V, W, X extends Exception> {
+		/**
+		 * Compiles the artifact, adding the warnings that are to be replayed to subsequent callers to the list.
+		 */
+		V compile(List<W> warnings) throws X;
+	}
+
+	@FunctionalInterface
+	public interface WarningHandler<W, X extends Exception> {
+		void warning(W warning) throws X;
+	}
+
+	/**
+	 * @param enabledKey property that enables or disables sharing
+	 * @param referenceCounted when <code>true</code> artifacts are held until their last reference is released, otherwise they are held by soft references
+	 * @param meterPrefix prefix of the names of the meters of the cache
+	 * @param description description of the artifacts, used in the descriptions of the meters
+	 */
+	protected SharedCompilationCache(String enabledKey, boolean referenceCounted, String meterPrefix, String description) {
+		this.enabledKey = enabledKey;
+		this.referenceCounted = referenceCounted;
+		this.meterPrefix = meterPrefix;
+		this.description = description;
+	}
+
+	public synchronized boolean isEnabled() {
+		if (enabled==null) {
+			enabled = AppConstants.getInstance().getBoolean(enabledKey, true);
+		}
+		return enabled;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns the artifact registered for the key, compiling it using the compiler if it is not present (anymore).
+	 * Warnings recorded by the compiler are passed to the warningHandler of this and all subsequent callers.
+	 * For reference counted caches, each call must be balanced by a call to {@link #release(Key, ClassLoader)} with the same owner.
+	 */
+	protected <X extends Exception> V get(K key, ClassLoader owner, Compiler<V,W,X> compiler, WarningHandler<W,X> warningHandler) throws X {
+		while (true) {
+			// the reference is added atomically with the lookup, so the entry cannot be removed before it is used
+			Entry<V,W> entry = entries.compute(key, (k, e) -> {
+				Entry<V,W> result = e!=null ? e : new Entry<>(referenceCounted);
+				if (referenceCounted) {
+					result.addReference(owner);
+				}
+				return result;
+			});
+			synchronized (entry) {
+				if (entry.removed) {
+					// entry was removed concurrently, retry with a fresh one
+					continue;
+				}
+				boolean success = false;
+				try {
+					V value = entry.getValue();
+					if (value!=null) {
+						hits.increment();
+						replayWarnings(entry, warningHandler);
+					} else {
+						misses.increment();
+						List<W> warnings = new ArrayList<>();
+						long start = System.nanoTime();
+						try {
+							value = compiler.compile(warnings);
+						} finally {
+							compileTime.add(System.nanoTime()-start);
+						}
+						entry.setValue(value, warnings);
+						if (log.isDebugEnabled()) log.debug("compiled "+description+" for key ["+key+"] in ["+TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start)+"] ms");
+					}
+					success = true;
+					return value;
+				} finally {
+					if (!success) {
+						discard(key, owner, entry);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the artifact registered for the key, or <code>null</code> if it is not present (anymore), replaying its warnings to the warningHandler.
+	 * No reference is registered, so this method is only to be used for caches that are not reference counted.
+	 */
+	protected <X extends Exception> V getIfPresent(K key, WarningHandler<W,X> warningHandler) throws X {
+		Entry<V,W> entry = entries.get(key);
+		if (entry==null) {
+			return null;
+		}
+		synchronized (entry) {
+			V value = entry.removed ? null : entry.getValue();
+			if (value!=null) {
+				hits.increment();
+				replayWarnings(entry, warningHandler);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Registers the artifact of key <code>from</code> under key <code>to</code> instead, unless an artifact is already registered for <code>to</code>.
+	 * Only to be used for caches that are not reference counted.
+	 */
+	protected void move(K from, K to) {
+		Entry<V,W> entry = entries.get(from);
+		if (entry==null) {
+			return;
+		}
+		synchronized (entry) {
+			if (!entry.removed && entry.getValue()!=null) {
+				entries.putIfAbsent(to, entry);
+				entries.remove(from, entry);
+				if (log.isDebugEnabled()) log.debug("registered "+description+" of key ["+from+"] under key ["+to+"]");
+			}
+		}
+	}
+
+	private <X extends Exception> void replayWarnings(Entry<V,W> entry, WarningHandler<W,X> warningHandler) throws X {
+		if (warningHandler!=null) {
+			for (W warning:entry.warnings) {
+				warningHandler.warning(warning);
+			}
+		}
+	}
+
+	private void discard(K key, ClassLoader owner, Entry<V,W> entry) {
+		if (referenceCounted) {
+			release(key, owner);
+		} else if (entry.getValue()==null) {
+			entry.removed = true;
+			entries.remove(key, entry);
+		}
+	}
+
+	/**
+	 * Releases a reference acquired by {@link #get(Key, ClassLoader, Compiler, WarningHandler)}. When the last reference is released, the artifact is removed.
+	 */
+	public void release(K key, ClassLoader owner) {
+		entries.computeIfPresent(key, (k, e) -> {
+			e.removeReference(owner);
+			if (e.isUnreferenced()) {
+				e.removed = true;
+				if (log.isDebugEnabled()) log.debug("removed "+description+" for key ["+key+"]");
+				return null;
+			}
+			return e;
+		});
+	}
+
+	/**
+	 * Removes all artifacts compiled in the scope of the specified ClassLoader, and drops all references registered on its behalf.
+	 */
+	public void removeAll(ClassLoader classLoader) {
+		for (K key:entries.keySet()) {
+			entries.computeIfPresent(key, (k, e) -> {
+				if (k.getClassLoader()!=classLoader) {
+					e.removeAllReferences(classLoader);
+					if (!referenceCounted || !e.isUnreferenced()) {
+						return e;
+					}
+				}
+				e.removed = true;
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Number of artifacts in the cache. For caches that are not reference counted, this includes artifacts that have been removed
+	 * by the garbage collector but have not been requested since.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Total time in nanoseconds spent compiling.
+	 */
+	public long getCompileTimeNanos() {
+		return compileTime.sum();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry, Iterable<Tag> tags) {
+		if (tags==null) {
+			tags = Collections.emptyList();
+		}
+		Gauge.builder(meterPrefix+".size", this, SharedCompilationCache::size).tags(tags).description("number of "+description+" in the cache").register(registry);
+		FunctionCounter.builder(meterPrefix+".hits", this, SharedCompilationCache::getHits).tags(tags).description("number of times "+description+" were reused").register(registry);
+		FunctionCounter.builder(meterPrefix+".misses", this, SharedCompilationCache::getMisses).tags(tags).description("number of times "+description+" had to be compiled").register(registry);
+		FunctionTimer.builder(meterPrefix+".compile", this, SharedCompilationCache::getMisses, SharedCompilationCache::getCompileTimeNanos, TimeUnit.NANOSECONDS).tags(tags).description("time spent compiling "+description).register(registry);
+	}
+
+	/**
+	 * Entry of the cache. Its references are only modified inside a compute of the entries map, its value while it is locked.
+	 */
+	private static class Entry<V,W> {
+		private final boolean strong;
+		private V value;
+		private SoftReference<V> softValue;
+		private List<W> warnings = Collections.emptyList();
+		private final Map<ClassLoader, Integer> references = new HashMap<>();
+		private volatile boolean removed;
+
+		Entry(boolean strong) {
+			this.strong = strong;
+		}
+
+		V getValue() {
+			if (strong) {
+				return value;
+			}
+			return softValue!=null ? softValue.get() : null;
+		}
+
+		void setValue(V value, List<W> warnings) {
+			if (strong) {
+				this.value = value;
+			} else {
+				this.softValue = new SoftReference<>(value);
+			}
+			this.warnings = warnings;
+		}
+
+		void addReference(ClassLoader owner) {
+			references.merge(owner, 1, Integer::sum);
+		}
+
+		void removeReference(ClassLoader owner) {
+			references.computeIfPresent(owner, (o, count) -> count>1 ? count-1 : null);
+		}
+
+		void removeAllReferences(ClassLoader owner) {
+			references.remove(owner);
+		}
+
+		boolean isUnreferenced() {
+			return references.isEmpty();
+		}
+	}
+
+	/**
+	 * Identifies compiled artifacts. The ClassLoader, that determines how references outside of the source are resolved, is compared by identity.
+	 * A key without a ClassLoader identifies an artifact that does not depend on any ClassLoader.
+	 */
+	public abstract static class Key {
+		private final ClassLoader classLoader;
+
+		protected Key(ClassLoader classLoader) {
+			this.classLoader = classLoader;
+		}
+
+		public ClassLoader getClassLoader() {
+			return classLoader;
+		}
+
+		/**
+		 * Properties, other than the ClassLoader, that identify the artifact.
+		 */
+		protected abstract Object[] getProperties();
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj==null || obj.getClass()!=getClass()) {
+				return false;
+			}
+			Key other = (Key)obj;
+			return classLoader==other.classLoader && Arrays.equals(getProperties(), other.getProperties());
+		}
+
+		@Override
+		public int hashCode() {
+			return 31*Arrays.hashCode(getProperties()) + System.identityHashCode(classLoader);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+
+import lombok.Getter;
+import nl.nn.adapterframework.configuration.classloaders.IConfigurationClassLoader;
+
+/**
+ * Process wide registry of compiled {@link Templates}, shared by all {@link TransformerPool}s that compile
+ * the same stylesheet content with the same systemId, xsltVersion and configuration ClassLoader.
+ * <p>
+ * Entries are reference counted: each TransformerPool acquires its Templates when it is created and releases
+ * them when it is closed. When the last reference is released the Templates are removed from the registry.
+ * References are registered on behalf of the configuration that creates the TransformerPool. When the configuration
+ * is closed, or its ClassLoader is destroyed, its references are dropped, so TransformerPools that are never closed
+ * do not keep their Templates in the registry after the configuration is gone.
+ */
+public class TemplatesCache extends SharedCompilationCache<TemplatesCache.Key, Templates, TransformerException> {
+
+	public static final String SHARED_TEMPLATES_ENABLED_KEY = "transformerPool.sharedTemplates.enabled";
+
+	private static final TemplatesCache INSTANCE = new TemplatesCache();
+
+	@FunctionalInterface
+	public interface TemplatesCompiler {
+		Templates compile() throws TransformerConfigurationException;
+	}
+
+	private TemplatesCache() {
+		super(SHARED_TEMPLATES_ENABLED_KEY, true, "frank.transformerpool.templates", "compiled stylesheets");
+	}
+
+	public static TemplatesCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the ClassLoader of the configuration on whose behalf templates are acquired by the current thread:
+	 * the thread context ClassLoader while a configuration is being loaded, or <code>null</code> outside the scope of a configuration.
+	 */
+	public static ClassLoader getCurrentOwner() {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader instanceof IConfigurationClassLoader ? classLoader : null;
+	}
+
+	/**
+	 * Returns the Templates registered for the key, compiling them using the compiler if they are not present yet.
+	 * Warnings that were reported to the errorListener while compiling are reported to the errorListener of
+	 * subsequent callers too, so every TransformerPool logs the configuration problems of its stylesheet.
+	 * Each call must be balanced by a call to {@link #release(SharedCompilationCache.Key, ClassLoader)} with the same owner.
+	 */
+	public Templates acquire(Key key, ClassLoader owner, TemplatesCompiler compiler, TransformerErrorListener errorListener) throws TransformerConfigurationException {
+		return get(key, owner, warnings -> {
+			Templates templates = compiler.compile();
+			if (errorListener!=null) {
+				warnings.addAll(errorListener.getWarnings());
+			}
+			return templates;
+		}, errorListener==null ? null : warning -> {
+			try {
+				errorListener.warning(warning);
+			} catch (TransformerException e) {
+				throw new TransformerConfigurationException(e);
+			}
+		});
+	}
+
+	public static Key getKey(String content, String systemId, int xsltVersion, ClassLoader classLoader) {
+		return getKey(content.getBytes(StandardCharsets.UTF_8), systemId, xsltVersion, classLoader);
+	}
+
+	public static Key getKey(byte[] content, String systemId, int xsltVersion, ClassLoader classLoader) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return new Key(Misc.asHex(digest.digest(content)), systemId, xsltVersion, classLoader);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("cannot compute hash of stylesheet", e);
+		}
+	}
+
+	/**
+	 * Identifies compiled Templates. ClassLoaders are compared by identity, as they determine how includes and imports are resolved.
+	 */
+	public static class Key extends SharedCompilationCache.Key {
+		private final @Getter String contentHash;
+		private final String systemId;
+		private final int xsltVersion;
+
+		private Key(String contentHash, String systemId, int xsltVersion, ClassLoader classLoader) {
+			super(classLoader);
+			this.contentHash = contentHash;
+			this.systemId = systemId;
+			this.xsltVersion = xsltVersion;
+		}
+
+		public Key withXsltVersion(int xsltVersion) {
+			return new Key(contentHash, systemId, xsltVersion, getClassLoader());
+		}
+
+		@Override
+		protected Object[] getProperties() {
+			return new Object[] { contentHash, systemId, xsltVersion };
+		}
+
+		@Override
+		public String toString() {
+			return "hash ["+contentHash+"] systemId ["+systemId+"] xsltVersion ["+xsltVersion+"] classLoader ["+getClassLoader()+"]";
+		}
+	}
+}
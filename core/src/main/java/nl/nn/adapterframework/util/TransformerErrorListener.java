@@ -16,6 +16,9 @@
 package nl.nn.adapterframework.util;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.TransformerException;
@@ -34,6 +37,7 @@ public class TransformerErrorListener implements ErrorListener {
 	private boolean throwException;
 	private TransformerException fatalTransformerException;
 	private IOException fatalIOException;
+	private List<TransformerException> warnings;
 
 	public TransformerErrorListener() {
 		this(true);
@@ -62,6 +66,9 @@ public class TransformerErrorListener implements ErrorListener {
 
 	@Override
 	public void warning(TransformerException transformerException) throws TransformerException {
+		if (warnings!=null) {
+			warnings.add(transformerException);
+		}
 		log.warn("Nonfatal transformation warning: " + transformerException.getMessageAndLocation());
 	}
 
@@ -82,6 +89,16 @@ public class TransformerErrorListener implements ErrorListener {
 		return fatalIOException;
 	}
 
+	/**
+	 * Keep the warnings reported to this listener, e.g. to be able to report them again when compiled stylesheets are reused.
+	 */
+	public void setRecordWarnings(boolean recordWarnings) {
+		warnings = recordWarnings ? new ArrayList<>() : null;
+	}
+	public List<TransformerException> getWarnings() {
+		return warnings!=null ? warnings : Collections.emptyList();
+	}
+
 //	@Override
 //	public void error(SAXParseException e) throws SAXException {
 //		log.error("SAX error",e);
@@ -15,6 +15,7 @@
 */
 package nl.nn.adapterframework.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.Map;
@@ -41,6 +42,7 @@ import org.apache.commons.pool2.impl.SoftReferenceObjectPool;
 import org.apache.logging.log4j.Logger;
 import org.w3c.dom.Document;
 import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import lombok.Getter;
@@ -49,6 +51,7 @@ import nl.nn.adapterframework.configuration.ConfigurationWarnings;
 import nl.nn.adapterframework.core.IConfigurationAware;
 import nl.nn.adapterframework.core.IScopeProvider;
 import nl.nn.adapterframework.core.Resource;
+import nl.nn.adapterframework.functional.ThrowingSupplier;
 import nl.nn.adapterframework.parameters.ParameterList;
 import nl.nn.adapterframework.parameters.ParameterValueList;
 import nl.nn.adapterframework.stream.Message;
@@ -70,7 +73,12 @@ public class TransformerPool {
 	private TransformerErrorListener factoryErrorListener;
 
 	private Templates templates;
+	private TemplatesCache.Key templatesKey;
+	private ClassLoader templatesOwner;
+	private boolean templatesAcquired=false;
 	private Resource reloadResource=null;
+	private ThrowingSupplier<Source,TransformerConfigurationException> stylesheet;
+	private String stylesheetSysId;
 	private @Getter int xsltVersion;
 
 	private Source configSource;
@@ -79,6 +87,17 @@ public class TransformerPool {
 	private URIResolver classLoaderURIResolver;
 
 	private ObjectPool<Transformer> pool;
+	private final @Getter TransformerPoolStatistics statistics = new TransformerPoolStatistics();
+
+	public static final String POOL_STRATEGY_KEY = "transformerPool.strategy";
+	public static final String POOL_MAX_IDLE_KEY = "transformerPool.maxIdle";
+
+	public enum PoolStrategy {
+		/** Idle transformers are kept using soft references, and can be removed by the garbage collector when memory is low */
+		SOFT_REFERENCE,
+		/** Up to <code>transformerPool.maxIdle</code> idle transformers are kept using strong references, in a lock free pool */
+		BOUNDED
+	}
 
 	public enum OutputType {
 		TEXT,
@@ -89,7 +108,7 @@ public class TransformerPool {
 		}
 	}
 
-	private TransformerPool(Source source, String sysId, int xsltVersion, Source configSource, IScopeProvider scopeProvider) throws TransformerConfigurationException {
+	private TransformerPool(Source source, String sysId, int xsltVersion, Source configSource, IScopeProvider scopeProvider, TemplatesCache.Key templatesKey) throws TransformerConfigurationException {
 		super();
 		this.configSource=configSource;
 		try {
@@ -106,6 +125,7 @@ public class TransformerPool {
 		}
 		this.xsltVersion=xsltVersion;
 		factoryErrorListener = new TransformerErrorListener();
+		factoryErrorListener.setRecordWarnings(true);
 		tFactory = XmlUtils.getTransformerFactory(xsltVersion, factoryErrorListener);
 		if(scopeProvider != null) {
 			classLoaderURIResolver = new ClassLoaderURIResolver(scopeProvider);
@@ -115,7 +135,14 @@ public class TransformerPool {
 			classLoaderURIResolver = new NonResolvingURIResolver();
 			tFactory.setURIResolver(classLoaderURIResolver);
 		}
-		initTransformerPool(source, sysId);
+		if (templatesKey!=null && TemplatesCache.getInstance().isEnabled()) {
+			this.templatesKey = templatesKey.withXsltVersion(xsltVersion);
+			templatesOwner = TemplatesCache.getCurrentOwner();
+			templates = TemplatesCache.getInstance().acquire(this.templatesKey, templatesOwner, () -> compileTemplates(source, sysId), factoryErrorListener);
+			templatesAcquired = true;
+		} else {
+			initTransformerPool(source, sysId);
+		}
 
 		open();
 		// check if a transformer can be initiated
@@ -125,7 +152,19 @@ public class TransformerPool {
 	}
 
 	private TransformerPool(Resource resource, int xsltVersion) throws TransformerConfigurationException, IOException, SAXException {
-		this(resource.asSource(),resource.getSystemId(),xsltVersion,resource.asSource(), resource);
+		this(resource, Misc.streamToBytes(resource.openStream()), xsltVersion);
+	}
+
+	private TransformerPool(Resource resource, byte[] xslt, int xsltVersion) throws TransformerConfigurationException, IOException, SAXException {
+		this(asSource(resource, xslt), resource.getSystemId(), xsltVersion, asSource(resource, xslt), resource, TemplatesCache.getKey(xslt, resource.getSystemId(), xsltVersion, resource.getConfigurationClassLoader()));
+		stylesheet = () -> {
+			try {
+				return resource.asSource();
+			} catch (IOException | SAXException e) {
+				throw new TransformerConfigurationException("Could not read stylesheet ["+resource.getSystemId()+"]", e);
+			}
+		};
+		stylesheetSysId = resource.getSystemId();
 	}
 
 	//TODO Fix this, Thread.currentThread().getContextClassLoader() should not be used and causes memory leaks upon reloading configurations!!!
@@ -139,7 +178,44 @@ public class TransformerPool {
 	}
 
 	private TransformerPool(String xsltString, String sysId, int xsltVersion, IScopeProvider scopeProvider) throws TransformerConfigurationException {
-		this(new StreamSource(new StringReader(xsltString)), sysId, xsltVersion,new StreamSource(new StringReader(xsltString)), scopeProvider);
+		this(new StreamSource(new StringReader(xsltString)), sysId, xsltVersion,new StreamSource(new StringReader(xsltString)), scopeProvider, TemplatesCache.getKey(xsltString, sysId, xsltVersion, scopeProvider!=null ? scopeProvider.getConfigurationClassLoader() : null));
+		stylesheet = () -> new StreamSource(new StringReader(xsltString));
+		stylesheetSysId = sysId;
+	}
+
+	/**
+	 * Compiles the stylesheet of the original pool again, by a TransformerFactory on the given Saxon configuration. The Templates
+	 * are not shared via the {@link TemplatesCache}, so the configuration of the original pool and of other pools is left untouched.
+	 */
+	private TransformerPool(TransformerPool original, net.sf.saxon.Configuration saxonConfiguration) throws TransformerConfigurationException {
+		super();
+		xsltVersion = original.xsltVersion;
+		try {
+			configMap = original.getConfigMap();
+		} catch (TransformerException | IOException | SAXException e) {
+			throw new TransformerConfigurationException("Could not read configuration of stylesheet ["+original.stylesheetSysId+"]", e);
+		}
+		stylesheet = original.stylesheet;
+		stylesheetSysId = original.stylesheetSysId;
+		factoryErrorListener = new TransformerErrorListener();
+		factoryErrorListener.setRecordWarnings(true);
+		tFactory = new net.sf.saxon.TransformerFactoryImpl(saxonConfiguration);
+		tFactory.setErrorListener(factoryErrorListener);
+		classLoaderURIResolver = original.classLoaderURIResolver;
+		tFactory.setURIResolver(classLoaderURIResolver);
+		initTransformerPool(stylesheet.get(), stylesheetSysId);
+
+		open();
+		// check if a transformer can be initiated
+		Transformer t = getTransformer();
+
+		releaseTransformer(t);
+	}
+
+	private static Source asSource(Resource resource, byte[] xslt) throws SAXException {
+		InputSource inputSource = new InputSource(new ByteArrayInputStream(xslt));
+		inputSource.setSystemId(resource.getSystemId());
+		return XmlUtils.inputSourceToSAXSource(inputSource, true, resource);
 	}
 
 	/** @deprecated Use Resource or UtilityInstance instead! This can/will cause memory leaks upon reloading configurations!!! */
@@ -179,14 +255,35 @@ public class TransformerPool {
 		}
 	}
 
+	/**
+	 * Creates a pool of the same stylesheet, with transformers that accept trees built in the given Saxon configuration, like those
+	 * built by {@link XmlUtils#buildSaxonTree(net.sf.saxon.Configuration, InputSource, boolean)}.
+	 * @return null if the stylesheet is not transformed by Saxon, or cannot be compiled again
+	 */
+	public TransformerPool withSaxonConfiguration(net.sf.saxon.Configuration saxonConfiguration) {
+		if (!(tFactory instanceof net.sf.saxon.TransformerFactoryImpl) || stylesheet==null) {
+			return null;
+		}
+		try {
+			return new TransformerPool(this, saxonConfiguration);
+		} catch (TransformerConfigurationException e) {
+			log.warn("could not compile stylesheet ["+stylesheetSysId+"] in separate Saxon configuration", e);
+			return null;
+		}
+	}
+
 	private void initTransformerPool(Source source, String sysId) throws TransformerConfigurationException {
+		templates = compileTemplates(source, sysId);
+	}
+
+	private Templates compileTemplates(Source source, String sysId) throws TransformerConfigurationException {
 		if (StringUtils.isNotEmpty(sysId)) {
 			sysId=ClassUtils.getCleanedFilePath(sysId); // fix websphere classpath references
 			source.setSystemId(sysId);
 			log.debug("setting systemId to ["+sysId+"]");
 		}
 		try {
-			templates=tFactory.newTemplates(source);
+			return tFactory.newTemplates(source);
 		} catch (TransformerConfigurationException e) {
 			TransformerException te=factoryErrorListener.getFatalTransformerException();
 			if (te!=null) {
@@ -283,8 +380,17 @@ public class TransformerPool {
 	}
 
 	public void open() {
+		if (templatesKey!=null && !templatesAcquired) {
+			try {
+				// reopened after close(), register the Templates again so they can be shared
+				templates = TemplatesCache.getInstance().acquire(templatesKey, templatesOwner, () -> templates, null);
+				templatesAcquired = true;
+			} catch (TransformerConfigurationException e) {
+				log.warn("cannot register templates of transformerPool", e);
+			}
+		}
 		if (pool==null) {
-			pool=new SoftReferenceObjectPool<>(new BasePooledObjectFactory<Transformer>() {
+			BasePooledObjectFactory<Transformer> factory = new BasePooledObjectFactory<Transformer>() {
 
 				@Override
 				public Transformer create() throws Exception {
@@ -296,7 +402,18 @@ public class TransformerPool {
 					return new DefaultPooledObject<Transformer>(transformer);
 				}
 
-			});
+				@Override
+				public void passivateObject(PooledObject<Transformer> pooledObject) throws Exception {
+					resetTransformer(pooledObject.getObject());
+				}
+			};
+			AppConstants appConstants = AppConstants.getInstance();
+			String strategy = appConstants.getString(POOL_STRATEGY_KEY, null);
+			if (StringUtils.isNotEmpty(strategy) && EnumUtils.parse(PoolStrategy.class, POOL_STRATEGY_KEY, strategy)==PoolStrategy.BOUNDED) {
+				pool=new BoundedObjectPool<>(factory, appConstants.getInt(POOL_MAX_IDLE_KEY, 8));
+			} else {
+				pool=new SoftReferenceObjectPool<>(factory);
+			}
 		}
 	}
 
@@ -314,6 +431,10 @@ public class TransformerPool {
 		} catch (Exception e) {
 			log.warn("exception clearing transformerPool",e);
 		}
+		if (templatesAcquired) {
+			TemplatesCache.getInstance().release(templatesKey, templatesOwner);
+			templatesAcquired=false;
+		}
 	}
 
 	protected Transformer getTransformer() throws TransformerConfigurationException {
@@ -323,7 +444,10 @@ public class TransformerPool {
 
 		try {
 			reloadTransformerPool();
-			return pool.borrowObject();
+			long startTime = System.nanoTime();
+			Transformer transformer = pool.borrowObject();
+			statistics.transformerBorrowed(System.nanoTime()-startTime);
+			return transformer;
 		} catch (Exception e) {
 			throw new TransformerConfigurationException(e);
 		}
@@ -355,6 +479,7 @@ public class TransformerPool {
 		if (t==null) {
 			throw new TransformerConfigurationException("cannot instantiate transformer");
 		}
+		statistics.transformerCreated();
 		t.setErrorListener(new TransformerErrorListener());
 		// Set URIResolver on transformer for Xalan. Setting it on the factory
 		// doesn't work for Xalan. See
@@ -363,6 +488,18 @@ public class TransformerPool {
 		return t;
 	}
 
+	/**
+	 * Restores the output properties and URIResolver of a transformer that is returned to the pool, so changes made by a caller
+	 * of {@link #getTransformer()} do not leak into the next transformation. Parameters are set for every transformation.
+	 * Transformer.reset() is not used, as it makes Xalan stricter in parsing input that is not well-formed.
+	 */
+	private void resetTransformer(Transformer t) {
+		t.setOutputProperties(null); // restores the output properties of the stylesheet
+		if (t.getURIResolver()!=classLoaderURIResolver) {
+			t.setURIResolver(classLoaderURIResolver);
+		}
+	}
+
 	public String transform(Document d, Map<String,Object> parameters)	throws TransformerException, IOException {
 		return transform(new DOMSource(d),parameters);
 	}
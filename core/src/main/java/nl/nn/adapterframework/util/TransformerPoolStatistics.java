@@ -0,0 +1,99 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.util;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import nl.nn.adapterframework.metrics.TaggedMeterBinder;
+
+/**
+ * Usage of the transformers of a {@link TransformerPool}. Each TransformerPool keeps its own statistics,
+ * the process wide totals of all TransformerPools are published as metrics.
+ *
+ * @since 7.9
+ */
+public class TransformerPoolStatistics implements TaggedMeterBinder {
+
+	private static final TransformerPoolStatistics TOTALS = new TransformerPoolStatistics(null);
+
+	private final TransformerPoolStatistics totals;
+	private final LongAdder creations = new LongAdder();
+	private final LongAdder borrows = new LongAdder();
+	private final LongAdder borrowWaitTime = new LongAdder();
+
+	TransformerPoolStatistics() {
+		this(TOTALS);
+	}
+
+	private TransformerPoolStatistics(TransformerPoolStatistics totals) {
+		this.totals = totals;
+	}
+
+	public static TransformerPoolStatistics getTotals() {
+		return TOTALS;
+	}
+
+	void transformerCreated() {
+		creations.increment();
+		if (totals!=null) {
+			totals.transformerCreated();
+		}
+	}
+
+	void transformerBorrowed(long waitTimeNanos) {
+		borrows.increment();
+		borrowWaitTime.add(waitTimeNanos);
+		if (totals!=null) {
+			totals.transformerBorrowed(waitTimeNanos);
+		}
+	}
+
+	/**
+	 * Number of transformers created from the compiled stylesheet.
+	 */
+	public long getCreations() {
+		return creations.sum();
+	}
+
+	/**
+	 * Number of transformers taken from the pool.
+	 */
+	public long getBorrows() {
+		return borrows.sum();
+	}
+
+	/**
+	 * Total time in nanoseconds spent obtaining transformers from the pool, including the time to create new ones.
+	 */
+	public long getBorrowWaitTimeNanos() {
+		return borrowWaitTime.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry, Iterable<Tag> tags) {
+		if (tags==null) {
+			tags = Collections.emptyList();
+		}
+		FunctionCounter.builder("frank.transformerpool.creations", this, TransformerPoolStatistics::getCreations).tags(tags).description("number of transformers created by TransformerPools").register(registry);
+		FunctionTimer.builder("frank.transformerpool.borrows", this, TransformerPoolStatistics::getBorrows, TransformerPoolStatistics::getBorrowWaitTimeNanos, TimeUnit.NANOSECONDS).tags(tags).description("time spent obtaining transformers from TransformerPools").register(registry);
+	}
+}
@@ -1044,6 +1044,18 @@ public class XmlUtils {
 		}
 	}
 
+	/**
+	 * Parses the source into a Saxon TinyTree, that can be used as input of multiple Saxon (XSLT 2 and 3) transformations without
+	 * being parsed again, and takes less memory than a DOM. The tree can only be used by transformers compiled in the same configuration.
+	 */
+	public static net.sf.saxon.om.NodeInfo buildSaxonTree(net.sf.saxon.Configuration configuration, InputSource src, boolean namespaceAware) throws DomBuilderException {
+		try {
+			return configuration.buildDocumentTree(inputSourceToSAXSource(src, namespaceAware, null)).getRootNode();
+		} catch (SAXException | net.sf.saxon.trans.XPathException e) {
+			throw new DomBuilderException(e);
+		}
+	}
+
 	public static synchronized DocumentBuilderFactory getDocumentBuilderFactory() {
 		return getDocumentBuilderFactory(isNamespaceAwareByDefault());
 	}
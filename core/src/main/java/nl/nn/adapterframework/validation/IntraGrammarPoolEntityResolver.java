@@ -24,12 +24,14 @@ import org.apache.xerces.xni.XNIException;
 import org.apache.xerces.xni.parser.XMLEntityResolver;
 import org.apache.xerces.xni.parser.XMLInputSource;
 
+import lombok.Getter;
 import nl.nn.adapterframework.util.LogUtil;
 
 /**
  * EntityResolver for XercesXmlValidator to resolve imported schema documents to other schemas used to populate the grammar pool.
  * 
- * References are resolved by namespace.
+ * References are resolved by namespace. References that cannot be resolved are left to the default resolution of Xerces,
+ * that depends on the location of the referring schema, and are recorded in {@link #isExternalReferencesResolved()}.
  * 
  * @author Gerrit van Brakel
  */
@@ -37,6 +39,7 @@ public class IntraGrammarPoolEntityResolver implements XMLEntityResolver {
 	protected Logger log = LogUtil.getLogger(this);
 
 	private List<Schema> schemas;
+	private @Getter boolean externalReferencesResolved = false;
 
 	public IntraGrammarPoolEntityResolver(List<Schema> schemas) {
 		this.schemas = schemas;
@@ -62,6 +65,7 @@ public class IntraGrammarPoolEntityResolver implements XMLEntityResolver {
 		String targetNamespace = resourceIdentifier.getNamespace();
 		if (targetNamespace==null) {
 			log.warn("resolveEntity publicId ["+resourceIdentifier.getPublicId()+"] baseSystemId ["+resourceIdentifier.getBaseSystemId()+"] expandedSystemId ["+resourceIdentifier.getExpandedSystemId()+"] literalSystemId ["+resourceIdentifier.getLiteralSystemId()+"] namespace ["+resourceIdentifier.getNamespace()+"] has no namespace to resolve to");
+			externalReferencesResolved = true;
 			return null;
 		}
 		for(Schema schema:schemas) {
@@ -71,6 +75,7 @@ public class IntraGrammarPoolEntityResolver implements XMLEntityResolver {
 			}
 		}
 		log.warn("namespace ["+targetNamespace+"] not found in list of schemas");
+		externalReferencesResolved = true;
 
 		return null;
 	}
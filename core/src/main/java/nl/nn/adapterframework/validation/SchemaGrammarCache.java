@@ -0,0 +1,135 @@
+/*
+   Copyright 2022 WeAreFrank!
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package nl.nn.adapterframework.validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.util.Misc;
+import nl.nn.adapterframework.util.SharedCompilationCache;
+
+/**
+ * Process wide registry of the grammar pools preparsed by {@link XercesXmlValidator}s, so validators that use the same schemas
+ * share a single preparsed grammar pool, and validators whose grammar pool was evicted by the <code>xmlValidator.maxInitialised</code>
+ * cache can retrieve it again without parsing the schemas.
+ * <p>
+ * Entries are keyed by schemasId, a hash of the contents of the schemas and the validation settings that influence preparsing.
+ * Grammar pools of schemas that only reference each other are shared by the validators of all configurations. Grammar pools of
+ * schemas that reference schemas outside of their set depend on how these references are resolved, and are only shared by
+ * validators of the same configuration ClassLoader; they are removed when that ClassLoader is destroyed.
+ * Entries are only created when a validator preparses its schemas, and are held by soft references, so they can be removed
+ * by the garbage collector when memory is low.
+ * </p>
+ *
+ * @since 7.9
+ */
+public class SchemaGrammarCache extends SharedCompilationCache<SchemaGrammarCache.Key, PreparseResult, String> {
+
+	public static final String SHARED_GRAMMARS_ENABLED_KEY = "xmlValidator.sharedGrammars.enabled";
+
+	private static final SchemaGrammarCache INSTANCE = new SchemaGrammarCache();
+
+	@FunctionalInterface
+	interface GrammarCompiler {
+		PreparseResult compile(List<String> warnings) throws ConfigurationException;
+	}
+
+	private SchemaGrammarCache() {
+		super(SHARED_GRAMMARS_ENABLED_KEY, false, "frank.validator.grammars", "preparsed grammar pools");
+	}
+
+	public static SchemaGrammarCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the grammar pool of the schemas, preparsing them using the compiler if it is not present (anymore).
+	 * Warnings found while preparsing are passed to the warningHandler of every validator that uses the grammar pool.
+	 */
+	PreparseResult get(String schemasId, List<Schema> schemas, String xmlSchemaVersion, boolean fullSchemaChecking, ClassLoader classLoader, GrammarCompiler compiler, Consumer<String> warningHandler) throws ConfigurationException {
+		Key sharedKey = getKey(schemasId, schemas, xmlSchemaVersion, fullSchemaChecking, null);
+		PreparseResult result = getIfPresent(sharedKey, warningHandler::accept);
+		if (result!=null) {
+			return result;
+		}
+		Key key = sharedKey.withClassLoader(classLoader);
+		result = get(key, null, compiler::compile, warningHandler::accept);
+		if (!result.isExternalReferencesResolved()) {
+			move(key, sharedKey);
+		}
+		return result;
+	}
+
+	static Key getKey(String schemasId, List<Schema> schemas, String xmlSchemaVersion, boolean fullSchemaChecking, ClassLoader classLoader) throws ConfigurationException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[8192];
+			for (Schema schema : schemas) {
+				digest.update(Objects.toString(schema.getSystemId()).getBytes(StandardCharsets.UTF_8));
+				try (InputStream in = new DigestInputStream(schema.getInputStream(), digest)) {
+					while (in.read(buffer)>=0) {
+						// the stream updates the digest
+					}
+				}
+			}
+			return new Key(schemasId, Misc.asHex(digest.digest()), xmlSchemaVersion, fullSchemaChecking, classLoader);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("cannot compute hash of schemas", e);
+		} catch (IOException e) {
+			throw new ConfigurationException("cannot read schemas [" + schemasId + "]", e);
+		}
+	}
+
+	/**
+	 * Identifies preparsed grammar pools. A key without ClassLoader identifies a grammar pool that is shared by all configurations.
+	 */
+	static class Key extends SharedCompilationCache.Key {
+		private final String schemasId;
+		private final String contentHash;
+		private final String xmlSchemaVersion;
+		private final boolean fullSchemaChecking;
+
+		private Key(String schemasId, String contentHash, String xmlSchemaVersion, boolean fullSchemaChecking, ClassLoader classLoader) {
+			super(classLoader);
+			this.schemasId = schemasId;
+			this.contentHash = contentHash;
+			this.xmlSchemaVersion = xmlSchemaVersion;
+			this.fullSchemaChecking = fullSchemaChecking;
+		}
+
+		Key withClassLoader(ClassLoader classLoader) {
+			return new Key(schemasId, contentHash, xmlSchemaVersion, fullSchemaChecking, classLoader);
+		}
+
+		@Override
+		protected Object[] getProperties() {
+			return new Object[] { schemasId, contentHash, xmlSchemaVersion, fullSchemaChecking };
+		}
+
+		@Override
+		public String toString() {
+			return "schemasId ["+schemasId+"] contentHash ["+contentHash+"] xmlSchemaVersion ["+xmlSchemaVersion+"]";
+		}
+	}
+}
@@ -19,6 +19,7 @@ package nl.nn.adapterframework.validation;
 import static org.apache.xerces.parsers.XMLGrammarCachingConfiguration.BIG_PRIME;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -179,12 +180,33 @@ public class XercesXmlValidator extends AbstractXmlValidator {
 	}
 
 
-	private synchronized PreparseResult preparse(String schemasId, List<Schema> schemas) throws ConfigurationException {
+	private PreparseResult preparse(String schemasId, List<Schema> schemas) throws ConfigurationException {
+		SchemaGrammarCache grammarCache = SchemaGrammarCache.getInstance();
+		if (isIgnoreCaching() || !grammarCache.isEnabled()) {
+			return compile(schemasId, schemas, null);
+		}
+		return grammarCache.get(schemasId, schemas, getXmlSchemaVersion(), isFullSchemaChecking(), getConfigurationClassLoader(), warnings -> compile(schemasId, schemas, warnings), this::reportPreparseWarning);
+	}
+
+	/**
+	 * Reports a warning that was found when the schemas were preparsed by another validator.
+	 */
+	private void reportPreparseWarning(String message) {
+		if (warn) {
+			ConfigurationWarnings.add(getOwner()!=null ? getOwner() : this, log, message);
+		}
+	}
+
+	/**
+	 * Preparses the schemas, adding the messages of the warnings found to the warnings list, if specified.
+	 */
+	private synchronized PreparseResult compile(String schemasId, List<Schema> schemas, List<String> warnings) throws ConfigurationException {
 		SymbolTable symbolTable = getSymbolTable();
 		XMLGrammarPool grammarPool = new XMLGrammarPoolImpl();
 		Set<String> namespaceSet = new HashSet<String>();
 		XMLGrammarPreparser preparser = new XMLGrammarPreparser(symbolTable);
-		preparser.setEntityResolver(new IntraGrammarPoolEntityResolver(schemas));
+		IntraGrammarPoolEntityResolver entityResolver = new IntraGrammarPoolEntityResolver(schemas);
+		preparser.setEntityResolver(entityResolver);
 		preparser.registerPreparser(XMLGrammarDescription.XML_SCHEMA, null);
 		preparser.setProperty(GRAMMAR_POOL, grammarPool);
 		preparser.setFeature(NAMESPACES_FEATURE_ID, true);
@@ -210,11 +232,15 @@ public class XercesXmlValidator extends AbstractXmlValidator {
 			registerNamespaces(grammar, namespaceSet, namespaceRegisteredGrammars);
 		}
 		grammarPool.lockPool();
+		if (warnings!=null) {
+			warnings.addAll(errorHandler.getWarnings());
+		}
 		PreparseResult preparseResult = new PreparseResult();
 		preparseResult.setSchemasId(schemasId);
 		preparseResult.setSymbolTable(symbolTable);
 		preparseResult.setGrammarPool(grammarPool);
 		preparseResult.setNamespaceSet(namespaceSet);
+		preparseResult.setExternalReferencesResolved(entityResolver.isExternalReferencesResolved());
 		return preparseResult;
 	}
 
@@ -399,6 +425,7 @@ class PreparseResult {
 	private XMLGrammarPool grammarPool;
 	private Set<String> namespaceSet;
 	private List<XSModel> xsModels=null;
+	private boolean externalReferencesResolved;
 
 	public String getSchemasId() {
 		return schemasId;
@@ -431,6 +458,17 @@ class PreparseResult {
 		this.namespaceSet = namespaceSet;
 	}
 
+	/**
+	 * <code>true</code> when references outside of the set of schemas were resolved, which makes the grammar pool depend on the location of the schemas.
+	 */
+	public boolean isExternalReferencesResolved() {
+		return externalReferencesResolved;
+	}
+
+	public void setExternalReferencesResolved(boolean externalReferencesResolved) {
+		this.externalReferencesResolved = externalReferencesResolved;
+	}
+
 	public List<XSModel> getXsModels() {
 		if (xsModels==null) {
 			xsModels=new LinkedList<XSModel>();
@@ -451,6 +489,7 @@ class XercesValidationErrorHandler implements XMLErrorHandler {
 	protected Logger log = LogUtil.getLogger(this);
 	protected boolean warn = true;
 	private IConfigurationAware source;
+	private List<String> warnings = new ArrayList<>();
 
 	public XercesValidationErrorHandler(IConfigurationAware source) {
 		this.source = source;
@@ -458,6 +497,7 @@ class XercesValidationErrorHandler implements XMLErrorHandler {
 
 	@Override
 	public void warning(String domain, String key, XMLParseException e) throws XNIException {
+		warnings.add(e.getMessage());
 		if (warn) {
 			ConfigurationWarnings.add(source, log, e.getMessage());
 		}
@@ -478,5 +518,12 @@ class XercesValidationErrorHandler implements XMLErrorHandler {
 		warning(domain, key, e);
 		throw new XNIException(e);
 	}
+
+	/**
+	 * Messages of all warnings reported, also when they were not added to the configuration warnings.
+	 */
+	public List<String> getWarnings() {
+		return warnings;
+	}
 }
 
@@ -15,6 +15,7 @@ import jakarta.json.JsonStructure;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
+import nl.nn.adapterframework.stream.json.LazyJsonReader;
 import nl.nn.adapterframework.testutil.MatchUtils;
 import nl.nn.adapterframework.xml.XmlWriter;
 
@@ -38,6 +39,7 @@ public class TestJson2Xml extends AlignTestBase {
 				fail("could not convert to xml: "+description);
 			}
 			assertTrue("converted XML is not aligned: "+description,  Utils.validate(schemaUrl, xmlAct));
+			assertEquals("result of JSON with lazily read arrays: "+description, xmlAct, translateLazy(jsonIn, properties, deepSearch, schemaUrl, targetNamespace, rootElement, compactConversion, strictSyntax));
 			if (resultJsonExpected!=null) {
 				String roundTrippedJson=Xml2Json.translate(xmlAct, schemaUrl, compactConversion, rootElement!=null).toString(true);
 				assertEquals("roundTrippedJson",resultJsonExpected,roundTrippedJson);
@@ -59,6 +61,15 @@ public class TestJson2Xml extends AlignTestBase {
 		}
 	}
 
+	private String translateLazy(String jsonIn, Map<String,Object> properties, boolean deepSearch, URL schemaUrl, String targetNamespace, String rootElement, boolean compactConversion, boolean strictSyntax) throws Exception {
+		XmlWriter xmlWriter = new XmlWriter();
+		// threshold 0 causes all arrays to be parsed from the input when they are processed
+		JsonStructure jsonStructure = new LazyJsonReader(() -> new StringReader(jsonIn), 0).read();
+		Json2Xml j2x = Json2Xml.create(schemaUrl, compactConversion, rootElement, strictSyntax, deepSearch, targetNamespace, properties);
+		j2x.translate(jsonStructure, xmlWriter);
+		return xmlWriter.toString();
+	}
+
 	public void testStrings(String xmlIn, String jsonIn, URL schemaUrl, String targetNamespace, String rootElement, boolean compactInput, boolean potentialCompactionProblems, boolean checkRoundTrip, String expectedFailureReason) throws Exception {
 		LOG.debug("schemaUrl [{}]", schemaUrl);
 		if (StringUtils.isNotEmpty(xmlIn)) assertTrue("Expected XML is not valid to XSD",Utils.validate(schemaUrl, xmlIn));
@@ -0,0 +1,141 @@
+package nl.nn.adapterframework.batch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.core.PipeForward;
+import nl.nn.adapterframework.core.PipeRunException;
+import nl.nn.adapterframework.pipes.PipeTestBase;
+
+public class StreamTransformerPipeTest extends PipeTestBase<StreamTransformerPipe> {
+
+	@Override
+	public StreamTransformerPipe createPipe() throws ConfigurationException {
+		return new StreamTransformerPipe();
+	}
+
+	private void configureHandlers(StreamTransformerPipe pipe, boolean conditional) throws Exception {
+		RecordTransformer recordHandler = new RecordTransformer();
+		recordHandler.setName("recordHandler");
+		recordHandler.setInputSeparator(",");
+		recordHandler.setOutputSeparator(";");
+		recordHandler.addOutputInput(2);
+		recordHandler.addDateOutput(1, "yyyyMMdd", "dd-MM-yyyy");
+		if (conditional) {
+			recordHandler.addIf(2, "SW", "value1");
+			recordHandler.addFixedOutput("one");
+			recordHandler.addIf(2, "EQ", "value1");
+			recordHandler.addFixedOutput("first");
+			recordHandler.addEndIf();
+			recordHandler.addElseIf(2, "NS", "value2");
+			recordHandler.addFixedOutput("other");
+			recordHandler.addEndIf();
+		}
+		pipe.registerRecordHandler(recordHandler);
+
+		Result2StringWriter resultHandler = new Result2StringWriter();
+		resultHandler.setName("resultHandler");
+		resultHandler.setOnOpenDocument(null);
+		resultHandler.setOnCloseDocument(null);
+		resultHandler.setOnOpenBlock("<#name#>");
+		resultHandler.setOnCloseBlock("</#name#>");
+		resultHandler.setBlockNamePattern("#name#");
+		pipe.registerResultHandler(resultHandler);
+
+		RecordHandlerManager manager = new RecordHandlerManager();
+		manager.setName("manager");
+		manager.setInitial(true);
+		RecordHandlingFlow flow = new RecordHandlingFlow();
+		flow.setRecordKey("*");
+		flow.setRecordHandlerRef("recordHandler");
+		flow.setResultHandlerRef("resultHandler");
+		flow.setOpenBlockBeforeLine("block");
+		flow.setOpenBlockBeforeLineNumber(7);
+		flow.setAutoCloseBlock(true);
+		manager.addHandler(flow);
+		pipe.registerManager(manager);
+	}
+
+	private String createInput(int lines) {
+		StringBuilder input = new StringBuilder();
+		for (int i=1; i<=lines; i++) {
+			input.append(String.format("2022%02d%02d", i%12+1, i%28+1)).append(",value").append(i).append("\n");
+			if (i%10==0) {
+				input.append("\n"); // empty lines are skipped
+			}
+		}
+		return input.toString();
+	}
+
+	private String transform(int maxThreads, int chunkSize, String input) throws Exception {
+		return transform(maxThreads, chunkSize, input, false);
+	}
+
+	private String transform(int maxThreads, int chunkSize, String input, boolean conditional) throws Exception {
+		StreamTransformerPipe pipe = createPipe();
+		autowireByType(pipe);
+		pipe.registerForward(new PipeForward("success", "READY"));
+		pipe.setName("pipe with "+maxThreads+" threads");
+		pipe.setMaxThreads(maxThreads);
+		pipe.setChunkSize(chunkSize);
+		configureHandlers(pipe, conditional);
+		pipe.configure();
+		pipe.start();
+		try {
+			return doPipe(pipe, input, session).getResult().asString();
+		} finally {
+			pipe.stop();
+		}
+	}
+
+	@Test
+	public void testSequential() throws Exception {
+		String result = transform(1, 1000, createInput(3));
+
+		assertEquals("<block>\nvalue1;02-02-2022\nvalue2;03-03-2022\nvalue3;04-04-2022\n</block>\n", result);
+	}
+
+	@Test
+	public void testParallelEqualsSequential() throws Exception {
+		String input = createInput(1000);
+		String expected = transform(1, 1000, input);
+
+		assertEquals(expected, transform(4, 1, input));
+		assertEquals(expected, transform(4, 13, input));
+		assertEquals(expected, transform(3, 2000, input));
+	}
+
+	@Test
+	public void testConditions() throws Exception {
+		String result = transform(1, 1000, createInput(3), true);
+
+		// a separator is written for every output field, including the conditions themselves
+		assertEquals("<block>\nvalue1;02-02-2022;;one;;first;;;;other;\nvalue2;03-03-2022;;;;;;;;;\nvalue3;04-04-2022;;;;;;;;other;\n</block>\n", result);
+	}
+
+	@Test
+	public void testParallelConditionsEqualSequential() throws Exception {
+		String input = createInput(1000);
+		String expected = transform(1, 1000, input, true);
+
+		assertEquals(expected, transform(4, 1, input, true));
+		assertEquals(expected, transform(4, 13, input, true));
+	}
+
+	@Test
+	public void testParallelErrorReportsLine() throws Exception {
+		String input = createInput(100).replace("value50\n", "value50\nnodate,value\n");
+		try {
+			transform(4, 7, input);
+			fail("expected exception");
+		} catch (PipeRunException e) {
+			// 50 records and 4 empty lines precede the invalid record
+			assertThat(e.getMessage(), containsString("at or after line [55]"));
+		}
+	}
+}
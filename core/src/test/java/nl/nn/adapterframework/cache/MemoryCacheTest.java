@@ -0,0 +1,215 @@
+package nl.nn.adapterframework.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.stream.MessageSpillStore;
+import nl.nn.adapterframework.stream.MessageSpillStore.SpillFile;
+
+public class MemoryCacheTest {
+
+	private MemoryCache<String> cache;
+
+	@Before
+	public void setUp() throws Exception {
+		cache = new MemoryCache<>();
+	}
+
+	@After
+	public void tearDown() {
+		cache.close();
+	}
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		cache.configure("test");
+		cache.open();
+
+		cache.put("a", "A");
+		assertEquals("A", cache.get("a"));
+		assertNull(cache.get("b"));
+
+		assertTrue(cache.remove("a"));
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testEvictEldestWhenMaxElementsExceeded() throws Exception {
+		cache.setMaxElements(3);
+		cache.configure("test");
+		cache.open();
+
+		for (int i=0; i<5; i++) {
+			cache.put("k"+i, "v"+i);
+		}
+		assertEquals(3, cache.size());
+		assertNull(cache.get("k0"));
+		assertNull(cache.get("k1"));
+		assertEquals("v4", cache.get("k4"));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() throws Exception {
+		cache.setMaxElements(2);
+		cache.configure("test");
+		cache.open();
+
+		cache.put("a", "A");
+		cache.put("b", "B");
+		assertEquals("A", cache.get("a"));
+		cache.put("c", "C");
+		assertNull(cache.get("b"));
+		assertEquals("A", cache.get("a"));
+		assertEquals("C", cache.get("c"));
+	}
+
+	@Test
+	public void testEvictEldestWhenMaxWeightExceeded() throws Exception {
+		cache.setMaxWeight(10);
+		cache.configure("test");
+		cache.open();
+
+		cache.put("a", "aaaa");
+		cache.put("b", "bbbb");
+		cache.put("a", "aa"); // replaces the eldest element, does not add weight
+		cache.put("c", "cccc");
+		assertEquals(3, cache.size());
+		cache.put("d", "dddd");
+		assertNull(cache.get("b"));
+		assertEquals("aa", cache.get("a"));
+		assertEquals("dddd", cache.get("d"));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsedOfSegment() throws Exception {
+		cache.setMaxElements(1024);
+		cache.configure("test");
+		cache.open();
+
+		cache.put("k0", "v0");
+		for (int i=1; i<2048; i++) {
+			cache.put("k"+i, "v"+i);
+			assertEquals("v0", cache.get("k0")); // most recently used in its segment, never evicted
+		}
+		assertTrue("size ["+cache.size()+"]", cache.size()<=1024);
+	}
+
+	@Test
+	public void testTimeToLive() throws Exception {
+		cache.setTimeToLiveSeconds(1);
+		cache.configure("test");
+		cache.open();
+
+		cache.put("a", "A");
+		assertEquals("A", cache.get("a"));
+		Thread.sleep(1100);
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testComputeIfAbsentLoadsOnceForConcurrentMisses() throws Exception {
+		cache.configure("test");
+		cache.open();
+
+		int threads = 8;
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(threads);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i=0; i<threads; i++) {
+				results.add(executor.submit(() -> {
+					started.countDown();
+					return cache.computeIfAbsent("key", () -> {
+						loads.incrementAndGet();
+						release.await(10, TimeUnit.SECONDS);
+						return "value";
+					});
+				}));
+			}
+			started.await(10, TimeUnit.SECONDS);
+			Thread.sleep(100); // let all threads reach computeIfAbsent()
+			release.countDown();
+			for (Future<String> result:results) {
+				assertEquals("value", result.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+		assertEquals("value", cache.get("key"));
+	}
+
+	@Test
+	public void testComputeIfAbsentDoesNotCacheFailure() throws Exception {
+		cache.configure("test");
+		cache.open();
+
+		try {
+			cache.computeIfAbsent("key", () -> { throw new IOException("fails"); });
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals("fails", e.getMessage());
+		}
+		assertEquals("value", cache.computeIfAbsent("key", () -> "value"));
+	}
+
+	@Test
+	public void testTransformKeyFromStreamPreservesMessage() throws Exception {
+		cache.setKeyXPath("/request/id");
+		cache.configure("test");
+		cache.open();
+
+		String input = "<request><id>123</id><data>abc</data></request>";
+		Message message = new Message(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+		try (PipeLineSession session = new PipeLineSession()) {
+			assertEquals("123", cache.transformKey(message, session));
+		}
+		assertEquals(input, message.asString());
+	}
+
+	@Test
+	public void testTransformKeyFromLargeStreamSpillsMessage() throws Exception {
+		MessageSpillStore spillStore = MessageSpillStore.getInstance();
+		long originalThreshold = spillStore.getThreshold();
+		spillStore.setThreshold(16);
+		try {
+			cache.setKeyXPath("/request/id");
+			cache.configure("test");
+			cache.open();
+
+			String input = "<request><id>123</id><data>abcdefghijklmnopqrstuvwxyz</data></request>";
+			Message message = new Message(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+			try (PipeLineSession session = new PipeLineSession()) {
+				assertEquals("123", cache.transformKey(message, session));
+				assertTrue(message.asObject() instanceof SpillFile); // not read into memory
+				assertEquals(input, message.asString());
+				message.close();
+			}
+		} finally {
+			spillStore.setThreshold(originalThreshold);
+		}
+	}
+}
@@ -12,9 +12,15 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.After;
 import org.junit.Before;
@@ -197,6 +203,114 @@ public abstract class FileSystemListenerTest<F, FS extends IBasicFileSystem<F>>
 		fileListenerTestGetRawMessage(null,folderName);
 	}
 
+	@Test
+	public void fileListenerTestGetRawMessageFromSnapshot() throws Exception {
+		String inProcessFolder = "inProcessFolder";
+		_createFolder(inProcessFolder);
+		waitForActionToFinish();
+		for (int i=1; i<=3; i++) {
+			createFile(null, "snapshotFile"+i, "contents"+i);
+		}
+		waitForActionToFinish();
+
+		fileSystemListener.setMinStableTime(0);
+		fileSystemListener.setSnapshotSize(2);
+		fileSystemListener.setInProcessFolder(fileAndFolderPrefix+inProcessFolder);
+		fileSystemListener.configure();
+		fileSystemListener.open();
+
+		Set<String> names = new HashSet<>();
+		F rawMessage;
+		while ((rawMessage=fileSystemListener.getRawMessage(threadContext))!=null) {
+			assertTrue("file must not be handed out twice", names.add(fileSystemListener.getFileSystem().getName(rawMessage)));
+		}
+		assertEquals(3, names.size());
+
+		createFile(null, "snapshotFile4", "contents4");
+		long timeout = System.currentTimeMillis()+10000;
+		while ((rawMessage=fileSystemListener.getRawMessage(threadContext))==null && System.currentTimeMillis()<timeout) {
+			Thread.sleep(50);
+		}
+		assertNotNull("new file must be found", rawMessage);
+		assertEquals("snapshotFile4", fileSystemListener.getFileSystem().getName(rawMessage));
+	}
+
+	@Test
+	public void fileListenerTestGetRawMessageFromSnapshotAfterFailure() throws Exception {
+		String logFolder = "logFolder";
+		_createFolder(logFolder);
+		createFile(null, "snapshotFile", "contents");
+		waitForActionToFinish();
+
+		fileSystemListener.setMinStableTime(0);
+		fileSystemListener.setSnapshotSize(2);
+		fileSystemListener.setLogFolder(fileAndFolderPrefix+logFolder);
+		fileSystemListener.configure();
+		fileSystemListener.open();
+
+		_deleteFolder(logFolder);
+		waitForActionToFinish();
+		assertThrows(ListenerException.class, () -> fileSystemListener.getRawMessage(threadContext));
+
+		_createFolder(logFolder);
+		waitForActionToFinish();
+		F rawMessage = fileSystemListener.getRawMessage(threadContext);
+		assertNotNull("file must be handed out again after a failure", rawMessage);
+		assertEquals("snapshotFile", fileSystemListener.getFileSystem().getName(rawMessage));
+	}
+
+	@Test
+	public void fileListenerTestGetRawMessageFromSnapshotConcurrently() throws Exception {
+		String inProcessFolder = "inProcessFolder";
+		int numFiles = 20;
+		_createFolder(inProcessFolder);
+		waitForActionToFinish();
+		for (int i=0; i<numFiles; i++) {
+			createFile(null, "snapshotFile"+i, "contents"+i);
+		}
+		waitForActionToFinish();
+
+		fileSystemListener.setMinStableTime(0);
+		fileSystemListener.setSnapshotSize(5);
+		fileSystemListener.setInProcessFolder(fileAndFolderPrefix+inProcessFolder);
+		fileSystemListener.configure();
+		fileSystemListener.open();
+
+		Map<String,Integer> deliveries = new ConcurrentHashMap<>();
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = new ArrayList<>();
+		for (int t=0; t<4; t++) {
+			Thread thread = new Thread(() -> {
+				try {
+					F rawMessage;
+					int emptyPolls = 0;
+					while (emptyPolls<10) {
+						rawMessage = fileSystemListener.getRawMessage(new HashMap<>());
+						if (rawMessage==null) {
+							emptyPolls++;
+							Thread.sleep(10);
+							continue;
+						}
+						String name = fileSystemListener.getFileSystem().getName(rawMessage);
+						if (fileSystemListener.changeProcessState(rawMessage, ProcessState.INPROCESS, null)!=null) {
+							deliveries.merge(name, 1, Integer::sum);
+						}
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals("[]", errors.toString());
+		assertEquals(numFiles, deliveries.size());
+		deliveries.forEach((name, count) -> assertEquals("deliveries of ["+name+"]", 1, count.intValue()));
+	}
+
 	@Test
 	public void fileListenerTestMoveToInProcessMustFailIfFileAlreadyExistsInInProcessFolder() throws Exception {
 		String inProcessFolder = "inProcessFolder";
@@ -0,0 +1,89 @@
+package nl.nn.adapterframework.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Field;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.http.HttpConnectionPools.SharedConnectionManager;
+
+public class HttpConnectionPoolsTest {
+
+	private HttpConnectionPools pools = HttpConnectionPools.getInstance();
+
+	private HttpSender createSender(int maxConnections) throws Exception {
+		HttpSender sender = new HttpSender();
+		sender.setName("sender");
+		sender.setUrl("http://localhost:8080/test");
+		sender.setSharedConnectionPool(true);
+		sender.setMaxConnections(maxConnections);
+		sender.configure();
+		return sender;
+	}
+
+	private SharedConnectionManager getSharedConnectionManager(HttpSenderBase sender) throws Exception {
+		Field field = HttpSenderBase.class.getDeclaredField("sharedConnectionManager");
+		field.setAccessible(true);
+		return (SharedConnectionManager)field.get(sender);
+	}
+
+	@Test
+	public void testSendersShareConnectionPool() throws Exception {
+		int size = pools.size();
+		HttpSender sender1 = createSender(10);
+		HttpSender sender2 = createSender(5);
+		sender1.open();
+		sender2.open();
+		try {
+			SharedConnectionManager pool = getSharedConnectionManager(sender1);
+			assertSame(pool, getSharedConnectionManager(sender2));
+			assertEquals(size+1, pools.size());
+			assertEquals(2, pool.getReferences());
+			assertEquals(15, pool.getMaxTotal());
+			assertEquals(10, pool.getDefaultMaxPerRoute());
+
+			sender1.close();
+			assertEquals(size+1, pools.size());
+			assertEquals(5, pool.getMaxTotal());
+		} finally {
+			sender1.close();
+			sender2.close();
+		}
+		assertEquals(size, pools.size());
+	}
+
+	@Test
+	public void testRouteMetrics() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		pools.bindTo(registry);
+		HttpSender sender = createSender(10);
+		sender.open();
+		try {
+			SharedConnectionManager pool = getSharedConnectionManager(sender);
+			pool.requestConnection(new HttpRoute(new HttpHost("localhost", 8080)), null);
+
+			assertNotNull(registry.find("frank.http.pool.leased").tag("pool", pool.getName()).tag("route", "http://localhost:8080").gauge());
+			assertEquals(10, registry.find("frank.http.pool.max").tag("pool", pool.getName()).gauge().value(), 0.0);
+		} finally {
+			sender.close();
+		}
+		assertNull(registry.find("frank.http.pool.leased").gauge());
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void testSharedConnectionPoolWithKeystoreNotAllowed() throws Exception {
+		HttpSender sender = new HttpSender();
+		sender.setUrl("https://localhost:8443/test");
+		sender.setSharedConnectionPool(true);
+		sender.setKeystore("Signature/certificate.pfx");
+		sender.configure();
+	}
+}
@@ -0,0 +1,152 @@
+package nl.nn.adapterframework.http;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.SenderException;
+import nl.nn.adapterframework.core.SenderResult;
+import nl.nn.adapterframework.core.TimeoutException;
+import nl.nn.adapterframework.senders.ParallelSenders;
+import nl.nn.adapterframework.senders.SenderTestBase;
+import nl.nn.adapterframework.stream.Message;
+
+public class HttpSenderAsynchronousTest extends SenderTestBase<HttpSender> {
+
+	private static final int DELAY = 1000;
+
+	@Rule
+	public WireMockRule service = new WireMockRule(wireMockConfig().dynamicPort());
+
+	@Override
+	public HttpSender createSender() throws Exception {
+		service.stubFor(get(urlPathEqualTo("/slow")).willReturn(aResponse().withStatus(200).withBody("<reply/>").withFixedDelay(DELAY)));
+		service.stubFor(get(urlPathEqualTo("/missing")).willReturn(aResponse().withStatus(404).withBody("not found")));
+		HttpSender sender = new HttpSender();
+		sender.setName("asyncSender");
+		sender.setAsynchronous(true);
+		sender.setUrl("http://localhost:"+service.port()+"/slow");
+		return sender;
+	}
+
+	@Test
+	public void testRequestsDoNotBlockTheCallingThread() throws Exception {
+		int numRequests = 10;
+		sender.setMaxConnections(numRequests);
+		sender.configure();
+		sender.open();
+
+		long start = System.currentTimeMillis();
+		List<CompletableFuture<SenderResult>> results = new ArrayList<>();
+		for (int i=0; i<numRequests; i++) {
+			results.add(sender.sendMessageNonBlocking(new Message(""), session));
+		}
+		assertTrue("requests must be started without waiting for the responses", System.currentTimeMillis()-start < DELAY);
+		for (CompletableFuture<SenderResult> result : results) {
+			assertFalse(result.isDone());
+		}
+
+		CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+		assertTrue("requests must be executed concurrently", System.currentTimeMillis()-start < numRequests*DELAY/2);
+		for (CompletableFuture<SenderResult> result : results) {
+			SenderResult senderResult = result.get();
+			assertTrue(senderResult.isSuccess());
+			assertEquals("200", senderResult.getForwardName());
+			assertEquals("<reply/>", senderResult.getResult().asString());
+		}
+	}
+
+	@Test
+	public void testSendMessageWaitsForResponse() throws Exception {
+		sender.setUrl("http://localhost:"+service.port()+"/missing");
+		sender.configure();
+		sender.open();
+
+		SenderResult result = sender.sendMessage(new Message(""), session);
+		assertFalse(result.isSuccess());
+		assertEquals("404", result.getForwardName());
+		assertEquals("not found", result.getResult().asString());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		sender.setTimeout(DELAY/4);
+		sender.configure();
+		sender.open();
+
+		assertThrows(TimeoutException.class, () -> sender.sendMessage(new Message(""), session));
+	}
+
+	@Test
+	public void testResponseIsNotProcessedByIoThread() throws Exception {
+		AtomicReference<String> processingThread = new AtomicReference<>();
+		HttpSender sender = new HttpSender() {
+			@Override
+			protected Message extractResult(HttpResponseHandler responseHandler, PipeLineSession session) throws SenderException, IOException {
+				processingThread.set(Thread.currentThread().getName());
+				return super.extractResult(responseHandler, session);
+			}
+		};
+		getConfiguration().autowireByType(sender);
+		sender.setName("processingSender");
+		sender.setAsynchronous(true);
+		sender.setUrl("http://localhost:"+service.port()+"/slow");
+		sender.configure();
+		sender.open();
+		try {
+			SenderResult result = sender.sendMessageNonBlocking(new Message(""), session).get(10, TimeUnit.SECONDS);
+			assertEquals("<reply/>", result.getResult().asString());
+			assertThat(processingThread.get(), startsWith("processingSender-response-"));
+		} finally {
+			sender.close();
+		}
+	}
+
+	@Test
+	public void testParallelSendersCompleteThroughCallbacks() throws Exception {
+		sender.configure();
+		sender.open();
+		HttpSender sender2 = createSender();
+		getConfiguration().autowireByType(sender2);
+		sender2.setName("asyncSender2");
+		sender2.configure();
+		sender2.open();
+
+		ParallelSenders parallelSenders = new ParallelSenders();
+		getConfiguration().autowireByType(parallelSenders);
+		parallelSenders.setMaxConcurrentThreads(1); // the asynchronous senders must not wait for a thread
+		parallelSenders.registerSender(sender);
+		parallelSenders.registerSender(sender2);
+		parallelSenders.configure();
+		parallelSenders.open();
+		try {
+			long start = System.currentTimeMillis();
+			Message result = parallelSenders.sendMessageOrThrow(new Message(""), session);
+			assertTrue("requests must be executed concurrently", System.currentTimeMillis()-start < 2*DELAY);
+			assertThat(result.asString(), containsString("senderName=\"asyncSender2\" success=\"true\""));
+		} finally {
+			parallelSenders.close();
+		}
+	}
+}
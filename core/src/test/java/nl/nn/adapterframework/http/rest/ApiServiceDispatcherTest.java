@@ -110,4 +110,32 @@ public class ApiServiceDispatcherTest {
 		ApiDispatchConfig config3 = dispatcher.findConfigForUri("/"+uri);
 		assertNull(config3);
 	}
+
+	@Test
+	public void testFindMatchingConfigsWithWildcards() throws Exception {
+		dispatcher.registerServiceClient(createServiceClient(Methods.GET, "pets"));
+		dispatcher.registerServiceClient(createServiceClient(Methods.GET, "pets/{petId}"));
+		dispatcher.registerServiceClient(createServiceClient(Methods.GET, "pets/{petId}/toys"));
+		dispatcher.registerServiceClient(createServiceClient(Methods.GET, "pets/special"));
+		dispatcher.registerServiceClient(createServiceClient(Methods.GET, "owners/{ownerId}"));
+
+		assertEquals("/pets/*", dispatcher.findConfigForUri("/pets/special").getUriPattern()); // wildcards are ordered first
+		assertEquals("/pets/*", dispatcher.findConfigForUri("/pets/tom").getUriPattern());
+		assertEquals("/pets/*/toys", dispatcher.findConfigForUri("/pets/tom/toys").getUriPattern());
+		assertNull(dispatcher.findConfigForUri("/pets/tom/food"));
+		assertNull(dispatcher.findConfigForUri("/pets/tom/toys/ball"));
+
+		assertEquals(4, dispatcher.findMatchingConfigsForUri("/pets").size());
+		assertEquals(3, dispatcher.findMatchingConfigsForUri("/pets/special").size());
+		assertEquals(2, dispatcher.findMatchingConfigsForUri("/pets/tom").size());
+
+		dispatcher.unregisterServiceClient(createServiceClient(Methods.GET, "pets/special"));
+		assertEquals(2, dispatcher.findMatchingConfigsForUri("/pets/special").size());
+		dispatcher.unregisterServiceClient(createServiceClient(Methods.GET, "pets/{petId}/toys"));
+		assertNull(dispatcher.findConfigForUri("/pets/tom/toys"));
+		assertEquals(2, dispatcher.findMatchingConfigsForUri("/pets").size());
+
+		dispatcher.clear();
+		assertEquals(0, dispatcher.findMatchingConfigsForUri("/").size());
+	}
 }
@@ -244,6 +244,42 @@ public class JdbcTableListenerTest extends JdbcTestBase {
 	}
 
 
+	@Test
+	public void testBatchSizeRequiresInProcessStatus() throws Exception {
+		listener.setBatchSize(10);
+		try {
+			listener.configure();
+			fail("expected ConfigurationException");
+		} catch (ConfigurationException e) {
+			assertTrue(e.getMessage().contains("requires an inProcess status"));
+		}
+	}
+
+	@Test
+	public void testGetRawMessagesInBatch() throws Exception {
+		listener.setStatusValueInProcess("4");
+		listener.setOrderField("TKEY");
+		listener.setBatchSize(2);
+		listener.configure();
+		listener.open();
+
+		for (int i=10; i<13; i++) {
+			JdbcUtil.executeStatement(dbmsSupport,connection, "INSERT INTO "+TEST_TABLE+" (TKEY,TINT) VALUES ("+i+",1)", null);
+		}
+
+		assertEquals("10", listener.getRawMessage(null));
+		assertEquals(0, JdbcUtil.executeIntQuery(connection, "SELECT COUNT(*) FROM "+TEST_TABLE+" WHERE TKEY IN (10,11) AND TINT!=4"));
+		assertEquals("10", listener.changeProcessState("10", ProcessState.INPROCESS, "start processing"));
+
+		assertTrue(listener.hasRawMessageAvailable());
+		assertEquals("11", listener.getRawMessage(null));
+		assertEquals("11", listener.changeProcessState("11", ProcessState.INPROCESS, "start processing"));
+
+		assertEquals("12", listener.getRawMessage(null));
+		assertEquals(4, JdbcUtil.executeIntQuery(connection, "SELECT TINT FROM "+TEST_TABLE+" WHERE TKEY=12"));
+		assertNull(listener.getRawMessage(null));
+	}
+
 	@Test
 	public void testCreateQueryTexts() throws Exception {
 		assumeThat(dbmsSupport.getDbms(),equalTo(Dbms.H2));
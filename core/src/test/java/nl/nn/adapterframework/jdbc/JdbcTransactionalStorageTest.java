@@ -1,13 +1,20 @@
 package nl.nn.adapterframework.jdbc;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -20,7 +27,11 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.core.IMessageBrowsingIterator;
 import nl.nn.adapterframework.core.IMessageBrowsingIteratorItem;
+import nl.nn.adapterframework.util.AppConstants;
+import nl.nn.adapterframework.util.JdbcUtil;
 
 public class JdbcTransactionalStorageTest extends TransactionManagerTestBase {
 
@@ -249,4 +260,196 @@ public class JdbcTransactionalStorageTest extends TransactionManagerTestBase {
 		assertEquals(message,result);
 	}
 
+	@Test
+	public void testStoreMessagesAsynchronously() throws Exception {
+		storage.setType("L");
+		storage.setAsynchronous(true);
+		storage.setAsyncBatchSize(3);
+		storage.configure();
+		storage.open();
+
+		String message = createMessage();
+		try {
+			for (int i=0; i<10; i++) {
+				assertNull(storage.storeMessage("id"+i, "correlationId"+i, new Date(), "comment", "label", message+i));
+			}
+		} finally {
+			storage.close(); // waits until the queued messages have been stored
+		}
+
+		assertEquals(10, storage.getMessageCount());
+		assertTrue(storage.containsMessageId("id7"));
+		try (IMessageBrowsingIterator iterator = storage.getIterator()) {
+			int count = 0;
+			while (iterator.hasNext()) {
+				try (IMessageBrowsingIteratorItem item = iterator.next()) {
+					String sequenceNumber = item.getOriginalId().substring("id".length());
+					assertEquals("correlationId"+sequenceNumber, item.getCorrelationId());
+					assertEquals(message+sequenceNumber, storage.browseMessage(item.getId()));
+					count++;
+				}
+			}
+			assertEquals(10, count);
+		}
+	}
+
+	@Test
+	public void testAsynchronousNotAllowedForErrorStorage() throws Exception {
+		storage.setType("E");
+		storage.setAsynchronous(true);
+		ConfigurationException e = assertThrows(ConfigurationException.class, storage::configure);
+		assertThat(e.getMessage(), containsString("only supported for messageLogs"));
+	}
+
+
+	@Test
+	public void testCachedMessageCount() throws Exception {
+		AppConstants.getInstance().setProperty(MessageCountCache.REFRESH_INTERVAL_KEY, "60");
+		try {
+			storage.setType("E");
+			storage.configure();
+			insertARecord(false, createMessage(), 'E');
+
+			long refreshes = MessageCountCache.getInstance().getRefreshes();
+			storage.open();
+			try {
+				// wait for the initial refresh of the counts
+				for (int i=0; i<100 && MessageCountCache.getInstance().getRefreshes()==refreshes; i++) {
+					Thread.sleep(100);
+				}
+				assertEquals(1, storage.getMessageCount());
+
+				String key;
+				try (Connection connection = getConnection()) {
+					String storeMessageOutput = storage.storeMessage(connection,"1", "correlationId", new Date(), "comment", "label", createMessage());
+					key = storeMessageOutput.substring(storeMessageOutput.indexOf(">")+1, storeMessageOutput.lastIndexOf("<"));
+				}
+				assertEquals(2, storage.getMessageCount());
+
+				storage.deleteMessage(key);
+				assertEquals(1, storage.getMessageCount());
+
+				// records inserted by others are only counted after the next refresh
+				insertARecord(false, createMessage(), 'E');
+				assertEquals(1, storage.getMessageCount());
+			} finally {
+				storage.close();
+			}
+			assertEquals(2, storage.getMessageCount());
+		} finally {
+			AppConstants.getInstance().setProperty(MessageCountCache.REFRESH_INTERVAL_KEY, "0");
+		}
+	}
+
+
+	private JdbcTransactionalStorage<String> createPartitionedStorage(String partitionedTableName) throws Exception {
+		JdbcTransactionalStorage<String> partitionedStorage = getConfiguration().createBean(JdbcTransactionalStorage.class);
+		partitionedStorage.setTableName(partitionedTableName);
+		partitionedStorage.setSequenceName("SEQ_"+partitionedTableName);
+		partitionedStorage.setIndexName("IX_"+partitionedTableName);
+		partitionedStorage.setSlotId("test");
+		partitionedStorage.setType("L");
+		partitionedStorage.setRetention(1);
+		partitionedStorage.setPartitionInterval(JdbcTransactionalStorage.PartitionInterval.DAY);
+		autowire(partitionedStorage);
+		partitionedStorage.configure();
+		return partitionedStorage;
+	}
+
+	private void dropPartitionedStorage(JdbcTransactionalStorage<String> partitionedStorage, StoragePartitions partitions) throws Exception {
+		partitionedStorage.close();
+		String partitionedTableName = partitionedStorage.getTableName();
+		try (Connection connection = getConnection()) {
+			if (!partitions.isNativePartitioning() && dbmsSupport.isTablePresent(connection, partitionedTableName)) {
+				JdbcUtil.executeStatement(connection, "DROP VIEW "+partitionedTableName);
+			}
+			for (String partition : partitions.getPartitions(connection)) {
+				dropTableIfPresent(connection, partition);
+			}
+			dropTableIfPresent(connection, partitionedTableName);
+			JdbcUtil.executeStatement(connection, "DROP SEQUENCE IF EXISTS SEQ_"+partitionedTableName);
+		}
+	}
+
+	@Test
+	public void testPartitionedStorage() throws Exception {
+		JdbcTransactionalStorage<String> partitionedStorage = createPartitionedStorage("PARTITIONEDSTORAGETEST");
+		StoragePartitions partitions = new StoragePartitions(partitionedStorage, dbmsSupport, JdbcTransactionalStorage.PartitionInterval.DAY);
+		try {
+			partitionedStorage.open();
+			try (Connection connection = getConnection()) {
+				// the partition of messages stored now, and two ahead
+				assertEquals(3, partitions.getPartitions(connection).size());
+
+				String message = createMessage();
+				String storeMessageOutput = partitionedStorage.storeMessage(connection, "1", "correlationId1", new Date(), "comment", "label", message);
+				assertTrue(storeMessageOutput, storeMessageOutput.matches("<id>\\d+</id>"));
+				String key = storeMessageOutput.substring(storeMessageOutput.indexOf(">")+1, storeMessageOutput.lastIndexOf("<"));
+				partitionedStorage.storeMessage(connection, "2", "correlationId2", new Date(), "comment", "label", message+"2");
+				assertEquals(2, partitionedStorage.getMessageCount());
+				assertEquals(message, partitionedStorage.browseMessage(key));
+
+				partitionedStorage.deleteMessage(key);
+				assertEquals(1, partitionedStorage.getMessageCount());
+				assertTrue(partitionedStorage.containsMessageId("2"));
+			}
+
+			assertEquals(0, partitionedStorage.dropExpiredPartitions(new Date()));
+			assertEquals(1, partitionedStorage.getMessageCount());
+
+			// in three days the partitions of today and tomorrow have expired, the partition of the day after is kept
+			Date inThreeDays = new Date(System.currentTimeMillis()+3*24*3600*1000L);
+			assertEquals(2, partitionedStorage.dropExpiredPartitions(inThreeDays));
+			assertEquals(0, partitionedStorage.getMessageCount());
+		} finally {
+			dropPartitionedStorage(partitionedStorage, partitions);
+		}
+	}
+
+	@Test
+	public void testPartitionedStorageDoesNotRelyOnGeneratedKeys() throws Exception {
+		JdbcTransactionalStorage<String> partitionedStorage = createPartitionedStorage("PARTITIONEDKEYTEST");
+		StoragePartitions partitions = new StoragePartitions(partitionedStorage, dbmsSupport, JdbcTransactionalStorage.PartitionInterval.DAY);
+		try {
+			partitionedStorage.open();
+			try (Connection connection = getConnection()) {
+				// like MS SQL Server, that does not report keys taken from a sequence as generated keys
+				Connection withoutGeneratedKeys = withoutGeneratedKeys(connection);
+
+				String message = createMessage();
+				String storeMessageOutput = partitionedStorage.storeMessage(withoutGeneratedKeys, "1", "correlationId1", new Date(), "comment", "label", message);
+				assertTrue(storeMessageOutput, storeMessageOutput.matches("<id>\\d+</id>"));
+				String key = storeMessageOutput.substring(storeMessageOutput.indexOf(">")+1, storeMessageOutput.lastIndexOf("<"));
+				assertEquals(message, partitionedStorage.browseMessage(key));
+				assertEquals(1, partitionedStorage.getMessageCount());
+			}
+		} finally {
+			dropPartitionedStorage(partitionedStorage, partitions);
+		}
+	}
+
+	private Connection withoutGeneratedKeys(Connection connection) {
+		return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+			Object result = invoke(connection, method, args);
+			if (!(result instanceof PreparedStatement)) {
+				return result;
+			}
+			PreparedStatement stmt = (PreparedStatement)result;
+			return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, (stmtProxy, stmtMethod, stmtArgs) -> {
+				if ("getGeneratedKeys".equals(stmtMethod.getName())) {
+					return connection.createStatement().executeQuery("SELECT NULL "+dbmsSupport.getFromForTablelessSelect());
+				}
+				return invoke(stmt, stmtMethod, stmtArgs);
+			});
+		});
+	}
+
+	private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
 }
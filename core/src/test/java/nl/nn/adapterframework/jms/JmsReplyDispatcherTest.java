@@ -0,0 +1,109 @@
+package nl.nn.adapterframework.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JmsReplyDispatcherTest {
+
+	private BlockingQueue<Message> replies = new LinkedBlockingQueue<>();
+	private MessagingSource messagingSource;
+	private TemporaryQueue replyQueue;
+	private JmsReplyDispatcher dispatcher;
+	private ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Before
+	public void setUp() throws Exception {
+		Session session = mock(Session.class);
+		replyQueue = mock(TemporaryQueue.class);
+		MessageConsumer consumer = mock(MessageConsumer.class);
+		when(consumer.receive(anyLong())).thenAnswer(invocation -> replies.poll(invocation.getArgument(0), TimeUnit.MILLISECONDS));
+		when(session.createTemporaryQueue()).thenReturn(replyQueue);
+		when(session.createConsumer(replyQueue)).thenReturn(consumer);
+
+		messagingSource = mock(MessagingSource.class);
+		when(messagingSource.getId()).thenReturn("test");
+		when(messagingSource.createSession(anyBoolean(), anyInt())).thenReturn(session);
+
+		dispatcher = new JmsReplyDispatcher(messagingSource);
+		dispatcher.start();
+	}
+
+	@After
+	public void tearDown() {
+		dispatcher.stop();
+		executor.shutdownNow();
+	}
+
+	private Message reply(String correlationId) throws Exception {
+		Message message = mock(Message.class);
+		when(message.getJMSCorrelationID()).thenReturn(correlationId);
+		return message;
+	}
+
+	@Test
+	public void testRepliesAreDispatchedByCorrelationId() throws Exception {
+		assertSame(replyQueue, dispatcher.getReplyQueue());
+
+		Future<Message> first = executor.submit((Callable<Message>)() -> dispatcher.awaitReply("cid1", 10000));
+		Future<Message> second = executor.submit((Callable<Message>)() -> dispatcher.awaitReply("cid2", 10000));
+		Message reply1 = reply("cid1");
+		Message reply2 = reply("cid2");
+		replies.add(reply2);
+		replies.add(reply1);
+
+		assertSame(reply1, first.get(10, TimeUnit.SECONDS));
+		assertSame(reply2, second.get(10, TimeUnit.SECONDS));
+		assertEquals(0, dispatcher.getOutstanding());
+	}
+
+	@Test
+	public void testReplyArrivingBeforeRequestIsKept() throws Exception {
+		Message reply = reply("cid");
+		replies.add(reply);
+		while (!replies.isEmpty()) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50); // let the dispatcher process the reply
+
+		assertSame(reply, dispatcher.awaitReply("cid", 1000));
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		assertNull(dispatcher.awaitReply("cid", 100));
+		assertEquals(1, dispatcher.getTimeouts());
+		assertEquals(0, dispatcher.getOutstanding());
+	}
+
+	@Test
+	public void testStopReleasesSession() throws Exception {
+		dispatcher.stop();
+		verify(replyQueue).delete();
+		verify(messagingSource).releaseSession(any(Session.class));
+	}
+}
@@ -0,0 +1,98 @@
+package nl.nn.adapterframework.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.jms.Destination;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.nn.adapterframework.jms.JmsSessionPool.PooledSession;
+
+public class JmsSessionPoolTest {
+
+	private JMSFacade facade;
+	private JmsSessionPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		facade = mock(JMSFacade.class);
+		when(facade.getName()).thenReturn("testSender");
+		when(facade.createSession()).thenAnswer(invocation -> mock(Session.class));
+		when(facade.getMessageProducer(any(Session.class), any(Destination.class))).thenAnswer(invocation -> mock(MessageProducer.class));
+		pool = new JmsSessionPool(facade, 2, 200, 0);
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void testSessionAndProducerAreReused() throws Exception {
+		Destination destination = mock(Destination.class);
+
+		PooledSession first = pool.borrow();
+		MessageProducer producer = first.getMessageProducer(destination);
+		pool.giveBack(first, false);
+
+		PooledSession second = pool.borrow();
+		assertSame(first, second);
+		assertSame(producer, second.getMessageProducer(destination));
+		pool.giveBack(second, false);
+
+		verify(facade, times(1)).createSession();
+		verify(facade, times(1)).getMessageProducer(any(Session.class), any(Destination.class));
+		assertEquals(1, pool.getSize());
+		assertEquals(1, pool.getIdleCount());
+	}
+
+	@Test
+	public void testWaitsWhenAllSessionsAreInUse() throws Exception {
+		PooledSession first = pool.borrow();
+		PooledSession second = pool.borrow();
+		assertNotSame(first, second);
+
+		assertThrows(JmsException.class, pool::borrow);
+		assertEquals(1, pool.getWaits());
+		assertEquals(2, pool.getSize());
+
+		new Thread(() -> pool.giveBack(first, false)).start();
+		assertSame(first, pool.borrow());
+		assertEquals(2, pool.getWaits());
+	}
+
+	@Test
+	public void testFailedSessionIsEvicted() throws Exception {
+		PooledSession first = pool.borrow();
+		pool.giveBack(first, true);
+
+		verify(facade).closeSession(first.getSession());
+		assertEquals(0, pool.getSize());
+		assertEquals(1, pool.getEvictions());
+		assertNotSame(first, pool.borrow());
+	}
+
+	@Test
+	public void testIdleSessionsExpire() throws Exception {
+		pool = new JmsSessionPool(facade, 2, 200, 50);
+		PooledSession first = pool.borrow();
+		pool.giveBack(first, false);
+		Thread.sleep(100);
+
+		assertNotSame(first, pool.borrow());
+		verify(facade).closeSession(first.getSession());
+		assertEquals(1, pool.getEvictions());
+	}
+}
@@ -0,0 +1,35 @@
+package nl.nn.adapterframework.metrics;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+public class ApplicationMeterBindersTest {
+
+	@Test
+	public void testMeterBinderBeansAreBound() {
+		StaticApplicationContext applicationContext = new StaticApplicationContext();
+		TaggedMeterBinder taggedBinder = (registry, tags) -> Gauge.builder("test.tagged", () -> 1).tags(tags).register(registry);
+		applicationContext.getBeanFactory().registerSingleton("taggedBinder", taggedBinder);
+		MeterBinder plainBinder = registry -> Gauge.builder("test.plain", () -> 1).register(registry);
+		applicationContext.getBeanFactory().registerSingleton("plainBinder", plainBinder);
+		MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+		ApplicationMeterBinders binders = new ApplicationMeterBinders();
+		binders.setApplicationContext(applicationContext);
+		binders.setMetricsRegistry(metricsRegistry);
+		binders.afterSingletonsInstantiated();
+
+		MeterRegistry registry = metricsRegistry.getRegistry();
+		assertNotNull(registry.find("test.tagged").tag("type", "application").gauge());
+		Gauge plainGauge = registry.find("test.plain").gauge();
+		assertNotNull(plainGauge);
+		assertNull(plainGauge.getId().getTag("type"));
+	}
+}
@@ -2,15 +2,28 @@ package nl.nn.adapterframework.parameters;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import nl.nn.adapterframework.configuration.ConfigurationException;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.parameters.Parameter.ParameterType;
+import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.util.TransformerErrorListener;
+import nl.nn.adapterframework.util.TransformerPool;
+import nl.nn.adapterframework.util.XmlUtils;
 
 public class ParameterListTest {
 
@@ -60,4 +73,187 @@ public class ParameterListTest {
 		Parameter keyWithName = list.get(4);
 		assertEquals("parameter4", keyWithName.getName());
 	}
+
+	private ParameterList createXPathParameterList(boolean sharedInputParsing) throws ConfigurationException {
+		ParameterList list = new ParameterList();
+		list.setSharedInputParsing(sharedInputParsing);
+		Parameter a = new Parameter();
+		a.setName("a");
+		a.setXpathExpression("/root/a");
+		list.add(a);
+		list.add(new Parameter("fixed", "value"));
+		Parameter b = new Parameter();
+		b.setName("b");
+		b.setXpathExpression("count(/root/*)");
+		b.setType(ParameterType.INTEGER);
+		list.add(b);
+		Parameter node = new Parameter();
+		node.setName("node");
+		node.setXpathExpression("/root/a");
+		node.setType(ParameterType.NODE);
+		list.add(node);
+		Parameter session = new Parameter();
+		session.setName("session");
+		session.setSessionKey("sessionKey");
+		session.setXpathExpression("/other");
+		list.add(session);
+		list.configure();
+		return list;
+	}
+
+	private void assertXPathParameterValues(ParameterValueList values) throws Exception {
+		assertEquals("1", values.getParameterValue("a").asStringValue());
+		assertEquals("value", values.getParameterValue("fixed").asStringValue());
+		assertEquals(3, values.getParameterValue("b").asIntegerValue(0));
+		Node node = (Node)values.getParameterValue("node").getValue();
+		assertEquals("a", node.getLocalName());
+		assertEquals("1", node.getTextContent());
+		assertEquals("session", values.getParameterValue("session").asStringValue());
+	}
+
+	@Test
+	public void testSharedInputParsing() throws Exception {
+		ParameterList list = createXPathParameterList(true);
+		assertNotNull(list.getSharedInputParsingStatistics());
+		list.getSharedInputParsingStatistics().initMetrics(new SimpleMeterRegistry(), "parameters", new ArrayList<>());
+
+		PipeLineSession session = new PipeLineSession();
+		session.put("sessionKey", "<other>session</other>");
+		Message input = new Message("<root><a>1</a><b>2</b><c>3</c></root>".getBytes("UTF-8"));
+		assertXPathParameterValues(list.getValues(input, session));
+		assertXPathParameterValues(list.getValues(input, session));
+
+		assertEquals(2, list.getSharedInputParsingStatistics().getCount());
+		assertTrue(list.getSharedInputParsingStatistics().getName().contains("3 parameters"));
+	}
+
+	@Test
+	public void testSharedInputParsingDisabled() throws Exception {
+		ParameterList list = createXPathParameterList(false);
+		assertNull(list.getSharedInputParsingStatistics());
+
+		PipeLineSession session = new PipeLineSession();
+		session.put("sessionKey", "<other>session</other>");
+		assertXPathParameterValues(list.getValues(new Message("<root><a>1</a><b>2</b><c>3</c></root>"), session));
+	}
+
+	@Test
+	public void testSharedInputParsingNotUsedForSingleParameter() throws Exception {
+		ParameterList list = new ParameterList();
+		Parameter a = new Parameter();
+		a.setName("a");
+		a.setXpathExpression("/root/a");
+		list.add(a);
+		list.configure();
+
+		assertNull(list.getSharedInputParsingStatistics());
+	}
+
+	private class ParseCountingMessage extends Message {
+		private int parseCount;
+
+		ParseCountingMessage(String request) {
+			super(request);
+		}
+
+		@Override
+		public InputSource asInputSource() throws IOException {
+			parseCount++;
+			return super.asInputSource();
+		}
+	}
+
+	@Test
+	public void testSharedInputIsParsedOnce() throws Exception {
+		ParameterList list = createXPathParameterList(true);
+
+		PipeLineSession session = new PipeLineSession();
+		session.put("sessionKey", "<other>session</other>");
+		ParseCountingMessage input = new ParseCountingMessage("<root><a>1</a><b>2</b><c>3</c></root>");
+		assertXPathParameterValues(list.getValues(input, session));
+
+		assertEquals(1, input.parseCount);
+	}
+
+	@Test
+	public void testInputIsParsedByEachParameterWhenSharingIsDisabled() throws Exception {
+		ParameterList list = createXPathParameterList(false);
+
+		PipeLineSession session = new PipeLineSession();
+		session.put("sessionKey", "<other>session</other>");
+		ParseCountingMessage input = new ParseCountingMessage("<root><a>1</a><b>2</b><c>3</c></root>");
+		assertXPathParameterValues(list.getValues(input, session));
+
+		assertEquals(3, input.parseCount);
+	}
+
+	@Test
+	public void testSharedInputIsParsedOnceForXslt1Parameters() throws Exception {
+		ParameterList list = new ParameterList();
+		Parameter a = new Parameter();
+		a.setName("a");
+		a.setXpathExpression("/root/a");
+		a.setXsltVersion(1);
+		list.add(a);
+		Parameter b = new Parameter();
+		b.setName("b");
+		b.setXpathExpression("count(/root/*)");
+		list.add(b);
+		list.configure();
+
+		ParseCountingMessage input = new ParseCountingMessage("<root><a>1</a><b>2</b><c>3</c></root>");
+		ParameterValueList values = list.getValues(input, new PipeLineSession());
+
+		assertEquals("1", values.getParameterValue("a").asStringValue());
+		assertEquals("3", values.getParameterValue("b").asStringValue());
+		assertEquals(1, input.parseCount);
+	}
+
+	@Test
+	public void testSharedSaxonTreeDoesNotChangeDocumentNumbersOfOtherTransformations() throws Exception {
+		ParameterList list = new ParameterList();
+		Parameter a = new Parameter();
+		a.setName("a");
+		a.setXpathExpression("generate-id(/*)");
+		list.add(a);
+		Parameter b = new Parameter();
+		b.setName("b");
+		b.setXpathExpression("count(/root/*)");
+		list.add(b);
+		list.configure();
+		ParameterValueList values = list.getValues(new Message("<root><a>1</a></root>"), new PipeLineSession());
+		String sharedTreeId = values.getParameterValue("a").asStringValue();
+
+		TransformerPool other = TransformerPool.getUtilityInstance(XmlUtils.createXPathEvaluatorSource("concat(generate-id(/*),'-other')"), 2);
+		String otherId = other.transform(new Message("<root/>"), null);
+
+		assertTrue(sharedTreeId, sharedTreeId.matches("d[0-9]+e[0-9]+"));
+		assertEquals("1", values.getParameterValue("b").asStringValue());
+		// the input is the first document numbered by the configuration of the other transformation itself
+		assertEquals(otherId, 1L, getDocumentNumber(otherId));
+	}
+
+	@Test
+	public void testSharedSaxonTreeDoesNotShareNamePoolOfTransformerFactories() throws Exception {
+		ParameterList list = new ParameterList();
+		for (String name : new String[] {"a", "b"}) {
+			Parameter p = new Parameter();
+			p.setName(name);
+			p.setXpathExpression("name(/*/"+name+")");
+			list.add(p);
+		}
+		list.configure();
+		ParameterValueList values = list.getValues(new Message("<root><a/><b/></root>"), new PipeLineSession());
+		assertEquals("a", values.getParameterValue("a").asStringValue());
+		assertEquals("b", values.getParameterValue("b").asStringValue());
+
+		net.sf.saxon.Configuration first = ((net.sf.saxon.TransformerFactoryImpl)XmlUtils.getTransformerFactory(2, new TransformerErrorListener())).getConfiguration();
+		net.sf.saxon.Configuration second = ((net.sf.saxon.TransformerFactoryImpl)XmlUtils.getTransformerFactory(2, new TransformerErrorListener())).getConfiguration();
+		assertNotSame(first.getNamePool(), second.getNamePool());
+	}
+
+	private long getDocumentNumber(String generatedId) {
+		// Saxon generates ids like d<documentNumber>e<nodeNumber>
+		return Long.parseLong(generatedId.substring(1, generatedId.indexOf('e')));
+	}
 }
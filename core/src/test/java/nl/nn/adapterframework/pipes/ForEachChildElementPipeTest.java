@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hamcrest.Matchers;
 import org.hamcrest.core.StringContains;
@@ -981,6 +982,38 @@ public class ForEachChildElementPipeTest extends StreamingPipeTestBase<ForEachCh
 	}
 
 
+	@Test
+	public void testParallelWithMaxItemsInProgress() throws Exception {
+		AtomicInteger inProgress = new AtomicInteger();
+		AtomicInteger maxInProgress = new AtomicInteger();
+		pipe.setSender(new EchoSender() {
+			@Override
+			public SenderResult sendMessage(Message message, PipeLineSession session) throws SenderException, TimeoutException {
+				maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+				try {
+					// let the first items finish last, to check that the results are written in the order of the items
+					Thread.sleep(message.asString().contains("A &amp; B") ? 200 : 10);
+					return super.sendMessage(message, session);
+				} catch (Exception e) {
+					throw new SenderException(e);
+				} finally {
+					inProgress.decrementAndGet();
+				}
+			}
+		});
+		pipe.setParallel(true);
+		pipe.setMaxItemsInProgress(2);
+		pipe.setTaskExecutor(new ConcurrentTaskExecutor());
+		configurePipe();
+		pipe.start();
+
+		PipeRunResult prr = doPipe(pipe, messageBasicNoNS, session);
+		String actual = Message.asString(prr.getResult());
+
+		assertEquals(expectedBasicNoNS, actual);
+		assertThat(maxInProgress.get(), Matchers.lessThanOrEqualTo(2));
+	}
+
 	@Test
 	public void testRemoveNamespacesInAttributes() throws Exception, IOException {
 		pipe.setSender(getElementRenderer());
@@ -5,7 +5,10 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -19,6 +22,8 @@ import nl.nn.adapterframework.core.PipeRunException;
 import nl.nn.adapterframework.core.PipeRunResult;
 import nl.nn.adapterframework.parameters.Parameter;
 import nl.nn.adapterframework.stream.Message;
+import nl.nn.adapterframework.stream.MessageSpillStore;
+import nl.nn.adapterframework.stream.MessageSpillStore.SpillFile;
 import nl.nn.adapterframework.stream.document.DocumentFormat;
 import nl.nn.adapterframework.testutil.ParameterBuilder;
 import nl.nn.adapterframework.testutil.TestFileUtils;
@@ -426,6 +431,32 @@ public class Json2XmlValidatorTest extends PipeTestBase<Json2XmlValidator> {
 		assertEquals("a", session.get("rootElement"));
 	}
 
+	@Test
+	public void testJsonInputStreamIsNotReadIntoMemory() throws Exception {
+		MessageSpillStore spillStore = MessageSpillStore.getInstance();
+		long originalThreshold = spillStore.getThreshold();
+		spillStore.setThreshold(16);
+		try {
+			pipe.setName("testJsonInputStream");
+			pipe.setSchema("/Align/Abc/abc.xsd");
+			pipe.setThrowException(true);
+			pipe.configure();
+			pipe.start();
+
+			String input    = TestFileUtils.getTestFile("/Align/Abc/abc-full.json");
+			String expected = TestFileUtils.getTestFile("/Align/Abc/abc.xml");
+			Message message = new Message(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+			PipeRunResult prr = doPipe(pipe, message, session);
+
+			assertXmlEquals("converted XML does not match", expected, prr.getResult().asString(), true);
+			assertTrue(message.asObject() instanceof SpillFile); // aligned from the spilled stream, not from a String
+			message.close();
+		} finally {
+			spillStore.setThreshold(originalThreshold);
+		}
+	}
+
 	@Test
 	public void testStoreRootElementXml2Json() throws Exception {
 		testStoreRootElement(DocumentFormat.JSON,"abc.xml",false);
@@ -0,0 +1,99 @@
+package nl.nn.adapterframework.receivers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import nl.nn.adapterframework.receivers.ProcessResultCache.ProcessResultCacheItem;
+
+public class ProcessResultCacheTest {
+
+	@Test
+	public void testRegisterAttemptCountsAttempts() {
+		ProcessResultCache cache = new ProcessResultCache(10, 0);
+		Date receiveDate = new Date();
+
+		assertNull(cache.get("id"));
+		cache.registerAttempt("id", null, receiveDate);
+		cache.registerAttempt("id", "error", new Date());
+
+		ProcessResultCacheItem item = cache.get("id");
+		assertNotNull(item);
+		assertEquals(2, item.receiveCount);
+		assertEquals("error", item.comments);
+		assertEquals(receiveDate, item.receiveDate);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testRevertAttempt() {
+		ProcessResultCache cache = new ProcessResultCache(10, 0);
+		cache.registerAttempt("id", null, new Date());
+		cache.registerAttempt("id", null, new Date());
+
+		cache.revertAttempt("id");
+		assertEquals(1, cache.get("id").receiveCount);
+		cache.revertAttempt("id");
+		assertNull(cache.get("id"));
+		assertEquals(0, cache.size());
+		cache.revertAttempt("unknown");
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEvictsEldestWhenFull() {
+		ProcessResultCache cache = new ProcessResultCache(3, 0);
+		for (int i=0; i<5; i++) {
+			cache.registerAttempt("id"+i, null, new Date());
+		}
+		assertEquals(3, cache.size());
+		assertEquals(2, cache.getEvictions());
+		assertNull(cache.get("id0"));
+		assertNull(cache.get("id1"));
+		assertNotNull(cache.get("id4"));
+	}
+
+	@Test
+	public void testItemsExpire() throws Exception {
+		ProcessResultCache cache = new ProcessResultCache(10, 100);
+		cache.registerAttempt("id", null, new Date());
+		assertNotNull(cache.get("id"));
+		Thread.sleep(200);
+		assertNull(cache.get("id"));
+
+		cache.registerAttempt("id", null, new Date());
+		assertEquals(1, cache.get("id").receiveCount);
+	}
+
+	@Test
+	public void testConcurrentAttemptsAreAllCounted() throws Exception {
+		ProcessResultCache cache = new ProcessResultCache(100, 0);
+		int threads = 8;
+		int attempts = 1000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int t=0; t<threads; t++) {
+				executor.execute(() -> {
+					for (int i=0; i<attempts; i++) {
+						cache.registerAttempt("id"+(i%10), null, new Date());
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(30, TimeUnit.SECONDS);
+		}
+		assertEquals(10, cache.size());
+		for (int i=0; i<10; i++) {
+			assertEquals(threads*attempts/10, cache.get("id"+i).receiveCount);
+		}
+	}
+}
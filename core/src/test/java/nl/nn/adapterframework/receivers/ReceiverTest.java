@@ -2,22 +2,48 @@ package nl.nn.adapterframework.receivers;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.logging.log4j.Logger;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
 
 import nl.nn.adapterframework.configuration.AdapterManager;
+import nl.nn.adapterframework.configuration.ConfigurationException;
 import nl.nn.adapterframework.configuration.IbisManager.IbisAction;
 import nl.nn.adapterframework.core.Adapter;
 import nl.nn.adapterframework.core.IManagable;
+import nl.nn.adapterframework.core.IPipe;
+import nl.nn.adapterframework.core.IWakeUpSignallingListener;
+import nl.nn.adapterframework.core.ListenerException;
 import nl.nn.adapterframework.core.PipeLine;
 import nl.nn.adapterframework.core.PipeLine.ExitState;
 import nl.nn.adapterframework.core.PipeLineExit;
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.core.PipeRunException;
+import nl.nn.adapterframework.core.PipeRunResult;
+import nl.nn.adapterframework.core.TransactionAttribute;
+import nl.nn.adapterframework.jdbc.JdbcTransactionalStorage;
 import nl.nn.adapterframework.pipes.EchoPipe;
+import nl.nn.adapterframework.pipes.FixedForwardPipe;
+import nl.nn.adapterframework.processors.CorePipeLineProcessor;
+import nl.nn.adapterframework.processors.CorePipeProcessor;
+import nl.nn.adapterframework.stream.Message;
 import nl.nn.adapterframework.testutil.TestConfiguration;
 import nl.nn.adapterframework.util.LogUtil;
 import nl.nn.adapterframework.util.RunState;
@@ -58,6 +84,10 @@ public class ReceiverTest {
 	}
 
 	public Adapter setupAdapter(Receiver<String> receiver) throws Exception {
+		return setupAdapter(receiver, new EchoPipe());
+	}
+
+	public Adapter setupAdapter(Receiver<String> receiver, IPipe pipe) throws Exception {
 
 		Adapter adapter = configuration.createBean(Adapter.class);
 		adapter.setName("ReceiverTestAdapterName");
@@ -65,7 +95,6 @@ public class ReceiverTest {
 		PipeLine pl = new PipeLine();
 		pl.setFirstPipe("dummy");
 
-		EchoPipe pipe = new EchoPipe();
 		pipe.setName("dummy");
 		pl.addPipe(pipe);
 
@@ -225,4 +254,212 @@ public class ReceiverTest {
 		assertEquals(RunState.STOPPED, receiver.getRunState());
 		assertEquals(RunState.STOPPED, adapter.getRunState());
 	}
-}
\ No newline at end of file
+
+	public static class QueuePullingListener extends SlowStartingPullingListener {
+		protected Queue<String> messages = new ConcurrentLinkedQueue<>();
+		protected AtomicInteger threadsOpened = new AtomicInteger();
+
+		@Override
+		public Map<String, Object> openThread() throws ListenerException {
+			threadsOpened.incrementAndGet();
+			return super.openThread();
+		}
+
+		@Override
+		public String getRawMessage(Map<String, Object> threadContext) throws ListenerException {
+			return messages.poll();
+		}
+	}
+
+	@Test
+	public void testPullingReceiverProcessesMultipleMessagesPerThread() throws Exception {
+		QueuePullingListener listener = configuration.createBean(QueuePullingListener.class);
+		listener.setStartupDelay(0);
+		for (int i=0; i<10; i++) {
+			listener.messages.add("message "+i);
+		}
+		Receiver<String> receiver = setupReceiver(listener);
+		receiver.setMaxMessagesPerPoll(5);
+		receiver.setPollInterval(60);
+		setupAdapter(receiver);
+
+		configuration.configure();
+		configuration.start();
+
+		waitForState(receiver, RunState.STARTED);
+		long timeout = System.currentTimeMillis()+10000;
+		while (!listener.messages.isEmpty() && System.currentTimeMillis()<timeout) {
+			Thread.sleep(100);
+		}
+		assertTrue("not all messages were retrieved", listener.messages.isEmpty());
+		// two threads of 5 messages each, and possibly a third one that finds the queue empty
+		assertTrue("threads opened ["+listener.threadsOpened.get()+"]", listener.threadsOpened.get()<=3);
+	}
+
+	public static class WakeUpSignallingQueueListener extends QueuePullingListener implements IWakeUpSignallingListener<String> {
+		private Runnable wakeUpHandler;
+
+		@Override
+		public void setWakeUpHandler(Runnable wakeUpHandler) {
+			this.wakeUpHandler = wakeUpHandler;
+		}
+	}
+
+	@Test
+	public void testIdleIntervalBacksOff() throws Exception {
+		Receiver<String> receiver = setupReceiver(setupPullingListener(0));
+		receiver.setPollInterval(1);
+		receiver.setMaxPollInterval(8);
+		PullingListenerContainer<String> container = receiver.createListenerContainer();
+
+		container.setIdle(true);
+		assertEquals(1000, container.getIdleInterval());
+		container.setIdle(true);
+		long interval = container.getIdleInterval();
+		assertTrue("interval ["+interval+"]", interval>=1750 && interval<=2000);
+		for (int i=0; i<10; i++) {
+			container.setIdle(true);
+		}
+		interval = container.getIdleInterval();
+		assertTrue("interval ["+interval+"]", interval>=6250 && interval<=8000);
+
+		container.setIdle(false);
+		container.setIdle(true);
+		assertEquals(1000, container.getIdleInterval());
+	}
+
+	@Test
+	public void testWakeUpIdleReceiver() throws Exception {
+		WakeUpSignallingQueueListener listener = configuration.createBean(WakeUpSignallingQueueListener.class);
+		listener.setStartupDelay(0);
+		Receiver<String> receiver = setupReceiver(listener);
+		receiver.setPollInterval(60);
+		setupAdapter(receiver);
+
+		configuration.configure();
+		configuration.start();
+
+		waitForState(receiver, RunState.STARTED);
+		long timeout = System.currentTimeMillis()+10000;
+		while (receiver.getPollsEmpty()==0 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(100);
+		}
+		assertTrue("receiver did not poll", receiver.getPollsEmpty()>0);
+
+		listener.messages.add("message");
+		listener.wakeUpHandler.run();
+		timeout = System.currentTimeMillis()+10000;
+		while (!listener.messages.isEmpty() && System.currentTimeMillis()<timeout) {
+			Thread.sleep(100);
+		}
+		assertTrue("message was not retrieved after wake up", listener.messages.isEmpty());
+		assertEquals(1, receiver.getPollsProductive());
+	}
+
+	@Test
+	public void testCheckForDuplicatesRejectsAsynchronousMessageLog() throws Exception {
+		Receiver<String> receiver = setupReceiver(setupPullingListener(0));
+		JdbcTransactionalStorage<Serializable> messageLog = configuration.createBean(JdbcTransactionalStorage.class);
+		messageLog.setAsynchronous(true);
+		receiver.setMessageLog(messageLog);
+		receiver.setCheckForDuplicates(true);
+		setupAdapter(receiver);
+
+		ConfigurationException e = assertThrows(ConfigurationException.class, receiver::configure);
+		assertTrue(e.getMessage(), e.getMessage().contains("checkForDuplicates cannot be used with an asynchronous messageLog"));
+	}
+
+	@Test
+	public void testBatchTransactedRejectsAsynchronousMessageLog() throws Exception {
+		Receiver<String> receiver = setupReceiver(setupPullingListener(0));
+		JdbcTransactionalStorage<Serializable> messageLog = configuration.createBean(JdbcTransactionalStorage.class);
+		messageLog.setAsynchronous(true);
+		receiver.setMessageLog(messageLog);
+		receiver.setBatchTransacted(true);
+		setupAdapter(receiver);
+
+		ConfigurationException e = assertThrows(ConfigurationException.class, receiver::configure);
+		assertTrue(e.getMessage(), e.getMessage().contains("batchTransacted cannot be used with an asynchronous messageLog"));
+	}
+
+	public static class IdentifyingQueuePullingListener extends QueuePullingListener {
+		@Override
+		public String getIdFromRawMessage(String rawMessage, Map<String, Object> context) throws ListenerException {
+			return rawMessage;
+		}
+	}
+
+	public static class FailingPipe extends FixedForwardPipe {
+		@Override
+		public PipeRunResult doPipe(Message message, PipeLineSession session) throws PipeRunException {
+			try {
+				if (message.asString().startsWith("fail")) {
+					throw new PipeRunException(this, "failing on purpose");
+				}
+			} catch (IOException e) {
+				throw new PipeRunException(this, "cannot read message", e);
+			}
+			return new PipeRunResult(getSuccessForward(), message);
+		}
+	}
+
+	public static class ResourcelessTransactionManager extends AbstractPlatformTransactionManager {
+
+		public ResourcelessTransactionManager() {
+			setTransactionSynchronization(SYNCHRONIZATION_NEVER);
+		}
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+			// no resources to bind
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+			// no resources to commit
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+			// no resources to roll back
+		}
+	}
+
+	@Test
+	public void testRolledBackBatchDoesNotCountAsRetryOfOtherMessages() throws Exception {
+		configuration.getBeanFactory().registerSingleton("txManager", new ResourcelessTransactionManager());
+		IdentifyingQueuePullingListener listener = configuration.createBean(IdentifyingQueuePullingListener.class);
+		listener.setStartupDelay(0);
+		listener.messages.add("message 1");
+		listener.messages.add("message 2");
+		listener.messages.add("fail 3");
+		Receiver<String> receiver = setupReceiver(listener);
+		receiver.setTransactionAttribute(TransactionAttribute.REQUIRED);
+		receiver.setMaxMessagesPerPoll(5);
+		receiver.setBatchTransacted(true);
+		receiver.setMaxRetries(2);
+		receiver.setPollInterval(60);
+		Adapter adapter = setupAdapter(receiver, configuration.createBean(FailingPipe.class));
+		CorePipeLineProcessor pipeLineProcessor = configuration.createBean(CorePipeLineProcessor.class);
+		pipeLineProcessor.setPipeProcessor(configuration.createBean(CorePipeProcessor.class));
+		adapter.getPipeLine().setPipeLineProcessor(pipeLineProcessor);
+
+		configuration.configure();
+		configuration.start();
+
+		waitForState(receiver, RunState.STARTED);
+		long timeout = System.currentTimeMillis()+10000;
+		while (receiver.getCachedErrorMessage("fail 3")==null && System.currentTimeMillis()<timeout) {
+			Thread.sleep(100);
+		}
+		assertTrue("batch was not processed", listener.messages.isEmpty());
+		assertNotNull("attempt of failing message must be counted", receiver.getCachedErrorMessage("fail 3"));
+		assertNull("attempt of rolled back message must not be counted", receiver.getCachedErrorMessage("message 1"));
+		assertNull("attempt of rolled back message must not be counted", receiver.getCachedErrorMessage("message 2"));
+	}
+}
@@ -62,6 +62,11 @@ public class CleanupDatabaseJobTest extends JdbcTestBase {
 				return mlo;
 			}
 
+			@Override
+			protected List<JdbcTransactionalStorage<?>> getAllPartitionedMessageLogs() {
+				return Collections.emptyList();
+			}
+
 		};
 
 		getConfiguration().autowireByName(jobDef);
@@ -2,7 +2,9 @@ package nl.nn.adapterframework.statistics;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -11,6 +13,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -246,6 +251,37 @@ public class StatisticsKeeperTest {
 		assertEquals(value, map.get(key).toString());
 	}
 
+	@Test
+	public void testConcurrentAddValue() throws Exception {
+		assumeTrue("only MicroMeterBasics supports concurrent updates", MicroMeterBasics.class.equals(basicsClass));
+		StatisticsKeeper sk = createStatisticsKeeper(false, false, false);
+		sk.initMetrics(new SimpleMeterRegistry(), "testConcurrentAddValue", null);
+
+		int threads = 8;
+		int valuesPerThread = 10000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t=0; t<threads; t++) {
+			executor.execute(() -> {
+				for (int i=0; i<valuesPerThread; i++) {
+					sk.addValue(i%200);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+		assertEquals(threads*valuesPerThread, sk.getCount());
+		assertEquals(0, sk.getMin());
+		assertEquals(199, sk.getMax());
+		assertEquals(threads*valuesPerThread/2, sk.getClassCounts()[0]);
+		assertEquals(threads*valuesPerThread, sk.getClassCounts()[1]);
+		long expectedSumOfSquares = 0;
+		for (int i=0; i<200; i++) {
+			expectedSumOfSquares += i*i;
+		}
+		assertEquals(expectedSumOfSquares*threads*valuesPerThread/200, sk.getTotalSquare());
+	}
+
 	@Test
 	public void testLabelsAndTypes() {
 		List<String> labels = StatisticsKeeper.getLabels();
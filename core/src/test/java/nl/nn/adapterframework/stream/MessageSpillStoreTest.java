@@ -0,0 +1,183 @@
+package nl.nn.adapterframework.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+import nl.nn.adapterframework.stream.MessageSpillStore.SpillFile;
+import nl.nn.adapterframework.util.Misc;
+
+public class MessageSpillStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MessageSpillStore store = MessageSpillStore.getInstance();
+	private long originalThreshold;
+
+	@Before
+	public void setUp() {
+		originalThreshold = store.getThreshold();
+		store.setThreshold(100);
+	}
+
+	@After
+	public void tearDown() {
+		store.setThreshold(originalThreshold);
+	}
+
+	private byte[] bytes(int size) {
+		byte[] result = new byte[size];
+		for (int i=0; i<size; i++) {
+			result[i] = (byte)i;
+		}
+		return result;
+	}
+
+	private String chars(int size) {
+		StringBuilder result = new StringBuilder();
+		for (int i=0; i<size; i++) {
+			result.append(i%2==0 ? 'a' : '€');
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testSmallStreamIsPreservedInMemory() throws Exception {
+		byte[] content = bytes(100);
+		Message message = new Message(new ByteArrayInputStream(content));
+		message.preserve();
+
+		assertTrue(message.asObject() instanceof byte[]);
+		assertArrayEquals(content, message.asByteArray());
+	}
+
+	@Test
+	public void testLargeStreamIsSpilled() throws Exception {
+		byte[] content = bytes(100000);
+		int filesBefore = store.getFileCount();
+		long bytesSpilledBefore = store.getBytesSpilled();
+
+		Message message = new Message(new ByteArrayInputStream(content));
+		message.preserve();
+
+		assertTrue(message.asObject() instanceof SpillFile);
+		assertTrue(message.isRepeatable());
+		assertEquals(content.length, message.size());
+		assertArrayEquals(content, message.asByteArray());
+		assertArrayEquals(content, message.asByteArray());
+		assertEquals(filesBefore+1, store.getFileCount());
+		assertEquals(bytesSpilledBefore+content.length, store.getBytesSpilled());
+
+		message.close();
+		assertEquals(filesBefore, store.getFileCount());
+	}
+
+	@Test
+	public void testLargeReaderIsSpilled() throws Exception {
+		String content = chars(1000);
+		Message message = new Message(new StringReader(content));
+		message.preserve();
+
+		assertTrue(message.asObject() instanceof SpillFile);
+		assertFalse("preserved character data must remain character data", message.isBinary());
+		assertNull(message.getCharset());
+		assertEquals(content, message.asString());
+		assertEquals(content, message.asString());
+		assertTrue(message.asObject() instanceof SpillFile);
+		assertArrayEquals(content.getBytes("UTF-16"), message.asByteArray("UTF-16"));
+		message.close();
+	}
+
+	@Test
+	public void testSpillFileOfUnclosedMessageIsRemoved() throws Exception {
+		int filesBefore = store.getFileCount();
+		Message message = new Message(new ByteArrayInputStream(bytes(1000)));
+		message.preserve();
+		assertEquals(filesBefore+1, store.getFileCount());
+
+		message = null;
+		for (int i=0; i<100 && store.getFileCount()>filesBefore; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assertEquals(filesBefore, store.getFileCount());
+	}
+
+	@Test
+	public void testSpillFileIsRemovedOnCloseOfSession() throws Exception {
+		int filesBefore = store.getFileCount();
+		Message message = new Message(new ByteArrayInputStream(bytes(1000)));
+		try (PipeLineSession session = new PipeLineSession()) {
+			message.closeOnCloseOf(session, "test");
+			message.preserve();
+
+			assertTrue(message.isScheduledForCloseOnExitOf(session));
+			assertEquals(filesBefore+1, store.getFileCount());
+		}
+		assertEquals(filesBefore, store.getFileCount());
+		assertFalse(message.asObject() instanceof SpillFile);
+	}
+
+	@Test
+	public void testSpillingDisabled() throws Exception {
+		store.setThreshold(0);
+		String content = chars(1000);
+		Message message = new Message(new StringReader(content));
+		message.preserve();
+
+		assertTrue(message.asObject() instanceof String);
+		assertEquals(content, message.asString());
+	}
+
+	@Test
+	public void testOnlyDirectoriesWithoutOwnerAreRemoved() throws Exception {
+		Path parent = folder.getRoot().toPath();
+		Path abandoned = Files.createDirectory(parent.resolve("spill-abandoned"));
+		Files.createFile(abandoned.resolve("owner.lock"));
+		Files.createFile(abandoned.resolve("message1.spill"));
+		Path owned = Files.createDirectory(parent.resolve("spill-owned"));
+		Files.createFile(owned.resolve("message2.spill"));
+
+		try (FileChannel channel = FileChannel.open(owned.resolve("owner.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			channel.lock();
+			store.removeDirectoriesOfPreviousRuns(parent);
+		}
+
+		assertFalse(Files.exists(abandoned));
+		assertTrue(Files.exists(owned.resolve("message2.spill")));
+	}
+
+	@Test
+	public void testSpilledSessionKeyReturnedToCallerSurvivesCloseOfChildSession() throws Exception {
+		byte[] content = bytes(1000);
+		try (PipeLineSession parent = new PipeLineSession()) {
+			Message message = new Message(new ByteArrayInputStream(content));
+			try (PipeLineSession child = new PipeLineSession()) {
+				message.closeOnCloseOf(child, "test");
+				message.preserve();
+				child.put("returned", message);
+				Misc.copyContext("returned", child, parent, null);
+			}
+			assertTrue(message.asObject() instanceof SpillFile);
+			assertArrayEquals(content, parent.getMessage("returned").asByteArray());
+			assertTrue(message.isScheduledForCloseOnExitOf(parent));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package nl.nn.adapterframework.stream.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import nl.nn.adapterframework.stream.Message;
+
+public class LazyJsonReaderTest {
+
+	private static final String JSON = "{ \"header\": { \"id\": 1, \"tags\": [\"a\", \"b\"] },\n"
+			+ " \"items\": [ { \"name\": \"x\", \"values\": [1, 2, 3] }, 4.5, \"y\", true, null, [], { \"nested\": [ { \"v\": [false] } ] } ],\n"
+			+ " \"empty\": [ ],\n"
+			+ " \"trailer\": \"end\" }";
+
+	private JsonStructure readLazy(String json, long threshold) throws Exception {
+		return new LazyJsonReader(() -> new StringReader(json), threshold).read();
+	}
+
+	private JsonStructure readFully(String json) {
+		return Json.createReader(new StringReader(json)).read();
+	}
+
+	private boolean isDeferred(JsonValue value) {
+		return value instanceof JsonArray && !value.getClass().getName().startsWith("org.glassfish");
+	}
+
+	@Test
+	public void testAllArraysDeferred() throws Exception {
+		JsonObject lazy = (JsonObject)readLazy(JSON, 0);
+
+		assertTrue(isDeferred(lazy.get("items")));
+		assertTrue(isDeferred(lazy.getJsonObject("header").get("tags")));
+		assertEquals(readFully(JSON).toString(), lazy.toString());
+	}
+
+	@Test
+	public void testOnlyLargeArraysDeferred() throws Exception {
+		JsonObject lazy = (JsonObject)readLazy(JSON, 20);
+
+		assertTrue(isDeferred(lazy.get("items")));
+		assertFalse(isDeferred(lazy.getJsonObject("header").get("tags")));
+		assertFalse(isDeferred(lazy.get("empty")));
+		assertEquals(readFully(JSON).toString(), lazy.toString());
+	}
+
+	@Test
+	public void testIterateDeferredArray() throws Exception {
+		JsonArray items = ((JsonObject)readLazy(JSON, 0)).getJsonArray("items");
+		JsonArray expected = ((JsonObject)readFully(JSON)).getJsonArray("items");
+
+		List<String> actual = new ArrayList<>();
+		for (JsonValue item : items) {
+			actual.add(item.toString());
+		}
+		assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), actual.get(i));
+		}
+		// nested arrays of the elements are deferred too, and can be iterated repeatedly
+		JsonArray nested = items.getJsonObject(6).getJsonArray("nested");
+		assertTrue(isDeferred(nested));
+		assertEquals("[{\"v\":[false]}]", nested.toString());
+		assertEquals("[{\"v\":[false]}]", nested.toString());
+	}
+
+	@Test
+	public void testRandomAccess() throws Exception {
+		JsonArray items = ((JsonObject)readLazy(JSON, 0)).getJsonArray("items");
+
+		assertEquals(7, items.size());
+		assertFalse(items.isEmpty());
+		assertEquals("x", items.getJsonObject(0).getString("name"));
+		assertEquals("y", items.getString(2));
+		assertTrue(items.getBoolean(3));
+		assertTrue(items.isNull(4));
+		assertTrue(items.getJsonArray(5).isEmpty());
+		assertEquals("default", items.getString(7, "default"));
+		assertTrue(((JsonObject)readLazy(JSON, 0)).getJsonArray("empty").isEmpty());
+	}
+
+	@Test
+	public void testRandomAccessOfAllElements() throws Exception {
+		String json = "{\"items\": [ 1 ,\n{\"a\": [ 2, [3] ]} , \"x,y\" ,[ ] ,[[4],5], -6.5e1 ] }";
+		JsonArray items = ((JsonObject)readLazy(json, 0)).getJsonArray("items");
+		JsonArray expected = ((JsonObject)readFully(json)).getJsonArray("items");
+
+		assertEquals(expected.size(), items.size());
+		for (int i=items.size()-1; i>=0; i--) {
+			assertEquals(expected.get(i).toString(), items.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testRandomAccessDoesNotParsePrecedingElements() throws Exception {
+		StringBuilder json = new StringBuilder("[");
+		int numElements = 10000;
+		for (int i=0; i<numElements; i++) {
+			json.append(i>0 ? ", " : "").append("{\"id\":").append(i).append("}");
+		}
+		json.append("]");
+		long[] charactersRead = new long[1];
+		LazyJsonReader reader = new LazyJsonReader(() -> new FilterReader(new StringReader(json.toString())) {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+				int result = super.read(cbuf, off, len);
+				if (result>0) {
+					charactersRead[0] += result;
+				}
+				return result;
+			}
+		}, 0);
+		JsonArray items = (JsonArray)reader.read();
+		assertEquals(numElements, items.size());
+
+		charactersRead[0] = 0;
+		for (int i=numElements-10; i<numElements; i++) {
+			assertEquals(i, items.getJsonObject(i).getInt("id"));
+		}
+		assertTrue("elements must be read from their offset, read ["+charactersRead[0]+"] characters", charactersRead[0] < json.length());
+	}
+
+	@Test
+	public void testTopLevelArray() throws Exception {
+		String json = "[ {\"a\":[1]}, {\"a\":[2]} ]";
+		JsonStructure lazy = readLazy(json, 0);
+
+		assertTrue(isDeferred(lazy));
+		assertEquals(readFully(json).toString(), lazy.toString());
+	}
+
+	@Test(expected = JsonException.class)
+	public void testInvalidJson() throws Exception {
+		readLazy("{ \"items\": [ 1, 2 }", 0);
+	}
+
+	@Test(expected = JsonException.class)
+	public void testScalarNotAccepted() throws Exception {
+		readLazy("\"text\"", 0);
+	}
+
+	@Test
+	public void testReadMessage() throws Exception {
+		// messages smaller than the default threshold are read into memory completely
+		JsonObject json = (JsonObject)LazyJsonReader.read(new Message(JSON));
+
+		assertFalse(isDeferred(json.get("items")));
+		assertEquals(readFully(JSON), json);
+	}
+}
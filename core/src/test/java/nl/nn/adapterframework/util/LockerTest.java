@@ -26,6 +26,7 @@ import nl.nn.adapterframework.jdbc.JdbcQuerySenderBase.QueryType;
 import nl.nn.adapterframework.jdbc.TransactionManagerTestBase;
 import nl.nn.adapterframework.jdbc.dbms.ConcurrentManagedTransactionTester;
 import nl.nn.adapterframework.jta.SpringTxManagerProxy;
+import nl.nn.adapterframework.metrics.MetricsRegistry;
 import nl.nn.adapterframework.task.TimeoutGuard;
 
 public class LockerTest extends TransactionManagerTestBase {
@@ -374,6 +375,129 @@ public class LockerTest extends TransactionManagerTestBase {
 
 	}
 
+	@Test
+	public void testLeaseIsReusedWithoutDatabaseAccess() throws Exception {
+		cleanupLocks();
+		String objectId = "leaseLocker"+System.nanoTime(); // leases are kept per JVM
+		locker.setTxManager(txManager);
+		locker.setObjectId(objectId);
+		locker.setLeaseTime(60000);
+		locker.configure();
+
+		String lockObjectId = locker.acquire();
+		assertEquals(objectId, lockObjectId);
+		assertEquals(1, getRowCount());
+
+		locker.release(lockObjectId);
+		assertEquals("lease must remain in the database after release", 1, getRowCount());
+
+		cleanupLocks();
+		assertEquals("lease must be reused without accessing the database", objectId, locker.acquire());
+		assertEquals(0, getRowCount());
+	}
+
+	@Test
+	public void testLeaseHeldByOtherThreadFails() throws Exception {
+		cleanupLocks();
+		String objectId = "leaseLocker"+System.nanoTime();
+		locker.setObjectId(objectId);
+		locker.setLeaseTime(60000);
+		locker.configure();
+
+		assertNotNull(locker.acquire());
+
+		MessageKeeper messageKeeper = new MessageKeeper();
+		assertNull("Should not be possible to obtain the lock a second time", locker.acquire(messageKeeper));
+		assertThat(messageKeeper.get(0).getMessageText(), containsString("held by another thread"));
+	}
+
+	@Test
+	public void testLeaseIsRenewedInDatabase() throws Exception {
+		cleanupLocks();
+		String objectId = "leaseLocker"+System.nanoTime();
+		locker.setObjectId(objectId);
+		locker.setLeaseTime(200);
+		locker.configure();
+
+		String lockObjectId = locker.acquire();
+		assertNotNull(lockObjectId);
+		locker.release(lockObjectId);
+		Thread.sleep(150); // less than half of the leaseTime is left
+
+		assertEquals(objectId, locker.acquire());
+		assertEquals(1, getRowCount());
+	}
+
+	@Test
+	public void testExpiredLeaseOfOtherHostIsTakenOver() throws Exception {
+		cleanupLocks();
+		String objectId = "leaseLocker"+System.nanoTime();
+		JdbcUtil.executeStatement(connection, "INSERT INTO IBISLOCK (OBJECTID, TYPE, HOST, CREATIONDATE, EXPIRYDATE) VALUES('"+objectId+"', 'T', 'otherHost', "+dbmsSupport.getDatetimeLiteral(new java.util.Date(System.currentTimeMillis()-2000))+", "+dbmsSupport.getDatetimeLiteral(new java.util.Date(System.currentTimeMillis()-1000))+")");
+		locker.setObjectId(objectId);
+		locker.setLeaseTime(60000);
+		locker.configure();
+
+		assertEquals(objectId, locker.acquire());
+		assertEquals(1, getRowCount());
+	}
+
+	@Test
+	public void testReleaseByOtherThreadIsIgnored() throws Exception {
+		cleanupLocks();
+		String objectId = "leaseLocker"+System.nanoTime();
+		locker.setObjectId(objectId);
+		locker.setLeaseTime(60000);
+		locker.configure();
+
+		String lockObjectId = locker.acquire();
+		assertNotNull(lockObjectId);
+
+		Thread other = new Thread(() -> {
+			try {
+				locker.release(lockObjectId);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		other.start();
+		other.join();
+
+		assertNull("release by a thread that does not hold the lock must not free it", locker.acquire());
+		locker.release(lockObjectId);
+		locker.release(lockObjectId);
+
+		Locker otherLocker = new Locker();
+		autowire(otherLocker);
+		otherLocker.setObjectId(objectId);
+		otherLocker.setLeaseTime(60000);
+		otherLocker.configure();
+		assertNotNull(otherLocker.acquire());
+		assertNull("a repeated release must not allow a second holder", locker.acquire());
+	}
+
+	@Test
+	public void testCloseRemovesLeaseAndMeters() throws Exception {
+		cleanupLocks();
+		String objectId = "leaseLocker"+System.nanoTime();
+		MetricsRegistry metricsRegistry = new MetricsRegistry();
+		locker.setMetricsRegistry(metricsRegistry);
+		locker.setObjectId(objectId);
+		locker.setLeaseTime(60000);
+		locker.configure();
+
+		String lockObjectId = locker.acquire();
+		locker.release(lockObjectId);
+		assertNotNull(metricsRegistry.getRegistry().find("frank.locker.acquire").tag("objectId", objectId).timer());
+
+		locker.close();
+		assertNull(metricsRegistry.getRegistry().find("frank.locker.acquire").tag("objectId", objectId).timer());
+
+		cleanupLocks();
+		assertEquals(objectId, locker.acquire());
+		assertEquals("lease must be obtained from the database after close", 1, getRowCount());
+		assertNotNull(metricsRegistry.getRegistry().find("frank.locker.acquire").tag("objectId", objectId).timer());
+	}
+
 	public void cleanupLocks() throws Exception {
 		JdbcUtil.executeStatement(connection, "DELETE FROM IBISLOCK");
 	}
@@ -2,12 +2,25 @@ package nl.nn.adapterframework.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
 
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.logging.log4j.Logger;
 import org.junit.Test;
 
@@ -59,4 +72,161 @@ public class TransformerPoolTest {
 		assertTrue(transformerPool.getIndent());
 	}
 
+	@Test
+	public void sharedTemplatesForSameResource() throws Exception {
+		TemplatesCache cache = TemplatesCache.getInstance();
+		Resource resource = Resource.getResource(stylesheetURL);
+		TransformerPool transformerPool1 = TransformerPool.getInstance(resource);
+		int size = cache.size();
+		long hits = cache.getHits();
+
+		TransformerPool transformerPool2 = TransformerPool.getInstance(resource);
+		assertEquals(size, cache.size());
+		assertEquals(hits+1, cache.getHits());
+
+		String result=transformerPool2.transform(xml, null).replaceAll("[\n\r]", "");
+		assertEquals("<authEntries>   <entry alias=\"false\"/></authEntries>", result);
+		transformerPool1.close();
+		transformerPool2.close();
+	}
+
+	@Test
+	public void sharedTemplatesAreReleasedOnClose() throws Exception {
+		TemplatesCache cache = TemplatesCache.getInstance();
+		String xpathEvaluatorSource = XmlUtils.createXPathEvaluatorSource("root/message[@id='sharedTemplatesAreReleasedOnClose']");
+		int size = cache.size();
+		TransformerPool transformerPool1 = TransformerPool.getUtilityInstance(xpathEvaluatorSource, 2);
+		TransformerPool transformerPool2 = TransformerPool.getInstance(xpathEvaluatorSource, 2);
+		TransformerPool transformerPool3 = TransformerPool.getInstance(xpathEvaluatorSource, 2);
+		assertEquals(size+2, cache.size()); // utility instance has no ClassLoader scope
+
+		transformerPool2.close();
+		assertEquals(size+2, cache.size());
+		transformerPool3.close();
+		assertEquals(size+1, cache.size());
+
+		transformerPool3.open();
+		assertEquals(size+2, cache.size());
+		assertEquals("", transformerPool3.transform(xml, null));
+		transformerPool3.close();
+		transformerPool1.close(); // not closed, utility instances are shared
+		assertEquals(size+1, cache.size());
+	}
+
+	@Test
+	public void sharedTemplatesAreReleasedWithTheirOwner() throws Exception {
+		TemplatesCache cache = TemplatesCache.getInstance();
+		String xpathEvaluatorSource = XmlUtils.createXPathEvaluatorSource("root/message[@id='sharedTemplatesAreReleasedWithTheirOwner']");
+		TemplatesCache.Key key = TemplatesCache.getKey(xpathEvaluatorSource, null, 2, null);
+		Templates templates = XmlUtils.getTransformerFactory(2).newTemplates(new StreamSource(new StringReader(xpathEvaluatorSource)));
+		ClassLoader owner1 = new URLClassLoader(new URL[0]);
+		ClassLoader owner2 = new URLClassLoader(new URL[0]);
+		int size = cache.size();
+
+		assertSame(templates, cache.acquire(key, owner1, () -> templates, null));
+		assertSame(templates, cache.acquire(key, owner1, () -> templates, null));
+		assertSame(templates, cache.acquire(key, owner2, () -> templates, null));
+		assertEquals(size+1, cache.size());
+
+		cache.removeAll(owner1); // configuration closed without closing its pools
+		assertEquals(size+1, cache.size());
+		cache.release(key, owner1); // pool closed after its configuration, must not release the reference of owner2
+		assertEquals(size+1, cache.size());
+		cache.release(key, owner2);
+		assertEquals(size, cache.size());
+	}
+
+	@Test
+	public void noSharedTemplatesForDifferentXsltVersion() throws Exception {
+		TemplatesCache cache = TemplatesCache.getInstance();
+		String xpathEvaluatorSource = XmlUtils.createXPathEvaluatorSource(xpath);
+		TransformerPool transformerPool1 = TransformerPool.getUtilityInstance(xpathEvaluatorSource, 1);
+		long misses = cache.getMisses();
+
+		TransformerPool transformerPool2 = TransformerPool.getUtilityInstance(xpathEvaluatorSource, 2);
+		assertEquals(misses+1, cache.getMisses());
+		assertEquals(1, transformerPool1.getXsltVersion());
+		assertEquals(2, transformerPool2.getXsltVersion());
+		assertEquals(expectedXpath, transformerPool2.transform(xml, null));
+	}
+
+	@Test
+	public void boundedPoolReusesTransformers() throws Exception {
+		AppConstants appConstants = AppConstants.getInstance();
+		String originalStrategy = appConstants.getProperty(TransformerPool.POOL_STRATEGY_KEY);
+		appConstants.setProperty(TransformerPool.POOL_STRATEGY_KEY, "BOUNDED");
+		try {
+			String xpathEvaluatorSource = XmlUtils.createXPathEvaluatorSource(xpath);
+			TransformerPool transformerPool = TransformerPool.getInstance(xpathEvaluatorSource);
+			for (int i=0; i<10; i++) {
+				assertEquals(expectedXpath, transformerPool.transform(xml, null));
+			}
+
+			TransformerPoolStatistics statistics = transformerPool.getStatistics();
+			assertEquals(1, statistics.getCreations());
+			assertEquals(11, statistics.getBorrows()); // including the check at creation of the pool
+			transformerPool.close();
+		} finally {
+			appConstants.setProperty(TransformerPool.POOL_STRATEGY_KEY, originalStrategy);
+		}
+	}
+
+	@Test
+	public void transformersAreResetOnReturn() throws Exception {
+		String xpathEvaluatorSource = XmlUtils.createXPathEvaluatorSource(xpath);
+		TransformerPool transformerPool = TransformerPool.getInstance(xpathEvaluatorSource);
+		Transformer transformer = transformerPool.getTransformer();
+		URIResolver uriResolver = transformer.getURIResolver();
+		transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+		transformer.setURIResolver(null);
+		transformerPool.releaseTransformer(transformer);
+
+		Transformer reused = transformerPool.getTransformer();
+		assertSame(transformer, reused);
+		assertEquals("text", reused.getOutputProperty(OutputKeys.METHOD));
+		assertSame(uriResolver, reused.getURIResolver());
+		transformerPool.releaseTransformer(reused);
+		assertEquals(expectedXpath, transformerPool.transform(xml, null));
+		transformerPool.close();
+	}
+
+	@Test
+	public void boundedObjectPoolKeepsAtMostMaxIdleObjects() throws Exception {
+		AtomicInteger created = new AtomicInteger();
+		AtomicInteger destroyed = new AtomicInteger();
+		BoundedObjectPool<Integer> pool = new BoundedObjectPool<>(new BasePooledObjectFactory<Integer>() {
+			@Override
+			public Integer create() {
+				return created.incrementAndGet();
+			}
+
+			@Override
+			public PooledObject<Integer> wrap(Integer obj) {
+				return new DefaultPooledObject<>(obj);
+			}
+
+			@Override
+			public void destroyObject(PooledObject<Integer> p) {
+				destroyed.incrementAndGet();
+			}
+		}, 2);
+
+		Integer o1 = pool.borrowObject();
+		Integer o2 = pool.borrowObject();
+		Integer o3 = pool.borrowObject();
+		assertEquals(3, pool.getNumActive());
+		pool.returnObject(o1);
+		pool.returnObject(o2);
+		pool.returnObject(o3);
+		assertEquals(0, pool.getNumActive());
+		assertEquals(2, pool.getNumIdle());
+		assertEquals(1, destroyed.get());
+
+		pool.borrowObject();
+		pool.borrowObject();
+		assertEquals(3, created.get());
+
+		pool.close();
+		assertEquals(1, destroyed.get()); // borrowed objects are not destroyed by close
+	}
 }
@@ -0,0 +1,135 @@
+package nl.nn.adapterframework.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import nl.nn.adapterframework.core.PipeLineSession;
+
+public class SchemaGrammarCacheTest {
+
+	private SchemaGrammarCache cache = SchemaGrammarCache.getInstance();
+
+	@Before
+	public void setUp() {
+		cache.clear();
+	}
+
+	private XercesXmlValidator createValidator(String schemasId, String xsd) throws Exception {
+		XercesXmlValidator validator = new XercesXmlValidator();
+		validator.setSchemasProvider(new DummySchemasProviderImpl(schemasId, xsd));
+		validator.configure(null);
+		validator.start();
+		return validator;
+	}
+
+	private XercesXmlValidator createValidator(String schemasId, String xsd, ClassLoader configurationClassLoader) throws Exception {
+		ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(configurationClassLoader);
+		try {
+			return createValidator(schemasId, xsd);
+		} finally {
+			Thread.currentThread().setContextClassLoader(originalClassLoader);
+		}
+	}
+
+	private PreparseResult getPreparseResult(XercesXmlValidator validator) throws Exception {
+		return validator.getPreparseResult(new PipeLineSession());
+	}
+
+	@Test
+	public void testValidatorsShareGrammarPool() throws Exception {
+		long hits = cache.getHits();
+		long misses = cache.getMisses();
+
+		XercesXmlValidator validator1 = createValidator("A", "/Validation/Basic/xsd/A_correct.xsd");
+		XercesXmlValidator validator2 = createValidator("A", "/Validation/Basic/xsd/A_correct.xsd");
+
+		assertSame(getPreparseResult(validator1), getPreparseResult(validator2));
+		assertEquals(misses+1, cache.getMisses());
+		assertEquals(hits+1, cache.getHits());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testDifferentSchemasAreNotShared() throws Exception {
+		XercesXmlValidator validator1 = createValidator("A", "/Validation/Basic/xsd/A_correct.xsd");
+		XercesXmlValidator validator2 = createValidator("A", "/Validation/Basic/xsd/A_without_targetnamespace.xsd");
+
+		assertNotSame(getPreparseResult(validator1), getPreparseResult(validator2));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testIgnoreCaching() throws Exception {
+		XercesXmlValidator validator = new XercesXmlValidator();
+		validator.setSchemasProvider(new DummySchemasProviderImpl("A", "/Validation/Basic/xsd/A_correct.xsd"));
+		validator.setIgnoreCaching(true);
+		validator.configure(null);
+		validator.start();
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testSelfContainedSchemasAreSharedBetweenClassLoaders() throws Exception {
+		ClassLoader otherClassLoader = new URLClassLoader(new URL[0], Thread.currentThread().getContextClassLoader());
+		XercesXmlValidator validator1 = createValidator("B", "/Validation/Basic/xsd/B.xsd");
+		XercesXmlValidator validator2 = createValidator("B", "/Validation/Basic/xsd/B.xsd", otherClassLoader);
+
+		assertSame(getPreparseResult(validator1), getPreparseResult(validator2));
+		assertEquals(1, cache.size());
+
+		cache.removeAll(otherClassLoader);
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testSchemasWithExternalReferencesAreNotSharedBetweenClassLoaders() throws Exception {
+		ClassLoader otherClassLoader = new URLClassLoader(new URL[0], Thread.currentThread().getContextClassLoader());
+		XercesXmlValidator validator1 = createValidator("Include", "/Validation/Include/xsd/main.xsd");
+		XercesXmlValidator validator2 = createValidator("Include", "/Validation/Include/xsd/main.xsd", otherClassLoader);
+
+		assertTrue(getPreparseResult(validator1).isExternalReferencesResolved());
+		assertNotSame(getPreparseResult(validator1), getPreparseResult(validator2));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testRemoveAllOfClassLoader() throws Exception {
+		createValidator("Include", "/Validation/Include/xsd/main.xsd");
+		assertEquals(1, cache.size());
+
+		cache.removeAll(Thread.currentThread().getContextClassLoader());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testWarningsAreReportedToEveryValidator() throws Exception {
+		List<Schema> schemas = new DummySchemasProviderImpl("A", "/Validation/Basic/xsd/A_correct.xsd").getSchemas();
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		PreparseResult preparseResult = new PreparseResult();
+		List<String> reportedToFirst = new ArrayList<>();
+		List<String> reportedToSecond = new ArrayList<>();
+
+		SchemaGrammarCache.GrammarCompiler compiler = warnings -> {
+			warnings.add("warning found while preparsing");
+			return preparseResult;
+		};
+		assertSame(preparseResult, cache.get("A", schemas, "1.0", false, classLoader, compiler, reportedToFirst::add));
+		assertSame(preparseResult, cache.get("A", schemas, "1.0", false, classLoader, compiler, reportedToSecond::add));
+
+		assertEquals(0, reportedToFirst.size()); // reported by the compiler itself
+		assertEquals(Arrays.asList("warning found while preparsing"), reportedToSecond);
+	}
+}
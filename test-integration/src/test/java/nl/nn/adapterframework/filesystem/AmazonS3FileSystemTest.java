@@ -1,5 +1,10 @@
 package nl.nn.adapterframework.filesystem;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.UUID;
 
 import org.junit.Ignore;
@@ -55,4 +60,34 @@ public class AmazonS3FileSystemTest extends FileSystemTest<S3Object, AmazonS3Fil
 		// TODO Auto-generated method stub
 		super.writableFileSystemTestAppendNewFile();
 	}
+
+	@Test
+	public void amazonS3FileSystemTestMultipartUpload() throws Exception {
+		String filename = "multipart" + FILE1;
+		fileSystem.setMultipartUploadPartSize(AmazonS3FileSystem.MINIMUM_PART_SIZE);
+		fileSystem.setMaxConcurrentPartUploads(2);
+		fileSystem.configure();
+		fileSystem.open();
+
+		deleteFile(null, filename);
+		waitForActionToFinish();
+
+		byte[] block = new byte[64 * 1024];
+		Arrays.fill(block, (byte)'x');
+		long length = 0;
+		S3Object file = fileSystem.toFile(filename);
+		try (OutputStream out = fileSystem.createFile(file)) {
+			// two full parts and a partial last part
+			while (length < 2L * AmazonS3FileSystem.MINIMUM_PART_SIZE + 1000) {
+				out.write(block);
+				length += block.length;
+			}
+		}
+		waitForActionToFinish();
+
+		existsCheck(filename);
+		S3Object uploaded = fileSystem.toFile(filename);
+		assertEquals(length, fileSystem.getFileSize(uploaded));
+		assertNotNull(fileSystem.getModificationTime(uploaded));
+	}
 }
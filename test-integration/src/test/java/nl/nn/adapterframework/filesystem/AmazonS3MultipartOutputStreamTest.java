@@ -0,0 +1,208 @@
+package nl.nn.adapterframework.filesystem;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+public class AmazonS3MultipartOutputStreamTest {
+	private static final String BUCKET = "bucket";
+	private static final String KEY = "folder/object";
+	private static final int PART_SIZE = 16;
+
+	private AmazonS3 s3Client;
+	private ExecutorService executor;
+	private Map<Integer, byte[]> uploadedParts = new TreeMap<>();
+	private byte[] putContent;
+	private List<AmazonS3MultipartOutputStream> closedStreams = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+		s3Client = mock(AmazonS3.class);
+
+		InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+		initiateResult.setUploadId("uploadId");
+		when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+		when(s3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+			UploadPartRequest request = invocation.getArgument(0);
+			byte[] content = IOUtils.toByteArray(request.getInputStream());
+			assertEquals(request.getPartSize(), content.length);
+			synchronized (uploadedParts) {
+				uploadedParts.put(request.getPartNumber(), content);
+			}
+			UploadPartResult result = new UploadPartResult();
+			result.setPartNumber(request.getPartNumber());
+			result.setETag("etag"+request.getPartNumber());
+			return result;
+		});
+		when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(new CompleteMultipartUploadResult());
+		when(s3Client.putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class))).thenAnswer(invocation -> {
+			putContent = IOUtils.toByteArray((InputStream)invocation.getArgument(2));
+			assertEquals(((ObjectMetadata)invocation.getArgument(3)).getContentLength(), putContent.length);
+			return new PutObjectResult();
+		});
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private AmazonS3MultipartOutputStream createStream() {
+		return new AmazonS3MultipartOutputStream(s3Client, BUCKET, KEY, executor, PART_SIZE, 2, closedStreams::add);
+	}
+
+	private byte[] createContent(int length) {
+		byte[] content = new byte[length];
+		for (int i=0; i<length; i++) {
+			content[i] = (byte)i;
+		}
+		return content;
+	}
+
+	private void write(AmazonS3MultipartOutputStream stream, byte[] content, int chunkSize) throws IOException {
+		for (int i=0; i<content.length; i+=chunkSize) {
+			stream.write(content, i, Math.min(chunkSize, content.length-i));
+		}
+	}
+
+	private byte[] getUploadedContent() throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		for (byte[] part : uploadedParts.values()) {
+			result.write(part);
+		}
+		return result.toByteArray();
+	}
+
+	@Test
+	public void testSmallContentIsPutInSingleRequest() throws Exception {
+		byte[] content = createContent(10);
+		try (AmazonS3MultipartOutputStream stream = createStream()) {
+			write(stream, content, 3);
+		}
+
+		assertArrayEquals(content, putContent);
+		verify(s3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+		assertEquals(1, closedStreams.size());
+	}
+
+	@Test
+	public void testEmptyContentIsPutInSingleRequest() throws Exception {
+		createStream().close();
+
+		assertArrayEquals(new byte[0], putContent);
+		verify(s3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+	}
+
+	@Test
+	public void testContentOfExactlyPartSizeIsPutInSingleRequest() throws Exception {
+		byte[] content = createContent(PART_SIZE);
+		try (AmazonS3MultipartOutputStream stream = createStream()) {
+			stream.write(content);
+		}
+
+		assertArrayEquals(content, putContent);
+		verify(s3Client, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+	}
+
+	@Test
+	public void testPartBoundaries() throws Exception {
+		byte[] content = createContent(5*PART_SIZE+3);
+		try (AmazonS3MultipartOutputStream stream = createStream()) {
+			write(stream, content, 7);
+		}
+
+		assertEquals(6, uploadedParts.size());
+		for (int partNumber=1; partNumber<=5; partNumber++) {
+			assertEquals(PART_SIZE, uploadedParts.get(partNumber).length);
+		}
+		assertEquals(3, uploadedParts.get(6).length);
+		assertArrayEquals(content, getUploadedContent());
+
+		ArgumentCaptor<CompleteMultipartUploadRequest> completeRequest = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+		verify(s3Client).completeMultipartUpload(completeRequest.capture());
+		assertEquals("uploadId", completeRequest.getValue().getUploadId());
+		List<Integer> partNumbers = completeRequest.getValue().getPartETags().stream().map(PartETag::getPartNumber).collect(Collectors.toList());
+		assertEquals("[1, 2, 3, 4, 5, 6]", partNumbers.toString());
+		verify(s3Client, never()).putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class));
+	}
+
+	@Test
+	public void testMultipleOfPartSizeHasNoEmptyPart() throws Exception {
+		byte[] content = createContent(2*PART_SIZE);
+		try (AmazonS3MultipartOutputStream stream = createStream()) {
+			stream.write(content);
+		}
+
+		assertEquals(2, uploadedParts.size());
+		assertArrayEquals(content, getUploadedContent());
+	}
+
+	@Test
+	public void testUploadIsAbortedOnFailure() throws Exception {
+		when(s3Client.uploadPart(any(UploadPartRequest.class))).thenThrow(new SdkClientException("upload failed"));
+		AmazonS3MultipartOutputStream stream = createStream();
+
+		IOException e = assertThrows(IOException.class, () -> {
+			write(stream, createContent(10*PART_SIZE), PART_SIZE);
+			stream.close();
+		});
+
+		assertThat(e.getMessage(), containsString(KEY));
+		verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+		verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+		assertThrows(IOException.class, () -> stream.write(1));
+	}
+
+	@Test
+	public void testFailedStreamCannotBeCompleted() throws Exception {
+		AmazonS3MultipartOutputStream stream = createStream();
+		write(stream, createContent(3*PART_SIZE), PART_SIZE);
+
+		stream.fail("file system was closed");
+
+		IOException e = assertThrows(IOException.class, stream::close);
+		assertThat(e.getMessage(), containsString("file system was closed"));
+		verify(s3Client).abortMultipartUpload(argThat(request -> BUCKET.equals(request.getBucketName()) && KEY.equals(request.getKey()) && "uploadId".equals(request.getUploadId())));
+		verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+	}
+}